@@ -0,0 +1,96 @@
+package com.tienda.dao;
+
+import com.tienda.database.ConexionDB;
+import com.tienda.modelo.Categoria;
+import com.tienda.modelo.Producto;
+import com.tienda.modelo.Proveedor;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
+
+// Base SQLite temporal sembrada con un catálogo sintético de 'tamanoCatalogo' productos.
+// Los datos son deterministas (semilla fija) para que las mediciones sean comparables entre ejecuciones.
+// Cada combinación de parámetros corre en su propio fork, así que el motor y los cachés
+// (singletons) empiezan vacíos en cada una.
+@State(Scope.Benchmark)
+public class CatalogoBenchmark {
+    private static final String[] MARCAS = {"Bimbo", "Lala", "Nestlé", "Sabritas", "Jumex", "Herdez",
+            "La Costeña", "Gamesa", "Barcel", "Alpura", "Coca-Cola", "Pepsi"};
+    private static final String[] ARTICULOS = {"Leche", "Pan", "Galletas", "Café", "Jugo", "Refresco",
+            "Papas", "Frijoles", "Chiles", "Atún", "Arroz", "Azúcar", "Aceite", "Chocolate", "Yogur"};
+    private static final String[] PRESENTACIONES = {"250 ml", "500 ml", "1 L", "2 L", "100 g", "250 g",
+            "500 g", "1 kg", "paquete", "lata", "botella", "caja"};
+
+    // Consultas de búsqueda típicas de la caja
+    static final String[] CONSULTAS = {"leche", "cafe nestle", "pap", "jugo 1 l", "choc", "arroz 1 kg"};
+
+    @Param({"1000", "10000", "100000"})
+    public int tamanoCatalogo;
+
+    private Path archivo;
+    int[] ids;
+    String[] codigos;
+
+    @Setup(Level.Trial)
+    public void sembrar() throws IOException {
+        archivo = Files.createTempFile("inventario-bench-", ".db");
+        Files.delete(archivo); // MotorSQLite crea el archivo y el esquema
+        System.setProperty("inventario.motor", "sqlite");
+        System.setProperty("inventario.sqlite.archivo", archivo.toString());
+
+        new CategoriaDAO().agregar(new Categoria("Abarrotes", "Catálogo de benchmark"));
+        new ProveedorDAO().agregar(new Proveedor("Proveedor benchmark", "", "", "", "", "México"));
+        int idCategoria = new CategoriaDAO().obtenerTodas().get(0).getIdCategoria();
+        int idProveedor = new ProveedorDAO().obtenerTodos().get(0).getIdProveedor();
+
+        Random aleatorio = new Random(42);
+        ResultadoImportacion resultado = new ImportadorProductos(5000).importar(
+                IntStream.range(0, tamanoCatalogo).mapToObj(i -> new Producto(
+                        ARTICULOS[aleatorio.nextInt(ARTICULOS.length)] + " " +
+                                MARCAS[aleatorio.nextInt(MARCAS.length)] + " " +
+                                PRESENTACIONES[aleatorio.nextInt(PRESENTACIONES.length)],
+                        "Producto sintético " + i,
+                        1 + aleatorio.nextInt(50000) / 100.0,
+                        aleatorio.nextInt(200),
+                        aleatorio.nextInt(20),
+                        idCategoria,
+                        idProveedor,
+                        codigo(i))));
+        if (resultado.getInsertados() != tamanoCatalogo) {
+            throw new IllegalStateException("Siembra incompleta: " + resultado);
+        }
+
+        ids = resultado.getIdsPorFila().values().stream().mapToInt(Integer::intValue).toArray();
+        codigos = IntStream.range(0, tamanoCatalogo).mapToObj(CatalogoBenchmark::codigo).toArray(String[]::new);
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() throws IOException {
+        ConexionDB.cerrarConexion();
+        Files.deleteIfExists(archivo);
+        Files.deleteIfExists(Path.of(archivo + "-wal"));
+        Files.deleteIfExists(Path.of(archivo + "-shm"));
+    }
+
+    static String codigo(int i) {
+        return String.format("750%010d", i);
+    }
+
+    int idAleatorio() {
+        return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+    }
+
+    String codigoAleatorio() {
+        return codigos[ThreadLocalRandom.current().nextInt(codigos.length)];
+    }
+}
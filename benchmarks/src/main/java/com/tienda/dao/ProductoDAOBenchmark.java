@@ -0,0 +1,124 @@
+package com.tienda.dao;
+
+import com.tienda.cache.CacheProductos;
+import com.tienda.database.ConexionDB;
+import com.tienda.modelo.Producto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Rutas calientes de ProductoDAO: lecturas, escrituras y el mapeo ResultSet -> Producto.
+// Los métodos "SinCache" invalidan la entrada antes de leer para medir el viaje a la base.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Dinventario.motor=sqlite", "-Dfile.encoding=UTF-8"})
+public class ProductoDAOBenchmark {
+    private static final int FILAS_MAPEO = 1000;
+    private static final String SQL_MAPEO = "SELECT " + ProductoDAO.COLUMNAS_PRODUCTO +
+            " FROM productos p ORDER BY p.id_producto LIMIT " + FILAS_MAPEO;
+
+    private final ProductoDAO dao = new ProductoDAO();
+    private final CacheProductos cache = CacheProductos.getInstancia();
+
+    // Lecturas
+    @Benchmark
+    public List<Producto> obtenerTodosLosProductos(CatalogoBenchmark catalogo) {
+        return dao.obtenerTodosLosProductos();
+    }
+
+    @Benchmark
+    public List<Producto> obtenerPrimeraPagina(CatalogoBenchmark catalogo) {
+        return dao.obtenerPaginaProductos(null, 200);
+    }
+
+    @Benchmark
+    public Producto obtenerProductoPorId(CatalogoBenchmark catalogo) {
+        return dao.obtenerProductoPorId(catalogo.idAleatorio());
+    }
+
+    @Benchmark
+    public Producto obtenerProductoPorIdSinCache(CatalogoBenchmark catalogo) {
+        int id = catalogo.idAleatorio();
+        cache.invalidar(id);
+        return dao.obtenerProductoPorId(id);
+    }
+
+    @Benchmark
+    public List<Producto> buscarPorNombre(CatalogoBenchmark catalogo) {
+        String[] consultas = CatalogoBenchmark.CONSULTAS;
+        return dao.buscarPorNombre(consultas[ThreadLocalRandom.current().nextInt(consultas.length)]);
+    }
+
+    @Benchmark
+    public Producto buscarPorCodigoBarras(CatalogoBenchmark catalogo) {
+        return dao.buscarPorCodigoBarras(catalogo.codigoAleatorio());
+    }
+
+    @Benchmark
+    public Producto buscarPorCodigoBarrasSinCache(CatalogoBenchmark catalogo) {
+        String codigo = catalogo.codigoAleatorio();
+        cache.invalidarCodigo(codigo);
+        return dao.buscarPorCodigoBarras(codigo);
+    }
+
+    // Escrituras (el catálogo crece durante agregarProducto; es despreciable frente a su tamaño)
+    @Benchmark
+    public boolean agregarProducto(CatalogoBenchmark catalogo) {
+        Producto modelo = dao.obtenerProductoPorId(catalogo.ids[0]);
+        Producto nuevo = new Producto(modelo);
+        nuevo.setCodigoBarras(null);
+        return dao.agregarProducto(nuevo);
+    }
+
+    @Benchmark
+    public boolean actualizarStock(CatalogoBenchmark catalogo) {
+        return dao.actualizarStock(catalogo.idAleatorio(), ThreadLocalRandom.current().nextInt(200));
+    }
+
+    @Benchmark
+    public ResultadoMovimiento registrarMovimiento(CatalogoBenchmark catalogo) {
+        return dao.registrarMovimiento(catalogo.idAleatorio(), 1);
+    }
+
+    // Mapeo: misma consulta, leyendo solo la clave o construyendo cada Producto.
+    // La diferencia entre ambos es el coste de crearProductoDesdeResultSet
+    @Benchmark
+    public void recorrerFilas(CatalogoBenchmark catalogo, Blackhole sumidero) throws SQLException {
+        try (Connection conn = ConexionDB.getConexionLectura();
+             PreparedStatement pstmt = conn.prepareStatement(SQL_MAPEO);
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                sumidero.consume(rs.getInt(1));
+            }
+        }
+    }
+
+    @Benchmark
+    public void mapearFilas(CatalogoBenchmark catalogo, Blackhole sumidero) throws SQLException {
+        try (Connection conn = ConexionDB.getConexionLectura();
+             PreparedStatement pstmt = conn.prepareStatement(SQL_MAPEO);
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                sumidero.consume(ProductoDAO.crearProductoDesdeResultSet(rs));
+            }
+        }
+    }
+}
@@ -1,5 +1,11 @@
 package com.tienda;
 
+import com.tienda.dao.CategoriaDAO;
+import com.tienda.dao.ProductoDAO;
+import com.tienda.dao.ProveedorDAO;
+import com.tienda.dao.StockDiferido;
+import com.tienda.database.ConexionDB;
+import com.tienda.servicio.ServicioInventario;
 import com.tienda.ui.VentanaInventario;
 
 import javax.swing.*;
@@ -13,9 +19,21 @@ public class Main {
             e.printStackTrace();
         }
 
+        // Al salir: volcar los movimientos de stock diferidos y devolver y cerrar las conexiones del pool
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            StockDiferido.getInstancia().cerrar();
+            ConexionDB.cerrarConexion();
+        }));
+
+        // Arranque antes de la interfaz, fuera del EDT: recuperación del diario de stock, sondeo
+        // de otras instancias e instantánea del catálogo, si están activados, y con ellos la
+        // apertura del motor y sus migraciones
+        ProductoDAO productoDAO = new ProductoDAO();
+        ServicioInventario servicio = new ServicioInventario(productoDAO, new CategoriaDAO(), new ProveedorDAO());
+
         // Ejecutar la interfaz en el hilo de eventos de Swing
         SwingUtilities.invokeLater(() -> {
-            VentanaInventario ventana = new VentanaInventario();
+            VentanaInventario ventana = new VentanaInventario(productoDAO, servicio);
             ventana.setVisible(true);
         });
     }
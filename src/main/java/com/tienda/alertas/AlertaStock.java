@@ -0,0 +1,52 @@
+package com.tienda.alertas;
+
+// Un producto cruzó su stock_minimo: bajó hasta el mínimo (BAJO) o volvió a superarlo (REPUESTO)
+public final class AlertaStock {
+    public enum Tipo {BAJO, REPUESTO}
+
+    private final Tipo tipo;
+    private final int idProducto;
+    private final int stockActual;
+    private final int stockMinimo;
+    private final long instante;
+
+    public AlertaStock(Tipo tipo, int idProducto, int stockActual, int stockMinimo) {
+        this.tipo = tipo;
+        this.idProducto = idProducto;
+        this.stockActual = stockActual;
+        this.stockMinimo = stockMinimo;
+        this.instante = System.currentTimeMillis();
+    }
+
+    public Tipo getTipo() {
+        return tipo;
+    }
+
+    public int getIdProducto() {
+        return idProducto;
+    }
+
+    public int getStockActual() {
+        return stockActual;
+    }
+
+    public int getStockMinimo() {
+        return stockMinimo;
+    }
+
+    // Unidades que faltan para superar el mínimo (0 o negativo si no está bajo)
+    public int getDeficit() {
+        return stockMinimo - stockActual;
+    }
+
+    // Momento de la alerta (System.currentTimeMillis())
+    public long getInstante() {
+        return instante;
+    }
+
+    @Override
+    public String toString() {
+        return "AlertaStock{" + tipo + ", idProducto=" + idProducto +
+                ", stock=" + stockActual + "/" + stockMinimo + '}';
+    }
+}
@@ -0,0 +1,118 @@
+package com.tienda.alertas;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Productos activos con stock_actual <= stock_minimo, ordenados por déficit (el más urgente primero).
+// Lo mantiene AgregadosInventario con cada fila que aplica, así consultar el stock bajo
+// no toca la base. Cuando un producto cruza su mínimo avisa a los oyentes suscritos.
+public class IndiceStockBajo {
+    private static final Comparator<Entrada> POR_URGENCIA = Comparator
+            .comparingInt((Entrada e) -> e.stockMinimo - e.stockActual).reversed()
+            .thenComparingInt(e -> e.idProducto);
+
+    // Después del comparador: el constructor lo usa
+    private static final IndiceStockBajo INSTANCIA = new IndiceStockBajo();
+
+    // Lecturas sin bloqueo; solo escribe el hilo que tiene el candado de AgregadosInventario
+    private final ConcurrentSkipListSet<Entrada> porUrgencia = new ConcurrentSkipListSet<>(POR_URGENCIA);
+    private final ConcurrentHashMap<Integer, Entrada> porId = new ConcurrentHashMap<>();
+
+    private final List<OyenteStockBajo> oyentes = new CopyOnWriteArrayList<>();
+    // Un solo hilo: las alertas llegan en orden y una escritura nunca espera a un oyente lento
+    private final ExecutorService despachador = Executors.newSingleThreadExecutor(r -> {
+        Thread hilo = new Thread(r, "alertas-stock");
+        hilo.setDaemon(true);
+        return hilo;
+    });
+
+    private IndiceStockBajo() {
+    }
+
+    public static IndiceStockBajo getInstancia() {
+        return INSTANCIA;
+    }
+
+    public void suscribir(OyenteStockBajo oyente) {
+        oyentes.add(oyente);
+    }
+
+    public void desuscribir(OyenteStockBajo oyente) {
+        oyentes.remove(oyente);
+    }
+
+    // Nuevo estado de una fila. Con notificar = false (siembra) solo se indexa
+    public void actualizar(int idProducto, int stockActual, int stockMinimo, boolean activo, boolean notificar) {
+        Entrada anterior = porId.get(idProducto);
+        boolean bajo = activo && stockActual <= stockMinimo;
+
+        if (anterior != null) {
+            porUrgencia.remove(anterior);
+            porId.remove(idProducto);
+        }
+        if (bajo) {
+            Entrada nueva = new Entrada(idProducto, stockActual, stockMinimo);
+            porId.put(idProducto, nueva);
+            porUrgencia.add(nueva);
+        }
+
+        if (notificar && bajo != (anterior != null)) {
+            AlertaStock alerta = new AlertaStock(bajo ? AlertaStock.Tipo.BAJO : AlertaStock.Tipo.REPUESTO,
+                    idProducto, stockActual, stockMinimo);
+            despachador.execute(() -> notificar(alerta));
+        }
+    }
+
+    private void notificar(AlertaStock alerta) {
+        for (OyenteStockBajo oyente : oyentes) {
+            try {
+                oyente.alCruzarMinimo(alerta);
+            } catch (RuntimeException e) {
+                System.err.println("Error en un oyente de alertas de stock: " + e.getMessage());
+            }
+        }
+    }
+
+    public void limpiar() {
+        porUrgencia.clear();
+        porId.clear();
+    }
+
+    public boolean esStockBajo(int idProducto) {
+        return porId.containsKey(idProducto);
+    }
+
+    public int getTamano() {
+        return porId.size();
+    }
+
+    // IDs con stock bajo, el de mayor déficit primero
+    public List<Integer> getIds(int limite) {
+        List<Integer> ids = new ArrayList<>(Math.min(limite, porId.size()));
+        for (Entrada entrada : porUrgencia) {
+            if (ids.size() >= limite) {
+                break;
+            }
+            ids.add(entrada.idProducto);
+        }
+        return ids;
+    }
+
+    private static final class Entrada {
+        final int idProducto;
+        final int stockActual;
+        final int stockMinimo;
+
+        Entrada(int idProducto, int stockActual, int stockMinimo) {
+            this.idProducto = idProducto;
+            this.stockActual = stockActual;
+            this.stockMinimo = stockMinimo;
+        }
+    }
+}
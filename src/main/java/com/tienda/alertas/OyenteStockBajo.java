@@ -0,0 +1,8 @@
+package com.tienda.alertas;
+
+// Recibe las alertas de stock. Se llama desde el hilo de alertas, nunca desde el EDT:
+// quien actualice Swing debe pasar por SwingUtilities.invokeLater
+@FunctionalInterface
+public interface OyenteStockBajo {
+    void alCruzarMinimo(AlertaStock alerta);
+}
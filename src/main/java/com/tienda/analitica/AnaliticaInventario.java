@@ -0,0 +1,184 @@
+package com.tienda.analitica;
+
+import com.tienda.cache.CatalogoColumnar;
+import com.tienda.dao.CategoriaDAO;
+import com.tienda.dao.ProductoDAO;
+import com.tienda.dao.ProveedorDAO;
+import com.tienda.modelo.Categoria;
+import com.tienda.modelo.Producto;
+import com.tienda.modelo.Proveedor;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Informes sobre todo el catálogo de productos activos, calculados en paralelo.
+// Con CatalogoColumnar cargado se reparten tramos de filas entre los hilos del ForkJoinPool
+// común, leyendo los arrays primitivos; si no, se leen los productos de la base y se
+// procesan con un parallelStream. Cada hilo acumula en su propio parcial y los parciales
+// se combinan al final, así no hay contención y el tiempo escala con los núcleos.
+public class AnaliticaInventario {
+    private final ProductoDAO productoDAO;
+    private final CategoriaDAO categoriaDAO;
+    private final ProveedorDAO proveedorDAO;
+    private final CatalogoColumnar columnar = CatalogoColumnar.getInstancia();
+
+    public AnaliticaInventario(ProductoDAO productoDAO, CategoriaDAO categoriaDAO, ProveedorDAO proveedorDAO) {
+        this.productoDAO = productoDAO;
+        this.categoriaDAO = categoriaDAO;
+        this.proveedorDAO = proveedorDAO;
+    }
+
+    // Valor del inventario por categoría, de mayor a menor
+    public List<ValorPorGrupo<Categoria>> valorPorCategoria() {
+        Grupos grupos = reducir(Grupos::new,
+                (g, id, categoria, proveedor, precio, stock, minimo) -> g.sumar(categoria, precio, stock),
+                Grupos::combinar);
+        Map<Integer, Categoria> categorias = porId(categoriaDAO.obtenerTodas(), Categoria::getIdCategoria);
+        return grupos.informe(categorias);
+    }
+
+    // Valor del inventario por proveedor, de mayor a menor
+    public List<ValorPorGrupo<Proveedor>> valorPorProveedor() {
+        Grupos grupos = reducir(Grupos::new,
+                (g, id, categoria, proveedor, precio, stock, minimo) -> g.sumar(proveedor, precio, stock),
+                Grupos::combinar);
+        Map<Integer, Proveedor> proveedores = porId(proveedorDAO.obtenerTodos(), Proveedor::getIdProveedor);
+        return grupos.informe(proveedores);
+    }
+
+    // Los 'n' productos con más valor en stock (precio × stock)
+    public List<Producto> masValiosos(int n) {
+        Mejores mejores = reducir(() -> new Mejores(n),
+                (m, id, categoria, proveedor, precio, stock, minimo) -> m.ofrecer(precio * stock, id),
+                Mejores::combinar);
+        return productoDAO.obtenerProductosPorIds(mejores.getIds());
+    }
+
+    // Productos con al menos 'factor' veces su stock mínimo, los 'n' con más valor inmovilizado
+    // por encima del mínimo: candidatos a promociones o a no reponer
+    public List<CandidatoRotacion> candidatosRotacion(double factor, int n) {
+        Mejores mejores = reducir(() -> new Mejores(n),
+                (m, id, categoria, proveedor, precio, stock, minimo) -> {
+                    if (stock > minimo && stock >= factor * Math.max(1, minimo)) {
+                        m.ofrecer(precio * (stock - minimo), id);
+                    }
+                },
+                Mejores::combinar);
+
+        List<CandidatoRotacion> candidatos = new ArrayList<>();
+        for (Producto producto : productoDAO.obtenerProductosPorIds(mejores.getIds())) {
+            int excedente = producto.getStockActual() - producto.getStockMinimo();
+            candidatos.add(new CandidatoRotacion(producto,
+                    producto.getStockActual() / (double) Math.max(1, producto.getStockMinimo()),
+                    BigDecimal.valueOf(centavos(producto.getPrecioUnitario()) * excedente, 2)));
+        }
+        return candidatos;
+    }
+
+    // Reducción sobre el catálogo en memoria si está cargado; si no, sobre los productos de la base
+    private <A> A reducir(Supplier<A> crear, CatalogoColumnar.Acumulador<A> acumulador, BiConsumer<A, A> combinar) {
+        if (columnar.isCargado()) {
+            return columnar.reducir(crear, acumulador, combinar);
+        }
+        return productoDAO.obtenerTodosLosProductos().parallelStream().collect(crear,
+                (parcial, p) -> acumulador.acumular(parcial, p.getIdProducto(), p.getIdCategoria(),
+                        p.getIdProveedor(), centavos(p.getPrecioUnitario()), p.getStockActual(), p.getStockMinimo()),
+                combinar);
+    }
+
+    // En SQLite el precio es REAL y arrastra restos binarios: se redondea al centavo
+    private static long centavos(double precio) {
+        return Math.round(precio * 100.0);
+    }
+
+    private static <T> Map<Integer, T> porId(List<T> elementos, Function<T, Integer> id) {
+        Map<Integer, T> mapa = new HashMap<>();
+        for (T elemento : elementos) {
+            mapa.put(id.apply(elemento), elemento);
+        }
+        return mapa;
+    }
+
+    // Parcial de un informe agrupado: id del grupo -> {productos, unidades, centavos}
+    private static final class Grupos {
+        private final Map<Integer, long[]> totales = new HashMap<>();
+
+        void sumar(int idGrupo, long precioCentavos, int stock) {
+            long[] total = totales.computeIfAbsent(idGrupo, k -> new long[3]);
+            total[0]++;
+            total[1] += stock;
+            total[2] += precioCentavos * stock;
+        }
+
+        void combinar(Grupos otros) {
+            otros.totales.forEach((idGrupo, otro) -> {
+                long[] total = totales.computeIfAbsent(idGrupo, k -> new long[3]);
+                total[0] += otro[0];
+                total[1] += otro[1];
+                total[2] += otro[2];
+            });
+        }
+
+        <T> List<ValorPorGrupo<T>> informe(Map<Integer, T> grupos) {
+            List<ValorPorGrupo<T>> filas = new ArrayList<>(totales.size());
+            totales.forEach((idGrupo, total) -> filas.add(new ValorPorGrupo<>(idGrupo, grupos.get(idGrupo),
+                    (int) total[0], total[1], BigDecimal.valueOf(total[2], 2))));
+            filas.sort(Comparator.comparing((ValorPorGrupo<T> fila) -> fila.getValor()).reversed()
+                    .thenComparingInt(ValorPorGrupo::getIdGrupo));
+            return filas;
+        }
+    }
+
+    // Parcial de un top-N: montículo con los 'n' mejores vistos, el peor arriba para descartarlo
+    private static final class Mejores {
+        // {puntuación, id}: a igual puntuación gana el ID menor
+        private static final Comparator<long[]> PEOR_PRIMERO = Comparator
+                .comparingLong((long[] e) -> e[0])
+                .thenComparing((long[] e) -> e[1], Comparator.reverseOrder());
+
+        private final int n;
+        private final PriorityQueue<long[]> monticulo;
+
+        Mejores(int n) {
+            this.n = n;
+            this.monticulo = new PriorityQueue<>(Math.max(1, n) + 1, PEOR_PRIMERO);
+        }
+
+        void ofrecer(long puntuacion, long id) {
+            if (n <= 0) {
+                return;
+            }
+            if (monticulo.size() < n) {
+                monticulo.add(new long[]{puntuacion, id});
+            } else if (PEOR_PRIMERO.compare(new long[]{puntuacion, id}, monticulo.peek()) > 0) {
+                monticulo.poll();
+                monticulo.add(new long[]{puntuacion, id});
+            }
+        }
+
+        void combinar(Mejores otros) {
+            for (long[] entrada : otros.monticulo) {
+                ofrecer(entrada[0], entrada[1]);
+            }
+        }
+
+        // IDs del mejor al peor
+        List<Integer> getIds() {
+            List<long[]> ordenados = new ArrayList<>(monticulo);
+            ordenados.sort(PEOR_PRIMERO.reversed());
+            List<Integer> ids = new ArrayList<>(ordenados.size());
+            for (long[] entrada : ordenados) {
+                ids.add((int) entrada[1]);
+            }
+            return ids;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.tienda.analitica;
+
+import com.tienda.modelo.Producto;
+
+import java.math.BigDecimal;
+
+// Producto con mucho más stock del necesario: cobertura = stock / stock mínimo, y
+// valor inmovilizado = precio × unidades por encima del mínimo
+public final class CandidatoRotacion {
+    private final Producto producto;
+    private final double cobertura;
+    private final BigDecimal valorInmovilizado;
+
+    CandidatoRotacion(Producto producto, double cobertura, BigDecimal valorInmovilizado) {
+        this.producto = producto;
+        this.cobertura = cobertura;
+        this.valorInmovilizado = valorInmovilizado;
+    }
+
+    public Producto getProducto() {
+        return producto;
+    }
+
+    public double getCobertura() {
+        return cobertura;
+    }
+
+    public BigDecimal getValorInmovilizado() {
+        return valorInmovilizado;
+    }
+
+    @Override
+    public String toString() {
+        return "CandidatoRotacion{" + producto.getNombreProducto() + ", cobertura=" +
+                String.format("%.1f", cobertura) + ", inmovilizado=" + valorInmovilizado + '}';
+    }
+}
@@ -0,0 +1,48 @@
+package com.tienda.analitica;
+
+import java.math.BigDecimal;
+
+// Una fila de un informe agrupado: productos activos, unidades en stock y valor
+// (precio × stock) de una categoría o un proveedor
+public final class ValorPorGrupo<T> {
+    private final int idGrupo;
+    private final T grupo;
+    private final int productos;
+    private final long unidades;
+    private final BigDecimal valor;
+
+    ValorPorGrupo(int idGrupo, T grupo, int productos, long unidades, BigDecimal valor) {
+        this.idGrupo = idGrupo;
+        this.grupo = grupo;
+        this.productos = productos;
+        this.unidades = unidades;
+        this.valor = valor;
+    }
+
+    public int getIdGrupo() {
+        return idGrupo;
+    }
+
+    // La categoría o el proveedor; null si el ID ya no existe
+    public T getGrupo() {
+        return grupo;
+    }
+
+    public int getProductos() {
+        return productos;
+    }
+
+    public long getUnidades() {
+        return unidades;
+    }
+
+    public BigDecimal getValor() {
+        return valor;
+    }
+
+    @Override
+    public String toString() {
+        return "ValorPorGrupo{" + (grupo != null ? grupo : idGrupo) + ": productos=" + productos +
+                ", unidades=" + unidades + ", valor=" + valor + '}';
+    }
+}
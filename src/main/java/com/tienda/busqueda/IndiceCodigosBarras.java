@@ -0,0 +1,350 @@
+package com.tienda.busqueda;
+
+import com.tienda.eventos.BusEventos;
+import com.tienda.eventos.EventoCambio;
+import com.tienda.modelo.ArticuloCaja;
+import com.tienda.modelo.Producto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.StampedLock;
+
+// Índice en memoria codigo_barras -> artículo de caja de los productos activos, para escanear
+// sin ir a la base. Los códigos numéricos de hasta 17 dígitos (EAN-8, EAN-13, UPC-A, GTIN-14)
+// se guardan como long en una tabla hash de direccionamiento abierto con arrays primitivos
+// paralelos: sin un objeto por entrada ni Strings que comparar. Los demás códigos, raros,
+// van a un mapa aparte.
+// Las lecturas no toman candados (lectura optimista de StampedLock). Los cambios llegan por
+// BusEventos como suscriptor síncrono, así el índice está al día cuando la escritura devuelve.
+public class IndiceCodigosBarras {
+    private static final IndiceCodigosBarras INSTANCIA = new IndiceCodigosBarras();
+
+    private static final int MAX_DIGITOS = 17;
+    private static final int CAPACIDAD_INICIAL = 1024;
+
+    private final StampedLock candado = new StampedLock();
+    private volatile Tabla tabla = new Tabla(CAPACIDAD_INICIAL);
+    private volatile Map<String, ArticuloCaja> otros = new ConcurrentHashMap<>();
+
+    // Cambia con cada evento aplicado; evita guardar una lectura de la base anterior a un cambio
+    private long modificaciones = 0;
+    private boolean cargado = false;
+
+    // Durante la carga los eventos se aplican también a la tabla nueva cuando está lista
+    private boolean cargando = false;
+    private long secuenciaCarga;
+    private final List<EventoCambio<Producto>> diferidos = new ArrayList<>();
+
+    private IndiceCodigosBarras() {
+        BusEventos.getInstancia().suscribir(Producto.class, this::alCambiar);
+    }
+
+    public static IndiceCodigosBarras getInstancia() {
+        return INSTANCIA;
+    }
+
+    // Artículo del código o null si no está en el índice
+    public ArticuloCaja buscar(String codigoBarras) {
+        if (codigoBarras == null || codigoBarras.isEmpty()) {
+            return null;
+        }
+        long clave = clave(codigoBarras);
+        if (clave == 0) {
+            return otros.get(codigoBarras);
+        }
+
+        long sello = candado.tryOptimisticRead();
+        ArticuloCaja articulo = tabla.buscar(clave, codigoBarras);
+        if (!candado.validate(sello)) {
+            // Una escritura se cruzó con la lectura: se repite con el candado de lectura
+            sello = candado.readLock();
+            try {
+                articulo = tabla.buscar(clave, codigoBarras);
+            } finally {
+                candado.unlockRead(sello);
+            }
+        }
+        return articulo;
+    }
+
+    public long getModificaciones() {
+        long sello = candado.readLock();
+        try {
+            return modificaciones;
+        } finally {
+            candado.unlockRead(sello);
+        }
+    }
+
+    public boolean isCargado() {
+        long sello = candado.readLock();
+        try {
+            return cargado;
+        } finally {
+            candado.unlockRead(sello);
+        }
+    }
+
+    public int getTamano() {
+        return tabla.tamano + otros.size();
+    }
+
+    // Artículo leído de la base tras un fallo del índice, salvo que haya habido cambios desde la lectura
+    public void guardar(ArticuloCaja articulo, long modificacionesLectura) {
+        long sello = candado.writeLock();
+        try {
+            if (modificacionesLectura == modificaciones) {
+                tabla = poner(tabla, otros, articulo);
+            }
+        } finally {
+            candado.unlockWrite(sello);
+        }
+    }
+
+    // Carga completa: prepara la tabla a un lado y la publica con los cambios que llegaron mientras
+    public void cargar(Cargador cargador) {
+        long sello = candado.writeLock();
+        try {
+            if (cargando) {
+                return;
+            }
+            cargando = true;
+            secuenciaCarga = BusEventos.getInstancia().getUltimaSecuencia();
+            diferidos.clear();
+        } finally {
+            candado.unlockWrite(sello);
+        }
+
+        List<ArticuloCaja> articulos;
+        try {
+            articulos = cargador.cargar();
+        } catch (RuntimeException e) {
+            sello = candado.writeLock();
+            cargando = false;
+            candado.unlockWrite(sello);
+            throw e;
+        }
+
+        Tabla nueva = new Tabla(capacidadPara(articulos.size()));
+        Map<String, ArticuloCaja> nuevosOtros = new ConcurrentHashMap<>();
+        for (ArticuloCaja articulo : articulos) {
+            nueva = poner(nueva, nuevosOtros, articulo);
+        }
+
+        sello = candado.writeLock();
+        try {
+            for (EventoCambio<Producto> cambio : diferidos) {
+                if (cambio.getSecuencia() > secuenciaCarga) {
+                    nueva = aplicar(nueva, nuevosOtros, cambio);
+                }
+            }
+            tabla = nueva;
+            otros = nuevosOtros;
+            diferidos.clear();
+            cargando = false;
+            cargado = true;
+            modificaciones++;
+        } finally {
+            candado.unlockWrite(sello);
+        }
+    }
+
+    // Origen de los artículos para cargar() (en la aplicación, ProductoDAO.obtenerArticulosCaja)
+    @FunctionalInterface
+    public interface Cargador {
+        List<ArticuloCaja> cargar();
+    }
+
+    private void alCambiar(EventoCambio<Producto> cambio) {
+        long sello = candado.writeLock();
+        try {
+            modificaciones++;
+            tabla = aplicar(tabla, otros, cambio);
+            if (cargando) {
+                diferidos.add(cambio);
+            }
+        } finally {
+            candado.unlockWrite(sello);
+        }
+    }
+
+    // Con el candado de escritura. Devuelve la tabla, que puede ser otra si creció
+    private static Tabla aplicar(Tabla tabla, Map<String, ArticuloCaja> otros, EventoCambio<Producto> cambio) {
+        Producto antes = cambio.getAntes();
+        Producto despues = cambio.getDespues();
+        if (antes != null && antes.getCodigoBarras() != null && !antes.getCodigoBarras().isEmpty()) {
+            quitar(tabla, otros, antes.getCodigoBarras(), antes.getIdProducto());
+        }
+        if (despues != null && despues.isActivo() && despues.getCodigoBarras() != null
+                && !despues.getCodigoBarras().isEmpty()) {
+            tabla = poner(tabla, otros, new ArticuloCaja(despues.getIdProducto(), despues.getCodigoBarras(),
+                    despues.getNombreProducto(), despues.getPrecioUnitario(), despues.getStockActual()));
+        }
+        return tabla;
+    }
+
+    // Devuelve la tabla, que puede ser otra si creció
+    private static Tabla poner(Tabla destino, Map<String, ArticuloCaja> mapa, ArticuloCaja articulo) {
+        long clave = clave(articulo.getCodigoBarras());
+        if (clave == 0) {
+            mapa.put(articulo.getCodigoBarras(), articulo);
+            return destino;
+        }
+        if ((destino.tamano + 1) * 2 > destino.claves.length) {
+            destino = destino.ampliada();
+        }
+        destino.poner(clave, articulo);
+        return destino;
+    }
+
+    // Solo si el código sigue apuntando a ese producto (podría haberlo tomado otro)
+    private static void quitar(Tabla tabla, Map<String, ArticuloCaja> mapa, String codigo, int idProducto) {
+        long clave = clave(codigo);
+        if (clave == 0) {
+            ArticuloCaja actual = mapa.get(codigo);
+            if (actual != null && actual.getIdProducto() == idProducto) {
+                mapa.remove(codigo);
+            }
+            return;
+        }
+        tabla.quitar(clave, idProducto);
+    }
+
+    // Código numérico de 1 a 17 dígitos como (valor << 5) | longitud, para distinguir ceros a la
+    // izquierda ("0012" de "12"). 0 si el código no es numérico o es más largo
+    static long clave(String codigo) {
+        int longitud = codigo.length();
+        if (longitud == 0 || longitud > MAX_DIGITOS) {
+            return 0;
+        }
+        long valor = 0;
+        for (int i = 0; i < longitud; i++) {
+            char c = codigo.charAt(i);
+            if (c < '0' || c > '9') {
+                return 0;
+            }
+            valor = valor * 10 + (c - '0');
+        }
+        return (valor << 5) | longitud;
+    }
+
+    private static int capacidadPara(int elementos) {
+        int capacidad = CAPACIDAD_INICIAL;
+        while (capacidad < elementos * 2L) {
+            capacidad <<= 1;
+        }
+        return capacidad;
+    }
+
+    // Sondeo lineal sobre arrays paralelos; clave 0 = hueco. Factor de carga máximo 0,5
+    private static final class Tabla {
+        final long[] claves;
+        final int[] ids;
+        final double[] precios;
+        final int[] stocks;
+        final String[] nombres;
+        final int mascara;
+        int tamano;
+
+        Tabla(int capacidad) {
+            claves = new long[capacidad];
+            ids = new int[capacidad];
+            precios = new double[capacidad];
+            stocks = new int[capacidad];
+            nombres = new String[capacidad];
+            mascara = capacidad - 1;
+        }
+
+        // Puede verse a medias durante una escritura: quien llama valida el sello
+        ArticuloCaja buscar(long clave, String codigo) {
+            int i = posicion(clave);
+            for (int sondeos = 0; sondeos <= mascara; sondeos++) {
+                long actual = claves[i];
+                if (actual == clave) {
+                    return new ArticuloCaja(ids[i], codigo, nombres[i], precios[i], stocks[i]);
+                }
+                if (actual == 0) {
+                    return null;
+                }
+                i = (i + 1) & mascara;
+            }
+            return null;
+        }
+
+        void poner(long clave, ArticuloCaja articulo) {
+            int i = posicion(clave);
+            while (claves[i] != 0 && claves[i] != clave) {
+                i = (i + 1) & mascara;
+            }
+            if (claves[i] == 0) {
+                tamano++;
+            }
+            ids[i] = articulo.getIdProducto();
+            precios[i] = articulo.getPrecioUnitario();
+            stocks[i] = articulo.getStockActual();
+            nombres[i] = articulo.getNombreProducto();
+            claves[i] = clave;
+        }
+
+        // Borrado con desplazamiento hacia atrás: sin lápidas, los sondeos siguen siendo cortos
+        void quitar(long clave, int idProducto) {
+            int i = posicion(clave);
+            while (claves[i] != clave) {
+                if (claves[i] == 0) {
+                    return;
+                }
+                i = (i + 1) & mascara;
+            }
+            if (ids[i] != idProducto) {
+                return;
+            }
+            tamano--;
+            int hueco = i;
+            int j = i;
+            while (true) {
+                j = (j + 1) & mascara;
+                if (claves[j] == 0) {
+                    break;
+                }
+                int ideal = posicion(claves[j]);
+                // Se mueve si su posición ideal no está entre el hueco y j (en orden circular)
+                if (((j - ideal) & mascara) >= ((j - hueco) & mascara)) {
+                    mover(j, hueco);
+                    hueco = j;
+                }
+            }
+            claves[hueco] = 0;
+            nombres[hueco] = null;
+        }
+
+        private void mover(int desde, int hasta) {
+            claves[hasta] = claves[desde];
+            ids[hasta] = ids[desde];
+            precios[hasta] = precios[desde];
+            stocks[hasta] = stocks[desde];
+            nombres[hasta] = nombres[desde];
+        }
+
+        Tabla ampliada() {
+            Tabla nueva = new Tabla(claves.length * 2);
+            for (int i = 0; i < claves.length; i++) {
+                if (claves[i] != 0) {
+                    nueva.poner(claves[i], new ArticuloCaja(ids[i], null, nombres[i], precios[i], stocks[i]));
+                }
+            }
+            return nueva;
+        }
+
+        private int posicion(long clave) {
+            // Mezcla de 64 bits (finalizador de MurmurHash3): los códigos consecutivos no se agrupan
+            clave ^= clave >>> 33;
+            clave *= 0xff51afd7ed558ccdL;
+            clave ^= clave >>> 33;
+            clave *= 0xc4ceb53a4ed1a3b2L;
+            clave ^= clave >>> 33;
+            return (int) clave & mascara;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.tienda.busqueda;
+
+import com.tienda.dao.CursorProducto;
+import com.tienda.dao.ProductoDAO;
+import com.tienda.modelo.Producto;
+
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Índice de búsqueda de productos activos sobre nombre, descripción y código de barras.
+// Se construye en la primera búsqueda y después lo mantienen al día las escrituras de ProductoDAO.
+public class IndiceProductos {
+    private static final IndiceProductos INSTANCIA = new IndiceProductos();
+    private static final int LOTE_CARGA = 1000;
+
+    // Pesos: nombre, descripción, código de barras
+    private final IndiceTexto indice = new IndiceTexto(3f, 1f, 2f);
+    private final ReentrantReadWriteLock candado = new ReentrantReadWriteLock();
+    private boolean cargado = false;
+
+    private IndiceProductos() {
+    }
+
+    public static IndiceProductos getInstancia() {
+        return INSTANCIA;
+    }
+
+    // IDs de productos activos que coinciden, de más a menos relevante
+    public List<Integer> buscar(String consulta, int limite) {
+        asegurarCargado();
+        candado.readLock().lock();
+        try {
+            return indice.buscar(consulta, limite);
+        } finally {
+            candado.readLock().unlock();
+        }
+    }
+
+    // Reflejar un alta o modificación (los inactivos salen del índice)
+    public void actualizar(Producto producto) {
+        candado.writeLock().lock();
+        try {
+            // Si aún no se cargó, la carga leerá el estado actual de la base de datos
+            if (!cargado) {
+                return;
+            }
+            if (producto.isActivo()) {
+                indexar(producto);
+            } else {
+                indice.quitar(producto.getIdProducto());
+            }
+        } finally {
+            candado.writeLock().unlock();
+        }
+    }
+
+    public void quitar(int idProducto) {
+        candado.writeLock().lock();
+        try {
+            if (cargado) {
+                indice.quitar(idProducto);
+            }
+        } finally {
+            candado.writeLock().unlock();
+        }
+    }
+
+    // Descartar el índice; se reconstruye en la siguiente búsqueda
+    public void invalidar() {
+        candado.writeLock().lock();
+        try {
+            indice.limpiar();
+            cargado = false;
+        } finally {
+            candado.writeLock().unlock();
+        }
+    }
+
+    public int getDocumentos() {
+        candado.readLock().lock();
+        try {
+            return indice.getDocumentos();
+        } finally {
+            candado.readLock().unlock();
+        }
+    }
+
+    private void indexar(Producto producto) {
+        indice.indexar(producto.getIdProducto(),
+                producto.getNombreProducto(), producto.getDescripcion(), producto.getCodigoBarras());
+    }
+
+    // Carga inicial por páginas para no tener todo el catálogo en memoria a la vez.
+    // Se hace con el candado de escritura tomado: una escritura concurrente espera
+    // y se aplica después, así no la pisa una página leída antes
+    private void asegurarCargado() {
+        candado.readLock().lock();
+        try {
+            if (cargado) {
+                return;
+            }
+        } finally {
+            candado.readLock().unlock();
+        }
+
+        candado.writeLock().lock();
+        try {
+            if (cargado) {
+                return;
+            }
+            ProductoDAO productoDAO = new ProductoDAO();
+            CursorProducto cursor = null;
+            List<Producto> pagina;
+            do {
+                pagina = productoDAO.obtenerPaginaProductos(cursor, LOTE_CARGA);
+                for (Producto producto : pagina) {
+                    indexar(producto);
+                }
+                if (!pagina.isEmpty()) {
+                    Producto ultimo = pagina.get(pagina.size() - 1);
+                    cursor = new CursorProducto(ultimo.getNombreProducto(), ultimo.getIdProducto());
+                }
+            } while (pagina.size() == LOTE_CARGA);
+            cargado = true;
+        } finally {
+            candado.writeLock().unlock();
+        }
+    }
+}
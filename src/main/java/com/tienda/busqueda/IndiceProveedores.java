@@ -0,0 +1,76 @@
+package com.tienda.busqueda;
+
+import com.tienda.dao.ProveedorDAO;
+import com.tienda.eventos.BusEventos;
+import com.tienda.modelo.Proveedor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Índice de búsqueda de proveedores por nombre.
+// La tabla es pequeña: se reconstruye entera tras cualquier escritura de ProveedorDAO
+// (avisada por BusEventos).
+public class IndiceProveedores {
+    private static final IndiceProveedores INSTANCIA = new IndiceProveedores();
+
+    // Instantánea inmutable una vez publicada; null = reconstruir
+    private volatile Instantanea actual;
+    private final AtomicLong version = new AtomicLong();
+
+    private IndiceProveedores() {
+        BusEventos.getInstancia().suscribir(Proveedor.class, evento -> invalidar());
+    }
+
+    public static IndiceProveedores getInstancia() {
+        return INSTANCIA;
+    }
+
+    // Proveedores que coinciden, de más a menos relevante
+    public List<Proveedor> buscar(String consulta) {
+        Instantanea instantanea = actual;
+        if (instantanea == null) {
+            long versionLeida = version.get();
+            instantanea = construir();
+            // Solo se publica si nadie invalidó mientras se construía
+            synchronized (this) {
+                if (version.get() == versionLeida) {
+                    actual = instantanea;
+                }
+            }
+        }
+
+        List<Proveedor> resultado = new ArrayList<>();
+        for (int id : instantanea.indice.buscar(consulta, Integer.MAX_VALUE)) {
+            resultado.add(new Proveedor(instantanea.proveedores.get(id)));
+        }
+        return resultado;
+    }
+
+    public synchronized void invalidar() {
+        version.incrementAndGet();
+        actual = null;
+    }
+
+    private static Instantanea construir() {
+        IndiceTexto indice = new IndiceTexto(1f);
+        Map<Integer, Proveedor> proveedores = new HashMap<>();
+        for (Proveedor proveedor : new ProveedorDAO().obtenerTodos()) {
+            indice.indexar(proveedor.getIdProveedor(), proveedor.getNombreProveedor());
+            proveedores.put(proveedor.getIdProveedor(), proveedor);
+        }
+        return new Instantanea(indice, proveedores);
+    }
+
+    private static final class Instantanea {
+        final IndiceTexto indice;
+        final Map<Integer, Proveedor> proveedores;
+
+        Instantanea(IndiceTexto indice, Map<Integer, Proveedor> proveedores) {
+            this.indice = indice;
+            this.proveedores = proveedores;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.tienda.busqueda;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+// Índice invertido en memoria con búsqueda por prefijo.
+// Cada documento (un ID) tiene varios campos de texto con un peso cada uno.
+// Se indexan todos los prefijos de cada palabra (sin acentos ni mayúsculas),
+// así "cafe" encuentra "Café" y "choc" encuentra "Chocolate" sin recorrer la tabla.
+// No es thread-safe; quien lo use debe sincronizar.
+public class IndiceTexto {
+    private static final int PREFIJO_MINIMO = 2;
+    private static final int PREFIJO_MAXIMO = 15;
+    // Una palabra completa pesa más que un prefijo
+    private static final float FACTOR_PALABRA_COMPLETA = 2f;
+
+    private static final Pattern MARCAS_DIACRITICAS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARADORES = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final float[] pesosCampos;
+
+    // término -> (ID -> puntuación)
+    private final Map<String, Map<Integer, Float>> terminos = new HashMap<>();
+    // ID -> términos del documento, para poder quitarlo o reindexarlo
+    private final Map<Integer, Set<String>> terminosPorDocumento = new HashMap<>();
+
+    public IndiceTexto(float... pesosCampos) {
+        this.pesosCampos = pesosCampos;
+    }
+
+    // Pasa a minúsculas y quita acentos: "Ñandú Azúcar" -> "nandu azucar"
+    public static String normalizar(String texto) {
+        if (texto == null) {
+            return "";
+        }
+        String sinAcentos = MARCAS_DIACRITICAS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("");
+        return sinAcentos.toLowerCase(Locale.ROOT);
+    }
+
+    public static List<String> tokenizar(String texto) {
+        List<String> tokens = new ArrayList<>();
+        for (String token : SEPARADORES.split(normalizar(texto))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    // Indexar (o reindexar) un documento; los campos van en el orden de los pesos
+    public void indexar(int id, String... campos) {
+        quitar(id);
+
+        Map<String, Float> puntuaciones = new HashMap<>();
+        for (int c = 0; c < campos.length && c < pesosCampos.length; c++) {
+            for (String token : tokenizar(campos[c])) {
+                int maximo = Math.min(token.length(), PREFIJO_MAXIMO);
+                for (int largo = PREFIJO_MINIMO; largo <= maximo; largo++) {
+                    float puntuacion = pesosCampos[c] * (largo == token.length() ? FACTOR_PALABRA_COMPLETA : 1f);
+                    puntuaciones.merge(token.substring(0, largo), puntuacion, Math::max);
+                }
+            }
+        }
+
+        for (Map.Entry<String, Float> entrada : puntuaciones.entrySet()) {
+            terminos.computeIfAbsent(entrada.getKey(), t -> new HashMap<>()).put(id, entrada.getValue());
+        }
+        terminosPorDocumento.put(id, new HashSet<>(puntuaciones.keySet()));
+    }
+
+    public void quitar(int id) {
+        Set<String> anteriores = terminosPorDocumento.remove(id);
+        if (anteriores == null) {
+            return;
+        }
+        for (String termino : anteriores) {
+            Map<Integer, Float> documentos = terminos.get(termino);
+            if (documentos != null) {
+                documentos.remove(id);
+                if (documentos.isEmpty()) {
+                    terminos.remove(termino);
+                }
+            }
+        }
+    }
+
+    public void limpiar() {
+        terminos.clear();
+        terminosPorDocumento.clear();
+    }
+
+    public int getDocumentos() {
+        return terminosPorDocumento.size();
+    }
+
+    // true si la consulta tiene al menos una palabra que el índice puede buscar
+    public static boolean esConsultaIndexable(String consulta) {
+        for (String token : tokenizar(consulta)) {
+            if (token.length() >= PREFIJO_MINIMO) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // IDs que contienen todas las palabras de la consulta (como palabra o prefijo),
+    // de mayor a menor puntuación
+    public List<Integer> buscar(String consulta, int limite) {
+        List<Map<Integer, Float>> listas = new ArrayList<>();
+        for (String token : tokenizar(consulta)) {
+            if (token.length() < PREFIJO_MINIMO) {
+                continue;
+            }
+            String termino = token.length() > PREFIJO_MAXIMO ? token.substring(0, PREFIJO_MAXIMO) : token;
+            Map<Integer, Float> documentos = terminos.get(termino);
+            if (documentos == null) {
+                return List.of();
+            }
+            listas.add(documentos);
+        }
+        if (listas.isEmpty()) {
+            return List.of();
+        }
+
+        // Intersección empezando por la lista más corta
+        listas.sort(Comparator.comparingInt(Map::size));
+        Map<Integer, Float> puntuaciones = new HashMap<>();
+        siguiente:
+        for (Map.Entry<Integer, Float> candidato : listas.get(0).entrySet()) {
+            float total = candidato.getValue();
+            for (int i = 1; i < listas.size(); i++) {
+                Float puntuacion = listas.get(i).get(candidato.getKey());
+                if (puntuacion == null) {
+                    continue siguiente;
+                }
+                total += puntuacion;
+            }
+            puntuaciones.put(candidato.getKey(), total);
+        }
+
+        List<Integer> ids = new ArrayList<>(puntuaciones.keySet());
+        ids.sort(Comparator.<Integer>comparingDouble(puntuaciones::get).reversed()
+                .thenComparing(Comparator.naturalOrder()));
+        return ids.size() > limite ? new ArrayList<>(ids.subList(0, limite)) : ids;
+    }
+}
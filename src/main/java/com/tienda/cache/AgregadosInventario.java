@@ -0,0 +1,239 @@
+package com.tienda.cache;
+
+import com.tienda.alertas.IndiceStockBajo;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+// Totales del inventario en memoria: productos activos, valor total, stock bajo,
+// y productos/valor por categoría y por proveedor.
+// Se siembran una vez con todas las filas y después cada escritura de ProductoDAO
+// aplica solo la diferencia de las filas que tocó, así leerlos es O(1).
+// Cada fila se guarda con su version, el contador que sube en cada escritura: una lectura
+// con una versión menor que la ya aplicada se ignora, así el orden en que llegan las
+// escrituras concurrentes no importa.
+public class AgregadosInventario {
+    private static final AgregadosInventario INSTANCIA = new AgregadosInventario();
+
+    private enum Estado {VACIO, CARGANDO, CARGADO}
+
+    // Recarga completa periódica, por si otra instancia de la aplicación escribe en la base
+    private final long ttlNanos = Long.getLong("inventario.agregados.ttlMs", 300_000L) * 1_000_000L;
+
+    private Estado estado = Estado.VACIO;
+    private long generacion = 0;
+    private long cargadoNanos;
+
+    private final Map<Integer, Fila> filas = new HashMap<>();
+    private int productosActivos;
+    private int productosStockBajo;
+    private BigDecimal valorTotal = BigDecimal.ZERO;
+    private final Map<Integer, Acumulado> porCategoria = new HashMap<>();
+    private final Map<Integer, Acumulado> porProveedor = new HashMap<>();
+    // Productos con stock bajo por urgencia, mantenido con las mismas filas
+    private final IndiceStockBajo stockBajo = IndiceStockBajo.getInstancia();
+
+    private AgregadosInventario() {
+    }
+
+    public static AgregadosInventario getInstancia() {
+        return INSTANCIA;
+    }
+
+    // true si los totales están al día y se pueden leer
+    public synchronized boolean isCargado() {
+        return estado == Estado.CARGADO;
+    }
+
+    // Si pasó el TTL desde la siembra, descarta todo para resembrar. Hasta entonces
+    // las escrituras se siguen aplicando aunque nadie lea
+    public synchronized void invalidarSiVencido() {
+        if (estado == Estado.CARGADO && System.nanoTime() - cargadoNanos > ttlNanos) {
+            invalidar();
+        }
+    }
+
+    // Empieza la siembra; devuelve su generación, o -1 si ya está cargado o cargándose.
+    // Las escrituras que lleguen durante la siembra se aplican igualmente
+    public synchronized long iniciarCarga() {
+        if (estado != Estado.VACIO) {
+            return -1;
+        }
+        estado = Estado.CARGANDO;
+        return generacion;
+    }
+
+    public synchronized void terminarCarga(long generacionCarga) {
+        if (generacionCarga == generacion && estado == Estado.CARGANDO) {
+            estado = Estado.CARGADO;
+            cargadoNanos = System.nanoTime();
+        }
+        notifyAll();
+    }
+
+    // Esperar a que termine la siembra que hace otro hilo; true si quedó cargado
+    public synchronized boolean esperarCarga(long esperaMaximaMs) {
+        long limite = System.nanoTime() + esperaMaximaMs * 1_000_000L;
+        try {
+            while (estado == Estado.CARGANDO) {
+                long restanteMs = (limite - System.nanoTime()) / 1_000_000L;
+                if (restanteMs <= 0) {
+                    break;
+                }
+                wait(restanteMs);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return estado == Estado.CARGADO;
+    }
+
+    // false si nadie ha sembrado los totales: las escrituras no necesitan informar nada
+    public synchronized boolean isEnUso() {
+        return estado != Estado.VACIO;
+    }
+
+    // Descartar todo; la próxima lectura vuelve a sembrar
+    public synchronized void invalidar() {
+        generacion++;
+        estado = Estado.VACIO;
+        filas.clear();
+        porCategoria.clear();
+        porProveedor.clear();
+        productosActivos = 0;
+        productosStockBajo = 0;
+        valorTotal = BigDecimal.ZERO;
+        stockBajo.limpiar();
+        notifyAll();
+    }
+
+    // Estado actual de una fila de productos, leído de la base después de escribirla
+    public synchronized void aplicar(int idProducto, double precioUnitario, int stockActual, int stockMinimo,
+                                     int idCategoria, int idProveedor, boolean activo, int version) {
+        if (estado == Estado.VACIO) {
+            // La siembra, cuando ocurra, ya leerá este cambio
+            return;
+        }
+        Fila anterior = filas.get(idProducto);
+        if (anterior != null && version < anterior.version) {
+            return;
+        }
+
+        // Precio en centavos: en SQLite es REAL y arrastra restos binarios (2.5100000000000002)
+        BigDecimal precio = BigDecimal.valueOf(precioUnitario).setScale(2, RoundingMode.HALF_UP);
+        Fila nueva = new Fila(precio.multiply(BigDecimal.valueOf(stockActual)),
+                stockActual <= stockMinimo, idCategoria, idProveedor, activo, version);
+        if (anterior != null) {
+            sumar(anterior, -1);
+        }
+        sumar(nueva, 1);
+        filas.put(idProducto, nueva);
+        // Sin estado anterior (siembra) no hay cruce del mínimo que avisar
+        stockBajo.actualizar(idProducto, stockActual, stockMinimo, activo, anterior != null);
+    }
+
+    private void sumar(Fila fila, int signo) {
+        if (!fila.activo) {
+            return;
+        }
+        BigDecimal valor = signo > 0 ? fila.valor : fila.valor.negate();
+        productosActivos += signo;
+        if (fila.stockBajo) {
+            productosStockBajo += signo;
+        }
+        valorTotal = valorTotal.add(valor);
+        acumular(porCategoria, fila.idCategoria, signo, valor);
+        acumular(porProveedor, fila.idProveedor, signo, valor);
+    }
+
+    private static void acumular(Map<Integer, Acumulado> mapa, int id, int signo, BigDecimal valor) {
+        Acumulado acumulado = mapa.computeIfAbsent(id, k -> new Acumulado());
+        acumulado.productos += signo;
+        acumulado.valor = acumulado.valor.add(valor);
+        if (acumulado.productos == 0) {
+            mapa.remove(id);
+        }
+    }
+
+    // Lecturas (válidas si isCargado())
+    public synchronized int getProductosActivos() {
+        return productosActivos;
+    }
+
+    public synchronized BigDecimal getValorTotal() {
+        return valorTotal;
+    }
+
+    public synchronized int getProductosStockBajo() {
+        return productosStockBajo;
+    }
+
+    // id_categoria -> productos activos y valor
+    public synchronized Map<Integer, Resumen> getPorCategoria() {
+        return copiar(porCategoria);
+    }
+
+    // id_proveedor -> productos activos y valor
+    public synchronized Map<Integer, Resumen> getPorProveedor() {
+        return copiar(porProveedor);
+    }
+
+    private static Map<Integer, Resumen> copiar(Map<Integer, Acumulado> mapa) {
+        Map<Integer, Resumen> copia = new HashMap<>();
+        for (Map.Entry<Integer, Acumulado> entrada : mapa.entrySet()) {
+            copia.put(entrada.getKey(), new Resumen(entrada.getValue().productos, entrada.getValue().valor));
+        }
+        return Collections.unmodifiableMap(copia);
+    }
+
+    // Aporte de una fila a los totales
+    private static final class Fila {
+        final BigDecimal valor;
+        final boolean stockBajo;
+        final int idCategoria;
+        final int idProveedor;
+        final boolean activo;
+        final int version;
+
+        Fila(BigDecimal valor, boolean stockBajo, int idCategoria, int idProveedor, boolean activo, int version) {
+            this.valor = valor;
+            this.stockBajo = stockBajo;
+            this.idCategoria = idCategoria;
+            this.idProveedor = idProveedor;
+            this.activo = activo;
+            this.version = version;
+        }
+    }
+
+    private static final class Acumulado {
+        int productos;
+        BigDecimal valor = BigDecimal.ZERO;
+    }
+
+    // Productos activos y valor de una categoría o proveedor
+    public static final class Resumen {
+        private final int productos;
+        private final BigDecimal valor;
+
+        public Resumen(int productos, BigDecimal valor) {
+            this.productos = productos;
+            this.valor = valor;
+        }
+
+        public int getProductos() {
+            return productos;
+        }
+
+        public BigDecimal getValor() {
+            return valor;
+        }
+
+        @Override
+        public String toString() {
+            return "Resumen{productos=" + productos + ", valor=" + valor + '}';
+        }
+    }
+}
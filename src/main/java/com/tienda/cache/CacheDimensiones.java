@@ -0,0 +1,187 @@
+package com.tienda.cache;
+
+import com.tienda.dao.CategoriaDAO;
+import com.tienda.dao.ProveedorDAO;
+import com.tienda.eventos.BusEventos;
+import com.tienda.eventos.EventoCambio;
+import com.tienda.modelo.Categoria;
+import com.tienda.modelo.Proveedor;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Tablas de dimensión (categorías y proveedores) en memoria.
+// Son pequeñas y casi no cambian, así que las consultas de productos
+// resuelven los nombres aquí en lugar de hacer JOIN por cada fila.
+// Las escrituras de CategoriaDAO y ProveedorDAO llegan por BusEventos y se aplican sin recargar.
+public class CacheDimensiones {
+    private static final CacheDimensiones INSTANCIA = new CacheDimensiones();
+
+    // Evita recargar en bucle si un producto apunta a un ID que no existe
+    private static final long RECARGA_MINIMA_NANOS = 1_000_000_000L;
+
+    // Instantáneas inmutables; null significa "recargar en el próximo acceso"
+    private volatile Map<Integer, String> categorias;
+    private volatile Map<Integer, String> proveedores;
+
+    private final AtomicLong versionCategorias = new AtomicLong();
+    private final AtomicLong versionProveedores = new AtomicLong();
+    private volatile long ultimaRecargaCategorias;
+    private volatile long ultimaRecargaProveedores;
+
+    private CacheDimensiones() {
+        BusEventos bus = BusEventos.getInstancia();
+        bus.suscribir(Categoria.class, this::alCambiarCategoria);
+        bus.suscribir(Proveedor.class, this::alCambiarProveedor);
+    }
+
+    public static CacheDimensiones getInstancia() {
+        return INSTANCIA;
+    }
+
+    // Nombre de la categoría o null si no existe
+    public String nombreCategoria(int idCategoria) {
+        return nombreCategoria(idCategoria, null);
+    }
+
+    // Igual; si hay que recargar se usa 'conn' (la del llamador, p. ej. mientras recorre un
+    // ResultSet de productos) en lugar de pedir otra al pool. null = pedirla
+    public String nombreCategoria(int idCategoria, Connection conn) {
+        String nombre = getCategorias(conn).get(idCategoria);
+        if (nombre == null && System.nanoTime() - ultimaRecargaCategorias > RECARGA_MINIMA_NANOS) {
+            // Puede haberla creado otra instancia de la aplicación
+            invalidarCategorias();
+            nombre = getCategorias(conn).get(idCategoria);
+        }
+        return nombre;
+    }
+
+    // Nombre del proveedor o null si no existe
+    public String nombreProveedor(int idProveedor) {
+        return nombreProveedor(idProveedor, null);
+    }
+
+    public String nombreProveedor(int idProveedor, Connection conn) {
+        String nombre = getProveedores(conn).get(idProveedor);
+        if (nombre == null && System.nanoTime() - ultimaRecargaProveedores > RECARGA_MINIMA_NANOS) {
+            invalidarProveedores();
+            nombre = getProveedores(conn).get(idProveedor);
+        }
+        return nombre;
+    }
+
+    public boolean existeCategoria(int idCategoria) {
+        return nombreCategoria(idCategoria) != null;
+    }
+
+    public boolean existeProveedor(int idProveedor) {
+        return nombreProveedor(idProveedor) != null;
+    }
+
+    // Cargar las dos tablas si hace falta (al arrancar, antes de las primeras consultas de productos)
+    public void cargar() {
+        getCategorias(null);
+        getProveedores(null);
+    }
+
+    // Descartar la instantánea (p. ej. si otra instancia de la aplicación escribió en la tabla)
+    public synchronized void invalidarCategorias() {
+        versionCategorias.incrementAndGet();
+        categorias = null;
+    }
+
+    public synchronized void invalidarProveedores() {
+        versionProveedores.incrementAndGet();
+        proveedores = null;
+    }
+
+    private synchronized void alCambiarCategoria(EventoCambio<Categoria> evento) {
+        // Una recarga en curso leyó antes del cambio: que no se publique
+        versionCategorias.incrementAndGet();
+        Categoria despues = evento.getDespues();
+        categorias = aplicar(categorias, evento.getId(), despues == null ? null : despues.getNombreCategoria());
+    }
+
+    private synchronized void alCambiarProveedor(EventoCambio<Proveedor> evento) {
+        versionProveedores.incrementAndGet();
+        Proveedor despues = evento.getDespues();
+        proveedores = aplicar(proveedores, evento.getId(), despues == null ? null : despues.getNombreProveedor());
+    }
+
+    // Copia de la instantánea con un nombre cambiado (null = borrado); sin instantánea no hay nada que tocar
+    private static Map<Integer, String> aplicar(Map<Integer, String> actual, int id, String nombre) {
+        if (actual == null) {
+            return null;
+        }
+        Map<Integer, String> copia = new HashMap<>(actual);
+        if (nombre == null) {
+            copia.remove(id);
+        } else {
+            copia.put(id, nombre);
+        }
+        return Map.copyOf(copia);
+    }
+
+    private Map<Integer, String> getCategorias(Connection conn) {
+        Map<Integer, String> actual = categorias;
+        if (actual != null) {
+            return actual;
+        }
+
+        long version = versionCategorias.get();
+        List<Categoria> filas;
+        try {
+            filas = conn == null ? new CategoriaDAO().obtenerTodas() : new CategoriaDAO().obtenerTodas(conn);
+        } catch (SQLException e) {
+            System.err.println("Error al cargar categorías: " + e.getMessage());
+            return Map.of();
+        }
+        Map<Integer, String> cargadas = new HashMap<>();
+        for (Categoria categoria : filas) {
+            cargadas.put(categoria.getIdCategoria(), categoria.getNombreCategoria());
+        }
+        cargadas = Map.copyOf(cargadas);
+        ultimaRecargaCategorias = System.nanoTime();
+
+        // Solo se publica si nadie invalidó mientras se cargaba
+        synchronized (this) {
+            if (versionCategorias.get() == version) {
+                categorias = cargadas;
+            }
+        }
+        return cargadas;
+    }
+
+    private Map<Integer, String> getProveedores(Connection conn) {
+        Map<Integer, String> actual = proveedores;
+        if (actual != null) {
+            return actual;
+        }
+
+        long version = versionProveedores.get();
+        List<Proveedor> filas;
+        try {
+            filas = conn == null ? new ProveedorDAO().obtenerTodos() : new ProveedorDAO().obtenerTodos(conn);
+        } catch (SQLException e) {
+            System.err.println("Error al cargar proveedores: " + e.getMessage());
+            return Map.of();
+        }
+        Map<Integer, String> cargados = new HashMap<>();
+        for (Proveedor proveedor : filas) {
+            cargados.put(proveedor.getIdProveedor(), proveedor.getNombreProveedor());
+        }
+        cargados = Map.copyOf(cargados);
+        ultimaRecargaProveedores = System.nanoTime();
+
+        synchronized (this) {
+            if (versionProveedores.get() == version) {
+                proveedores = cargados;
+            }
+        }
+        return cargados;
+    }
+}
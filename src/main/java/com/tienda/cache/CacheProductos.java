@@ -0,0 +1,182 @@
+package com.tienda.cache;
+
+import com.tienda.modelo.Producto;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Caché de lectura de productos delante de ProductoDAO, por id_producto y por codigo_barras.
+// Acotado por tamaño (LRU) y por tiempo de vida; las escrituras del DAO lo invalidan.
+public class CacheProductos {
+    private static final CacheProductos INSTANCIA = new CacheProductos(
+            Integer.getInteger("inventario.cache.productos.max", 10_000),
+            Long.getLong("inventario.cache.productos.ttlMs", 60_000));
+
+    private final int capacidad;
+    private final long ttlNanos;
+
+    // Orden de acceso: el primero es el menos usado recientemente
+    private final LinkedHashMap<Integer, Entrada> porId;
+    // Solo productos activos, igual que buscarPorCodigoBarras
+    private final Map<String, Integer> porCodigo = new HashMap<>();
+
+    // Cambia con cada invalidación; evita guardar una lectura que empezó antes de una escritura
+    private long generacion = 0;
+
+    // Contadores
+    private long aciertos = 0;
+    private long fallos = 0;
+    private long desalojos = 0;
+    private long expirados = 0;
+
+    public CacheProductos(int capacidad, long ttlMs) {
+        this.capacidad = capacidad;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        this.porId = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Entrada> mayor) {
+                if (size() > CacheProductos.this.capacidad) {
+                    quitarCodigo(mayor.getValue().producto);
+                    desalojos++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public static CacheProductos getInstancia() {
+        return INSTANCIA;
+    }
+
+    // Generación actual; se pasa a guardar() después de leer de la base de datos
+    public synchronized long getGeneracion() {
+        return generacion;
+    }
+
+    // Producto por ID o null si no está en caché
+    public synchronized Producto obtenerPorId(int id) {
+        Entrada entrada = porId.get(id);
+        if (entrada == null || expirada(entrada)) {
+            fallos++;
+            return null;
+        }
+        aciertos++;
+        return new Producto(entrada.producto);
+    }
+
+    // Producto activo por código de barras o null si no está en caché
+    public synchronized Producto obtenerPorCodigo(String codigoBarras) {
+        Integer id = porCodigo.get(codigoBarras);
+        Entrada entrada = id != null ? porId.get(id) : null;
+        if (entrada == null || expirada(entrada)) {
+            fallos++;
+            return null;
+        }
+        aciertos++;
+        return new Producto(entrada.producto);
+    }
+
+    // Guardar una lectura, salvo que haya habido una invalidación desde que empezó
+    public synchronized void guardar(Producto producto, long generacionLectura) {
+        if (producto == null || generacionLectura != generacion || capacidad <= 0) {
+            return;
+        }
+        Producto copia = new Producto(producto);
+        Entrada anterior = porId.put(copia.getIdProducto(), new Entrada(copia, System.nanoTime()));
+        if (anterior != null) {
+            quitarCodigo(anterior.producto);
+        }
+        if (copia.isActivo() && copia.getCodigoBarras() != null && !copia.getCodigoBarras().isEmpty()) {
+            porCodigo.put(copia.getCodigoBarras(), copia.getIdProducto());
+        }
+    }
+
+    // Invalidar un producto tras modificarlo
+    public synchronized void invalidar(int id) {
+        generacion++;
+        Entrada entrada = porId.remove(id);
+        if (entrada != null) {
+            quitarCodigo(entrada.producto);
+        }
+    }
+
+    // Invalidar la búsqueda por un código de barras (p. ej. al dar de alta un producto con ese código)
+    public synchronized void invalidarCodigo(String codigoBarras) {
+        generacion++;
+        if (codigoBarras != null) {
+            Integer id = porCodigo.remove(codigoBarras);
+            if (id != null) {
+                porId.remove(id);
+            }
+        }
+    }
+
+    public synchronized void invalidarTodo() {
+        generacion++;
+        porId.clear();
+        porCodigo.clear();
+    }
+
+    private boolean expirada(Entrada entrada) {
+        if (System.nanoTime() - entrada.guardadaNanos <= ttlNanos) {
+            return false;
+        }
+        porId.remove(entrada.producto.getIdProducto());
+        quitarCodigo(entrada.producto);
+        expirados++;
+        return true;
+    }
+
+    private void quitarCodigo(Producto producto) {
+        String codigo = producto.getCodigoBarras();
+        if (codigo != null) {
+            porCodigo.remove(codigo, producto.getIdProducto());
+        }
+    }
+
+    // Métricas
+    public synchronized long getAciertos() {
+        return aciertos;
+    }
+
+    public synchronized long getFallos() {
+        return fallos;
+    }
+
+    public synchronized long getDesalojos() {
+        return desalojos;
+    }
+
+    public synchronized long getExpirados() {
+        return expirados;
+    }
+
+    public synchronized int getTamano() {
+        return porId.size();
+    }
+
+    public synchronized double getTasaAciertos() {
+        long total = aciertos + fallos;
+        return total == 0 ? 0.0 : (double) aciertos / total;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("Caché de productos: %d/%d entradas, %d aciertos, %d fallos (%.1f%%), " +
+                        "%d desalojos, %d expirados",
+                porId.size(), capacidad, aciertos, fallos, getTasaAciertos() * 100, desalojos, expirados);
+    }
+
+    private static final class Entrada {
+        final Producto producto;
+        final long guardadaNanos;
+
+        Entrada(Producto producto, long guardadaNanos) {
+            this.producto = producto;
+            this.guardadaNanos = guardadaNanos;
+        }
+    }
+}
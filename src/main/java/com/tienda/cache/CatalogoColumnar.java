@@ -0,0 +1,596 @@
+package com.tienda.cache;
+
+import com.tienda.eventos.BusEventos;
+import com.tienda.eventos.EventoCambio;
+import com.tienda.modelo.Producto;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+// Copia en memoria de los productos activos guardada por columnas: un array primitivo por campo
+// (int para IDs, stock y claves foráneas; long para el precio en centavos y las fechas) y los
+// textos en un TextosCompactos. Cada fila ocupa ~60 bytes más sus textos, frente a los
+// ~300 de un Producto con sus Strings y Timestamps.
+// Los recorridos (stock bajo, categoría, totales) leen los arrays sin crear objetos; solo los
+// productos que se devuelven se materializan. VistaProducto es una vista reutilizable de una fila.
+// Opcional (-Dinventario.columnar=true). Se carga una vez y se mantiene con los eventos de
+// BusEventos; no ve lo que escriban otras instancias de la aplicación.
+public class CatalogoColumnar {
+    private static final CatalogoColumnar INSTANCIA = new CatalogoColumnar();
+
+    private static final Comparator<Producto> POR_NOMBRE = Comparator
+            .comparing(Producto::getNombreProducto)
+            .thenComparingInt(Producto::getIdProducto);
+
+    private final boolean habilitado = Boolean.getBoolean("inventario.columnar");
+
+    private final ReentrantReadWriteLock candado = new ReentrantReadWriteLock();
+    private Columnas columnas = new Columnas(16);
+    private boolean cargado = false;
+
+    // Durante la carga los eventos se guardan para aplicarlos también a las columnas nuevas
+    private boolean cargando = false;
+    private long secuenciaCarga;
+    private final List<EventoCambio<Producto>> diferidos = new ArrayList<>();
+
+    private final CacheDimensiones dimensiones = CacheDimensiones.getInstancia();
+
+    private CatalogoColumnar() {
+        if (habilitado) {
+            BusEventos.getInstancia().suscribir(Producto.class, this::alCambiar);
+        }
+    }
+
+    public static CatalogoColumnar getInstancia() {
+        return INSTANCIA;
+    }
+
+    public boolean isHabilitado() {
+        return habilitado;
+    }
+
+    // true si se puede consultar en lugar de la base
+    public boolean isCargado() {
+        candado.readLock().lock();
+        try {
+            return cargado;
+        } finally {
+            candado.readLock().unlock();
+        }
+    }
+
+    // Origen de las filas para cargar() (en la aplicación, ProductoDAO.recorrerProductosActivos).
+    // Devuelve false si la lectura falló
+    @FunctionalInterface
+    public interface Cargador {
+        boolean cargar(Consumer<Producto> destino);
+    }
+
+    // Carga completa, en columnas nuevas que se publican al terminar
+    public boolean cargar(Cargador cargador) {
+        if (!habilitado) {
+            return false;
+        }
+        candado.writeLock().lock();
+        try {
+            if (cargando) {
+                return false;
+            }
+            cargando = true;
+            secuenciaCarga = BusEventos.getInstancia().getUltimaSecuencia();
+            diferidos.clear();
+        } finally {
+            candado.writeLock().unlock();
+        }
+
+        Columnas nuevas = new Columnas(1024);
+        boolean leido = false;
+        try {
+            leido = cargador.cargar(producto -> {
+                if (producto.isActivo()) {
+                    nuevas.poner(producto);
+                }
+            });
+        } finally {
+            candado.writeLock().lock();
+            try {
+                if (leido) {
+                    for (EventoCambio<Producto> cambio : diferidos) {
+                        if (cambio.getSecuencia() > secuenciaCarga) {
+                            nuevas.aplicar(cambio);
+                        }
+                    }
+                    columnas = nuevas;
+                    cargado = true;
+                }
+                diferidos.clear();
+                cargando = false;
+            } finally {
+                candado.writeLock().unlock();
+            }
+        }
+        return leido;
+    }
+
+    private void alCambiar(EventoCambio<Producto> cambio) {
+        candado.writeLock().lock();
+        try {
+            columnas.aplicar(cambio);
+            if (cargando) {
+                diferidos.add(cambio);
+            }
+        } finally {
+            candado.writeLock().unlock();
+        }
+    }
+
+    // Producto activo por ID, o null
+    public Producto obtener(int idProducto) {
+        candado.readLock().lock();
+        try {
+            int fila = columnas.fila(idProducto);
+            return fila < 0 ? null : materializar(fila);
+        } finally {
+            candado.readLock().unlock();
+        }
+    }
+
+    // Productos activos de la lista, en su orden; los que no están se omiten
+    public List<Producto> obtenerPorIds(List<Integer> ids) {
+        List<Producto> productos = new ArrayList<>(ids.size());
+        candado.readLock().lock();
+        try {
+            for (int id : ids) {
+                int fila = columnas.fila(id);
+                if (fila >= 0) {
+                    productos.add(materializar(fila));
+                }
+            }
+        } finally {
+            candado.readLock().unlock();
+        }
+        return productos;
+    }
+
+    // Todos los productos activos, por nombre
+    public List<Producto> obtenerTodos() {
+        return filtrar(vista -> true);
+    }
+
+    // Productos activos de una categoría, por nombre
+    public List<Producto> buscarPorCategoria(int idCategoria) {
+        return filtrar(vista -> vista.getIdCategoria() == idCategoria);
+    }
+
+    // Productos con stock_actual <= stock_minimo, el de mayor déficit primero
+    public List<Producto> obtenerStockBajo() {
+        List<Producto> productos = new ArrayList<>();
+        candado.readLock().lock();
+        try {
+            Columnas c = columnas;
+            for (int fila = 0; fila < c.filas; fila++) {
+                if (c.stocks[fila] <= c.minimos[fila]) {
+                    productos.add(materializar(fila));
+                }
+            }
+        } finally {
+            candado.readLock().unlock();
+        }
+        productos.sort(Comparator
+                .comparingInt((Producto p) -> p.getStockActual() - p.getStockMinimo())
+                .thenComparingInt(Producto::getIdProducto));
+        return productos;
+    }
+
+    public int contarActivos() {
+        candado.readLock().lock();
+        try {
+            return columnas.filas;
+        } finally {
+            candado.readLock().unlock();
+        }
+    }
+
+    public int contarStockBajo() {
+        candado.readLock().lock();
+        try {
+            Columnas c = columnas;
+            int total = 0;
+            for (int fila = 0; fila < c.filas; fila++) {
+                if (c.stocks[fila] <= c.minimos[fila]) {
+                    total++;
+                }
+            }
+            return total;
+        } finally {
+            candado.readLock().unlock();
+        }
+    }
+
+    // Suma exacta de precio × stock: los precios en centavos se suman como long
+    public BigDecimal getValorTotal() {
+        candado.readLock().lock();
+        try {
+            Columnas c = columnas;
+            long centavos = 0;
+            for (int fila = 0; fila < c.filas; fila++) {
+                centavos += c.precios[fila] * c.stocks[fila];
+            }
+            return BigDecimal.valueOf(centavos, 2);
+        } finally {
+            candado.readLock().unlock();
+        }
+    }
+
+    // Recorre las filas con una única vista reutilizada: solo es válida dentro de la llamada
+    // (para conservar una fila, aProducto()). La acción no debe escribir productos
+    public void recorrer(Consumer<VistaProducto> accion) {
+        candado.readLock().lock();
+        try {
+            VistaProducto vista = new VistaProducto(columnas);
+            for (int fila = 0; fila < columnas.filas; fila++) {
+                vista.fila = fila;
+                accion.accept(vista);
+            }
+        } finally {
+            candado.readLock().unlock();
+        }
+    }
+
+    // Recibe los campos numéricos de una fila (precio en centavos), sin crear objetos
+    @FunctionalInterface
+    public interface Acumulador<A> {
+        void acumular(A destino, int idProducto, int idCategoria, int idProveedor,
+                      long precioCentavos, int stockActual, int stockMinimo);
+    }
+
+    // Reducción en paralelo sobre todas las filas: cada tramo de filas acumula en su propio 'crear()'
+    // y los parciales se combinan con 'combinar(izquierdo, derecho)', que deja el total en el izquierdo
+    public <A> A reducir(Supplier<A> crear, Acumulador<A> acumulador, BiConsumer<A, A> combinar) {
+        candado.readLock().lock();
+        try {
+            // Los hilos del pool leen las columnas mientras este hilo retiene el candado
+            return ForkJoinPool.commonPool().invoke(
+                    new Reduccion<>(columnas, 0, columnas.filas, crear, acumulador, combinar));
+        } finally {
+            candado.readLock().unlock();
+        }
+    }
+
+    @SuppressWarnings("serial") // Nunca se serializa
+    private static final class Reduccion<A> extends RecursiveTask<A> {
+        // Filas por tarea: por debajo, repartir cuesta más que recorrer
+        private static final int UMBRAL = 16_384;
+
+        private final Columnas c;
+        private final int desde;
+        private final int hasta;
+        private final Supplier<A> crear;
+        private final Acumulador<A> acumulador;
+        private final BiConsumer<A, A> combinar;
+
+        Reduccion(Columnas c, int desde, int hasta, Supplier<A> crear, Acumulador<A> acumulador,
+                  BiConsumer<A, A> combinar) {
+            this.c = c;
+            this.desde = desde;
+            this.hasta = hasta;
+            this.crear = crear;
+            this.acumulador = acumulador;
+            this.combinar = combinar;
+        }
+
+        @Override
+        protected A compute() {
+            if (hasta - desde <= UMBRAL) {
+                A parcial = crear.get();
+                for (int fila = desde; fila < hasta; fila++) {
+                    acumulador.acumular(parcial, c.ids[fila], c.categorias[fila], c.proveedores[fila],
+                            c.precios[fila], c.stocks[fila], c.minimos[fila]);
+                }
+                return parcial;
+            }
+            int medio = (desde + hasta) >>> 1;
+            Reduccion<A> izquierda = new Reduccion<>(c, desde, medio, crear, acumulador, combinar);
+            Reduccion<A> derecha = new Reduccion<>(c, medio, hasta, crear, acumulador, combinar);
+            izquierda.fork();
+            A resultado = derecha.compute();
+            A parcialIzquierdo = izquierda.join();
+            combinar.accept(parcialIzquierdo, resultado);
+            return parcialIzquierdo;
+        }
+    }
+
+    private List<Producto> filtrar(Predicate<VistaProducto> condicion) {
+        List<Producto> productos = new ArrayList<>();
+        recorrer(vista -> {
+            if (condicion.test(vista)) {
+                productos.add(materializar(vista.fila));
+            }
+        });
+        productos.sort(POR_NOMBRE);
+        return productos;
+    }
+
+    // Con el candado de lectura
+    private Producto materializar(int fila) {
+        Producto producto = new VistaProducto(columnas, fila).aProducto();
+        producto.setNombreCategoria(dimensiones.nombreCategoria(producto.getIdCategoria()));
+        producto.setNombreProveedor(dimensiones.nombreProveedor(producto.getIdProveedor()));
+        return producto;
+    }
+
+    // Memoria aproximada de las columnas, en bytes
+    public long getBytesEstimados() {
+        candado.readLock().lock();
+        try {
+            return columnas.getBytesEstimados();
+        } finally {
+            candado.readLock().unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "CatalogoColumnar{productos=" + contarActivos() + ", memoria=" +
+                getBytesEstimados() / 1024 + " KB}";
+    }
+
+    // Lectura de una fila sin copiarla; los getters tienen los mismos nombres que en Producto
+    public static final class VistaProducto {
+        private final Columnas columnas;
+        private int fila;
+
+        private VistaProducto(Columnas columnas) {
+            this.columnas = columnas;
+        }
+
+        private VistaProducto(Columnas columnas, int fila) {
+            this.columnas = columnas;
+            this.fila = fila;
+        }
+
+        public int getIdProducto() {
+            return columnas.ids[fila];
+        }
+
+        public String getNombreProducto() {
+            return columnas.textos.leer(columnas.nombres[fila]);
+        }
+
+        public String getDescripcion() {
+            return columnas.textos.leer(columnas.descripciones[fila]);
+        }
+
+        public String getCodigoBarras() {
+            return columnas.textos.leer(columnas.codigos[fila]);
+        }
+
+        public long getPrecioCentavos() {
+            return columnas.precios[fila];
+        }
+
+        public double getPrecioUnitario() {
+            return columnas.precios[fila] / 100.0;
+        }
+
+        public int getStockActual() {
+            return columnas.stocks[fila];
+        }
+
+        public int getStockMinimo() {
+            return columnas.minimos[fila];
+        }
+
+        public int getIdCategoria() {
+            return columnas.categorias[fila];
+        }
+
+        public int getIdProveedor() {
+            return columnas.proveedores[fila];
+        }
+
+        public Timestamp getFechaRegistro() {
+            return aTimestamp(columnas.fechasRegistro[fila]);
+        }
+
+        public Timestamp getUltimaActualizacion() {
+            return aTimestamp(columnas.actualizaciones[fila]);
+        }
+
+        public int getVersion() {
+            return columnas.versiones[fila];
+        }
+
+        // Copia independiente de la fila (sin nombres de categoría y proveedor)
+        public Producto aProducto() {
+            Producto producto = new Producto(getIdProducto(), getNombreProducto(), getDescripcion(),
+                    getPrecioUnitario(), getStockActual(), getStockMinimo(), getIdCategoria(),
+                    getIdProveedor(), getCodigoBarras(), true);
+            producto.setFechaRegistro(getFechaRegistro());
+            producto.setUltimaActualizacion(getUltimaActualizacion());
+            producto.setVersion(getVersion());
+            return producto;
+        }
+    }
+
+    // Sin fecha = Long.MIN_VALUE; si no, nanosegundos desde 1970 (alcanza hasta 2262)
+    private static final long SIN_FECHA = Long.MIN_VALUE;
+
+    private static long aNanos(Timestamp fecha) {
+        if (fecha == null) {
+            return SIN_FECHA;
+        }
+        return Math.floorDiv(fecha.getTime(), 1000L) * 1_000_000_000L + fecha.getNanos();
+    }
+
+    private static Timestamp aTimestamp(long nanos) {
+        if (nanos == SIN_FECHA) {
+            return null;
+        }
+        Timestamp fecha = new Timestamp(Math.floorDiv(nanos, 1_000_000_000L) * 1000L);
+        fecha.setNanos((int) Math.floorMod(nanos, 1_000_000_000L));
+        return fecha;
+    }
+
+    // Las columnas. Las filas están compactadas (0..filas-1): al quitar una, la última ocupa su lugar
+    private static final class Columnas {
+        int[] ids;
+        int[] stocks;
+        int[] minimos;
+        int[] categorias;
+        int[] proveedores;
+        long[] precios;
+        long[] fechasRegistro;
+        long[] actualizaciones;
+        int[] versiones;
+        int[] nombres;
+        int[] descripciones;
+        int[] codigos;
+        TextosCompactos textos;
+        int filas;
+
+        // id_producto -> fila + 1 (0 = no está); los IDs son autoincrementales y densos
+        int[] filaPorId = new int[1024];
+
+        Columnas(int capacidad) {
+            ids = new int[capacidad];
+            stocks = new int[capacidad];
+            minimos = new int[capacidad];
+            categorias = new int[capacidad];
+            proveedores = new int[capacidad];
+            precios = new long[capacidad];
+            fechasRegistro = new long[capacidad];
+            actualizaciones = new long[capacidad];
+            versiones = new int[capacidad];
+            nombres = new int[capacidad];
+            descripciones = new int[capacidad];
+            codigos = new int[capacidad];
+            textos = new TextosCompactos(capacidad * 32);
+        }
+
+        int fila(int idProducto) {
+            return idProducto >= 0 && idProducto < filaPorId.length ? filaPorId[idProducto] - 1 : -1;
+        }
+
+        void aplicar(EventoCambio<Producto> cambio) {
+            Producto despues = cambio.getDespues();
+            if (despues == null || !despues.isActivo()) {
+                quitar(cambio.getId());
+                return;
+            }
+            int fila = fila(despues.getIdProducto());
+            if (fila >= 0 && versiones[fila] > despues.getVersion()) {
+                // Ya se aplicó una versión posterior
+                return;
+            }
+            poner(despues);
+        }
+
+        void poner(Producto producto) {
+            int id = producto.getIdProducto();
+            int fila = fila(id);
+            if (fila < 0) {
+                if (filas == ids.length) {
+                    ampliar(filas * 2);
+                }
+                fila = filas++;
+                if (id >= filaPorId.length) {
+                    filaPorId = Arrays.copyOf(filaPorId, Math.max(filaPorId.length * 2, id + 1));
+                }
+                filaPorId[id] = fila + 1;
+            } else {
+                textos.liberar(nombres[fila]);
+                textos.liberar(descripciones[fila]);
+                textos.liberar(codigos[fila]);
+            }
+            ids[fila] = id;
+            stocks[fila] = producto.getStockActual();
+            minimos[fila] = producto.getStockMinimo();
+            categorias[fila] = producto.getIdCategoria();
+            proveedores[fila] = producto.getIdProveedor();
+            // En SQLite el precio es REAL y arrastra restos binarios: se redondea al centavo
+            precios[fila] = Math.round(producto.getPrecioUnitario() * 100.0);
+            fechasRegistro[fila] = aNanos(producto.getFechaRegistro());
+            actualizaciones[fila] = aNanos(producto.getUltimaActualizacion());
+            versiones[fila] = producto.getVersion();
+            nombres[fila] = textos.agregar(producto.getNombreProducto());
+            descripciones[fila] = textos.agregar(producto.getDescripcion());
+            codigos[fila] = textos.agregar(producto.getCodigoBarras());
+            compactarSiConviene();
+        }
+
+        void quitar(int idProducto) {
+            int fila = fila(idProducto);
+            if (fila < 0) {
+                return;
+            }
+            textos.liberar(nombres[fila]);
+            textos.liberar(descripciones[fila]);
+            textos.liberar(codigos[fila]);
+            filaPorId[idProducto] = 0;
+
+            int ultima = --filas;
+            if (fila != ultima) {
+                ids[fila] = ids[ultima];
+                stocks[fila] = stocks[ultima];
+                minimos[fila] = minimos[ultima];
+                categorias[fila] = categorias[ultima];
+                proveedores[fila] = proveedores[ultima];
+                precios[fila] = precios[ultima];
+                fechasRegistro[fila] = fechasRegistro[ultima];
+                actualizaciones[fila] = actualizaciones[ultima];
+                versiones[fila] = versiones[ultima];
+                nombres[fila] = nombres[ultima];
+                descripciones[fila] = descripciones[ultima];
+                codigos[fila] = codigos[ultima];
+                filaPorId[ids[fila]] = fila + 1;
+            }
+            compactarSiConviene();
+        }
+
+        private void ampliar(int capacidad) {
+            ids = Arrays.copyOf(ids, capacidad);
+            stocks = Arrays.copyOf(stocks, capacidad);
+            minimos = Arrays.copyOf(minimos, capacidad);
+            categorias = Arrays.copyOf(categorias, capacidad);
+            proveedores = Arrays.copyOf(proveedores, capacidad);
+            precios = Arrays.copyOf(precios, capacidad);
+            fechasRegistro = Arrays.copyOf(fechasRegistro, capacidad);
+            actualizaciones = Arrays.copyOf(actualizaciones, capacidad);
+            versiones = Arrays.copyOf(versiones, capacidad);
+            nombres = Arrays.copyOf(nombres, capacidad);
+            descripciones = Arrays.copyOf(descripciones, capacidad);
+            codigos = Arrays.copyOf(codigos, capacidad);
+        }
+
+        private void compactarSiConviene() {
+            if (!textos.convieneCompactar()) {
+                return;
+            }
+            TextosCompactos nuevos = new TextosCompactos(textos.getUsados() + textos.getUsados() / 4);
+            for (int fila = 0; fila < filas; fila++) {
+                nombres[fila] = textos.copiarA(nuevos, nombres[fila]);
+                descripciones[fila] = textos.copiarA(nuevos, descripciones[fila]);
+                codigos[fila] = textos.copiarA(nuevos, codigos[fila]);
+            }
+            textos = nuevos;
+        }
+
+        long getBytesEstimados() {
+            // 9 columnas int y 3 long por fila reservada, más el índice por ID y los textos
+            return (long) ids.length * (9 * Integer.BYTES + 3 * Long.BYTES) +
+                    (long) filaPorId.length * Integer.BYTES + textos.getBytesReservados();
+        }
+    }
+}
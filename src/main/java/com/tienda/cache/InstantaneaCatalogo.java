@@ -0,0 +1,456 @@
+package com.tienda.cache;
+
+import com.tienda.dao.CursorProducto;
+import com.tienda.modelo.Categoria;
+import com.tienda.modelo.Producto;
+import com.tienda.modelo.Proveedor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+// Copia binaria del catálogo (productos activos, categorías y proveedores) para mostrar datos al
+// arrancar sin esperar a la base. Se lee mapeando el archivo: categorías y proveedores (pocos) se
+// decodifican al abrir; de los productos solo las claves del listado, y cada producto al pedirlo.
+// Dos archivos alternos (<base>.1 y <base>.2): se escribe siempre sobre el más antiguo, así el
+// que está mapeado no se trunca (Windows no lo permite) y un corte a mitad de escritura deja
+// intacto el anterior. El mágico de la cabecera se escribe el último.
+// marcaAgua: los productos con ultima_actualizacion >= marcaAgua pueden haber cambiado después
+public final class InstantaneaCatalogo {
+    private static final int MAGICO = 0x49435431; // "ICT1"
+    // 2: cada producto guarda también su columna version
+    private static final int VERSION = 2;
+    private static final long SIN_FECHA = Long.MIN_VALUE;
+
+    // Cabecera: mágico, versión, generación, creada, marca de agua, nº de categorías, proveedores
+    // y productos, posición de los dos índices, longitud total y CRC32C del resto
+    private static final int CABECERA = 64;
+    private static final int POS_GENERACION = 8, POS_CREADA = 16, POS_MARCA = 24, POS_CATEGORIAS = 32,
+            POS_PROVEEDORES = 36, POS_PRODUCTOS = 40, POS_POR_ORDEN = 44, POS_POR_ID = 48,
+            POS_LONGITUD = 52, POS_CRC = 56;
+
+    private final Path archivo;
+    private final MappedByteBuffer mapa;
+    private final long generacion;
+    private final long creada;
+    private final Timestamp marcaAgua;
+    private final int productos;
+    private final int porOrden;
+    private final int porId;
+    private final List<Categoria> categorias;
+    private final List<Proveedor> proveedores;
+    private final Map<Integer, String> nombresCategorias = new HashMap<>();
+    private final Map<Integer, String> nombresProveedores = new HashMap<>();
+
+    // Entrega los productos activos de uno en uno (p. ej. ProductoDAO::recorrerProductosActivos)
+    public interface Cargador {
+        boolean cargar(Consumer<Producto> destino);
+    }
+
+    private InstantaneaCatalogo(Path archivo, MappedByteBuffer mapa) {
+        this.archivo = archivo;
+        this.mapa = mapa;
+        this.generacion = mapa.getLong(POS_GENERACION);
+        this.creada = mapa.getLong(POS_CREADA);
+        long marca = mapa.getLong(POS_MARCA);
+        this.marcaAgua = marca == SIN_FECHA ? null : new Timestamp(marca);
+        this.productos = mapa.getInt(POS_PRODUCTOS);
+        this.porOrden = mapa.getInt(POS_POR_ORDEN);
+        this.porId = mapa.getInt(POS_POR_ID);
+
+        ByteBuffer lector = mapa.duplicate().position(CABECERA);
+        int n = mapa.getInt(POS_CATEGORIAS);
+        categorias = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            Categoria categoria = new Categoria(lector.getInt(), leerTexto(lector), leerTexto(lector));
+            categoria.setFechaCreacion(leerFecha(lector));
+            categorias.add(categoria);
+            nombresCategorias.put(categoria.getIdCategoria(), categoria.getNombreCategoria());
+        }
+        n = mapa.getInt(POS_PROVEEDORES);
+        proveedores = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            Proveedor proveedor = new Proveedor(lector.getInt(), leerTexto(lector), leerTexto(lector),
+                    leerTexto(lector), leerTexto(lector), leerTexto(lector), leerTexto(lector));
+            proveedor.setFechaRegistro(leerFecha(lector));
+            proveedores.add(proveedor);
+            nombresProveedores.put(proveedor.getIdProveedor(), proveedor.getNombreProveedor());
+        }
+    }
+
+    // La copia válida más reciente, o null si no hay ninguna
+    public static InstantaneaCatalogo abrir(Path base) {
+        Path elegido = null;
+        long mayor = Long.MIN_VALUE;
+        for (Path archivo : archivos(base)) {
+            long generacion = leerGeneracion(archivo);
+            if (generacion > mayor) {
+                mayor = generacion;
+                elegido = archivo;
+            }
+        }
+        if (elegido == null) {
+            return null;
+        }
+
+        try (FileChannel canal = FileChannel.open(elegido, StandardOpenOption.READ)) {
+            int longitud = leerCabecera(canal).getInt(POS_LONGITUD);
+            MappedByteBuffer mapa = canal.map(FileChannel.MapMode.READ_ONLY, 0, longitud);
+            CRC32C crc = new CRC32C();
+            crc.update(mapa.slice(CABECERA, longitud - CABECERA));
+            if ((int) crc.getValue() != mapa.getInt(POS_CRC)) {
+                System.err.println("Instantánea del catálogo dañada: " + elegido);
+                return null;
+            }
+            return new InstantaneaCatalogo(elegido, mapa);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error al abrir la instantánea del catálogo " + elegido + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static Path[] archivos(Path base) {
+        String nombre = base.getFileName().toString();
+        return new Path[]{base.resolveSibling(nombre + ".1"), base.resolveSibling(nombre + ".2")};
+    }
+
+    // Generación de una copia completa, o Long.MIN_VALUE si falta o está a medio escribir
+    private static long leerGeneracion(Path archivo) {
+        if (!Files.isRegularFile(archivo)) {
+            return Long.MIN_VALUE;
+        }
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            ByteBuffer cabecera = leerCabecera(canal);
+            if (cabecera.getInt(0) != MAGICO || cabecera.getInt(4) != VERSION ||
+                    cabecera.getInt(POS_LONGITUD) < CABECERA || cabecera.getInt(POS_LONGITUD) > canal.size()) {
+                return Long.MIN_VALUE;
+            }
+            return cabecera.getLong(POS_GENERACION);
+        } catch (IOException e) {
+            return Long.MIN_VALUE;
+        }
+    }
+
+    private static ByteBuffer leerCabecera(FileChannel canal) throws IOException {
+        ByteBuffer cabecera = ByteBuffer.allocate(CABECERA);
+        while (cabecera.hasRemaining() && canal.read(cabecera, cabecera.position()) > 0) {
+            // Sigue leyendo
+        }
+        if (cabecera.hasRemaining()) {
+            throw new IOException("archivo incompleto");
+        }
+        return cabecera.flip();
+    }
+
+    // Escribe una copia nueva sobre la más antigua de las dos. marcaAgua se toma antes de leer
+    // los productos: lo que cambie mientras tanto queda por encima de ella
+    public static boolean escribir(Path base, List<Categoria> categorias, List<Proveedor> proveedores,
+                                   Timestamp marcaAgua, Cargador cargador) {
+        Path[] archivos = archivos(base);
+        long generacion1 = leerGeneracion(archivos[0]);
+        long generacion2 = leerGeneracion(archivos[1]);
+        Path destino = generacion1 <= generacion2 ? archivos[0] : archivos[1];
+        long generacion = Math.max(Math.max(generacion1, generacion2), 0) + 1;
+
+        try (FileChannel canal = FileChannel.open(destino, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // Primero se invalida la cabecera: si el proceso se corta, la copia no se elige
+            canal.write(ByteBuffer.allocate(CABECERA), 0);
+            Escritor escritor = new Escritor(canal, CABECERA);
+
+            for (Categoria categoria : categorias) {
+                escritor.entero(categoria.getIdCategoria());
+                escritor.texto(categoria.getNombreCategoria());
+                escritor.texto(categoria.getDescripcion());
+                escritor.fecha(categoria.getFechaCreacion());
+            }
+            for (Proveedor proveedor : proveedores) {
+                escritor.entero(proveedor.getIdProveedor());
+                escritor.texto(proveedor.getNombreProveedor());
+                escritor.texto(proveedor.getTelefono());
+                escritor.texto(proveedor.getEmail());
+                escritor.texto(proveedor.getDireccion());
+                escritor.texto(proveedor.getCiudad());
+                escritor.texto(proveedor.getPais());
+                escritor.fecha(proveedor.getFechaRegistro());
+            }
+
+            List<CursorProducto> claves = new ArrayList<>();
+            Map<Integer, Integer> posiciones = new HashMap<>();
+            boolean leidos = cargador.cargar(producto -> {
+                try {
+                    claves.add(new CursorProducto(producto.getNombreProducto(), producto.getIdProducto()));
+                    posiciones.put(producto.getIdProducto(), escritor.getPosicion());
+                    escritor.producto(producto);
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            if (!leidos) {
+                return false;
+            }
+
+            claves.sort(CursorProducto.ORDEN);
+            int posPorOrden = escritor.getPosicion();
+            for (CursorProducto clave : claves) {
+                escritor.entero(posiciones.get(clave.getIdProducto()));
+            }
+            int[] ids = new int[claves.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = claves.get(i).getIdProducto();
+            }
+            Arrays.sort(ids);
+            int posPorId = escritor.getPosicion();
+            for (int id : ids) {
+                escritor.entero(id);
+                escritor.entero(posiciones.get(id));
+            }
+            escritor.vaciar();
+
+            ByteBuffer cabecera = ByteBuffer.allocate(CABECERA);
+            cabecera.putInt(0, MAGICO)
+                    .putInt(4, VERSION)
+                    .putLong(POS_GENERACION, generacion)
+                    .putLong(POS_CREADA, System.currentTimeMillis())
+                    .putLong(POS_MARCA, marcaAgua != null ? marcaAgua.getTime() : SIN_FECHA)
+                    .putInt(POS_CATEGORIAS, categorias.size())
+                    .putInt(POS_PROVEEDORES, proveedores.size())
+                    .putInt(POS_PRODUCTOS, claves.size())
+                    .putInt(POS_POR_ORDEN, posPorOrden)
+                    .putInt(POS_POR_ID, posPorId)
+                    .putInt(POS_LONGITUD, escritor.getPosicion())
+                    .putInt(POS_CRC, escritor.getCrc());
+            // Todo el contenido en disco antes que la cabecera que lo da por válido
+            canal.force(false);
+            canal.write(cabecera, 0);
+            canal.force(false);
+            return true;
+
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error al guardar la instantánea del catálogo " + destino + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    public Path getArchivo() {
+        return archivo;
+    }
+
+    public long getGeneracion() {
+        return generacion;
+    }
+
+    // System.currentTimeMillis() al escribirla
+    public long getCreada() {
+        return creada;
+    }
+
+    public Timestamp getMarcaAgua() {
+        return marcaAgua;
+    }
+
+    public int getProductos() {
+        return productos;
+    }
+
+    public List<Categoria> getCategorias() {
+        List<Categoria> copia = new ArrayList<>(categorias.size());
+        for (Categoria categoria : categorias) {
+            Categoria nueva = new Categoria(categoria.getIdCategoria(), categoria.getNombreCategoria(),
+                    categoria.getDescripcion());
+            nueva.setFechaCreacion(categoria.getFechaCreacion());
+            copia.add(nueva);
+        }
+        return copia;
+    }
+
+    public List<Proveedor> getProveedores() {
+        List<Proveedor> copia = new ArrayList<>(proveedores.size());
+        for (Proveedor proveedor : proveedores) {
+            copia.add(new Proveedor(proveedor));
+        }
+        return copia;
+    }
+
+    // Claves del listado, ya en el orden de CursorProducto.ORDEN
+    public List<CursorProducto> getClaves() {
+        List<CursorProducto> claves = new ArrayList<>(productos);
+        ByteBuffer lector = mapa.duplicate();
+        for (int i = 0; i < productos; i++) {
+            lector.position(mapa.getInt(porOrden + i * 4));
+            int id = lector.getInt();
+            // Precio, stock, mínimo, categoría, proveedor, activo, versión y las dos fechas
+            lector.position(lector.position() + 8 + 4 * 4 + 1 + 4 + 8 + 8);
+            claves.add(new CursorProducto(leerTexto(lector), id));
+        }
+        return claves;
+    }
+
+    // Producto de la copia, o null si no estaba
+    public Producto obtener(int id) {
+        int bajo = 0;
+        int alto = productos - 1;
+        while (bajo <= alto) {
+            int medio = (bajo + alto) >>> 1;
+            int actual = mapa.getInt(porId + medio * 8);
+            if (actual < id) {
+                bajo = medio + 1;
+            } else if (actual > id) {
+                alto = medio - 1;
+            } else {
+                return leerProducto(mapa.getInt(porId + medio * 8 + 4));
+            }
+        }
+        return null;
+    }
+
+    // Los que estén, en el orden pedido
+    public List<Producto> obtenerPorIds(List<Integer> ids) {
+        List<Producto> encontrados = new ArrayList<>(ids.size());
+        for (int id : ids) {
+            Producto producto = obtener(id);
+            if (producto != null) {
+                encontrados.add(producto);
+            }
+        }
+        return encontrados;
+    }
+
+    private Producto leerProducto(int posicion) {
+        ByteBuffer lector = mapa.duplicate().position(posicion);
+        int id = lector.getInt();
+        double precio = lector.getDouble();
+        int stock = lector.getInt();
+        int minimo = lector.getInt();
+        int idCategoria = lector.getInt();
+        int idProveedor = lector.getInt();
+        boolean activo = lector.get() != 0;
+        int version = lector.getInt();
+        Timestamp fechaRegistro = leerFecha(lector);
+        Timestamp ultimaActualizacion = leerFecha(lector);
+        Producto producto = new Producto(id, leerTexto(lector), leerTexto(lector), precio, stock, minimo,
+                idCategoria, idProveedor, leerTexto(lector), activo);
+        producto.setFechaRegistro(fechaRegistro);
+        producto.setUltimaActualizacion(ultimaActualizacion);
+        producto.setVersion(version);
+        producto.setNombreCategoria(nombresCategorias.get(idCategoria));
+        producto.setNombreProveedor(nombresProveedores.get(idProveedor));
+        return producto;
+    }
+
+    private static String leerTexto(ByteBuffer lector) {
+        int longitud = lector.getInt();
+        if (longitud < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[longitud];
+        lector.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static Timestamp leerFecha(ByteBuffer lector) {
+        long milis = lector.getLong();
+        return milis == SIN_FECHA ? null : new Timestamp(milis);
+    }
+
+    @Override
+    public String toString() {
+        return "InstantaneaCatalogo{" + archivo.getFileName() + ", generación " + generacion + ", " +
+                productos + " productos, " + categorias.size() + " categorías, " +
+                proveedores.size() + " proveedores}";
+    }
+
+    // Escritura secuencial con un búfer; calcula el CRC32C de todo lo escrito
+    private static final class Escritor {
+        private final FileChannel canal;
+        private final CRC32C crc = new CRC32C();
+        private ByteBuffer bufer = ByteBuffer.allocate(64 * 1024);
+        private long posicionCanal;
+
+        Escritor(FileChannel canal, int inicio) {
+            this.canal = canal;
+            this.posicionCanal = inicio;
+        }
+
+        int getPosicion() throws IOException {
+            long posicion = posicionCanal + bufer.position();
+            if (posicion > Integer.MAX_VALUE) {
+                throw new IOException("instantánea demasiado grande");
+            }
+            return (int) posicion;
+        }
+
+        int getCrc() {
+            return (int) crc.getValue();
+        }
+
+        void producto(Producto producto) throws IOException {
+            entero(producto.getIdProducto());
+            asegurar(8 + 4 * 4 + 1 + 4);
+            bufer.putDouble(producto.getPrecioUnitario())
+                    .putInt(producto.getStockActual())
+                    .putInt(producto.getStockMinimo())
+                    .putInt(producto.getIdCategoria())
+                    .putInt(producto.getIdProveedor())
+                    .put((byte) (producto.isActivo() ? 1 : 0))
+                    .putInt(producto.getVersion());
+            fecha(producto.getFechaRegistro());
+            fecha(producto.getUltimaActualizacion());
+            texto(producto.getNombreProducto());
+            texto(producto.getDescripcion());
+            texto(producto.getCodigoBarras());
+        }
+
+        void entero(int valor) throws IOException {
+            asegurar(4);
+            bufer.putInt(valor);
+        }
+
+        void fecha(Timestamp fecha) throws IOException {
+            asegurar(8);
+            bufer.putLong(fecha != null ? fecha.getTime() : SIN_FECHA);
+        }
+
+        void texto(String texto) throws IOException {
+            if (texto == null) {
+                entero(-1);
+                return;
+            }
+            byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+            asegurar(4 + bytes.length);
+            bufer.putInt(bytes.length).put(bytes);
+        }
+
+        private void asegurar(int bytes) throws IOException {
+            if (bufer.remaining() >= bytes) {
+                return;
+            }
+            vaciar();
+            if (bufer.capacity() < bytes) {
+                bufer = ByteBuffer.allocate(bytes);
+            }
+        }
+
+        void vaciar() throws IOException {
+            bufer.flip();
+            crc.update(bufer.duplicate());
+            while (bufer.hasRemaining()) {
+                posicionCanal += canal.write(bufer, posicionCanal);
+            }
+            bufer.clear();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.tienda.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// Área de textos para CatalogoColumnar: todos los Strings de una columna van seguidos en un
+// único byte[] en UTF-8, precedidos por su longitud (varint). Cada texto se referencia con su
+// posición (int). Un nombre de 20 caracteres ocupa 21 bytes en lugar de ~60 de un String.
+// Solo se añade al final; lo liberado se recupera al compactar. No es thread-safe
+final class TextosCompactos {
+    private byte[] datos;
+    private int usado;
+    private int liberados;
+
+    TextosCompactos(int capacidad) {
+        datos = new byte[Math.max(64, capacidad)];
+    }
+
+    // Posición del texto guardado, o -1 para null
+    int agregar(String texto) {
+        if (texto == null) {
+            return -1;
+        }
+        byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+        return agregar(bytes, 0, bytes.length);
+    }
+
+    private int agregar(byte[] origen, int desde, int longitud) {
+        asegurar(5 + longitud);
+        int posicion = usado;
+        int valor = longitud;
+        while (valor >= 0x80) {
+            datos[usado++] = (byte) (valor | 0x80);
+            valor >>>= 7;
+        }
+        datos[usado++] = (byte) valor;
+        System.arraycopy(origen, desde, datos, usado, longitud);
+        usado += longitud;
+        return posicion;
+    }
+
+    String leer(int posicion) {
+        if (posicion < 0) {
+            return null;
+        }
+        int longitud = 0;
+        int desplazamiento = 0;
+        int i = posicion;
+        byte b;
+        do {
+            b = datos[i++];
+            longitud |= (b & 0x7F) << desplazamiento;
+            desplazamiento += 7;
+        } while (b < 0);
+        return new String(datos, i, longitud, StandardCharsets.UTF_8);
+    }
+
+    // El texto deja de usarse; sus bytes cuentan como basura hasta compactar
+    void liberar(int posicion) {
+        if (posicion >= 0) {
+            liberados += tamano(posicion);
+        }
+    }
+
+    // true si más de la mitad del área es basura
+    boolean convieneCompactar() {
+        return liberados > 4096 && liberados * 2 > usado;
+    }
+
+    // Copia un texto a otra área (al compactar) y devuelve su nueva posición
+    int copiarA(TextosCompactos destino, int posicion) {
+        if (posicion < 0) {
+            return -1;
+        }
+        int cabecera = tamano(posicion);
+        destino.asegurar(cabecera);
+        System.arraycopy(datos, posicion, destino.datos, destino.usado, cabecera);
+        int nueva = destino.usado;
+        destino.usado += cabecera;
+        return nueva;
+    }
+
+    int getUsados() {
+        return usado - liberados;
+    }
+
+    long getBytesReservados() {
+        return datos.length;
+    }
+
+    // Bytes del texto en 'posicion', contando la longitud
+    private int tamano(int posicion) {
+        int longitud = 0;
+        int desplazamiento = 0;
+        int i = posicion;
+        byte b;
+        do {
+            b = datos[i++];
+            longitud |= (b & 0x7F) << desplazamiento;
+            desplazamiento += 7;
+        } while (b < 0);
+        return i - posicion + longitud;
+    }
+
+    private void asegurar(int bytes) {
+        if (usado + bytes > datos.length) {
+            datos = Arrays.copyOf(datos, Math.max(datos.length * 2, usado + bytes));
+        }
+    }
+}
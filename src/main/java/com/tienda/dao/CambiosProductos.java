@@ -0,0 +1,171 @@
+package com.tienda.dao;
+
+import com.tienda.cache.AgregadosInventario;
+import com.tienda.database.ConexionDB;
+import com.tienda.eventos.BusEventos;
+import com.tienda.eventos.EventoCambio;
+import com.tienda.modelo.Producto;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Escritura en curso sobre filas de productos: mantiene AgregadosInventario y publica los
+// eventos de cambio en BusEventos.
+// Si hay suscriptores de Producto, las filas se leen bloqueadas antes de escribir y otra vez
+// antes del commit, en la misma transacción: cada evento trae exactamente la versión que
+// reemplazó la escritura y la que dejó. Sin suscriptores solo se releen después, y solo si
+// los agregados están en uso.
+final class CambiosProductos {
+    private static final AgregadosInventario agregados = AgregadosInventario.getInstancia();
+    private static final BusEventos bus = BusEventos.getInstancia();
+
+    private final Connection conn;
+    private final boolean eventos;
+    private final boolean transaccionPropia;
+    private final Set<Integer> ids = new LinkedHashSet<>();
+    private Map<Integer, Producto> antes = Map.of();
+    private Map<Integer, Producto> despues;
+
+    private CambiosProductos(Connection conn, boolean eventos, boolean transaccionPropia) {
+        this.conn = conn;
+        this.eventos = eventos;
+        this.transaccionPropia = transaccionPropia;
+    }
+
+    // Antes de escribir las filas 'ids' (vacío si aún no se conocen, como en un alta).
+    // Si hacen falta eventos y la conexión está en autocommit, abre una transacción que
+    // cierra confirmar() o descartar()
+    static CambiosProductos iniciar(Connection conn, Collection<Integer> ids) throws SQLException {
+        boolean eventos = bus.tieneSuscriptores(Producto.class);
+        boolean transaccionPropia = eventos && conn.getAutoCommit();
+        if (transaccionPropia) {
+            conn.setAutoCommit(false);
+        }
+        CambiosProductos cambios = new CambiosProductos(conn, eventos, transaccionPropia);
+        cambios.ids.addAll(ids);
+        if (eventos && !ids.isEmpty()) {
+            cambios.antes = leer(conn, cambios.ids, bloqueoFilas());
+        }
+        return cambios;
+    }
+
+    // Filas creadas durante la escritura (IDs generados)
+    void agregarIds(Collection<Integer> nuevos) {
+        ids.addAll(nuevos);
+    }
+
+    // Escritura simple: relee las filas, confirma la transacción propia y publica
+    void confirmar() throws SQLException {
+        leerDespues();
+        if (transaccionPropia) {
+            conn.commit();
+            conn.setAutoCommit(true);
+        }
+        publicar();
+    }
+
+    // La escritura no se aplicó: se deshace la transacción propia sin publicar nada
+    void descartar() throws SQLException {
+        if (transaccionPropia) {
+            conn.rollback();
+            conn.setAutoCommit(true);
+        }
+    }
+
+    // En transacciones del llamador: antes de su commit (y publicar() después)
+    void leerDespues() throws SQLException {
+        if (ids.isEmpty() || (!eventos && !agregados.isEnUso())) {
+            return;
+        }
+        if (!conn.getAutoCommit()) {
+            // Dentro de la transacción: si falla, la escritura se deshace con ella
+            despues = leer(conn, ids, "");
+            return;
+        }
+        try {
+            despues = leer(conn, ids, "");
+        } catch (SQLException e) {
+            // La escritura ya está confirmada: sin la fila nueva los totales ya no son exactos
+            // y se recalculan en la próxima lectura
+            System.err.println("Error al actualizar los totales del inventario: " + e.getMessage());
+            agregados.invalidar();
+        }
+    }
+
+    // Tras el commit: agregados y eventos
+    void publicar() {
+        if (despues == null) {
+            return;
+        }
+        for (Producto producto : despues.values()) {
+            aplicarAgregados(producto);
+        }
+        if (!eventos) {
+            return;
+        }
+        for (int id : ids) {
+            Producto anterior = antes.get(id);
+            Producto nuevo = despues.get(id);
+            if (anterior != null || nuevo != null) {
+                bus.publicar(Producto.class, tipo(anterior, nuevo), id, anterior, nuevo);
+            }
+        }
+    }
+
+    static void aplicarAgregados(Producto producto) {
+        agregados.aplicar(producto.getIdProducto(), producto.getPrecioUnitario(), producto.getStockActual(),
+                producto.getStockMinimo(), producto.getIdCategoria(), producto.getIdProveedor(),
+                producto.isActivo(), producto.getVersion());
+    }
+
+    // Una baja lógica (activo pasa a false) se publica como ELIMINADO
+    private static EventoCambio.Tipo tipo(Producto anterior, Producto nuevo) {
+        if (anterior == null) {
+            return EventoCambio.Tipo.CREADO;
+        }
+        if (nuevo == null || (anterior.isActivo() && !nuevo.isActivo())) {
+            return EventoCambio.Tipo.ELIMINADO;
+        }
+        return EventoCambio.Tipo.ACTUALIZADO;
+    }
+
+    private static Map<Integer, Producto> leer(Connection conn, Set<Integer> ids, String bloqueo) throws SQLException {
+        List<Integer> lista = new ArrayList<>(ids);
+        Map<Integer, Producto> filas = new HashMap<>();
+        for (int inicio = 0; inicio < lista.size(); inicio += ProductoDAO.LOTE_IN) {
+            List<Integer> lote = lista.subList(inicio, Math.min(inicio + ProductoDAO.LOTE_IN, lista.size()));
+            int parametros = ProductoDAO.parametrosIn(lote.size());
+            String sql = ProductoDAO.SELECT_PRODUCTOS + "WHERE p.id_producto IN (" +
+                    "?,".repeat(parametros - 1) + "?)" + bloqueo;
+
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                for (int i = 0; i < parametros; i++) {
+                    pstmt.setInt(i + 1, lote.get(Math.min(i, lote.size() - 1)));
+                }
+                ResultSet rs = pstmt.executeQuery();
+                while (rs.next()) {
+                    Producto producto = ProductoDAO.crearProductoDesdeResultSet(rs);
+                    filas.put(producto.getIdProducto(), producto);
+                }
+            }
+        }
+        return filas;
+    }
+
+    private static String bloqueoFilas() throws SQLException {
+        try {
+            return ConexionDB.getMotor().getBloqueoFilas();
+        } catch (ClassNotFoundException e) {
+            throw new SQLException(e);
+        }
+    }
+}
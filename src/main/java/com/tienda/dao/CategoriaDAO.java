@@ -1,6 +1,8 @@
 package com.tienda.dao;
 
 import com.tienda.database.ConexionDB;
+import com.tienda.eventos.BusEventos;
+import com.tienda.eventos.EventoCambio;
 import com.tienda.modelo.Categoria;
 
 import java.sql.*;
@@ -8,30 +10,34 @@ import java.util.ArrayList;
 import java.util.List;
 
 public class CategoriaDAO {
+    private static final String SELECT_CATEGORIAS =
+            "SELECT id_categoria, nombre_categoria, descripcion, fecha_creacion FROM categorias ";
+
+    // CacheDimensiones se mantiene al día suscrito a estos eventos
+    private final BusEventos bus = BusEventos.getInstancia();
 
     // Obtener todas las categorías
     public List<Categoria> obtenerTodas() {
-        List<Categoria> categorias = new ArrayList<>();
-        String sql = "SELECT * FROM categorias ORDER BY nombre_categoria";
+        try (Connection conn = ConexionDB.getConexionLectura()) {
+            return obtenerTodas(conn);
+        } catch (SQLException e) {
+            System.err.println("Error al obtener categorías: " + e.getMessage());
+        }
 
-        try (Connection conn = ConexionDB.getConexion();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+        return new ArrayList<>();
+    }
+
+    // Igual, con una conexión que ya tiene el llamador (p. ej. con una consulta de productos abierta)
+    public List<Categoria> obtenerTodas(Connection conn) throws SQLException {
+        List<Categoria> categorias = new ArrayList<>();
+        String sql = SELECT_CATEGORIAS + "ORDER BY nombre_categoria";
 
+        try (PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
             while (rs.next()) {
-                Categoria categoria = new Categoria(
-                        rs.getInt("id_categoria"),
-                        rs.getString("nombre_categoria"),
-                        rs.getString("descripcion")
-                );
-                categoria.setFechaCreacion(rs.getTimestamp("fecha_creacion"));
-                categorias.add(categoria);
+                categorias.add(crearCategoriaDesdeResultSet(rs));
             }
-
-        } catch (SQLException e) {
-            System.err.println("Error al obtener categorías: " + e.getMessage());
         }
-
         return categorias;
     }
 
@@ -40,12 +46,27 @@ public class CategoriaDAO {
         String sql = "INSERT INTO categorias (nombre_categoria, descripcion) VALUES (?, ?)";
 
         try (Connection conn = ConexionDB.getConexion();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+             PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
 
+            // Con suscriptores, la fila publicada se relee en la misma transacción
+            boolean eventos = bus.tieneSuscriptores(Categoria.class);
+            conn.setAutoCommit(!eventos);
             pstmt.setString(1, categoria.getNombreCategoria());
             pstmt.setString(2, categoria.getDescripcion());
 
-            return pstmt.executeUpdate() > 0;
+            if (pstmt.executeUpdate() == 0) {
+                return false;
+            }
+            ResultSet rs = pstmt.getGeneratedKeys();
+            if (rs.next()) {
+                categoria.setIdCategoria(rs.getInt(1));
+            }
+            if (eventos) {
+                Categoria despues = leer(conn, categoria.getIdCategoria());
+                conn.commit();
+                bus.publicar(Categoria.class, EventoCambio.Tipo.CREADO, categoria.getIdCategoria(), null, despues);
+            }
+            return true;
 
         } catch (SQLException e) {
             System.err.println("Error al agregar categoría: " + e.getMessage());
@@ -55,28 +76,30 @@ public class CategoriaDAO {
 
     // Obtener categoría por ID
     public Categoria obtenerPorId(int id) {
-        String sql = "SELECT * FROM categorias WHERE id_categoria = ?";
+        try (Connection conn = ConexionDB.getConexionLectura()) {
+            return leer(conn, id);
+        } catch (SQLException e) {
+            System.err.println("Error al obtener categoría: " + e.getMessage());
+        }
 
-        try (Connection conn = ConexionDB.getConexion();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        return null;
+    }
 
+    private static Categoria leer(Connection conn, int id) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(SELECT_CATEGORIAS + "WHERE id_categoria = ?")) {
             pstmt.setInt(1, id);
             ResultSet rs = pstmt.executeQuery();
-
-            if (rs.next()) {
-                Categoria categoria = new Categoria(
-                        rs.getInt("id_categoria"),
-                        rs.getString("nombre_categoria"),
-                        rs.getString("descripcion")
-                );
-                categoria.setFechaCreacion(rs.getTimestamp("fecha_creacion"));
-                return categoria;
-            }
-
-        } catch (SQLException e) {
-            System.err.println("Error al obtener categoría: " + e.getMessage());
+            return rs.next() ? crearCategoriaDesdeResultSet(rs) : null;
         }
+    }
 
-        return null;
+    private static Categoria crearCategoriaDesdeResultSet(ResultSet rs) throws SQLException {
+        Categoria categoria = new Categoria(
+                rs.getInt("id_categoria"),
+                rs.getString("nombre_categoria"),
+                rs.getString("descripcion")
+        );
+        categoria.setFechaCreacion(rs.getTimestamp("fecha_creacion"));
+        return categoria;
     }
 }
\ No newline at end of file
@@ -0,0 +1,33 @@
+package com.tienda.dao;
+
+import java.util.Comparator;
+
+// Posición dentro del listado de productos ordenado por (nombre_producto, id_producto).
+// La paginación por clave (keyset) continúa "después de" un cursor en lugar de usar OFFSET.
+public final class CursorProducto {
+    // El mismo orden en memoria (String.compareTo coincide con la intercalación binaria de SQLite)
+    public static final Comparator<CursorProducto> ORDEN = Comparator
+            .comparing(CursorProducto::getNombreProducto)
+            .thenComparingInt(CursorProducto::getIdProducto);
+
+    private final String nombreProducto;
+    private final int idProducto;
+
+    public CursorProducto(String nombreProducto, int idProducto) {
+        this.nombreProducto = nombreProducto;
+        this.idProducto = idProducto;
+    }
+
+    public String getNombreProducto() {
+        return nombreProducto;
+    }
+
+    public int getIdProducto() {
+        return idProducto;
+    }
+
+    @Override
+    public String toString() {
+        return "CursorProducto{" + nombreProducto + ", " + idProducto + '}';
+    }
+}
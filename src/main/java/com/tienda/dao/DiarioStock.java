@@ -0,0 +1,207 @@
+package com.tienda.dao;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.CRC32C;
+
+// Archivo de solo añadir con los movimientos de stock aún no escritos en la base, mapeado en
+// memoria. Cada anotación es un registro con secuencia creciente y CRC32C; la cabecera guarda la
+// última secuencia ya aplicada en la base. Al abrir se recorre desde el principio: un registro
+// incompleto (corte a mitad de escritura) o con secuencia que no crece marca el final.
+// Cuando todo lo anotado está aplicado, se vuelve a escribir desde el principio.
+// Sin sincronización propia: lo usa StockDiferido con su candado
+final class DiarioStock implements AutoCloseable {
+    private static final int MAGICO = 0x44535431; // "DST1"
+    // Cabecera: mágico (4), reservado (4), id del diario (8), última secuencia aplicada (8)
+    private static final int POS_ID = 8;
+    private static final int POS_APLICADA = 16;
+    private static final int CABECERA = 24;
+    // Registro: secuencia (8), líneas (4), líneas × (id_producto, cantidad) (8 c/u), CRC32C (4)
+    private static final int FIJO_REGISTRO = 16;
+    private static final int MAXIMO_LINEAS = 1 << 20;
+
+    private final FileChannel canal;
+    private final boolean forzar;
+    private MappedByteBuffer mapa;
+    private final long idDiario;
+    private long aplicada;
+    private long ultima;
+    private int posicion;
+
+    // Movimiento leído del diario
+    interface Lector {
+        void leer(long secuencia, int idProducto, int cantidad);
+    }
+
+    private DiarioStock(FileChannel canal, int tamano, boolean forzar) throws IOException {
+        this.canal = canal;
+        this.forzar = forzar;
+        boolean nuevo = canal.size() < CABECERA;
+        this.mapa = canal.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(tamano, canal.size()));
+
+        if (nuevo) {
+            mapa.putInt(0, MAGICO);
+            mapa.putLong(POS_ID, ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE));
+            mapa.putLong(POS_APLICADA, 0);
+            mapa.force();
+        } else if (mapa.getInt(0) != MAGICO) {
+            throw new IOException("no es un diario de stock");
+        }
+        this.idDiario = mapa.getLong(POS_ID);
+        this.aplicada = mapa.getLong(POS_APLICADA);
+        this.ultima = aplicada;
+        this.posicion = recorrer((secuencia, id, cantidad) -> { });
+        limpiarCola();
+    }
+
+    // Lo que hay detrás del último registro válido no se vuelve a leer, pero un registro dañado
+    // a mitad del archivo puede tener detrás otros íntegros con secuencias mayores: al anotar
+    // encima, reaparecerían en la siguiente lectura. Se ponen a cero
+    private void limpiarCola() {
+        int fin = mapa.capacity();
+        while (fin > posicion && mapa.get(fin - 1) == 0) {
+            fin--;
+        }
+        if (fin > posicion) {
+            for (int i = posicion; i < fin; i++) {
+                mapa.put(i, (byte) 0);
+            }
+            mapa.force(posicion, fin - posicion);
+        }
+    }
+
+    // 'forzar': cada anotación llega al disco antes de volver (si no, basta con que el proceso
+    // termine; se pierde solo ante un corte del sistema operativo)
+    static DiarioStock abrir(Path archivo, int tamanoInicial, boolean forzar) throws IOException {
+        FileChannel canal = FileChannel.open(archivo, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            return new DiarioStock(canal, Math.max(tamanoInicial, 4096), forzar);
+        } catch (IOException | RuntimeException e) {
+            canal.close();
+            throw e;
+        }
+    }
+
+    // Identifica el diario en la tabla diario_stock de la base
+    long getIdDiario() {
+        return idDiario;
+    }
+
+    long getAplicada() {
+        return aplicada;
+    }
+
+    long getUltima() {
+        return ultima;
+    }
+
+    // Bytes ocupados y tamaño del archivo
+    int getOcupados() {
+        return posicion;
+    }
+
+    int getCapacidad() {
+        return mapa.capacity();
+    }
+
+    // Entrega los movimientos posteriores a la secuencia aplicada, en orden
+    void recorrerPendientes(Lector lector) {
+        recorrer(lector);
+    }
+
+    // Recorre los registros válidos; devuelve la posición siguiente al último
+    private int recorrer(Lector lector) {
+        CRC32C crc = new CRC32C();
+        int pos = CABECERA;
+        long anterior = Long.MIN_VALUE;
+        while (pos + FIJO_REGISTRO <= mapa.capacity()) {
+            long secuencia = mapa.getLong(pos);
+            int lineas = mapa.getInt(pos + 8);
+            if (secuencia <= anterior || lineas <= 0 || lineas > MAXIMO_LINEAS) {
+                break;
+            }
+            int longitud = FIJO_REGISTRO + lineas * 8;
+            if (pos + longitud > mapa.capacity()) {
+                break;
+            }
+            crc.reset();
+            crc.update(mapa.slice(pos, longitud - 4));
+            if ((int) crc.getValue() != mapa.getInt(pos + longitud - 4)) {
+                break;
+            }
+            if (secuencia > aplicada) {
+                for (int i = 0; i < lineas; i++) {
+                    int linea = pos + 12 + i * 8;
+                    lector.leer(secuencia, mapa.getInt(linea), mapa.getInt(linea + 4));
+                }
+            }
+            ultima = Math.max(ultima, secuencia);
+            anterior = secuencia;
+            pos += longitud;
+        }
+        return pos;
+    }
+
+    // Añade un registro con los movimientos (todos o ninguno) y devuelve su secuencia
+    long anotar(int[] ids, int[] cantidades) throws IOException {
+        int longitud = FIJO_REGISTRO + ids.length * 8;
+        if (posicion + longitud > mapa.capacity()) {
+            crecer(posicion + longitud);
+        }
+        long secuencia = ultima + 1;
+        ByteBuffer registro = mapa.slice(posicion, longitud);
+        registro.putLong(secuencia).putInt(ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            registro.putInt(ids[i]).putInt(cantidades[i]);
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(mapa.slice(posicion, longitud - 4));
+        registro.putInt((int) crc.getValue());
+        if (forzar) {
+            mapa.force(posicion, longitud);
+        }
+        posicion += longitud;
+        ultima = secuencia;
+        return secuencia;
+    }
+
+    // Los movimientos hasta 'secuencia' ya están en la base
+    void confirmar(long secuencia) {
+        if (secuencia <= aplicada) {
+            return;
+        }
+        aplicada = secuencia;
+        mapa.putLong(POS_APLICADA, secuencia);
+        mapa.force(0, CABECERA);
+        if (aplicada == ultima) {
+            // Nada pendiente: lo que quede detrás tiene secuencias menores y la lectura se
+            // detiene en el primero de esos registros
+            posicion = CABECERA;
+        }
+    }
+
+    // Se duplica el archivo; la capa anterior se libera con el recolector
+    private void crecer(int minimo) throws IOException {
+        long tamano = mapa.capacity();
+        while (tamano < minimo) {
+            tamano *= 2;
+        }
+        if (tamano > Integer.MAX_VALUE) {
+            throw new IOException("diario de stock lleno");
+        }
+        mapa.force();
+        mapa = canal.map(FileChannel.MapMode.READ_WRITE, 0, tamano);
+    }
+
+    @Override
+    public void close() throws IOException {
+        mapa.force();
+        canal.close();
+    }
+}
@@ -0,0 +1,241 @@
+package com.tienda.dao;
+
+import com.tienda.database.ConexionDB;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.zip.GZIPOutputStream;
+
+// Exportación de tablas completas (copias de seguridad, integraciones) a CSV o JSON Lines.
+// Cada fila se escribe en cuanto se lee del ResultSet, que avanza hacia delante con el fetchSize
+// de streaming del motor: la memoria usada no depende del tamaño del catálogo.
+public class ExportadorInventario {
+    // Tamaño de los búferes de escritura y de compresión
+    private static final int TAMANO_BUFER = 64 * 1024;
+
+    public enum Formato {
+        // Con cabecera; campos entre comillas solo si hace falta (RFC 4180)
+        CSV,
+        // Un objeto JSON por línea
+        JSON_LINEAS
+    }
+
+    private enum Tipo {ENTERO, DECIMAL, TEXTO, BOOLEANO, FECHA}
+
+    public enum Entidad {
+        PRODUCTOS("productos", "id_producto",
+                new String[]{"id_producto", "nombre_producto", "descripcion", "precio_unitario", "stock_actual",
+                        "stock_minimo", "id_categoria", "id_proveedor", "codigo_barras", "fecha_registro",
+                        "ultima_actualizacion", "activo"},
+                new Tipo[]{Tipo.ENTERO, Tipo.TEXTO, Tipo.TEXTO, Tipo.DECIMAL, Tipo.ENTERO,
+                        Tipo.ENTERO, Tipo.ENTERO, Tipo.ENTERO, Tipo.TEXTO, Tipo.FECHA,
+                        Tipo.FECHA, Tipo.BOOLEANO}),
+        CATEGORIAS("categorias", "id_categoria",
+                new String[]{"id_categoria", "nombre_categoria", "descripcion", "fecha_creacion"},
+                new Tipo[]{Tipo.ENTERO, Tipo.TEXTO, Tipo.TEXTO, Tipo.FECHA}),
+        PROVEEDORES("proveedores", "id_proveedor",
+                new String[]{"id_proveedor", "nombre_proveedor", "telefono", "email", "direccion",
+                        "ciudad", "pais", "fecha_registro"},
+                new Tipo[]{Tipo.ENTERO, Tipo.TEXTO, Tipo.TEXTO, Tipo.TEXTO, Tipo.TEXTO,
+                        Tipo.TEXTO, Tipo.TEXTO, Tipo.FECHA});
+
+        private final String sql;
+        private final String[] columnas;
+        private final Tipo[] tipos;
+
+        Entidad(String tabla, String clave, String[] columnas, Tipo[] tipos) {
+            this.sql = "SELECT " + String.join(", ", columnas) + " FROM " + tabla + " ORDER BY " + clave;
+            this.columnas = columnas;
+            this.tipos = tipos;
+        }
+    }
+
+    // Exportar a un archivo (se reemplaza si existe). Si termina en ".gz" se comprime con gzip.
+    // Devuelve las filas escritas, o -1 si hubo un error
+    public long exportar(Entidad entidad, Formato formato, Path archivo) {
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+
+            OutputStream salida = Channels.newOutputStream(canal);
+            if (archivo.getFileName().toString().endsWith(".gz")) {
+                salida = new GZIPOutputStream(salida, TAMANO_BUFER);
+            }
+            try (Writer escritor = crearEscritor(salida)) {
+                return escribir(entidad, formato, escritor);
+            }
+
+        } catch (IOException e) {
+            System.err.println("Error al escribir la exportación de " + entidad + ": " + e.getMessage());
+        } catch (SQLException e) {
+            System.err.println("Error al leer " + entidad + " para exportar: " + e.getMessage());
+        }
+        return -1;
+    }
+
+    // Exportar a un stream ya abierto (no se cierra; solo se vacía al terminar)
+    public long exportar(Entidad entidad, Formato formato, OutputStream salida) {
+        try {
+            Writer escritor = crearEscritor(salida);
+            long filas = escribir(entidad, formato, escritor);
+            escritor.flush();
+            return filas;
+
+        } catch (IOException e) {
+            System.err.println("Error al escribir la exportación de " + entidad + ": " + e.getMessage());
+        } catch (SQLException e) {
+            System.err.println("Error al leer " + entidad + " para exportar: " + e.getMessage());
+        }
+        return -1;
+    }
+
+    private static Writer crearEscritor(OutputStream salida) {
+        return new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8), TAMANO_BUFER);
+    }
+
+    private long escribir(Entidad entidad, Formato formato, Writer escritor) throws SQLException, IOException {
+        if (formato == Formato.CSV) {
+            escritor.write(String.join(",", entidad.columnas));
+            escritor.write('\n');
+        }
+
+        // Sentencia fuera del caché de la conexión (esta firma no pasa por él):
+        // el fetchSize de streaming no debe quedarse en una sentencia reutilizada
+        try (Connection conn = ConexionDB.getConexionLectura();
+             PreparedStatement pstmt = conn.prepareStatement(entidad.sql,
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+
+            pstmt.setFetchSize(ConexionDB.getMotor().getTamanoFetchStreaming());
+            long filas = 0;
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    if (formato == Formato.CSV) {
+                        escribirCsv(entidad, rs, escritor);
+                    } else {
+                        escribirJson(entidad, rs, escritor);
+                    }
+                    filas++;
+                }
+            }
+            return filas;
+
+        } catch (ClassNotFoundException e) {
+            throw new SQLException(e);
+        }
+    }
+
+    private static void escribirCsv(Entidad entidad, ResultSet rs, Writer escritor) throws SQLException, IOException {
+        for (int i = 0; i < entidad.columnas.length; i++) {
+            if (i > 0) {
+                escritor.write(',');
+            }
+            String valor = leer(rs, i + 1, entidad.tipos[i]);
+            if (valor == null) {
+                continue;
+            }
+            if (entidad.tipos[i] == Tipo.TEXTO && necesitaComillas(valor)) {
+                escritor.write('"');
+                escritor.write(valor.replace("\"", "\"\""));
+                escritor.write('"');
+            } else {
+                escritor.write(valor);
+            }
+        }
+        escritor.write('\n');
+    }
+
+    private static boolean necesitaComillas(String valor) {
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void escribirJson(Entidad entidad, ResultSet rs, Writer escritor) throws SQLException, IOException {
+        escritor.write('{');
+        for (int i = 0; i < entidad.columnas.length; i++) {
+            if (i > 0) {
+                escritor.write(',');
+            }
+            escritor.write('"');
+            escritor.write(entidad.columnas[i]);
+            escritor.write("\":");
+            Tipo tipo = entidad.tipos[i];
+            String valor = leer(rs, i + 1, tipo);
+            if (valor == null) {
+                escritor.write("null");
+            } else if (tipo == Tipo.TEXTO || tipo == Tipo.FECHA) {
+                escribirCadenaJson(valor, escritor);
+            } else {
+                escritor.write(valor);
+            }
+        }
+        escritor.write("}\n");
+    }
+
+    private static void escribirCadenaJson(String valor, Writer escritor) throws IOException {
+        escritor.write('"');
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            switch (c) {
+                case '"' -> escritor.write("\\\"");
+                case '\\' -> escritor.write("\\\\");
+                case '\n' -> escritor.write("\\n");
+                case '\r' -> escritor.write("\\r");
+                case '\t' -> escritor.write("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        escritor.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        escritor.write(c);
+                    }
+                }
+            }
+        }
+        escritor.write('"');
+    }
+
+    // Valor de la columna como texto (sin comillas ni escapes), o null
+    private static String leer(ResultSet rs, int columna, Tipo tipo) throws SQLException {
+        switch (tipo) {
+            case ENTERO -> {
+                long valor = rs.getLong(columna);
+                return rs.wasNull() ? null : Long.toString(valor);
+            }
+            case DECIMAL -> {
+                // En SQLite el precio es REAL y arrastra restos binarios: se redondea al centavo
+                double valor = rs.getDouble(columna);
+                return rs.wasNull() ? null
+                        : BigDecimal.valueOf(valor).setScale(2, RoundingMode.HALF_UP).toPlainString();
+            }
+            case BOOLEANO -> {
+                boolean valor = rs.getBoolean(columna);
+                return rs.wasNull() ? null : Boolean.toString(valor);
+            }
+            case FECHA -> {
+                Timestamp valor = rs.getTimestamp(columna);
+                return valor == null ? null : valor.toLocalDateTime().toString();
+            }
+            default -> {
+                return rs.getString(columna);
+            }
+        }
+    }
+}
@@ -0,0 +1,346 @@
+package com.tienda.dao;
+
+import com.tienda.busqueda.IndiceProductos;
+import com.tienda.cache.CacheDimensiones;
+import com.tienda.cache.CacheProductos;
+import com.tienda.database.ConexionDB;
+import com.tienda.modelo.Producto;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+// Importación masiva de productos (p. ej. el catálogo de un proveedor).
+// Inserta en lotes JDBC con una transacción por lote; las filas con errores
+// se informan una a una sin abortar el resto de la importación.
+public class ImportadorProductos {
+    private static final String SQL_INSERTAR = "INSERT INTO productos (nombre_producto, descripcion, precio_unitario, " +
+            "stock_actual, stock_minimo, id_categoria, id_proveedor, codigo_barras, activo) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // Columnas esperadas en el CSV, en este orden
+    private static final String CABECERA_CSV = "nombre_producto,descripcion,precio_unitario,stock_actual," +
+            "stock_minimo,id_categoria,id_proveedor,codigo_barras";
+    private static final int COLUMNAS_CSV = 8;
+
+    private final int tamanoLote;
+    private final CacheDimensiones dimensiones = CacheDimensiones.getInstancia();
+
+    public ImportadorProductos() {
+        this(Integer.getInteger("inventario.importacion.lote", 1000));
+    }
+
+    public ImportadorProductos(int tamanoLote) {
+        if (tamanoLote < 1) {
+            throw new IllegalArgumentException("El tamaño de lote debe ser al menos 1");
+        }
+        this.tamanoLote = tamanoLote;
+    }
+
+    // Importar productos de un stream. Las filas se numeran desde 1 en el orden del stream
+    public ResultadoImportacion importar(Stream<Producto> productos) {
+        Iterator<Producto> origen = productos.iterator();
+        Iterator<Fila> filas = new Iterator<>() {
+            private int numero = 0;
+
+            @Override
+            public boolean hasNext() {
+                return origen.hasNext();
+            }
+
+            @Override
+            public Fila next() {
+                return new Fila(++numero, origen.next(), null);
+            }
+        };
+        return procesar(filas);
+    }
+
+    // Importar desde CSV con las columnas de CABECERA_CSV (la cabecera es opcional).
+    // Las filas se numeran por línea del archivo. No admite saltos de línea dentro de un campo
+    public ResultadoImportacion importarCsv(Reader lector) {
+        BufferedReader entrada = lector instanceof BufferedReader
+                ? (BufferedReader) lector : new BufferedReader(lector);
+
+        Iterator<Fila> filas = new Iterator<>() {
+            private int linea = 0;
+            private String siguiente = leer();
+
+            private String leer() {
+                try {
+                    String texto;
+                    do {
+                        texto = entrada.readLine();
+                        linea++;
+                    } while (texto != null && (texto.isBlank() ||
+                            (linea == 1 && texto.trim().toLowerCase().startsWith("nombre_producto"))));
+                    return texto;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return siguiente != null;
+            }
+
+            @Override
+            public Fila next() {
+                int numero = linea;
+                String texto = siguiente;
+                siguiente = leer();
+                try {
+                    return new Fila(numero, productoDesdeCsv(texto), null);
+                } catch (IllegalArgumentException e) {
+                    return new Fila(numero, null, e.getMessage());
+                }
+            }
+        };
+
+        try {
+            return procesar(filas);
+        } catch (UncheckedIOException e) {
+            System.err.println("Error al leer el CSV de productos: " + e.getCause().getMessage());
+            ResultadoImportacion resultado = new ResultadoImportacion();
+            resultado.registrarError(0, "Error de lectura: " + e.getCause().getMessage());
+            return resultado;
+        }
+    }
+
+    private ResultadoImportacion procesar(Iterator<Fila> filas) {
+        ResultadoImportacion resultado = new ResultadoImportacion();
+        List<Fila> lote = new ArrayList<>(tamanoLote);
+
+        while (filas.hasNext()) {
+            Fila fila = filas.next();
+            if (fila.error != null) {
+                resultado.registrarError(fila.numero, fila.error);
+                continue;
+            }
+            String error = validar(fila.producto);
+            if (error != null) {
+                resultado.registrarError(fila.numero, error);
+                continue;
+            }
+            lote.add(fila);
+            if (lote.size() == tamanoLote) {
+                insertarLote(lote, resultado);
+                lote.clear();
+            }
+        }
+        if (!lote.isEmpty()) {
+            insertarLote(lote, resultado);
+        }
+        return resultado;
+    }
+
+    // Validación previa, incluidas las FK contra categorías y proveedores en memoria
+    private String validar(Producto producto) {
+        if (producto == null) {
+            return "Producto vacío";
+        }
+        if (producto.getNombreProducto() == null || producto.getNombreProducto().isBlank()) {
+            return "El nombre del producto es obligatorio";
+        }
+        if (producto.getPrecioUnitario() < 0) {
+            return "Precio negativo: " + producto.getPrecioUnitario();
+        }
+        if (producto.getStockActual() < 0 || producto.getStockMinimo() < 0) {
+            return "Stock negativo";
+        }
+        if (!dimensiones.existeCategoria(producto.getIdCategoria())) {
+            return "La categoría " + producto.getIdCategoria() + " no existe";
+        }
+        if (!dimensiones.existeProveedor(producto.getIdProveedor())) {
+            return "El proveedor " + producto.getIdProveedor() + " no existe";
+        }
+        return null;
+    }
+
+    // Un lote = una transacción. Se pide la conexión por lote para no acaparar
+    // el escritor durante toda la importación
+    private void insertarLote(List<Fila> lote, ResultadoImportacion resultado) {
+        try (Connection conn = ConexionDB.getConexion()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement pstmt = conn.prepareStatement(SQL_INSERTAR, Statement.RETURN_GENERATED_KEYS)) {
+                CambiosProductos cambios = CambiosProductos.iniciar(conn, List.of());
+                List<Fila> insertadas;
+                if (ConexionDB.getMotor().soportaClavesEnLote()) {
+                    try {
+                        insertadas = insertarEnBatch(pstmt, lote);
+                    } catch (BatchUpdateException e) {
+                        // Alguna fila falló: se descarta el lote y se repite fila a fila para aislarla
+                        conn.rollback();
+                        insertadas = insertarFilaAFila(pstmt, lote, resultado);
+                    }
+                } else {
+                    // Sin claves generadas en batch (SQLite): fila a fila dentro de la misma
+                    // transacción, que en un motor embebido no cuesta viajes de red
+                    insertadas = insertarFilaAFila(pstmt, lote, resultado);
+                }
+                List<Integer> ids = new ArrayList<>(insertadas.size());
+                for (Fila fila : insertadas) {
+                    ids.add(fila.idGenerado);
+                }
+                cambios.agregarIds(ids);
+                cambios.leerDespues();
+                conn.commit();
+                publicar(insertadas, resultado);
+                cambios.publicar();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException | ClassNotFoundException | RuntimeException e) {
+            System.err.println("Error al importar lote de productos: " + e.getMessage());
+            for (Fila fila : lote) {
+                resultado.registrarError(fila.numero, "Lote no importado: " + e.getMessage());
+            }
+        }
+    }
+
+    private List<Fila> insertarEnBatch(PreparedStatement pstmt, List<Fila> lote) throws SQLException {
+        for (Fila fila : lote) {
+            asignarParametros(pstmt, fila.producto);
+            pstmt.addBatch();
+        }
+        pstmt.executeBatch();
+
+        // Las claves llegan en el mismo orden que las filas del batch
+        try (ResultSet claves = pstmt.getGeneratedKeys()) {
+            for (Fila fila : lote) {
+                if (!claves.next()) {
+                    throw new SQLException("El driver devolvió menos claves generadas que filas");
+                }
+                fila.idGenerado = claves.getInt(1);
+            }
+        }
+        return lote;
+    }
+
+    private List<Fila> insertarFilaAFila(PreparedStatement pstmt, List<Fila> lote,
+                                         ResultadoImportacion resultado) throws SQLException {
+        pstmt.clearBatch();
+        List<Fila> insertadas = new ArrayList<>(lote.size());
+        for (Fila fila : lote) {
+            try {
+                asignarParametros(pstmt, fila.producto);
+                pstmt.executeUpdate();
+                try (ResultSet claves = pstmt.getGeneratedKeys()) {
+                    if (claves.next()) {
+                        fila.idGenerado = claves.getInt(1);
+                    }
+                }
+                insertadas.add(fila);
+            } catch (SQLException e) {
+                // Error de la sentencia: solo se deshace esta fila
+                resultado.registrarError(fila.numero, e.getMessage());
+            }
+        }
+        return insertadas;
+    }
+
+    // Tras el commit: IDs en el resultado y en los productos, cachés e índice al día
+    private void publicar(List<Fila> insertadas, ResultadoImportacion resultado) {
+        CacheProductos cache = CacheProductos.getInstancia();
+        IndiceProductos indice = IndiceProductos.getInstancia();
+        for (Fila fila : insertadas) {
+            fila.producto.setIdProducto(fila.idGenerado);
+            resultado.registrarInsertado(fila.numero, fila.idGenerado);
+            cache.invalidarCodigo(fila.producto.getCodigoBarras());
+            indice.actualizar(fila.producto);
+        }
+    }
+
+    private static void asignarParametros(PreparedStatement pstmt, Producto producto) throws SQLException {
+        pstmt.setString(1, producto.getNombreProducto());
+        pstmt.setString(2, producto.getDescripcion());
+        pstmt.setDouble(3, producto.getPrecioUnitario());
+        pstmt.setInt(4, producto.getStockActual());
+        pstmt.setInt(5, producto.getStockMinimo());
+        pstmt.setInt(6, producto.getIdCategoria());
+        pstmt.setInt(7, producto.getIdProveedor());
+        pstmt.setString(8, ProductoDAO.codigoBarrasONull(producto.getCodigoBarras()));
+        pstmt.setBoolean(9, producto.isActivo());
+    }
+
+    // Convierte una línea CSV en Producto; lanza IllegalArgumentException con el motivo si no es válida
+    static Producto productoDesdeCsv(String linea) {
+        List<String> campos = separarCsv(linea);
+        if (campos.size() != COLUMNAS_CSV) {
+            throw new IllegalArgumentException("Se esperaban " + COLUMNAS_CSV + " columnas (" +
+                    CABECERA_CSV + ") y hay " + campos.size());
+        }
+        try {
+            String codigo = campos.get(7).trim();
+            return new Producto(
+                    campos.get(0).trim(),
+                    campos.get(1).trim(),
+                    Double.parseDouble(campos.get(2).trim()),
+                    Integer.parseInt(campos.get(3).trim()),
+                    Integer.parseInt(campos.get(4).trim()),
+                    Integer.parseInt(campos.get(5).trim()),
+                    Integer.parseInt(campos.get(6).trim()),
+                    codigo.isEmpty() ? null : codigo
+            );
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Formato numérico incorrecto: " + e.getMessage());
+        }
+    }
+
+    // Separa por comas respetando comillas dobles ("" dentro de comillas es una comilla)
+    static List<String> separarCsv(String linea) {
+        List<String> campos = new ArrayList<>();
+        StringBuilder actual = new StringBuilder();
+        boolean entreComillas = false;
+
+        for (int i = 0; i < linea.length(); i++) {
+            char c = linea.charAt(i);
+            if (entreComillas) {
+                if (c == '"' && i + 1 < linea.length() && linea.charAt(i + 1) == '"') {
+                    actual.append('"');
+                    i++;
+                } else if (c == '"') {
+                    entreComillas = false;
+                } else {
+                    actual.append(c);
+                }
+            } else if (c == '"') {
+                entreComillas = true;
+            } else if (c == ',') {
+                campos.add(actual.toString());
+                actual.setLength(0);
+            } else {
+                actual.append(c);
+            }
+        }
+        campos.add(actual.toString());
+        return campos;
+    }
+
+    // Fila del origen con su número, el producto (o el error de lectura) y el ID generado
+    private static final class Fila {
+        final int numero;
+        final Producto producto;
+        final String error;
+        int idGenerado;
+
+        Fila(int numero, Producto producto, String error) {
+            this.numero = numero;
+            this.producto = producto;
+            this.error = error;
+        }
+    }
+}
@@ -1,13 +1,63 @@
 package com.tienda.dao;
 
+import com.tienda.alertas.IndiceStockBajo;
+import com.tienda.busqueda.IndiceProductos;
+import com.tienda.busqueda.IndiceTexto;
+import com.tienda.cache.AgregadosInventario;
+import com.tienda.cache.CacheDimensiones;
+import com.tienda.cache.CacheProductos;
+import com.tienda.cache.CatalogoColumnar;
 import com.tienda.database.ConexionDB;
+import com.tienda.modelo.ArticuloCaja;
+import com.tienda.modelo.MovimientoStock;
 import com.tienda.modelo.Producto;
 
+import java.math.BigDecimal;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
 
 public class ProductoDAO {
+    // Caché compartido por todas las instancias del DAO
+    private final CacheProductos cache = CacheProductos.getInstancia();
+    // Nombres de categorías y proveedores sin JOIN por fila
+    private static final CacheDimensiones dimensiones = CacheDimensiones.getInstancia();
+    // Búsqueda de texto sin LIKE '%...%'
+    private final IndiceProductos indice = IndiceProductos.getInstancia();
+    // Totales del inventario mantenidos con cada escritura
+    private static final AgregadosInventario agregados = AgregadosInventario.getInstancia();
+    // Copia por columnas de los productos activos (opcional): sirve las lecturas sin ir a la base
+    private static final CatalogoColumnar columnar = CatalogoColumnar.getInstancia();
+    // Movimientos de stock con escritura diferida (opcional): el stock vigente está en memoria
+    private static final StockDiferido stockDiferido = StockDiferido.getInstancia();
+
+    // Máximo de resultados de una búsqueda de texto
+    private static final int LIMITE_BUSQUEDA = 500;
+    // Máximo de parámetros por consulta IN (...)
+    static final int LOTE_IN = 500;
+    // Intentos de un lote de movimientos ante interbloqueos
+    private static final int REINTENTOS_MOVIMIENTO = 3;
+
+    // Columnas que lee crearProductoDesdeResultSet, en este orden (se leen por posición)
+    static final String COLUMNAS_PRODUCTO = "p.id_producto, p.nombre_producto, p.descripcion, " +
+            "p.precio_unitario, p.stock_actual, p.stock_minimo, p.id_categoria, p.id_proveedor, " +
+            "p.codigo_barras, p.fecha_registro, p.ultima_actualizacion, p.activo, p.version";
+    static final String SELECT_PRODUCTOS = "SELECT " + COLUMNAS_PRODUCTO + " FROM productos p ";
+    // Columnas que necesitan los agregados de inventario
+    private static final String SELECT_APORTES = "SELECT p.id_producto, p.precio_unitario, p.stock_actual, " +
+            "p.stock_minimo, p.id_categoria, p.id_proveedor, p.activo, p.version FROM productos p ";
+    // Máximo que espera una lectura de totales a que otro hilo termine de sembrarlos
+    private static final long ESPERA_AGREGADOS_MS = 30_000;
+    private static final int COL_ID = 1, COL_NOMBRE = 2, COL_DESCRIPCION = 3, COL_PRECIO = 4,
+            COL_STOCK = 5, COL_STOCK_MINIMO = 6, COL_CATEGORIA = 7, COL_PROVEEDOR = 8,
+            COL_CODIGO = 9, COL_FECHA_REGISTRO = 10, COL_ULTIMA_ACTUALIZACION = 11, COL_ACTIVO = 12,
+            COL_VERSION = 13;
+    // Primera columna libre detrás de COLUMNAS_PRODUCTO
+    static final int COLUMNAS_PRODUCTO_SIGUIENTE = COL_VERSION + 1;
 
     // Crear producto con validación de FK
     public boolean agregarProducto(Producto producto) {
@@ -18,6 +68,7 @@ public class ProductoDAO {
         try (Connection conn = ConexionDB.getConexion();
              PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
 
+            CambiosProductos cambios = CambiosProductos.iniciar(conn, List.of());
             pstmt.setString(1, producto.getNombreProducto());
             pstmt.setString(2, producto.getDescripcion());
             pstmt.setDouble(3, producto.getPrecioUnitario());
@@ -25,7 +76,7 @@ public class ProductoDAO {
             pstmt.setInt(5, producto.getStockMinimo());
             pstmt.setInt(6, producto.getIdCategoria());
             pstmt.setInt(7, producto.getIdProveedor());
-            pstmt.setString(8, producto.getCodigoBarras());
+            pstmt.setString(8, codigoBarrasONull(producto.getCodigoBarras()));
             pstmt.setBoolean(9, producto.isActivo());
 
             int filasAfectadas = pstmt.executeUpdate();
@@ -36,33 +87,37 @@ public class ProductoDAO {
                 if (rs.next()) {
                     producto.setIdProducto(rs.getInt(1));
                 }
+                cambios.agregarIds(List.of(producto.getIdProducto()));
+                cambios.confirmar();
+                cache.invalidarCodigo(producto.getCodigoBarras());
+                indice.actualizar(producto);
                 return true;
             }
 
         } catch (SQLException e) {
             System.err.println("Error al agregar producto: " + e.getMessage());
-            if (e.getMessage().contains("foreign key")) {
+            if (e.getMessage().toLowerCase().contains("foreign key")) {
                 System.err.println("  Verifica que la categoría y proveedor existan");
             }
         }
         return false;
     }
 
-    // Obtener todos los productos con JOIN para mostrar nombres de categoría y proveedor
+    // Obtener todos los productos (nombres de categoría y proveedor desde CacheDimensiones)
     public List<Producto> obtenerTodosLosProductos() {
+        if (columnar.isCargado()) {
+            return columnar.obtenerTodos();
+        }
+
         List<Producto> productos = new ArrayList<>();
-        String sql = """
-                SELECT p.*, c.nombre_categoria, pr.nombre_proveedor
-                FROM productos p
-                INNER JOIN categorias c ON p.id_categoria = c.id_categoria
-                INNER JOIN proveedores pr ON p.id_proveedor = pr.id_proveedor
+        String sql = SELECT_PRODUCTOS + """
                 WHERE p.activo = true
                 ORDER BY p.nombre_producto
                 """;
 
-        try (Connection conn = ConexionDB.getConexion();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+        try (Connection conn = ConexionDB.getConexionLectura();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
 
             while (rs.next()) {
                 Producto producto = crearProductoDesdeResultSet(rs);
@@ -76,19 +131,21 @@ public class ProductoDAO {
         return productos;
     }
 
-    // Buscar productos por nombre con JOIN
+    // Buscar productos por nombre, descripción o código de barras usando el índice en memoria.
+    // Resultados ordenados por relevancia
     public List<Producto> buscarPorNombre(String nombre) {
+        if (IndiceTexto.esConsultaIndexable(nombre)) {
+            return obtenerProductosPorIds(indice.buscar(nombre, LIMITE_BUSQUEDA));
+        }
+
+        // Consultas de una sola letra: LIKE como antes
         List<Producto> productos = new ArrayList<>();
-        String sql = """
-                SELECT p.*, c.nombre_categoria, pr.nombre_proveedor
-                FROM productos p
-                INNER JOIN categorias c ON p.id_categoria = c.id_categoria
-                INNER JOIN proveedores pr ON p.id_proveedor = pr.id_proveedor
+        String sql = SELECT_PRODUCTOS + """
                 WHERE p.nombre_producto LIKE ? AND p.activo = true
                 ORDER BY p.nombre_producto
                 """;
 
-        try (Connection conn = ConexionDB.getConexion();
+        try (Connection conn = ConexionDB.getConexionLectura();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setString(1, "%" + nombre + "%");
@@ -106,19 +163,78 @@ public class ProductoDAO {
         return productos;
     }
 
+    // Obtener productos por sus IDs, en el mismo orden de la lista
+    public List<Producto> obtenerProductosPorIds(List<Integer> ids) {
+        Map<Integer, Producto> encontrados = new HashMap<>();
+        List<Integer> pendientes = ids;
+        if (columnar.isCargado()) {
+            // En la base solo se buscan los que no están en el catálogo (inactivos o inexistentes)
+            for (Producto producto : columnar.obtenerPorIds(ids)) {
+                encontrados.put(producto.getIdProducto(), producto);
+            }
+            pendientes = new ArrayList<>();
+            for (int id : ids) {
+                if (!encontrados.containsKey(id)) {
+                    pendientes.add(id);
+                }
+            }
+            if (pendientes.isEmpty()) {
+                return enOrden(ids, encontrados);
+            }
+        }
+
+        try (Connection conn = ConexionDB.getConexionLectura()) {
+            for (int inicio = 0; inicio < pendientes.size(); inicio += LOTE_IN) {
+                List<Integer> lote = pendientes.subList(inicio, Math.min(inicio + LOTE_IN, pendientes.size()));
+                // Los huecos hasta 'parametros' repiten el último ID
+                int parametros = parametrosIn(lote.size());
+                String sql = SELECT_PRODUCTOS + "WHERE p.id_producto IN (" +
+                        "?,".repeat(parametros - 1) + "?)";
+
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < parametros; i++) {
+                        pstmt.setInt(i + 1, lote.get(Math.min(i, lote.size() - 1)));
+                    }
+                    ResultSet rs = pstmt.executeQuery();
+
+                    while (rs.next()) {
+                        Producto producto = crearProductoDesdeResultSet(rs);
+                        encontrados.put(producto.getIdProducto(), producto);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error al obtener productos por ID: " + e.getMessage());
+        }
+
+        return enOrden(ids, encontrados);
+    }
+
+    // Los encontrados, en el orden de 'ids'
+    private static List<Producto> enOrden(List<Integer> ids, Map<Integer, Producto> encontrados) {
+        List<Producto> productos = new ArrayList<>(encontrados.size());
+        for (int id : ids) {
+            Producto producto = encontrados.get(id);
+            if (producto != null) {
+                productos.add(producto);
+            }
+        }
+        return productos;
+    }
+
     // Buscar por categoría
     public List<Producto> buscarPorCategoria(int idCategoria) {
+        if (columnar.isCargado()) {
+            return columnar.buscarPorCategoria(idCategoria);
+        }
+
         List<Producto> productos = new ArrayList<>();
-        String sql = """
-                SELECT p.*, c.nombre_categoria, pr.nombre_proveedor
-                FROM productos p
-                INNER JOIN categorias c ON p.id_categoria = c.id_categoria
-                INNER JOIN proveedores pr ON p.id_proveedor = pr.id_proveedor
+        String sql = SELECT_PRODUCTOS + """
                 WHERE p.id_categoria = ? AND p.activo = true
                 ORDER BY p.nombre_producto
                 """;
 
-        try (Connection conn = ConexionDB.getConexion();
+        try (Connection conn = ConexionDB.getConexionLectura();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setInt(1, idCategoria);
@@ -136,21 +252,173 @@ public class ProductoDAO {
         return productos;
     }
 
-    // Obtener productos con stock bajo
+    // Página de productos activos ordenados por nombre, continuando después del cursor
+    // (null = primera página). Usa búsqueda por clave en vez de OFFSET
+    public List<Producto> obtenerPaginaProductos(CursorProducto despuesDe, int tamano) {
+        List<Producto> productos = new ArrayList<>(tamano);
+        String sql = despuesDe == null
+                ? SELECT_PRODUCTOS + """
+                WHERE p.activo = true
+                ORDER BY p.nombre_producto, p.id_producto
+                LIMIT ?
+                """
+                : SELECT_PRODUCTOS + """
+                WHERE p.activo = true
+                  AND (p.nombre_producto > ? OR (p.nombre_producto = ? AND p.id_producto > ?))
+                ORDER BY p.nombre_producto, p.id_producto
+                LIMIT ?
+                """;
+
+        try (Connection conn = ConexionDB.getConexionLectura();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            int i = 1;
+            if (despuesDe != null) {
+                pstmt.setString(i++, despuesDe.getNombreProducto());
+                pstmt.setString(i++, despuesDe.getNombreProducto());
+                pstmt.setInt(i++, despuesDe.getIdProducto());
+            }
+            pstmt.setInt(i, tamano);
+            ResultSet rs = pstmt.executeQuery();
+
+            while (rs.next()) {
+                productos.add(crearProductoDesdeResultSet(rs));
+            }
+
+        } catch (SQLException e) {
+            System.err.println("Error al obtener página de productos: " + e.getMessage());
+        }
+
+        return productos;
+    }
+
+    // Clave (nombre, id) de todos los productos activos, sin el resto de columnas ni orden:
+    // basta para saber qué producto va en cada fila del listado y ordenarlo en memoria
+    public List<CursorProducto> obtenerClavesProductos() {
+        List<CursorProducto> claves = new ArrayList<>();
+        String sql = "SELECT p.nombre_producto, p.id_producto FROM productos p WHERE p.activo = true";
+
+        try (Connection conn = ConexionDB.getConexionLectura();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+
+            while (rs.next()) {
+                claves.add(new CursorProducto(rs.getString(1), rs.getInt(2)));
+            }
+
+        } catch (SQLException e) {
+            System.err.println("Error al obtener claves de productos: " + e.getMessage());
+        }
+
+        return claves;
+    }
+
+    // Productos (activos o no) con ultima_actualizacion >= desde, para poner al día una copia
+    // anterior del catálogo. null si falló la consulta
+    public List<Producto> obtenerModificadosDesde(Timestamp desde) {
+        List<Producto> productos = new ArrayList<>();
+        String sql = SELECT_PRODUCTOS + "WHERE p.ultima_actualizacion >= ? ORDER BY p.id_producto";
+
+        try (Connection conn = ConexionDB.getConexionLectura();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setTimestamp(1, desde);
+            ResultSet rs = pstmt.executeQuery();
+            while (rs.next()) {
+                productos.add(crearProductoDesdeResultSet(rs));
+            }
+            return productos;
+
+        } catch (SQLException e) {
+            System.err.println("Error al obtener productos modificados: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Hora actual según el reloj de la base (el mismo que escribe ultima_actualizacion);
+    // null si falló
+    public Timestamp obtenerHoraBase() {
+        try (Connection conn = ConexionDB.getConexionLectura();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT " + ConexionDB.getMotor().getExpresionAhora());
+             ResultSet rs = pstmt.executeQuery()) {
+
+            if (rs.next()) {
+                return rs.getTimestamp(1);
+            }
+
+        } catch (SQLException | ClassNotFoundException e) {
+            System.err.println("Error al leer la hora de la base de datos: " + e.getMessage());
+        }
+
+        return null;
+    }
+
+    // Datos de caja de los productos activos con código de barras, para cargar IndiceCodigosBarras
+    public List<ArticuloCaja> obtenerArticulosCaja() {
+        List<ArticuloCaja> articulos = new ArrayList<>();
+        String sql = "SELECT p.id_producto, p.codigo_barras, p.nombre_producto, p.precio_unitario, " +
+                "p.stock_actual FROM productos p " +
+                "WHERE p.activo = true AND p.codigo_barras IS NOT NULL AND p.codigo_barras <> ''";
+
+        try (Connection conn = ConexionDB.getConexionLectura();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+
+            while (rs.next()) {
+                int id = rs.getInt(1);
+                articulos.add(new ArticuloCaja(id, rs.getString(2), rs.getString(3),
+                        rs.getDouble(4), stockDiferido.stock(id, rs.getInt(5))));
+            }
+
+        } catch (SQLException e) {
+            System.err.println("Error al obtener artículos de caja: " + e.getMessage());
+        }
+
+        return articulos;
+    }
+
+    // Cargar CatalogoColumnar con todos los productos activos; false si está deshabilitado o falló
+    public boolean cargarCatalogoColumnar() {
+        return columnar.cargar(this::recorrerProductosActivos);
+    }
+
+    // Entregar los productos activos de uno en uno, sin acumularlos en una lista
+    public boolean recorrerProductosActivos(Consumer<Producto> destino) {
+        String sql = SELECT_PRODUCTOS + "WHERE p.activo = true";
+
+        try (Connection conn = ConexionDB.getConexionLectura();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+
+            while (rs.next()) {
+                destino.accept(crearProductoDesdeResultSet(rs));
+            }
+            return true;
+
+        } catch (SQLException e) {
+            System.err.println("Error al recorrer productos: " + e.getMessage());
+            return false;
+        }
+    }
+
+    // Obtener productos con stock bajo, el de mayor déficit primero (del índice en memoria)
     public List<Producto> obtenerProductosStockBajo() {
+        if (columnar.isCargado()) {
+            return columnar.obtenerStockBajo();
+        }
+        if (asegurarAgregados()) {
+            return obtenerProductosPorIds(IndiceStockBajo.getInstancia().getIds(Integer.MAX_VALUE));
+        }
+
         List<Producto> productos = new ArrayList<>();
-        String sql = """
-                SELECT p.*, c.nombre_categoria, pr.nombre_proveedor
-                FROM productos p
-                INNER JOIN categorias c ON p.id_categoria = c.id_categoria
-                INNER JOIN proveedores pr ON p.id_proveedor = pr.id_proveedor
-                WHERE p.stock_actual <= p.stock_minimo AND p.activo = true
-                ORDER BY p.stock_actual
+        String sql = SELECT_PRODUCTOS + """
+                WHERE p.stock_minimo - p.stock_actual >= 0 AND p.activo = true
+                ORDER BY p.stock_minimo - p.stock_actual DESC, p.id_producto
                 """;
 
-        try (Connection conn = ConexionDB.getConexion();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+        try (Connection conn = ConexionDB.getConexionLectura();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
 
             while (rs.next()) {
                 Producto producto = crearProductoDesdeResultSet(rs);
@@ -164,24 +432,28 @@ public class ProductoDAO {
         return productos;
     }
 
-    // Obtener producto por ID
+    // Obtener producto por ID (primero en caché)
     public Producto obtenerProductoPorId(int id) {
-        String sql = """
-                SELECT p.*, c.nombre_categoria, pr.nombre_proveedor
-                FROM productos p
-                INNER JOIN categorias c ON p.id_categoria = c.id_categoria
-                INNER JOIN proveedores pr ON p.id_proveedor = pr.id_proveedor
+        Producto enCache = cache.obtenerPorId(id);
+        if (enCache != null) {
+            return enCache;
+        }
+
+        long generacion = cache.getGeneracion();
+        String sql = SELECT_PRODUCTOS + """
                 WHERE p.id_producto = ?
                 """;
 
-        try (Connection conn = ConexionDB.getConexion();
+        try (Connection conn = ConexionDB.getConexionLectura();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setInt(1, id);
             ResultSet rs = pstmt.executeQuery();
 
             if (rs.next()) {
-                return crearProductoDesdeResultSet(rs);
+                Producto producto = crearProductoDesdeResultSet(rs);
+                cache.guardar(producto, generacion);
+                return producto;
             }
 
         } catch (SQLException e) {
@@ -191,31 +463,67 @@ public class ProductoDAO {
         return null;
     }
 
-    // Actualizar producto
+    // Actualizar producto con control optimista: si el producto trae su versión (leída de la base),
+    // solo se guarda si nadie lo modificó desde que se leyó (si no, devuelve false).
+    // Sin versión no se toca stock_actual, que solo cambia con movimientos de stock
     public boolean actualizarProducto(Producto producto) {
-        String sql = """
-                UPDATE productos 
-                SET nombre_producto = ?, descripcion = ?, precio_unitario = ?, 
-                    stock_actual = ?, stock_minimo = ?, id_categoria = ?, 
-                    id_proveedor = ?, codigo_barras = ?, activo = ?
-                WHERE id_producto = ?
-                """;
-
-        try (Connection conn = ConexionDB.getConexion();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try {
+            return stockDiferido.escribirDirecto(producto.getIdProducto(), () -> guardarProducto(producto));
+        } catch (SQLException e) {
+            System.err.println("Error al actualizar producto: " + e.getMessage());
+            return false;
+        }
+    }
 
-            pstmt.setString(1, producto.getNombreProducto());
-            pstmt.setString(2, producto.getDescripcion());
-            pstmt.setDouble(3, producto.getPrecioUnitario());
-            pstmt.setInt(4, producto.getStockActual());
-            pstmt.setInt(5, producto.getStockMinimo());
-            pstmt.setInt(6, producto.getIdCategoria());
-            pstmt.setInt(7, producto.getIdProveedor());
-            pstmt.setString(8, producto.getCodigoBarras());
-            pstmt.setBoolean(9, producto.isActivo());
-            pstmt.setInt(10, producto.getIdProducto());
+    private boolean guardarProducto(Producto producto) {
+        int version = producto.getVersion();
+        boolean conVersion = version > 0;
+
+        try (Connection conn = ConexionDB.getConexion()) {
+            String sql = "UPDATE productos " +
+                    "SET nombre_producto = ?, descripcion = ?, precio_unitario = ?, " +
+                    (conVersion ? "stock_actual = ?, " : "") +
+                    "stock_minimo = ?, id_categoria = ?, id_proveedor = ?, codigo_barras = ?, activo = ?, " +
+                    nuevaVersion() + " " +
+                    "WHERE id_producto = ?" +
+                    (conVersion ? " AND version = ?" : "");
+
+            CambiosProductos cambios = CambiosProductos.iniciar(conn, List.of(producto.getIdProducto()));
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                int i = 1;
+                pstmt.setString(i++, producto.getNombreProducto());
+                pstmt.setString(i++, producto.getDescripcion());
+                pstmt.setDouble(i++, producto.getPrecioUnitario());
+                if (conVersion) {
+                    pstmt.setInt(i++, producto.getStockActual());
+                }
+                pstmt.setInt(i++, producto.getStockMinimo());
+                pstmt.setInt(i++, producto.getIdCategoria());
+                pstmt.setInt(i++, producto.getIdProveedor());
+                pstmt.setString(i++, codigoBarrasONull(producto.getCodigoBarras()));
+                pstmt.setBoolean(i++, producto.isActivo());
+                pstmt.setInt(i++, producto.getIdProducto());
+                if (conVersion) {
+                    pstmt.setInt(i, version);
+                }
 
-            return pstmt.executeUpdate() > 0;
+                boolean actualizado = pstmt.executeUpdate() > 0;
+                if (actualizado) {
+                    cambios.confirmar();
+                } else {
+                    cambios.descartar();
+                }
+                // Después del commit, para que nadie vuelva a guardar en caché la fila anterior
+                cache.invalidar(producto.getIdProducto());
+                cache.invalidarCodigo(producto.getCodigoBarras());
+                if (actualizado) {
+                    indice.actualizar(producto);
+                } else if (conVersion) {
+                    System.err.println("Producto " + producto.getIdProducto() +
+                            " modificado por otro usuario (o inexistente); vuelva a cargarlo");
+                }
+                return actualizado;
+            }
 
         } catch (SQLException e) {
             System.err.println("Error al actualizar producto: " + e.getMessage());
@@ -225,13 +533,30 @@ public class ProductoDAO {
 
     // Eliminar producto (soft delete - no elimina físicamente)
     public boolean eliminarProducto(int id) {
-        String sql = "UPDATE productos SET activo = false WHERE id_producto = ?";
+        try {
+            return stockDiferido.escribirDirecto(id, () -> desactivarProducto(id));
+        } catch (SQLException e) {
+            System.err.println("Error al eliminar producto: " + e.getMessage());
+            return false;
+        }
+    }
 
+    private boolean desactivarProducto(int id) {
         try (Connection conn = ConexionDB.getConexion();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+             PreparedStatement pstmt = conn.prepareStatement("UPDATE productos SET activo = false, " +
+                     nuevaVersion() + " WHERE id_producto = ?")) {
 
+            CambiosProductos cambios = CambiosProductos.iniciar(conn, List.of(id));
             pstmt.setInt(1, id);
-            return pstmt.executeUpdate() > 0;
+            boolean eliminado = pstmt.executeUpdate() > 0;
+            if (eliminado) {
+                cambios.confirmar();
+            } else {
+                cambios.descartar();
+            }
+            cache.invalidar(id);
+            indice.quitar(id);
+            return eliminado;
 
         } catch (SQLException e) {
             System.err.println("Error al eliminar producto: " + e.getMessage());
@@ -239,24 +564,28 @@ public class ProductoDAO {
         }
     }
 
-    // Buscar por código de barras
+    // Buscar por código de barras (primero en caché)
     public Producto buscarPorCodigoBarras(String codigoBarras) {
-        String sql = """
-                SELECT p.*, c.nombre_categoria, pr.nombre_proveedor
-                FROM productos p
-                INNER JOIN categorias c ON p.id_categoria = c.id_categoria
-                INNER JOIN proveedores pr ON p.id_proveedor = pr.id_proveedor
+        Producto enCache = cache.obtenerPorCodigo(codigoBarras);
+        if (enCache != null) {
+            return enCache;
+        }
+
+        long generacion = cache.getGeneracion();
+        String sql = SELECT_PRODUCTOS + """
                 WHERE p.codigo_barras = ? AND p.activo = true
                 """;
 
-        try (Connection conn = ConexionDB.getConexion();
+        try (Connection conn = ConexionDB.getConexionLectura();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setString(1, codigoBarras);
             ResultSet rs = pstmt.executeQuery();
 
             if (rs.next()) {
-                return crearProductoDesdeResultSet(rs);
+                Producto producto = crearProductoDesdeResultSet(rs);
+                cache.guardar(producto, generacion);
+                return producto;
             }
 
         } catch (SQLException e) {
@@ -266,17 +595,34 @@ public class ProductoDAO {
         return null;
     }
 
-    // Actualizar stock de un producto
+    // Fijar el stock a un valor absoluto (recuento físico del inventario).
+    // Ventas y compras deben usar registrarMovimiento, que no pierde cambios concurrentes
     public boolean actualizarStock(int idProducto, int nuevoStock) {
-        String sql = "UPDATE productos SET stock_actual = ? WHERE id_producto = ?";
+        try {
+            return stockDiferido.escribirDirecto(idProducto, () -> fijarStock(idProducto, nuevoStock));
+        } catch (SQLException e) {
+            System.err.println("Error al actualizar stock: " + e.getMessage());
+            return false;
+        }
+    }
 
+    private boolean fijarStock(int idProducto, int nuevoStock) {
         try (Connection conn = ConexionDB.getConexion();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+             PreparedStatement pstmt = conn.prepareStatement("UPDATE productos SET stock_actual = ?, " +
+                     nuevaVersion() + " WHERE id_producto = ?")) {
 
+            CambiosProductos cambios = CambiosProductos.iniciar(conn, List.of(idProducto));
             pstmt.setInt(1, nuevoStock);
             pstmt.setInt(2, idProducto);
 
-            return pstmt.executeUpdate() > 0;
+            boolean actualizado = pstmt.executeUpdate() > 0;
+            if (actualizado) {
+                cambios.confirmar();
+            } else {
+                cambios.descartar();
+            }
+            cache.invalidar(idProducto);
+            return actualizado;
 
         } catch (SQLException e) {
             System.err.println("Error al actualizar stock: " + e.getMessage());
@@ -284,13 +630,145 @@ public class ProductoDAO {
         }
     }
 
-    // Obtener total de productos activos
+    // Sumar (entrada) o restar (salida) unidades al stock de un producto.
+    // Es una sola sentencia atómica; nunca deja el stock en negativo
+    public ResultadoMovimiento registrarMovimiento(int idProducto, int cantidad) {
+        return registrarMovimientos(List.of(new MovimientoStock(idProducto, cantidad)));
+    }
+
+    // Aplicar varios movimientos (p. ej. las líneas de una venta) en una transacción:
+    // se aplican todos o ninguno. Los movimientos de un mismo producto se suman y se
+    // comprueba el saldo neto. Las filas se actualizan en orden de ID para que dos
+    // lotes concurrentes bloqueen en el mismo orden y no haya interbloqueos
+    public ResultadoMovimiento registrarMovimientos(List<MovimientoStock> movimientos) {
+        TreeMap<Integer, Integer> netos = new TreeMap<>();
+        for (MovimientoStock movimiento : movimientos) {
+            netos.merge(movimiento.getIdProducto(), movimiento.getCantidad(), Integer::sum);
+        }
+        netos.values().removeIf(cantidad -> cantidad == 0);
+        if (netos.isEmpty()) {
+            return ResultadoMovimiento.APLICADO;
+        }
+        if (stockDiferido.isHabilitado() && stockDiferido.iniciar()) {
+            ResultadoMovimiento resultado = stockDiferido.registrar(netos);
+            if (resultado == ResultadoMovimiento.APLICADO) {
+                for (int idProducto : netos.keySet()) {
+                    cache.invalidar(idProducto);
+                }
+            }
+            return resultado;
+        }
+
+        for (int intento = 1; ; intento++) {
+            try (Connection conn = ConexionDB.getConexion()) {
+                if (conn == null) {
+                    return ResultadoMovimiento.ERROR;
+                }
+                ResultadoMovimiento resultado = aplicarMovimientos(conn, netos);
+                if (resultado == ResultadoMovimiento.APLICADO) {
+                    for (int idProducto : netos.keySet()) {
+                        cache.invalidar(idProducto);
+                    }
+                }
+                return resultado;
+
+            } catch (SQLException e) {
+                if (intento < REINTENTOS_MOVIMIENTO && esConflictoTransitorio(e)) {
+                    continue;
+                }
+                System.err.println("Error al registrar movimientos de stock: " + e.getMessage());
+                return ResultadoMovimiento.ERROR;
+            }
+        }
+    }
+
+    private ResultadoMovimiento aplicarMovimientos(Connection conn, TreeMap<Integer, Integer> netos) throws SQLException {
+        // La condición stock_actual + ? >= 0 se evalúa con la fila bloqueada:
+        // dos salidas simultáneas no pueden dejar el stock en negativo
+        String sql = "UPDATE productos SET stock_actual = stock_actual + ?, " +
+                nuevaVersion() + " " +
+                "WHERE id_producto = ? AND activo = true AND stock_actual + ? >= 0";
+
+        conn.setAutoCommit(false);
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            // Con suscriptores, lee (y bloquea) las filas en orden de ID antes de modificarlas
+            CambiosProductos cambios = CambiosProductos.iniciar(conn, netos.keySet());
+            for (Map.Entry<Integer, Integer> neto : netos.entrySet()) {
+                pstmt.setInt(1, neto.getValue());
+                pstmt.setInt(2, neto.getKey());
+                pstmt.setInt(3, neto.getValue());
+                pstmt.addBatch();
+            }
+            int[] filas = pstmt.executeBatch();
+
+            int i = 0;
+            for (int idProducto : netos.keySet()) {
+                if (filas[i++] == 0) {
+                    conn.rollback();
+                    return diagnosticarMovimiento(conn, idProducto);
+                }
+            }
+            cambios.leerDespues();
+            conn.commit();
+            cambios.publicar();
+            return ResultadoMovimiento.APLICADO;
+
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        }
+    }
+
+    // Motivo por el que la sentencia no actualizó la fila del producto
+    private ResultadoMovimiento diagnosticarMovimiento(Connection conn, int idProducto) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT stock_actual FROM productos WHERE id_producto = ? AND activo = true")) {
+            pstmt.setInt(1, idProducto);
+            ResultSet rs = pstmt.executeQuery();
+            if (rs.next()) {
+                System.err.println("Stock insuficiente para el producto " + idProducto +
+                        " (stock actual: " + rs.getInt(1) + ")");
+                return ResultadoMovimiento.STOCK_INSUFICIENTE;
+            }
+        }
+        System.err.println("Movimiento de stock sobre un producto inexistente o inactivo: " + idProducto);
+        return ResultadoMovimiento.NO_ENCONTRADO;
+    }
+
+    // Interbloqueo o espera de bloqueo agotada: la transacción se puede repetir
+    private static boolean esConflictoTransitorio(SQLException e) {
+        return "40001".equals(e.getSQLState()) || e.getErrorCode() == 1213 || e.getErrorCode() == 1205;
+    }
+
+    // Un producto sin código guarda NULL, no '': el código es único entre los productos activos
+    static String codigoBarrasONull(String codigoBarras) {
+        return codigoBarras == null || codigoBarras.trim().isEmpty() ? null : codigoBarras;
+    }
+
+    // Asignaciones de SET para cualquier escritura de una fila: version + 1 (control optimista)
+    // y ultima_actualizacion con la hora de la base, sin ajustes
+    static String nuevaVersion() throws SQLException {
+        try {
+            return "version = version + 1, ultima_actualizacion = " + ConexionDB.getMotor().getExpresionAhora();
+        } catch (ClassNotFoundException e) {
+            throw new SQLException(e);
+        }
+    }
+
+    // Obtener total de productos activos (de los agregados en memoria)
     public int contarProductosActivos() {
+        if (columnar.isCargado()) {
+            return columnar.contarActivos();
+        }
+        if (asegurarAgregados()) {
+            return agregados.getProductosActivos();
+        }
+
         String sql = "SELECT COUNT(*) as total FROM productos WHERE activo = true";
 
-        try (Connection conn = ConexionDB.getConexion();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+        try (Connection conn = ConexionDB.getConexionLectura();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
 
             if (rs.next()) {
                 return rs.getInt("total");
@@ -305,43 +783,120 @@ public class ProductoDAO {
 
     // Obtener valor total del inventario
     public double obtenerValorTotalInventario() {
+        return obtenerValorTotalExacto().doubleValue();
+    }
+
+    // Valor total del inventario, suma exacta de precio × stock de los productos activos
+    public BigDecimal obtenerValorTotalExacto() {
+        if (columnar.isCargado()) {
+            return columnar.getValorTotal();
+        }
+        if (asegurarAgregados()) {
+            return agregados.getValorTotal();
+        }
+
         String sql = "SELECT SUM(precio_unitario * stock_actual) as total FROM productos WHERE activo = true";
 
-        try (Connection conn = ConexionDB.getConexion();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+        try (Connection conn = ConexionDB.getConexionLectura();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
 
             if (rs.next()) {
-                return rs.getDouble("total");
+                return BigDecimal.valueOf(rs.getDouble("total"));
             }
 
         } catch (SQLException e) {
             System.err.println("Error al calcular valor del inventario: " + e.getMessage());
         }
 
-        return 0.0;
+        return BigDecimal.ZERO;
+    }
+
+    // Número de productos activos con stock_actual <= stock_minimo
+    public int contarProductosStockBajo() {
+        if (columnar.isCargado()) {
+            return columnar.contarStockBajo();
+        }
+        return asegurarAgregados() ? agregados.getProductosStockBajo() : 0;
+    }
+
+    // id_categoria -> productos activos y valor de inventario
+    public Map<Integer, AgregadosInventario.Resumen> obtenerResumenPorCategoria() {
+        return asegurarAgregados() ? agregados.getPorCategoria() : Map.of();
+    }
+
+    // id_proveedor -> productos activos y valor de inventario
+    public Map<Integer, AgregadosInventario.Resumen> obtenerResumenPorProveedor() {
+        return asegurarAgregados() ? agregados.getPorProveedor() : Map.of();
+    }
+
+    // Siembra los agregados con un recorrido completo la primera vez (o tras invalidarlos).
+    // Si otro hilo ya los está sembrando, espera a que termine
+    private boolean asegurarAgregados() {
+        agregados.invalidarSiVencido();
+        if (agregados.isCargado()) {
+            return true;
+        }
+        long generacion = agregados.iniciarCarga();
+        if (generacion < 0) {
+            return agregados.esperarCarga(ESPERA_AGREGADOS_MS);
+        }
+
+        try (Connection conn = ConexionDB.getConexionLectura();
+             PreparedStatement pstmt = conn.prepareStatement(SELECT_APORTES);
+             ResultSet rs = pstmt.executeQuery()) {
+
+            aplicarAportes(rs);
+            agregados.terminarCarga(generacion);
+            return agregados.isCargado();
+
+        } catch (SQLException | RuntimeException e) {
+            System.err.println("Error al calcular los totales del inventario: " + e.getMessage());
+            agregados.invalidar();
+            return false;
+        }
+    }
+
+    // Longitud de una lista IN (...) para 'ids' valores: pocas longitudes distintas (potencias de 2)
+    // para reutilizar las sentencias preparadas. Los huecos se rellenan repitiendo el último ID
+    static int parametrosIn(int ids) {
+        return ids == 1 ? 1 : Math.min(LOTE_IN, Math.max(8, Integer.highestOneBit(ids - 1) << 1));
+    }
+
+    private static void aplicarAportes(ResultSet rs) throws SQLException {
+        while (rs.next()) {
+            int id = rs.getInt(1);
+            agregados.aplicar(id, rs.getDouble(2), stockDiferido.stock(id, rs.getInt(3)), rs.getInt(4),
+                    rs.getInt(5), rs.getInt(6), rs.getBoolean(7), rs.getInt(8));
+        }
     }
 
-    // Método auxiliar privado para crear objeto Producto desde ResultSet
-    private Producto crearProductoDesdeResultSet(ResultSet rs) throws SQLException {
+    // Método auxiliar para crear objeto Producto desde ResultSet (de paquete para los benchmarks).
+    // Requiere las columnas de COLUMNAS_PRODUCTO en su orden: se leen por posición, sin buscar nombres
+    static Producto crearProductoDesdeResultSet(ResultSet rs) throws SQLException {
+        int id = rs.getInt(COL_ID);
         Producto producto = new Producto(
-                rs.getInt("id_producto"),
-                rs.getString("nombre_producto"),
-                rs.getString("descripcion"),
-                rs.getDouble("precio_unitario"),
-                rs.getInt("stock_actual"),
-                rs.getInt("stock_minimo"),
-                rs.getInt("id_categoria"),
-                rs.getInt("id_proveedor"),
-                rs.getString("codigo_barras"),
-                rs.getBoolean("activo")
+                id,
+                rs.getString(COL_NOMBRE),
+                rs.getString(COL_DESCRIPCION),
+                rs.getDouble(COL_PRECIO),
+                stockDiferido.stock(id, rs.getInt(COL_STOCK)),
+                rs.getInt(COL_STOCK_MINIMO),
+                rs.getInt(COL_CATEGORIA),
+                rs.getInt(COL_PROVEEDOR),
+                rs.getString(COL_CODIGO),
+                rs.getBoolean(COL_ACTIVO)
         );
 
-        producto.setFechaRegistro(rs.getTimestamp("fecha_registro"));
-        producto.setUltimaActualizacion(rs.getTimestamp("ultima_actualizacion"));
-        producto.setNombreCategoria(rs.getString("nombre_categoria"));
-        producto.setNombreProveedor(rs.getString("nombre_proveedor"));
+        producto.setFechaRegistro(rs.getTimestamp(COL_FECHA_REGISTRO));
+        producto.setUltimaActualizacion(rs.getTimestamp(COL_ULTIMA_ACTUALIZACION));
+        producto.setVersion(rs.getInt(COL_VERSION));
+        // Si falta un nombre se recarga con la misma conexión: pedir otra al pool con esta
+        // consulta abierta (y quizá filas bloqueadas) agota el pool con pocos lectores a la vez
+        Connection conn = rs.getStatement().getConnection();
+        producto.setNombreCategoria(dimensiones.nombreCategoria(producto.getIdCategoria(), conn));
+        producto.setNombreProveedor(dimensiones.nombreProveedor(producto.getIdProveedor(), conn));
 
         return producto;
     }
-}
\ No newline at end of file
+}
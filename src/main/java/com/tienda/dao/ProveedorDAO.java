@@ -1,6 +1,10 @@
 package com.tienda.dao;
 
+import com.tienda.busqueda.IndiceProveedores;
+import com.tienda.busqueda.IndiceTexto;
 import com.tienda.database.ConexionDB;
+import com.tienda.eventos.BusEventos;
+import com.tienda.eventos.EventoCambio;
 import com.tienda.modelo.Proveedor;
 
 import java.sql.*;
@@ -8,34 +12,34 @@ import java.util.ArrayList;
 import java.util.List;
 
 public class ProveedorDAO {
+    private static final String SELECT_PROVEEDORES = "SELECT id_proveedor, nombre_proveedor, telefono, email, " +
+            "direccion, ciudad, pais, fecha_registro FROM proveedores ";
+
+    // CacheDimensiones e IndiceProveedores se mantienen al día suscritos a estos eventos
+    private final BusEventos bus = BusEventos.getInstancia();
 
     // Obtener todos los proveedores
     public List<Proveedor> obtenerTodos() {
-        List<Proveedor> proveedores = new ArrayList<>();
-        String sql = "SELECT * FROM proveedores ORDER BY nombre_proveedor";
+        try (Connection conn = ConexionDB.getConexionLectura()) {
+            return obtenerTodos(conn);
+        } catch (SQLException e) {
+            System.err.println("Error al obtener proveedores: " + e.getMessage());
+        }
 
-        try (Connection conn = ConexionDB.getConexion();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+        return new ArrayList<>();
+    }
+
+    // Igual, con una conexión que ya tiene el llamador
+    public List<Proveedor> obtenerTodos(Connection conn) throws SQLException {
+        List<Proveedor> proveedores = new ArrayList<>();
+        String sql = SELECT_PROVEEDORES + "ORDER BY nombre_proveedor";
 
+        try (PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
             while (rs.next()) {
-                Proveedor proveedor = new Proveedor(
-                        rs.getInt("id_proveedor"),
-                        rs.getString("nombre_proveedor"),
-                        rs.getString("telefono"),
-                        rs.getString("email"),
-                        rs.getString("direccion"),
-                        rs.getString("ciudad"),
-                        rs.getString("pais")
-                );
-                proveedor.setFechaRegistro(rs.getTimestamp("fecha_registro"));
-                proveedores.add(proveedor);
+                proveedores.add(crearProveedorDesdeResultSet(rs));
             }
-
-        } catch (SQLException e) {
-            System.err.println("Error al obtener proveedores: " + e.getMessage());
         }
-
         return proveedores;
     }
 
@@ -47,6 +51,9 @@ public class ProveedorDAO {
         try (Connection conn = ConexionDB.getConexion();
              PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
 
+            // Con suscriptores, la fila publicada se relee en la misma transacción
+            boolean eventos = bus.tieneSuscriptores(Proveedor.class);
+            conn.setAutoCommit(!eventos);
             pstmt.setString(1, proveedor.getNombreProveedor());
             pstmt.setString(2, proveedor.getTelefono());
             pstmt.setString(3, proveedor.getEmail());
@@ -62,6 +69,11 @@ public class ProveedorDAO {
                 if (rs.next()) {
                     proveedor.setIdProveedor(rs.getInt(1));
                 }
+                if (eventos) {
+                    Proveedor despues = leer(conn, proveedor.getIdProveedor(), "");
+                    conn.commit();
+                    bus.publicar(Proveedor.class, EventoCambio.Tipo.CREADO, proveedor.getIdProveedor(), null, despues);
+                }
                 return true;
             }
 
@@ -73,28 +85,8 @@ public class ProveedorDAO {
 
     // Obtener proveedor por ID
     public Proveedor obtenerPorId(int id) {
-        String sql = "SELECT * FROM proveedores WHERE id_proveedor = ?";
-
-        try (Connection conn = ConexionDB.getConexion();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
-            pstmt.setInt(1, id);
-            ResultSet rs = pstmt.executeQuery();
-
-            if (rs.next()) {
-                Proveedor proveedor = new Proveedor(
-                        rs.getInt("id_proveedor"),
-                        rs.getString("nombre_proveedor"),
-                        rs.getString("telefono"),
-                        rs.getString("email"),
-                        rs.getString("direccion"),
-                        rs.getString("ciudad"),
-                        rs.getString("pais")
-                );
-                proveedor.setFechaRegistro(rs.getTimestamp("fecha_registro"));
-                return proveedor;
-            }
-
+        try (Connection conn = ConexionDB.getConexionLectura()) {
+            return leer(conn, id, "");
         } catch (SQLException e) {
             System.err.println("Error al obtener proveedor: " + e.getMessage());
         }
@@ -110,6 +102,7 @@ public class ProveedorDAO {
         try (Connection conn = ConexionDB.getConexion();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
+            Proveedor antes = leerAntesDeEscribir(conn, proveedor.getIdProveedor());
             pstmt.setString(1, proveedor.getNombreProveedor());
             pstmt.setString(2, proveedor.getTelefono());
             pstmt.setString(3, proveedor.getEmail());
@@ -118,9 +111,15 @@ public class ProveedorDAO {
             pstmt.setString(6, proveedor.getPais());
             pstmt.setInt(7, proveedor.getIdProveedor());
 
-            return pstmt.executeUpdate() > 0;
+            boolean actualizado = pstmt.executeUpdate() > 0;
+            if (actualizado && antes != null) {
+                Proveedor despues = leer(conn, proveedor.getIdProveedor(), "");
+                conn.commit();
+                bus.publicar(Proveedor.class, EventoCambio.Tipo.ACTUALIZADO, proveedor.getIdProveedor(), antes, despues);
+            }
+            return actualizado;
 
-        } catch (SQLException e) {
+        } catch (SQLException | ClassNotFoundException e) {
             System.err.println("Error al actualizar proveedor: " + e.getMessage());
             return false;
         }
@@ -133,42 +132,43 @@ public class ProveedorDAO {
         try (Connection conn = ConexionDB.getConexion();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
+            Proveedor antes = leerAntesDeEscribir(conn, id);
             pstmt.setInt(1, id);
-            return pstmt.executeUpdate() > 0;
+            boolean eliminado = pstmt.executeUpdate() > 0;
+            if (eliminado && antes != null) {
+                conn.commit();
+                bus.publicar(Proveedor.class, EventoCambio.Tipo.ELIMINADO, id, antes, null);
+            }
+            return eliminado;
 
-        } catch (SQLException e) {
+        } catch (SQLException | ClassNotFoundException e) {
             System.err.println("Error al eliminar proveedor: " + e.getMessage());
             // Si falla, probablemente hay productos asociados (FK constraint)
-            if (e.getMessage().contains("foreign key")) {
+            if (e.getMessage().toLowerCase().contains("foreign key")) {
                 System.err.println("No se puede eliminar: hay productos asociados a este proveedor");
             }
             return false;
         }
     }
 
-    // Buscar proveedores por nombre
+    // Buscar proveedores por nombre (índice en memoria, sin acentos y por prefijo)
     public List<Proveedor> buscarPorNombre(String nombre) {
+        if (IndiceTexto.esConsultaIndexable(nombre)) {
+            return IndiceProveedores.getInstancia().buscar(nombre);
+        }
+
+        // Consultas de una sola letra: LIKE como antes
         List<Proveedor> proveedores = new ArrayList<>();
-        String sql = "SELECT * FROM proveedores WHERE nombre_proveedor LIKE ? ORDER BY nombre_proveedor";
+        String sql = SELECT_PROVEEDORES + "WHERE nombre_proveedor LIKE ? ORDER BY nombre_proveedor";
 
-        try (Connection conn = ConexionDB.getConexion();
+        try (Connection conn = ConexionDB.getConexionLectura();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setString(1, "%" + nombre + "%");
             ResultSet rs = pstmt.executeQuery();
 
             while (rs.next()) {
-                Proveedor proveedor = new Proveedor(
-                        rs.getInt("id_proveedor"),
-                        rs.getString("nombre_proveedor"),
-                        rs.getString("telefono"),
-                        rs.getString("email"),
-                        rs.getString("direccion"),
-                        rs.getString("ciudad"),
-                        rs.getString("pais")
-                );
-                proveedor.setFechaRegistro(rs.getTimestamp("fecha_registro"));
-                proveedores.add(proveedor);
+                proveedores.add(crearProveedorDesdeResultSet(rs));
             }
 
         } catch (SQLException e) {
@@ -180,9 +180,10 @@ public class ProveedorDAO {
 
     // Contar productos de un proveedor
     public int contarProductos(int idProveedor) {
-        String sql = "SELECT COUNT(*) as total FROM productos WHERE id_proveedor = ? AND activo = true";
+        String sql = "SELECT COUNT(*) as total " +
+                "FROM productos WHERE id_proveedor = ? AND activo = true";
 
-        try (Connection conn = ConexionDB.getConexion();
+        try (Connection conn = ConexionDB.getConexionLectura();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setInt(1, idProveedor);
@@ -198,4 +199,40 @@ public class ProveedorDAO {
 
         return 0;
     }
-}
\ No newline at end of file
+
+    // Con suscriptores: abre una transacción y lee la fila bloqueada, para publicarla como "antes".
+    // Sin suscriptores (o si la fila no existe) devuelve null y la escritura sigue en autocommit
+    private Proveedor leerAntesDeEscribir(Connection conn, int id) throws SQLException, ClassNotFoundException {
+        if (!bus.tieneSuscriptores(Proveedor.class)) {
+            return null;
+        }
+        conn.setAutoCommit(false);
+        Proveedor antes = leer(conn, id, ConexionDB.getMotor().getBloqueoFilas());
+        if (antes == null) {
+            conn.setAutoCommit(true);
+        }
+        return antes;
+    }
+
+    private static Proveedor leer(Connection conn, int id, String bloqueo) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(SELECT_PROVEEDORES + "WHERE id_proveedor = ?" + bloqueo)) {
+            pstmt.setInt(1, id);
+            ResultSet rs = pstmt.executeQuery();
+            return rs.next() ? crearProveedorDesdeResultSet(rs) : null;
+        }
+    }
+
+    private static Proveedor crearProveedorDesdeResultSet(ResultSet rs) throws SQLException {
+        Proveedor proveedor = new Proveedor(
+                rs.getInt("id_proveedor"),
+                rs.getString("nombre_proveedor"),
+                rs.getString("telefono"),
+                rs.getString("email"),
+                rs.getString("direccion"),
+                rs.getString("ciudad"),
+                rs.getString("pais")
+        );
+        proveedor.setFechaRegistro(rs.getTimestamp("fecha_registro"));
+        return proveedor;
+    }
+}
@@ -0,0 +1,67 @@
+package com.tienda.dao;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Resultado de una importación masiva: ID generado por fila y errores por fila
+public class ResultadoImportacion {
+    private final Map<Integer, Integer> idsPorFila = new LinkedHashMap<>();
+    private final List<ErrorFila> errores = new ArrayList<>();
+
+    void registrarInsertado(int fila, int idProducto) {
+        idsPorFila.put(fila, idProducto);
+    }
+
+    void registrarError(int fila, String mensaje) {
+        errores.add(new ErrorFila(fila, mensaje));
+    }
+
+    // Fila (1 = primera del origen) -> id_producto generado
+    public Map<Integer, Integer> getIdsPorFila() {
+        return Collections.unmodifiableMap(idsPorFila);
+    }
+
+    public List<ErrorFila> getErrores() {
+        return Collections.unmodifiableList(errores);
+    }
+
+    public int getInsertados() {
+        return idsPorFila.size();
+    }
+
+    public boolean tieneErrores() {
+        return !errores.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "ResultadoImportacion{insertados=" + idsPorFila.size() + ", errores=" + errores.size() + '}';
+    }
+
+    // Error de una fila concreta
+    public static class ErrorFila {
+        private final int fila;
+        private final String mensaje;
+
+        public ErrorFila(int fila, String mensaje) {
+            this.fila = fila;
+            this.mensaje = mensaje;
+        }
+
+        public int getFila() {
+            return fila;
+        }
+
+        public String getMensaje() {
+            return mensaje;
+        }
+
+        @Override
+        public String toString() {
+            return "Fila " + fila + ": " + mensaje;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.tienda.dao;
+
+// Resultado de aplicar uno o varios movimientos de stock
+public enum ResultadoMovimiento {
+    APLICADO,
+    // El stock quedaría negativo; no se aplicó nada
+    STOCK_INSUFICIENTE,
+    // El producto no existe o está inactivo
+    NO_ENCONTRADO,
+    ERROR
+}
@@ -0,0 +1,245 @@
+package com.tienda.dao;
+
+import com.tienda.busqueda.IndiceProductos;
+import com.tienda.cache.CacheProductos;
+import com.tienda.cache.CatalogoColumnar;
+import com.tienda.database.ConexionDB;
+import com.tienda.eventos.BusEventos;
+import com.tienda.eventos.EventoCambio;
+import com.tienda.modelo.Producto;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Cambios de productos escritos por otras instancias contra la misma base
+// (-Dinventario.sincronizacion=true).
+// Cada inventario.sincronizacion.intervaloMs (2000 ms) se leen, con una consulta sobre el índice
+// de ultima_actualizacion (lo crea GestorEsquema), las filas activas o dadas de baja con
+// ultima_actualizacion >= la marca de agua.
+// Las que traen una versión (el contador de la fila) mayor que la última que conoce este
+// proceso se aplican como las escrituras locales: agregados, caché, índice de búsqueda y un
+// evento en BusEventos para el catálogo por columnas, los códigos de barras y la tabla de la
+// interfaz. Las escrituras propias ya se conocen por sus eventos y no se aplican dos veces.
+// La marca de agua es la hora de la base en el sondeo anterior menos MARGEN_MS: una fila toma
+// su ultima_actualizacion al escribirse, no al confirmarse, y una transacción lenta la
+// confirma más tarde
+public class SincronizacionProductos {
+    private static final SincronizacionProductos INSTANCIA = new SincronizacionProductos();
+
+    private static final long MARGEN_MS = 10_000;
+
+    private final boolean habilitado = Boolean.getBoolean("inventario.sincronizacion");
+    private final long intervaloMs = Long.getLong("inventario.sincronizacion.intervaloMs", 2000L);
+
+    private final ProductoDAO productoDAO = new ProductoDAO();
+    private final CacheProductos cache = CacheProductos.getInstancia();
+    private final IndiceProductos indice = IndiceProductos.getInstancia();
+    private final CatalogoColumnar columnar = CatalogoColumnar.getInstancia();
+    private final StockDiferido stockDiferido = StockDiferido.getInstancia();
+    private final BusEventos bus = BusEventos.getInstancia();
+
+    // Candado de la instancia: última versión conocida de cada producto cambiado desde la marca
+    // de agua, por este proceso (eventos locales) o por otro (sondeos anteriores)
+    private final Map<Integer, Conocida> conocidas = new HashMap<>();
+    private Timestamp marcaAgua;
+    private ScheduledExecutorService sondeo;
+    private BusEventos.Suscripcion<Producto> suscripcion;
+    private long aplicados;
+
+    private SincronizacionProductos() {
+    }
+
+    public static SincronizacionProductos getInstancia() {
+        return INSTANCIA;
+    }
+
+    public boolean isHabilitado() {
+        return habilitado;
+    }
+
+    // Arranca el sondeo desde la hora actual de la base: lo anterior ya lo leen las cargas
+    // iniciales. false si está deshabilitado o la base no responde
+    public synchronized boolean iniciar() {
+        if (sondeo != null || !habilitado) {
+            return sondeo != null;
+        }
+        Timestamp ahora = productoDAO.obtenerHoraBase();
+        if (ahora == null) {
+            return false;
+        }
+        marcaAgua = new Timestamp(ahora.getTime() - MARGEN_MS);
+        // Síncrono: la versión de una escritura propia queda anotada antes de que vuelva
+        suscripcion = bus.suscribir(Producto.class, this::alCambiar);
+
+        sondeo = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread hilo = new Thread(r, "sincronizacion-productos");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        sondeo.scheduleWithFixedDelay(this::sondear, intervaloMs, intervaloMs, TimeUnit.MILLISECONDS);
+        return true;
+    }
+
+    public synchronized void detener() {
+        if (sondeo == null) {
+            return;
+        }
+        sondeo.shutdownNow();
+        sondeo = null;
+        suscripcion.cancelar();
+        suscripcion = null;
+        conocidas.clear();
+    }
+
+    // Productos escritos por otras instancias y aplicados aquí desde el arranque
+    public synchronized long getAplicados() {
+        return aplicados;
+    }
+
+    private synchronized void alCambiar(EventoCambio<Producto> cambio) {
+        Producto despues = cambio.getDespues();
+        if (despues == null || despues.getUltimaActualizacion() == null) {
+            return;
+        }
+        Conocida anterior = conocidas.get(cambio.getId());
+        if (anterior == null || despues.getVersion() > anterior.version) {
+            conocidas.put(cambio.getId(), new Conocida(despues));
+        }
+    }
+
+    private void sondear() {
+        Timestamp desde;
+        synchronized (this) {
+            desde = marcaAgua;
+        }
+        List<Producto> modificados = new ArrayList<>();
+        Timestamp ahora = leerModificados(desde, modificados);
+        if (ahora == null) {
+            // Sin filas (o con error) la marca de agua no avanza
+            return;
+        }
+        try {
+            for (Producto producto : modificados) {
+                if (esAjeno(producto)) {
+                    aplicar(producto);
+                }
+            }
+            avanzar(new Timestamp(ahora.getTime() - MARGEN_MS));
+        } catch (RuntimeException e) {
+            System.err.println("Error al aplicar cambios de otras instancias: " + e.getMessage());
+        }
+    }
+
+    // Filas con ultima_actualizacion >= desde y, en la misma consulta, la hora de la base.
+    // null si no hay ninguna o falló la consulta
+    private Timestamp leerModificados(Timestamp desde, List<Producto> modificados) {
+        Timestamp ahora = null;
+        try (Connection conn = ConexionDB.getConexionLectura()) {
+            if (conn == null) {
+                return null;
+            }
+            String sql = "SELECT " + ProductoDAO.COLUMNAS_PRODUCTO + ", " +
+                    ConexionDB.getMotor().getExpresionAhora() + " FROM productos p " +
+                    "WHERE p.ultima_actualizacion >= ?";
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setTimestamp(1, desde);
+                ResultSet rs = pstmt.executeQuery();
+                while (rs.next()) {
+                    modificados.add(ProductoDAO.crearProductoDesdeResultSet(rs));
+                    ahora = rs.getTimestamp(ProductoDAO.COLUMNAS_PRODUCTO_SIGUIENTE);
+                }
+            }
+            return ahora;
+        } catch (SQLException | ClassNotFoundException e) {
+            System.err.println("Error al consultar cambios de otras instancias: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // true si la fila trae una versión que este proceso aún no conoce (y la anota)
+    private synchronized boolean esAjeno(Producto actual) {
+        if (actual.getUltimaActualizacion() == null) {
+            return false;
+        }
+        Conocida conocida = conocidas.get(actual.getIdProducto());
+        if (conocida != null && actual.getVersion() <= conocida.version) {
+            // Escritura propia, ya aplicada o más antigua que la que ya se vio
+            return false;
+        }
+        conocidas.put(actual.getIdProducto(), new Conocida(actual));
+        aplicados++;
+        return true;
+    }
+
+    // Fuera del candado: olvidar() espera al volcado de StockDiferido, que publica eventos
+    private void aplicar(Producto actual) {
+        int id = actual.getIdProducto();
+        Producto anterior = columnar.isCargado() ? columnar.obtener(id) : cache.obtenerPorId(id);
+        cache.invalidar(id);
+        cache.invalidarCodigo(actual.getCodigoBarras());
+        if (stockDiferido.olvidar(id)) {
+            // La fila se leyó con el saldo en memoria, calculado antes del cambio ajeno
+            Producto releido = productoDAO.obtenerProductoPorId(id);
+            if (releido != null) {
+                actual = releido;
+            }
+        }
+
+        CambiosProductos.aplicarAgregados(actual);
+        if (actual.isActivo()) {
+            indice.actualizar(actual);
+        } else {
+            indice.quitar(id);
+        }
+        bus.publicar(Producto.class, tipo(anterior, actual), id, anterior, actual);
+    }
+
+    // Sin la copia anterior no se distingue un alta de una modificación: se toma como alta si
+    // se registró después de la marca de agua
+    private synchronized EventoCambio.Tipo tipo(Producto anterior, Producto actual) {
+        if (!actual.isActivo()) {
+            return EventoCambio.Tipo.ELIMINADO;
+        }
+        if (anterior != null) {
+            return EventoCambio.Tipo.ACTUALIZADO;
+        }
+        Timestamp registro = actual.getFechaRegistro();
+        return registro != null && !registro.before(marcaAgua)
+                ? EventoCambio.Tipo.CREADO : EventoCambio.Tipo.ACTUALIZADO;
+    }
+
+    // Las filas escritas antes de la marca de agua ya no vuelven a leerse
+    private synchronized void avanzar(Timestamp nuevaMarca) {
+        if (nuevaMarca.after(marcaAgua)) {
+            marcaAgua = nuevaMarca;
+        }
+        conocidas.values().removeIf(conocida -> conocida.actualizada.before(marcaAgua));
+    }
+
+    // Versión de una fila y cuándo se escribió (para olvidarla al pasar la marca de agua)
+    private static final class Conocida {
+        final int version;
+        final Timestamp actualizada;
+
+        Conocida(Producto producto) {
+            this.version = producto.getVersion();
+            this.actualizada = producto.getUltimaActualizacion();
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "SincronizacionProductos{marcaAgua=" + marcaAgua + ", aplicados=" + aplicados +
+                ", conocidas=" + conocidas.size() + '}';
+    }
+}
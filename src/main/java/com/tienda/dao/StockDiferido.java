@@ -0,0 +1,467 @@
+package com.tienda.dao;
+
+import com.tienda.cache.CacheProductos;
+import com.tienda.database.ConexionDB;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+// Movimientos de stock con escritura diferida (-Dinventario.stockDiferido=true).
+// Cada movimiento se comprueba contra el stock en memoria, se anota en DiarioStock (archivo
+// local mapeado) y se aplica al momento; un hilo lo vuelca a la base cada
+// inventario.stockDiferido.intervaloMs (250 ms), sumando los movimientos de cada producto en
+// un solo UPDATE por lote. La secuencia volcada se guarda en diario_stock en la misma
+// transacción, así que al reiniciar se aplica exactamente lo que faltaba.
+// Los productos leídos por ProductoDAO traen el stock en memoria; los filtros SQL sobre
+// stock_actual, los agregados y los eventos de cambio lo ven con el retraso del volcado.
+// Otras opciones: inventario.stockDiferido.archivo (inventario-stock.diario) e
+// inventario.stockDiferido.forzar=false (sin esperar al disco en cada anotación)
+public class StockDiferido {
+    private static final StockDiferido INSTANCIA = new StockDiferido();
+
+    private static final int TAMANO_INICIAL_DIARIO = 1 << 20;
+
+    private final boolean habilitado = Boolean.getBoolean("inventario.stockDiferido");
+    private final Path archivo = Path.of(System.getProperty("inventario.stockDiferido.archivo",
+            "inventario-stock.diario"));
+    private final long intervaloMs = Long.getLong("inventario.stockDiferido.intervaloMs", 250L);
+    private final boolean forzar = !"false".equalsIgnoreCase(System.getProperty("inventario.stockDiferido.forzar"));
+
+    // Stock vigente (base + pendiente) de los productos que recibieron movimientos.
+    // Se lee sin candado; se escribe con el de la instancia
+    private final Map<Integer, Integer> saldos = new ConcurrentHashMap<>();
+    // Candado de la instancia: pendientes y diario
+    private Map<Integer, Integer> pendientes = new HashMap<>();
+    private DiarioStock diario;
+    // Un volcado a la vez; también lo toman las lecturas de stock de la base y las escrituras
+    // directas, para que no vean un lote a medio aplicar
+    private final ReentrantLock volcado = new ReentrantLock();
+    private ScheduledExecutorService volcador;
+    private volatile boolean iniciado;
+
+    private StockDiferido() {
+    }
+
+    public static StockDiferido getInstancia() {
+        return INSTANCIA;
+    }
+
+    public boolean isHabilitado() {
+        return habilitado;
+    }
+
+    // Abre el diario, aplica lo que quedó pendiente de la ejecución anterior y arranca el
+    // volcado periódico. false si está deshabilitado o no se pudo abrir
+    public synchronized boolean iniciar() {
+        if (iniciado || !habilitado) {
+            return iniciado;
+        }
+        try {
+            diario = DiarioStock.abrir(archivo, TAMANO_INICIAL_DIARIO, forzar);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error al abrir el diario de stock " + archivo + ": " + e.getMessage());
+            return false;
+        }
+        if (!recuperar()) {
+            cerrarDiario();
+            return false;
+        }
+
+        volcador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread hilo = new Thread(r, "stock-diferido");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        volcador.scheduleWithFixedDelay(this::volcarPeriodico, intervaloMs, intervaloMs, TimeUnit.MILLISECONDS);
+        iniciado = true;
+        return true;
+    }
+
+    // Movimientos anotados tras la última secuencia aplicada en la base (un corte entre el
+    // commit y la confirmación en el diario deja registros ya aplicados: se saltan)
+    private boolean recuperar() {
+        long aplicadaBase;
+        try (Connection conn = ConexionDB.getConexion()) {
+            if (conn == null) {
+                return false;
+            }
+            aplicadaBase = prepararTabla(conn, diario.getIdDiario());
+        } catch (SQLException e) {
+            System.err.println("Error al preparar la tabla diario_stock: " + e.getMessage());
+            return false;
+        }
+
+        long desde = Math.max(aplicadaBase, diario.getAplicada());
+        TreeMap<Integer, Integer> netos = new TreeMap<>();
+        diario.recorrerPendientes((secuencia, idProducto, cantidad) -> {
+            if (secuencia > desde) {
+                netos.merge(idProducto, cantidad, Integer::sum);
+            }
+        });
+        long hasta = diario.getUltima();
+        netos.values().removeIf(cantidad -> cantidad == 0);
+
+        if (!netos.isEmpty()) {
+            if (!escribir(netos, hasta)) {
+                // Se reintenta con el volcado periódico
+                pendientes.putAll(netos);
+                return true;
+            }
+            System.out.println("✓ Diario de stock: aplicados los movimientos pendientes de " +
+                    netos.size() + " productos");
+        }
+        diario.confirmar(hasta);
+        return true;
+    }
+
+    // Crea la tabla y la fila de este diario; devuelve su secuencia aplicada
+    private static long prepararTabla(Connection conn, long idDiario) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS diario_stock (" +
+                    "id_diario BIGINT PRIMARY KEY, secuencia BIGINT NOT NULL)");
+        }
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT secuencia FROM diario_stock WHERE id_diario = ?")) {
+            pstmt.setLong(1, idDiario);
+            ResultSet rs = pstmt.executeQuery();
+            if (rs.next()) {
+                return rs.getLong(1);
+            }
+        }
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "INSERT INTO diario_stock (id_diario, secuencia) VALUES (?, 0)")) {
+            pstmt.setLong(1, idDiario);
+            pstmt.executeUpdate();
+        }
+        return 0;
+    }
+
+    // Stock vigente de un producto leído de la base con 'stockBase'
+    int stock(int idProducto, int stockBase) {
+        Integer saldo = saldos.get(idProducto);
+        return saldo != null ? saldo : stockBase;
+    }
+
+    // Movimientos netos por producto (ninguno en cero): se anotan todos o ninguno
+    ResultadoMovimiento registrar(TreeMap<Integer, Integer> netos) {
+        while (true) {
+            for (int idProducto : netos.keySet()) {
+                if (!saldos.containsKey(idProducto)) {
+                    ResultadoMovimiento carga = cargar(idProducto);
+                    if (carga != ResultadoMovimiento.APLICADO) {
+                        return carga;
+                    }
+                }
+            }
+
+            synchronized (this) {
+                if (diario == null) {
+                    return ResultadoMovimiento.ERROR;
+                }
+                if (!saldos.keySet().containsAll(netos.keySet())) {
+                    // Una escritura directa descartó un saldo mientras tanto
+                    continue;
+                }
+                for (Map.Entry<Integer, Integer> neto : netos.entrySet()) {
+                    int stock = saldos.get(neto.getKey());
+                    if (stock + neto.getValue() < 0) {
+                        System.err.println("Stock insuficiente para el producto " + neto.getKey() +
+                                " (stock actual: " + stock + ")");
+                        return ResultadoMovimiento.STOCK_INSUFICIENTE;
+                    }
+                }
+
+                int[] ids = new int[netos.size()];
+                int[] cantidades = new int[netos.size()];
+                int i = 0;
+                for (Map.Entry<Integer, Integer> neto : netos.entrySet()) {
+                    ids[i] = neto.getKey();
+                    cantidades[i++] = neto.getValue();
+                }
+                try {
+                    diario.anotar(ids, cantidades);
+                } catch (IOException | RuntimeException e) {
+                    System.err.println("Error al anotar en el diario de stock: " + e.getMessage());
+                    return ResultadoMovimiento.ERROR;
+                }
+                for (Map.Entry<Integer, Integer> neto : netos.entrySet()) {
+                    saldos.merge(neto.getKey(), neto.getValue(), Integer::sum);
+                    pendientes.merge(neto.getKey(), neto.getValue(), Integer::sum);
+                }
+                return ResultadoMovimiento.APLICADO;
+            }
+        }
+    }
+
+    // Stock de la base más lo pendiente; con el volcado bloqueado no hay lotes a medio aplicar
+    private ResultadoMovimiento cargar(int idProducto) {
+        volcado.lock();
+        try (Connection conn = ConexionDB.getConexion()) {
+            if (conn == null) {
+                return ResultadoMovimiento.ERROR;
+            }
+            if (saldos.containsKey(idProducto)) {
+                return ResultadoMovimiento.APLICADO;
+            }
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "SELECT stock_actual FROM productos WHERE id_producto = ? AND activo = true")) {
+                pstmt.setInt(1, idProducto);
+                ResultSet rs = pstmt.executeQuery();
+                if (!rs.next()) {
+                    System.err.println("Movimiento de stock sobre un producto inexistente o inactivo: " + idProducto);
+                    return ResultadoMovimiento.NO_ENCONTRADO;
+                }
+                int stockBase = rs.getInt(1);
+                synchronized (this) {
+                    saldos.put(idProducto, stockBase + pendientes.getOrDefault(idProducto, 0));
+                }
+                return ResultadoMovimiento.APLICADO;
+            }
+        } catch (SQLException e) {
+            System.err.println("Error al leer el stock del producto " + idProducto + ": " + e.getMessage());
+            return ResultadoMovimiento.ERROR;
+        } finally {
+            volcado.unlock();
+        }
+    }
+
+    // Escritura en la base que fija el stock o desactiva el producto (recuento, edición con
+    // versión, baja): primero se vuelca lo pendiente, y el saldo en memoria se descarta para
+    // que el siguiente movimiento parta del valor nuevo. Si el volcado falla no se escribe:
+    // lo pendiente se aplicaría después sobre el valor nuevo y contaría dos veces
+    boolean escribirDirecto(int idProducto, BooleanSupplier escritura) throws SQLException {
+        if (!iniciado) {
+            return escritura.getAsBoolean();
+        }
+        volcado.lock();
+        try {
+            Integer anterior;
+            synchronized (this) {
+                anterior = saldos.remove(idProducto);
+            }
+            if (!vaciar()) {
+                // Nadie pudo mover el producto sin saldo (cargar() espera al candado de volcado)
+                if (anterior != null) {
+                    synchronized (this) {
+                        saldos.put(idProducto, anterior);
+                    }
+                }
+                throw new SQLException("no se pudieron volcar los movimientos de stock pendientes; " +
+                        "se cancela la escritura del producto " + idProducto);
+            }
+            return escritura.getAsBoolean();
+        } finally {
+            volcado.unlock();
+        }
+    }
+
+    // Otra instancia escribió el producto: el saldo en memoria ya no parte de la base, así que
+    // se descarta y el siguiente movimiento lo recalcula. true si había uno
+    boolean olvidar(int idProducto) {
+        if (!iniciado) {
+            return false;
+        }
+        volcado.lock();
+        try {
+            synchronized (this) {
+                return saldos.remove(idProducto) != null;
+            }
+        } finally {
+            volcado.unlock();
+        }
+    }
+
+    private void volcarPeriodico() {
+        volcado.lock();
+        try {
+            vaciar();
+            DiarioStock actual = diario;
+            if (actual != null && actual.getOcupados() > actual.getCapacidad() / 2) {
+                // Con movimientos continuos el diario nunca queda al día y no se rebobina:
+                // se vuelca una vez sin admitir anotaciones nuevas
+                synchronized (this) {
+                    vaciar();
+                }
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Error al volcar el diario de stock: " + e.getMessage());
+        } finally {
+            volcado.unlock();
+        }
+    }
+
+    // Escribe en la base lo pendiente. Requiere el candado de volcado
+    private boolean vaciar() {
+        Map<Integer, Integer> lote;
+        long hasta;
+        synchronized (this) {
+            if (pendientes.isEmpty() || diario == null) {
+                return true;
+            }
+            lote = pendientes;
+            pendientes = new HashMap<>();
+            hasta = diario.getUltima();
+        }
+
+        TreeMap<Integer, Integer> netos = new TreeMap<>(lote);
+        netos.values().removeIf(cantidad -> cantidad == 0);
+        boolean escrito = netos.isEmpty() || escribir(netos, hasta);
+        synchronized (this) {
+            if (!escrito) {
+                lote.forEach((id, cantidad) -> pendientes.merge(id, cantidad, Integer::sum));
+                return false;
+            }
+            diario.confirmar(hasta);
+        }
+        return true;
+    }
+
+    // Un UPDATE por producto y la secuencia del diario, en una transacción. La comprobación de
+    // stock de registrar() solo ve esta instancia: el UPDATE no deja la fila en negativo y, si
+    // otra instancia ya gastó ese stock, el movimiento se rechaza (queda en el registro de errores)
+    private boolean escribir(TreeMap<Integer, Integer> netos, long hasta) {
+        String sql = "UPDATE productos SET stock_actual = stock_actual + ?, %s " +
+                "WHERE id_producto = ? AND stock_actual + ? >= 0";
+
+        try (Connection conn = ConexionDB.getConexion()) {
+            if (conn == null) {
+                return false;
+            }
+            conn.setAutoCommit(false);
+            try (PreparedStatement pstmt = conn.prepareStatement(sql.formatted(ProductoDAO.nuevaVersion()));
+                 PreparedStatement secuencia = conn.prepareStatement(
+                         "UPDATE diario_stock SET secuencia = ? WHERE id_diario = ?")) {
+                CambiosProductos cambios = CambiosProductos.iniciar(conn, netos.keySet());
+                for (Map.Entry<Integer, Integer> neto : netos.entrySet()) {
+                    pstmt.setInt(1, neto.getValue());
+                    pstmt.setInt(2, neto.getKey());
+                    pstmt.setInt(3, neto.getValue());
+                    pstmt.addBatch();
+                }
+                int[] filas = pstmt.executeBatch();
+                secuencia.setLong(1, hasta);
+                secuencia.setLong(2, diario.getIdDiario());
+                secuencia.executeUpdate();
+                // El saldo de los rechazados vuelve a partir de la base, sin su movimiento
+                Map<Integer, Integer> stocks = reajustarSaldos(conn, netos.keySet());
+
+                List<Integer> rechazados = new ArrayList<>();
+                int i = 0;
+                for (Map.Entry<Integer, Integer> neto : netos.entrySet()) {
+                    if (filas[i++] != 0) {
+                        continue;
+                    }
+                    rechazados.add(neto.getKey());
+                    Integer stock = stocks.get(neto.getKey());
+                    if (stock == null) {
+                        System.err.println("Diario de stock: el producto " + neto.getKey() +
+                                " ya no existe; se descartan sus movimientos");
+                    } else {
+                        System.err.println("Diario de stock: se rechaza el movimiento de " + neto.getValue() +
+                                " del producto " + neto.getKey() + ", dejaría el stock en negativo" +
+                                " (stock en la base: " + stock + ")");
+                    }
+                }
+
+                cambios.leerDespues();
+                conn.commit();
+                conn.setAutoCommit(true);
+                // La caché pudo guardar el producto con el stock del movimiento rechazado
+                rechazados.forEach(CacheProductos.getInstancia()::invalidar);
+                cambios.publicar();
+                return true;
+
+            } catch (SQLException e) {
+                conn.rollback();
+                conn.setAutoCommit(true);
+                throw e;
+            }
+        } catch (SQLException e) {
+            System.err.println("Error al volcar el diario de stock (se reintentará): " + e.getMessage());
+            return false;
+        }
+    }
+
+    // Otra instancia pudo mover los mismos productos: el saldo se rehace con la fila recién
+    // escrita (bloqueada hasta el commit) más lo anotado después de tomar el lote
+    // Devuelve el stock leído de cada producto que existe
+    private Map<Integer, Integer> reajustarSaldos(Connection conn, Set<Integer> ids) throws SQLException {
+        List<Integer> lista = new ArrayList<>(ids);
+        Map<Integer, Integer> stocks = new HashMap<>();
+        for (int inicio = 0; inicio < lista.size(); inicio += ProductoDAO.LOTE_IN) {
+            List<Integer> lote = lista.subList(inicio, Math.min(inicio + ProductoDAO.LOTE_IN, lista.size()));
+            int parametros = ProductoDAO.parametrosIn(lote.size());
+            try (PreparedStatement pstmt = conn.prepareStatement("SELECT id_producto, stock_actual " +
+                    "FROM productos WHERE id_producto IN (" + "?,".repeat(parametros - 1) + "?)")) {
+                for (int i = 0; i < parametros; i++) {
+                    pstmt.setInt(i + 1, lote.get(Math.min(i, lote.size() - 1)));
+                }
+                ResultSet rs = pstmt.executeQuery();
+                while (rs.next()) {
+                    stocks.put(rs.getInt(1), rs.getInt(2));
+                }
+            }
+        }
+        synchronized (this) {
+            stocks.forEach((id, stock) -> saldos.computeIfPresent(id,
+                    (k, saldo) -> stock + pendientes.getOrDefault(id, 0)));
+        }
+        return stocks;
+    }
+
+    // Movimientos anotados que aún no están en la base
+    public synchronized int getProductosPendientes() {
+        return pendientes.size();
+    }
+
+    // Vuelca lo pendiente y cierra el diario (al salir, antes de cerrar las conexiones).
+    // Lo que no se pudo volcar se aplica al iniciar la próxima vez
+    public void cerrar() {
+        if (!iniciado) {
+            return;
+        }
+        volcador.shutdown();
+        volcado.lock();
+        try {
+            boolean completo = vaciar();
+            synchronized (this) {
+                if (!completo) {
+                    System.err.println("⚠ Quedan movimientos de stock de " + pendientes.size() +
+                            " productos en " + archivo + "; se aplicarán al iniciar");
+                }
+                iniciado = false;
+                saldos.clear();
+                pendientes.clear();
+                cerrarDiario();
+            }
+        } finally {
+            volcado.unlock();
+        }
+    }
+
+    private synchronized void cerrarDiario() {
+        try {
+            diario.close();
+        } catch (IOException e) {
+            System.err.println("Error al cerrar el diario de stock: " + e.getMessage());
+        }
+        diario = null;
+    }
+}
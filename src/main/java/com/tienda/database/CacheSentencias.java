@@ -0,0 +1,190 @@
+package com.tienda.database;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Caché LRU de PreparedStatement de una conexión física, por texto SQL.
+// El DAO sigue cerrando la sentencia con try-with-resources: close() cierra sus
+// ResultSet y limpia los parámetros, pero la sentencia queda preparada para el
+// siguiente préstamo de la conexión. Solo la usa el hilo que tiene la conexión prestada.
+final class CacheSentencias {
+    private final Connection conexion;
+    private final int maximo;
+    private final LongAdder aciertos;
+    private final LongAdder fallos;
+
+    // Orden de acceso: la primera es la menos usada
+    private final LinkedHashMap<String, SentenciaCacheada> sentencias = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, SentenciaCacheada> mayor) {
+            if (size() <= maximo) {
+                return false;
+            }
+            mayor.getValue().desalojar();
+            return true;
+        }
+    };
+
+    CacheSentencias(Connection conexion, int maximo, LongAdder aciertos, LongAdder fallos) {
+        this.conexion = conexion;
+        this.maximo = maximo;
+        this.aciertos = aciertos;
+        this.fallos = fallos;
+    }
+
+    // Sentencia para 'sql' entregada a través de la conexión prestada 'prestada'.
+    // Si la misma SQL ya está en uso en este préstamo se prepara una aparte, sin caché
+    PreparedStatement obtener(Connection prestada, String sql, int clavesGeneradas) throws SQLException {
+        String clave = clavesGeneradas == Statement.NO_GENERATED_KEYS ? sql : clavesGeneradas + "|" + sql;
+        SentenciaCacheada cacheada = sentencias.get(clave);
+
+        if (cacheada != null && cacheada.enUso) {
+            fallos.increment();
+            return conexion.prepareStatement(sql, clavesGeneradas);
+        }
+        if (cacheada == null) {
+            fallos.increment();
+            cacheada = new SentenciaCacheada(clave, conexion.prepareStatement(sql, clavesGeneradas));
+            sentencias.put(clave, cacheada);
+        } else {
+            aciertos.increment();
+        }
+        return cacheada.prestar(prestada);
+    }
+
+    // Al devolver la conexión: libera las sentencias que el DAO no cerró
+    void liberarTodas() {
+        for (SentenciaCacheada cacheada : new ArrayList<>(sentencias.values())) {
+            if (cacheada.enUso) {
+                cacheada.liberar();
+            }
+        }
+    }
+
+    // Al descartar la conexión física
+    void cerrarTodas() {
+        for (SentenciaCacheada cacheada : sentencias.values()) {
+            cacheada.cerrarFisica();
+        }
+        sentencias.clear();
+    }
+
+    int getTamano() {
+        return sentencias.size();
+    }
+
+    // Sentencia física con su estado; es también el manejador del proxy entregado al DAO
+    private final class SentenciaCacheada implements InvocationHandler {
+        final String clave;
+        final PreparedStatement fisica;
+        final PreparedStatement proxy;
+        // ResultSet abiertos durante el préstamo; se cierran al liberar
+        final List<ResultSet> abiertos = new ArrayList<>(2);
+        Connection prestada;
+        boolean enUso;
+        boolean desalojada;
+
+        SentenciaCacheada(String clave, PreparedStatement fisica) {
+            this.clave = clave;
+            this.fisica = fisica;
+            this.proxy = (PreparedStatement) Proxy.newProxyInstance(
+                    PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class},
+                    this);
+        }
+
+        PreparedStatement prestar(Connection prestada) {
+            this.prestada = prestada;
+            this.enUso = true;
+            return proxy;
+        }
+
+        void liberar() {
+            enUso = false;
+            prestada = null;
+            try {
+                for (ResultSet rs : abiertos) {
+                    rs.close();
+                }
+                fisica.clearParameters();
+                fisica.clearBatch();
+                fisica.clearWarnings();
+            } catch (SQLException e) {
+                // Sentencia inservible: fuera del caché
+                sentencias.remove(clave, this);
+                desalojada = true;
+            } finally {
+                abiertos.clear();
+            }
+            if (desalojada) {
+                cerrarFisica();
+            }
+        }
+
+        // Expulsada por el LRU: si está en uso se cierra cuando el DAO la suelte
+        void desalojar() {
+            desalojada = true;
+            if (!enUso) {
+                cerrarFisica();
+            }
+        }
+
+        void cerrarFisica() {
+            try {
+                fisica.close();
+            } catch (SQLException e) {
+                // Se descarta igualmente
+            }
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method metodo, Object[] args) throws Throwable {
+            switch (metodo.getName()) {
+                case "close":
+                    if (enUso) {
+                        liberar();
+                    }
+                    return null;
+                case "isClosed":
+                    return !enUso || fisica.isClosed();
+                case "getConnection":
+                    return prestada;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "SentenciaCacheada[" + clave + "]";
+                default:
+                    break;
+            }
+
+            if (!enUso) {
+                throw new SQLException("La sentencia ya fue cerrada");
+            }
+
+            Object resultado;
+            try {
+                resultado = metodo.invoke(fisica, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (resultado instanceof ResultSet rs) {
+                abiertos.add(rs);
+            }
+            return resultado;
+        }
+    }
+}
@@ -1,64 +1,139 @@
 package com.tienda.database;
 
+import com.tienda.metricas.RegistroMetricas;
+
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 
 public class ConexionDB {
-    // Configuración para XAMPP (MySQL)
-    private static final String URL = "jdbc:mysql://localhost:3306/inventario_tienda";
-    private static final String USUARIO = "root";
-    private static final String PASSWORD = ""; // Por defecto XAMPP no tiene contraseña
+    // Motor de almacenamiento: -Dinventario.motor=mysql (XAMPP, por defecto) o sqlite (inventario.db).
+    // Con -Dinventario.replicas las lecturas se reparten entre réplicas (ver MotorReplicado)
+    private static final String MOTOR = System.getProperty("inventario.motor", "mysql");
 
-    private static Connection conexion = null;
+    // Motor compartido por todos los DAO (se crea en el primer uso)
+    private static volatile MotorBD motor = null;
 
-    // Obtener conexión
+    // Obtener conexión para escrituras. Cerrarla con close() la devuelve al pool
     public static Connection getConexion() {
         try {
-            if (conexion == null || conexion.isClosed()) {
-                // Cargar el driver de MySQL
-                Class.forName("com.mysql.cj.jdbc.Driver");
+            return getMotor().getConexion();
+        } catch (ClassNotFoundException | SQLException e) {
+            reportarError(e);
+        }
+        return null;
+    }
+
+    // Obtener conexión para consultas de solo lectura
+    public static Connection getConexionLectura() {
+        try {
+            return getMotor().getConexionLectura();
+        } catch (ClassNotFoundException | SQLException e) {
+            reportarError(e);
+        }
+        return null;
+    }
 
-                // Establecer conexión
-                conexion = DriverManager.getConnection(URL, USUARIO, PASSWORD);
-                System.out.println("✓ Conexión exitosa a MySQL (XAMPP)");
+    // Motor configurado (inicialización perezosa)
+    public static MotorBD getMotor() throws ClassNotFoundException, SQLException {
+        MotorBD actual = motor;
+        if (actual == null) {
+            synchronized (ConexionDB.class) {
+                actual = motor;
+                if (actual == null) {
+                    actual = crearMotor();
+                    motor = actual;
+                    System.out.println("✓ Motor de base de datos inicializado: " + actual.getDescripcion());
+                }
             }
-        } catch (ClassNotFoundException e) {
-            System.err.println("✗ Error: Driver de MySQL no encontrado");
-            System.err.println("  Asegúrate de tener la dependencia mysql-connector-j en pom.xml");
-            e.printStackTrace();
-        } catch (SQLException e) {
-            System.err.println("✗ Error al conectar con la base de datos MySQL");
-            System.err.println("  Verifica que:");
-            System.err.println("  1. XAMPP esté ejecutándose");
-            System.err.println("  2. MySQL esté iniciado");
-            System.err.println("  3. La base de datos 'inventario_tienda' exista");
-            System.err.println("  4. Las credenciales sean correctas");
-            e.printStackTrace();
         }
-        return conexion;
+        return actual;
     }
 
-    // Cerrar conexión
-    public static void cerrarConexion() {
+    private static MotorBD crearMotor() throws ClassNotFoundException, SQLException {
+        MotorBD principal = "sqlite".equalsIgnoreCase(MOTOR) ? new MotorSQLite() : new MotorMySQL();
+        // Antes de que ningún DAO lo use (y antes del primer latido de las réplicas): migraciones
+        // pendientes e índices que faltan. Sin ellas no se abre el motor
         try {
-            if (conexion != null && !conexion.isClosed()) {
-                conexion.close();
-                System.out.println("✓ Conexión cerrada correctamente");
+            new GestorEsquema(principal).actualizar();
+        } catch (SQLException e) {
+            principal.cerrar();
+            throw e;
+        }
+        List<String> replicas = new ArrayList<>();
+        for (String destino : System.getProperty("inventario.replicas", "").split(",")) {
+            if (!destino.isBlank()) {
+                replicas.add(destino.trim());
             }
+        }
+        if (replicas.isEmpty()) {
+            return principal;
+        }
+        try {
+            return new MotorReplicado(principal, replicas);
         } catch (SQLException e) {
-            System.err.println("✗ Error al cerrar la conexión: " + e.getMessage());
+            System.err.println("✗ No se pudieron abrir las réplicas, todo se lee de la principal: " + e.getMessage());
+            return principal;
+        }
+    }
+
+    // Descripción del origen de datos para la interfaz
+    public static String getDescripcion() {
+        try {
+            return getMotor().getDescripcion();
+        } catch (ClassNotFoundException | SQLException e) {
+            return "sin conexión";
+        }
+    }
+
+    private static void reportarError(Exception e) {
+        if (e instanceof ClassNotFoundException) {
+            System.err.println("✗ Error: Driver de base de datos no encontrado (" + e.getMessage() + ")");
+            System.err.println("  Asegúrate de tener la dependencia mysql-connector-j o sqlite-jdbc en pom.xml");
+        } else {
+            System.err.println("✗ Error al conectar con la base de datos (" + MOTOR + ")");
+            MotorBD actual = motor;
+            if (actual != null) {
+                System.err.println("  Verifica que:");
+                for (String sugerencia : actual.getSugerenciasError()) {
+                    System.err.println("  " + sugerencia);
+                }
+            }
+        }
+        e.printStackTrace();
+    }
+
+    // Cerrar todas las conexiones de los pools
+    public static void cerrarConexion() {
+        MotorBD actual = motor;
+        if (actual != null) {
+            synchronized (ConexionDB.class) {
+                motor = null;
+            }
+            RegistroMetricas metricas = RegistroMetricas.getInstancia();
+            if (metricas.isInformeAlCerrar()) {
+                for (PoolConexiones pool : actual.getPools()) {
+                    System.out.println(pool);
+                }
+                if (actual instanceof MotorReplicado) {
+                    System.out.println(actual);
+                }
+                if (!metricas.isVacio()) {
+                    System.out.println(metricas.getInstantanea());
+                }
+            }
+            actual.cerrar();
+            System.out.println("✓ Conexiones cerradas correctamente");
         }
     }
 
     // Metodo de prueba de conexión
     public static boolean probarConexion() {
-        try {
-            Connection conn = getConexion();
+        try (Connection conn = getConexion()) {
             if (conn != null && !conn.isClosed()) {
                 System.out.println("✓ Prueba de conexión exitosa");
-                System.out.println("  Base de datos: inventario_tienda");
-                System.out.println("  Servidor: localhost:3306");
+                System.out.println("  Base de datos: " + getDescripcion());
                 return true;
             }
         } catch (SQLException e) {
@@ -67,4 +142,4 @@ public class ConexionDB {
         }
         return false;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,135 @@
+package com.tienda.database;
+
+// Parámetros del pool de conexiones. Se pueden sobrescribir con propiedades
+// del sistema, p. ej. -Dinventario.pool.max=20
+public class ConfiguracionPool {
+    private int tamanoMinimo = 2;
+    private int tamanoMaximo = 10;
+    private long esperaMaximaMs = 5_000;        // Tiempo máximo esperando una conexión libre
+    private long inactividadMaximaMs = 300_000; // Conexiones ociosas por encima del mínimo se cierran
+    private long validarSiInactivaMs = 500;     // Solo se valida al prestar si estuvo ociosa más que esto
+    private int timeoutValidacionSeg = 2;
+    private long umbralFugaMs = 30_000;         // 0 desactiva la detección de fugas
+    private boolean rastrearFugas = false;      // Guarda la pila de cada préstamo para el aviso de fuga (caro)
+    private long intervaloMantenimientoMs = 10_000;
+    private int tamanoCacheSentencias = 64;     // PreparedStatement por conexión; 0 desactiva el caché
+
+    // Constructor vacío
+    public ConfiguracionPool() {
+    }
+
+    // Lee la configuración desde propiedades del sistema con el prefijo dado
+    public static ConfiguracionPool desdePropiedades(String prefijo) {
+        return desdePropiedades(prefijo, new ConfiguracionPool());
+    }
+
+    // Igual que el anterior, partiendo de valores por defecto propios del motor
+    public static ConfiguracionPool desdePropiedades(String prefijo, ConfiguracionPool config) {
+        config.tamanoMinimo = Integer.getInteger(prefijo + ".min", config.tamanoMinimo);
+        config.tamanoMaximo = Integer.getInteger(prefijo + ".max", config.tamanoMaximo);
+        config.esperaMaximaMs = Long.getLong(prefijo + ".esperaMs", config.esperaMaximaMs);
+        config.inactividadMaximaMs = Long.getLong(prefijo + ".inactividadMs", config.inactividadMaximaMs);
+        config.validarSiInactivaMs = Long.getLong(prefijo + ".validarSiInactivaMs", config.validarSiInactivaMs);
+        config.timeoutValidacionSeg = Integer.getInteger(prefijo + ".timeoutValidacionSeg", config.timeoutValidacionSeg);
+        config.umbralFugaMs = Long.getLong(prefijo + ".umbralFugaMs", config.umbralFugaMs);
+        config.rastrearFugas = Boolean.parseBoolean(
+                System.getProperty(prefijo + ".rastrearFugas", String.valueOf(config.rastrearFugas)));
+        config.intervaloMantenimientoMs = Long.getLong(prefijo + ".mantenimientoMs", config.intervaloMantenimientoMs);
+        config.tamanoCacheSentencias = Integer.getInteger(prefijo + ".sentencias", config.tamanoCacheSentencias);
+        config.validar();
+        return config;
+    }
+
+    void validar() {
+        if (tamanoMaximo < 1) {
+            throw new IllegalArgumentException("El tamaño máximo del pool debe ser al menos 1");
+        }
+        if (tamanoMinimo < 0 || tamanoMinimo > tamanoMaximo) {
+            throw new IllegalArgumentException("Tamaño mínimo del pool fuera de rango: " + tamanoMinimo);
+        }
+        if (tamanoCacheSentencias < 0) {
+            throw new IllegalArgumentException("Tamaño del caché de sentencias negativo: " + tamanoCacheSentencias);
+        }
+    }
+
+    // Getters y Setters
+    public int getTamanoMinimo() {
+        return tamanoMinimo;
+    }
+
+    public void setTamanoMinimo(int tamanoMinimo) {
+        this.tamanoMinimo = tamanoMinimo;
+    }
+
+    public int getTamanoMaximo() {
+        return tamanoMaximo;
+    }
+
+    public void setTamanoMaximo(int tamanoMaximo) {
+        this.tamanoMaximo = tamanoMaximo;
+    }
+
+    public long getEsperaMaximaMs() {
+        return esperaMaximaMs;
+    }
+
+    public void setEsperaMaximaMs(long esperaMaximaMs) {
+        this.esperaMaximaMs = esperaMaximaMs;
+    }
+
+    public long getInactividadMaximaMs() {
+        return inactividadMaximaMs;
+    }
+
+    public void setInactividadMaximaMs(long inactividadMaximaMs) {
+        this.inactividadMaximaMs = inactividadMaximaMs;
+    }
+
+    public long getValidarSiInactivaMs() {
+        return validarSiInactivaMs;
+    }
+
+    public void setValidarSiInactivaMs(long validarSiInactivaMs) {
+        this.validarSiInactivaMs = validarSiInactivaMs;
+    }
+
+    public int getTimeoutValidacionSeg() {
+        return timeoutValidacionSeg;
+    }
+
+    public void setTimeoutValidacionSeg(int timeoutValidacionSeg) {
+        this.timeoutValidacionSeg = timeoutValidacionSeg;
+    }
+
+    public long getUmbralFugaMs() {
+        return umbralFugaMs;
+    }
+
+    public void setUmbralFugaMs(long umbralFugaMs) {
+        this.umbralFugaMs = umbralFugaMs;
+    }
+
+    public boolean isRastrearFugas() {
+        return rastrearFugas;
+    }
+
+    public void setRastrearFugas(boolean rastrearFugas) {
+        this.rastrearFugas = rastrearFugas;
+    }
+
+    public long getIntervaloMantenimientoMs() {
+        return intervaloMantenimientoMs;
+    }
+
+    public void setIntervaloMantenimientoMs(long intervaloMantenimientoMs) {
+        this.intervaloMantenimientoMs = intervaloMantenimientoMs;
+    }
+
+    public int getTamanoCacheSentencias() {
+        return tamanoCacheSentencias;
+    }
+
+    public void setTamanoCacheSentencias(int tamanoCacheSentencias) {
+        this.tamanoCacheSentencias = tamanoCacheSentencias;
+    }
+}
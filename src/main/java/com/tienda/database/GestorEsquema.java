@@ -0,0 +1,317 @@
+package com.tienda.database;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+// Versión del esquema y migraciones, al abrir el motor.
+// Las migraciones aplicadas se anotan en esquema_version y solo se ejecutan las posteriores, en
+// orden. Cada paso comprueba antes si ya está hecho (otra instancia pudo aplicarlo a la vez).
+// Los DAO cuentan con todas (columnas, índices únicos): si una falla, actualizar() lanza la
+// excepción y el motor no se abre; se reintenta con la siguiente conexión.
+// Al terminar se listan los índices esperados que faltan.
+// Con -Dinventario.esquema.migrar=false solo se informa, sin tocar la base
+public class GestorEsquema {
+    private static final String TABLA_VERSION = "esquema_version";
+
+    private final MotorBD motor;
+    private final boolean migrar = !"false".equalsIgnoreCase(System.getProperty("inventario.esquema.migrar"));
+
+    public GestorEsquema(MotorBD motor) {
+        this.motor = motor;
+    }
+
+    // Aplica lo pendiente e informa de los índices que faltan. Devuelve la versión del esquema;
+    // SQLException si no se pudo leer o si falló una migración
+    public int actualizar() throws SQLException {
+        try (Connection conn = motor.getConexion()) {
+            boolean mysql = conn.getMetaData().getDatabaseProductName().toLowerCase().contains("mysql");
+            List<Migracion> migraciones = migraciones(mysql);
+
+            int version = leerVersion(conn);
+            for (Migracion migracion : migraciones) {
+                if (migracion.version <= version || !migrar) {
+                    continue;
+                }
+                try {
+                    aplicar(conn, migracion);
+                    version = migracion.version;
+                    System.out.println("✓ Esquema: migración " + migracion.version + " aplicada (" +
+                            migracion.descripcion + ")");
+                } catch (SQLException e) {
+                    System.err.println("✗ Esquema: falló la migración " + migracion.version + " (" +
+                            migracion.descripcion + "): " + e.getMessage());
+                    throw new SQLException("el esquema de la base de datos está incompleto (falló la migración " +
+                            migracion.version + ": " + migracion.descripcion + ")", e);
+                }
+            }
+            if (!migrar && version < migraciones.size()) {
+                System.err.println("⚠ Esquema en la versión " + version + " de " + migraciones.size() +
+                        " (inventario.esquema.migrar=false): aplica las migraciones pendientes a mano");
+            }
+
+            for (String faltante : getIndicesFaltantes(conn, migraciones)) {
+                System.err.println("⚠ Falta el índice " + faltante);
+            }
+            return version;
+        }
+    }
+
+    // Sin la tabla de versiones el esquema está en la versión 0
+    private int leerVersion(Connection conn) throws SQLException {
+        if (migrar) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("CREATE TABLE IF NOT EXISTS " + TABLA_VERSION + " (" +
+                        "version INT PRIMARY KEY, descripcion VARCHAR(200) NOT NULL, aplicada TIMESTAMP NOT NULL)");
+            }
+        } else if (!existeTabla(conn, TABLA_VERSION)) {
+            return 0;
+        }
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MAX(version) FROM " + TABLA_VERSION)) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private void aplicar(Connection conn, Migracion migracion) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            for (Paso paso : migracion.pasos) {
+                if (!paso.hecho(conn)) {
+                    stmt.execute(paso.sql);
+                }
+            }
+        }
+        try (PreparedStatement pstmt = conn.prepareStatement("INSERT INTO " + TABLA_VERSION +
+                " (version, descripcion, aplicada) VALUES (?, ?, " + motor.getExpresionAhora() + ")")) {
+            pstmt.setInt(1, migracion.version);
+            pstmt.setString(2, migracion.descripcion);
+            pstmt.executeUpdate();
+        } catch (SQLException e) {
+            // Otra instancia la anotó mientras tanto
+            if (leerVersion(conn) < migracion.version) {
+                throw e;
+            }
+        }
+    }
+
+    // "nombre (tabla, migración N: descripción)" de cada índice esperado que no existe
+    private static List<String> getIndicesFaltantes(Connection conn, List<Migracion> migraciones) throws SQLException {
+        List<String> faltantes = new ArrayList<>();
+        for (Migracion migracion : migraciones) {
+            for (Paso paso : migracion.pasos) {
+                if (paso.tipo == Paso.Tipo.INDICE && !paso.hecho(conn)) {
+                    faltantes.add(paso.nombre + " (" + paso.tabla + ", migración " + migracion.version +
+                            ": " + migracion.descripcion + ")");
+                }
+            }
+        }
+        return faltantes;
+    }
+
+    private static boolean existeTabla(Connection conn, String tabla) throws SQLException {
+        try (ResultSet rs = conn.getMetaData().getTables(conn.getCatalog(), null, tabla, null)) {
+            return rs.next();
+        }
+    }
+
+    private static boolean existeIndice(Connection conn, String tabla, String indice) throws SQLException {
+        DatabaseMetaData meta = conn.getMetaData();
+        try (ResultSet rs = meta.getIndexInfo(conn.getCatalog(), null, tabla, false, true)) {
+            while (rs.next()) {
+                if (indice.equalsIgnoreCase(rs.getString("INDEX_NAME"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean existeColumna(Connection conn, String tabla, String columna) throws SQLException {
+        try (ResultSet rs = conn.getMetaData().getColumns(conn.getCatalog(), null, tabla, columna)) {
+            return rs.next();
+        }
+    }
+
+    // Migraciones en orden. Los índices cubren los accesos de los DAO:
+    //  - listado, páginas y claves: activo + orden por (nombre, id), sin leer la fila
+    //  - LIKE de una letra: recorre el mismo índice en lugar de la tabla
+    //  - por categoría (ordenado por nombre) y productos activos de un proveedor
+    //  - stock bajo: WHERE stock_minimo - stock_actual >= 0 sobre un índice de esa expresión
+    //    (columna generada en MySQL, que reconoce la expresión en la consulta)
+    //  - código de barras, y cambios desde una versión (sincronización entre instancias)
+    private static List<Migracion> migraciones(boolean mysql) {
+        List<Migracion> migraciones = new ArrayList<>();
+
+        // En SQLite las tablas las crea MotorSQLite antes de abrir los pools
+        migraciones.add(new Migracion(1, "tablas base", !mysql ? List.of() : List.of(
+                Paso.sql("""
+                        CREATE TABLE IF NOT EXISTS categorias (
+                            id_categoria INT AUTO_INCREMENT PRIMARY KEY,
+                            nombre_categoria VARCHAR(100) NOT NULL UNIQUE,
+                            descripcion TEXT,
+                            fecha_creacion TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+                        ) ENGINE=InnoDB
+                        """),
+                Paso.sql("""
+                        CREATE TABLE IF NOT EXISTS proveedores (
+                            id_proveedor INT AUTO_INCREMENT PRIMARY KEY,
+                            nombre_proveedor VARCHAR(150) NOT NULL,
+                            telefono VARCHAR(30),
+                            email VARCHAR(100),
+                            direccion VARCHAR(255),
+                            ciudad VARCHAR(100),
+                            pais VARCHAR(100),
+                            fecha_registro TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+                        ) ENGINE=InnoDB
+                        """),
+                Paso.sql("""
+                        CREATE TABLE IF NOT EXISTS productos (
+                            id_producto INT AUTO_INCREMENT PRIMARY KEY,
+                            nombre_producto VARCHAR(200) NOT NULL,
+                            descripcion TEXT,
+                            precio_unitario DECIMAL(10, 2) NOT NULL,
+                            stock_actual INT NOT NULL DEFAULT 0,
+                            stock_minimo INT NOT NULL DEFAULT 0,
+                            id_categoria INT NOT NULL,
+                            id_proveedor INT NOT NULL,
+                            codigo_barras VARCHAR(50),
+                            fecha_registro TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                            ultima_actualizacion TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+                            activo BOOLEAN NOT NULL DEFAULT TRUE,
+                            FOREIGN KEY (id_categoria) REFERENCES categorias (id_categoria),
+                            FOREIGN KEY (id_proveedor) REFERENCES proveedores (id_proveedor)
+                        ) ENGINE=InnoDB
+                        """))));
+
+        migraciones.add(new Migracion(2, "índices de las consultas de productos", List.of(
+                Paso.indice("productos", "idx_productos_activo_nombre",
+                        "CREATE INDEX idx_productos_activo_nombre ON productos (activo, nombre_producto, id_producto)"),
+                Paso.indice("productos", "idx_productos_categoria",
+                        "CREATE INDEX idx_productos_categoria ON productos (id_categoria, activo, nombre_producto)"),
+                Paso.indice("productos", "idx_productos_proveedor",
+                        "CREATE INDEX idx_productos_proveedor ON productos (id_proveedor, activo)"),
+                Paso.indice("productos", "idx_productos_codigo_barras",
+                        "CREATE INDEX idx_productos_codigo_barras ON productos (codigo_barras)"),
+                Paso.indice("productos", "idx_productos_ultima_actualizacion",
+                        "CREATE INDEX idx_productos_ultima_actualizacion ON productos (ultima_actualizacion)"))));
+
+        migraciones.add(new Migracion(3, "índice de stock bajo", mysql ? List.of(
+                Paso.columna("productos", "deficit_stock", "ALTER TABLE productos ADD COLUMN deficit_stock INT " +
+                        "GENERATED ALWAYS AS (stock_minimo - stock_actual) VIRTUAL"),
+                Paso.indice("productos", "idx_productos_deficit_stock",
+                        "CREATE INDEX idx_productos_deficit_stock ON productos (activo, deficit_stock)"))
+                : List.of(
+                Paso.indice("productos", "idx_productos_deficit_stock",
+                        "CREATE INDEX idx_productos_deficit_stock ON productos (activo, (stock_minimo - stock_actual))"))));
+
+        // Las bajas son lógicas: un código solo se reserva mientras el producto está activo.
+        // MySQL no tiene índices parciales; se indexa una columna que es NULL en los inactivos
+        String repetidos = "SELECT codigo_barras FROM productos WHERE activo = true AND codigo_barras IS NOT NULL " +
+                "GROUP BY codigo_barras HAVING COUNT(*) > 1";
+        migraciones.add(new Migracion(4, "código de barras único entre productos activos", mysql ? List.of(
+                Paso.sql("UPDATE productos SET codigo_barras = NULL WHERE TRIM(codigo_barras) = ''"),
+                Paso.sinResultados(repetidos, "códigos de barras repetidos entre productos activos"),
+                Paso.columna("productos", "codigo_barras_activo", "ALTER TABLE productos ADD COLUMN " +
+                        "codigo_barras_activo VARCHAR(255) GENERATED ALWAYS AS (IF(activo, codigo_barras, NULL)) VIRTUAL"),
+                Paso.indice("productos", "uq_productos_codigo_barras_activo",
+                        "CREATE UNIQUE INDEX uq_productos_codigo_barras_activo ON productos (codigo_barras_activo)"))
+                : List.of(
+                Paso.sql("UPDATE productos SET codigo_barras = NULL WHERE TRIM(codigo_barras) = ''"),
+                Paso.sinResultados(repetidos, "códigos de barras repetidos entre productos activos"),
+                Paso.indice("productos", "uq_productos_codigo_barras_activo",
+                        "CREATE UNIQUE INDEX uq_productos_codigo_barras_activo ON productos (codigo_barras) " +
+                                "WHERE activo = 1"))));
+
+        // Control optimista con un contador: ultima_actualizacion queda como hora real de la escritura
+        migraciones.add(new Migracion(5, "columna version de productos", List.of(
+                Paso.columna("productos", "version",
+                        "ALTER TABLE productos ADD COLUMN version INT NOT NULL DEFAULT 1"))));
+
+        // Latidos que MotorReplicado escribe en la principal y lee en las réplicas para medir su
+        // retraso; la fila la crea el primer latido
+        migraciones.add(new Migracion(6, "tabla de latidos de replicación", List.of(
+                Paso.sql("CREATE TABLE IF NOT EXISTS latido_replicacion " +
+                        "(id INT PRIMARY KEY, instante TIMESTAMP NOT NULL)"))));
+
+        return migraciones;
+    }
+
+    private static final class Migracion {
+        private final int version;
+        private final String descripcion;
+        private final List<Paso> pasos;
+
+        Migracion(int version, String descripcion, List<Paso> pasos) {
+            this.version = version;
+            this.descripcion = descripcion;
+            this.pasos = pasos;
+        }
+    }
+
+    private static final class Paso {
+        private enum Tipo {SQL, INDICE, COLUMNA, SIN_RESULTADOS}
+
+        private final Tipo tipo;
+        private final String tabla;
+        private final String nombre;
+        private final String sql;
+
+        private Paso(Tipo tipo, String tabla, String nombre, String sql) {
+            this.tipo = tipo;
+            this.tabla = tabla;
+            this.nombre = nombre;
+            this.sql = sql;
+        }
+
+        // Sentencia que se puede repetir sin efecto (CREATE ... IF NOT EXISTS, UPDATE que normaliza)
+        static Paso sql(String sql) {
+            return new Paso(Tipo.SQL, null, null, sql);
+        }
+
+        static Paso indice(String tabla, String nombre, String sql) {
+            return new Paso(Tipo.INDICE, tabla, nombre, sql);
+        }
+
+        static Paso columna(String tabla, String nombre, String sql) {
+            return new Paso(Tipo.COLUMNA, tabla, nombre, sql);
+        }
+
+        // Condición previa: la consulta no debe devolver filas ('problema' describe lo que encuentra)
+        static Paso sinResultados(String consulta, String problema) {
+            return new Paso(Tipo.SIN_RESULTADOS, null, problema, consulta);
+        }
+
+        boolean hecho(Connection conn) throws SQLException {
+            switch (tipo) {
+                case INDICE:
+                    return existeIndice(conn, tabla, nombre);
+                case COLUMNA:
+                    return existeColumna(conn, tabla, nombre);
+                case SIN_RESULTADOS:
+                    comprobarVacia(conn);
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
+        private void comprobarVacia(Connection conn) throws SQLException {
+            List<String> encontrados = new ArrayList<>();
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery(sql)) {
+                while (rs.next() && encontrados.size() < 5) {
+                    encontrados.add(rs.getString(1));
+                }
+            }
+            if (!encontrados.isEmpty()) {
+                throw new SQLException("Hay " + nombre + " (p. ej. " + String.join(", ", encontrados) +
+                        "); corrígelos y se reintentará al arrancar");
+            }
+        }
+    }
+}
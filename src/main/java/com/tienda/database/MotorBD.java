@@ -0,0 +1,43 @@
+package com.tienda.database;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+// Backend de almacenamiento sobre el que trabajan los DAO.
+// Las escrituras piden getConexion(); las consultas de solo lectura, getConexionLectura().
+public interface MotorBD {
+
+    // Texto para la barra de estado, p. ej. "inventario_tienda (MySQL - XAMPP)"
+    String getDescripcion();
+
+    // Conexión para escrituras (y lecturas que deben ver las propias escrituras)
+    Connection getConexion() throws SQLException;
+
+    // Conexión para consultas de solo lectura
+    Connection getConexionLectura() throws SQLException;
+
+    // true si el driver devuelve las claves generadas de todas las filas de un executeBatch()
+    boolean soportaClavesEnLote();
+
+    // Expresión SQL con la hora actual de la base, en el mismo formato que ultima_actualizacion
+    String getExpresionAhora();
+
+    // Sufijo de un SELECT que bloquea las filas leídas hasta el fin de la transacción
+    // (p. ej. " FOR UPDATE"), o "" si el motor ya serializa las escrituras
+    String getBloqueoFilas();
+
+    // fetchSize para recorrer un resultado grande fila a fila sin cargarlo entero en memoria
+    int getTamanoFetchStreaming();
+
+    // Pool de solo lectura sobre una réplica de la base: un archivo en SQLite, una URL JDBC en MySQL
+    PoolConexiones crearPoolReplica(String nombre, String destino) throws SQLException;
+
+    // Pools que mantiene el motor, para métricas
+    List<PoolConexiones> getPools();
+
+    // Pasos sugeridos al usuario cuando no se puede conectar
+    List<String> getSugerenciasError();
+
+    void cerrar();
+}
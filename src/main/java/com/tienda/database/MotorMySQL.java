@@ -0,0 +1,103 @@
+package com.tienda.database;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.List;
+
+// MySQL en XAMPP: un único pool para lecturas y escrituras
+public class MotorMySQL implements MotorBD {
+    // Configuración para XAMPP (MySQL)
+    // rewriteBatchedStatements: un executeBatch() de INSERT viaja como un único INSERT multi-fila.
+    // useServerPrepStmts: las sentencias se preparan en el servidor, una vez por conexión gracias
+    // al caché de sentencias del pool
+    private static final String URL = "jdbc:mysql://localhost:3306/inventario_tienda?rewriteBatchedStatements=true&useServerPrepStmts=true";
+    private static final String USUARIO = "root";
+    private static final String PASSWORD = ""; // Por defecto XAMPP no tiene contraseña
+
+    private final String usuario;
+    private final String password;
+    private final PoolConexiones pool;
+
+    public MotorMySQL() throws ClassNotFoundException {
+        // Cargar el driver de MySQL
+        Class.forName("com.mysql.cj.jdbc.Driver");
+
+        String url = System.getProperty("inventario.mysql.url", URL);
+        usuario = System.getProperty("inventario.mysql.usuario", USUARIO);
+        password = System.getProperty("inventario.mysql.password", PASSWORD);
+
+        pool = new PoolConexiones("mysql",
+                ConfiguracionPool.desdePropiedades("inventario.pool"),
+                () -> DriverManager.getConnection(url, usuario, password));
+    }
+
+    @Override
+    public String getDescripcion() {
+        return "inventario_tienda (MySQL - XAMPP)";
+    }
+
+    @Override
+    public Connection getConexion() throws SQLException {
+        return pool.obtener();
+    }
+
+    @Override
+    public Connection getConexionLectura() throws SQLException {
+        return pool.obtener();
+    }
+
+    @Override
+    public boolean soportaClavesEnLote() {
+        return true;
+    }
+
+    @Override
+    public String getExpresionAhora() {
+        return "CURRENT_TIMESTAMP";
+    }
+
+    @Override
+    public String getBloqueoFilas() {
+        return " FOR UPDATE";
+    }
+
+    // Connector/J solo transmite el resultado fila a fila con Integer.MIN_VALUE;
+    // con cualquier otro valor (sin useCursorFetch) lo lee entero al ejecutar
+    @Override
+    public int getTamanoFetchStreaming() {
+        return Integer.MIN_VALUE;
+    }
+
+    // Mismas credenciales que la principal; la sesión de solo lectura hace que el servidor
+    // rechace cualquier escritura que llegue por error
+    @Override
+    public PoolConexiones crearPoolReplica(String nombre, String destino) {
+        return new PoolConexiones("mysql-" + nombre,
+                ConfiguracionPool.desdePropiedades("inventario.replicas.pool"),
+                () -> {
+                    Connection conn = DriverManager.getConnection(destino, usuario, password);
+                    conn.setReadOnly(true);
+                    return conn;
+                });
+    }
+
+    @Override
+    public List<PoolConexiones> getPools() {
+        return List.of(pool);
+    }
+
+    @Override
+    public List<String> getSugerenciasError() {
+        return List.of(
+                "1. XAMPP esté ejecutándose",
+                "2. MySQL esté iniciado",
+                "3. La base de datos 'inventario_tienda' exista",
+                "4. Las credenciales sean correctas");
+    }
+
+    @Override
+    public void cerrar() {
+        pool.close();
+    }
+}
@@ -0,0 +1,305 @@
+package com.tienda.database;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Lecturas repartidas entre réplicas de la base (-Dinventario.replicas=destino1,destino2, archivos
+// en SQLite o URL JDBC en MySQL). Envuelve al motor principal, que sigue atendiendo getConexion():
+// escrituras y lecturas que deben ver las propias escrituras.
+// Cada inventario.replicas.latidoMs (1000 ms) se escribe la hora de la principal en
+// latido_replicacion (migración 6 de GestorEsquema) y se lee en cada réplica: su retraso es su
+// hora menos el último latido que le llegó. getConexionLectura() va por turnos a las réplicas con
+// retraso de como mucho inventario.replicas.retrasoMaximoMs (5000 ms) que ya tienen la última
+// escritura de este proceso; si no hay ninguna, a la principal.
+// Una escritura queda cubierta por el primer latido escrito después de devolver su conexión, y
+// una réplica la tiene cuando le llegó un latido posterior a ese: todo se compara con la hora de
+// la principal, nunca con el reloj de este equipo
+public class MotorReplicado implements MotorBD {
+    private static final String TABLA_LATIDO = "latido_replicacion";
+
+    private final MotorBD principal;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final long latidoMs = Long.getLong("inventario.replicas.latidoMs", 1000L);
+    private final long retrasoMaximoMs = Long.getLong("inventario.replicas.retrasoMaximoMs", 5000L);
+    private final ScheduledExecutorService latido;
+
+    private final AtomicInteger turno = new AtomicInteger();
+    // Escrituras con la conexión prestada y devueltas; cuántas de las devueltas cubre el último
+    // latido que las siguió, y su instante (hora de la principal). Solo el hilo de latidos
+    // escribe las dos últimas, el instante antes que la cuenta
+    private final AtomicInteger escriturasEnCurso = new AtomicInteger();
+    private final AtomicLong escriturasDevueltas = new AtomicLong();
+    private volatile long escriturasCubiertas;
+    private volatile long latidoTrasEscritura = Long.MIN_VALUE;
+    private final LongAdder lecturasPrincipal = new LongAdder();
+
+    public MotorReplicado(MotorBD principal, List<String> destinos) throws SQLException {
+        this.principal = principal;
+        try {
+            for (String destino : destinos) {
+                String nombre = "replica-" + (replicas.size() + 1);
+                replicas.add(new Replica(destino, principal.crearPoolReplica(nombre, destino)));
+            }
+        } catch (SQLException | RuntimeException e) {
+            for (Replica replica : replicas) {
+                replica.pool.close();
+            }
+            throw e;
+        }
+
+        latido = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread hilo = new Thread(r, "replicas-latido");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        latido.scheduleWithFixedDelay(this::latir, 0, latidoMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void latir() {
+        // Las escrituras devueltas hasta aquí ya están confirmadas: el latido va detrás en el
+        // orden de replicación
+        long devueltas = escriturasDevueltas.get();
+        try (Connection conn = principal.getConexion();
+             Statement stmt = conn.createStatement()) {
+            String ahora = principal.getExpresionAhora();
+            if (stmt.executeUpdate("UPDATE " + TABLA_LATIDO + " SET instante = " + ahora + " WHERE id = 1") == 0) {
+                stmt.executeUpdate("INSERT INTO " + TABLA_LATIDO + " (id, instante) VALUES (1, " + ahora + ")");
+            }
+            if (devueltas != escriturasCubiertas) {
+                try (ResultSet rs = stmt.executeQuery("SELECT instante FROM " + TABLA_LATIDO + " WHERE id = 1")) {
+                    if (rs.next()) {
+                        latidoTrasEscritura = rs.getTimestamp(1).getTime();
+                        escriturasCubiertas = devueltas;
+                    }
+                }
+            }
+        } catch (SQLException | RuntimeException e) {
+            // Sin latidos nuevos el retraso de las réplicas crece y las lecturas vuelven a la principal
+            System.err.println("Error al escribir el latido de replicación: " + e.getMessage());
+        }
+        for (Replica replica : replicas) {
+            medir(replica);
+        }
+    }
+
+    private void medir(Replica replica) {
+        String sql = "SELECT " + principal.getExpresionAhora() + ", instante FROM " + TABLA_LATIDO + " WHERE id = 1";
+        try (Connection conn = replica.pool.obtener();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            if (!rs.next()) {
+                throw new SQLException("sin fila de latido");
+            }
+            Timestamp ahora = rs.getTimestamp(1);
+            Timestamp instante = rs.getTimestamp(2);
+            replica.actualizar(Math.max(0, ahora.getTime() - instante.getTime()), instante.getTime());
+        } catch (SQLException | RuntimeException e) {
+            replica.descartar(e);
+        }
+    }
+
+    // Réplica al día para la próxima lectura, por turnos; null si ninguna sirve
+    private Replica elegir() {
+        if (escriturasEnCurso.get() > 0) {
+            return null;
+        }
+        // Alguna escritura devuelta aún sin latido detrás
+        if (escriturasCubiertas < escriturasDevueltas.get()) {
+            return null;
+        }
+        long latido = latidoTrasEscritura;
+        long ahora = System.currentTimeMillis();
+        int inicio = turno.getAndIncrement();
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get(Math.floorMod(inicio + i, replicas.size()));
+            if (replica.disponible && replica.retrasoMs <= retrasoMaximoMs
+                    && ahora - replica.medidaEn <= retrasoMaximoMs
+                    && replica.alDiaHasta > latido) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Connection getConexionLectura() throws SQLException {
+        Replica replica = elegir();
+        if (replica != null) {
+            try {
+                Connection conn = replica.pool.obtener();
+                replica.lecturas.increment();
+                return conn;
+            } catch (SQLException e) {
+                replica.descartar(e);
+            }
+        }
+        lecturasPrincipal.increment();
+        return principal.getConexionLectura();
+    }
+
+    // Mientras la conexión está prestada, y hasta que las réplicas reciban lo escrito, se lee de la principal
+    @Override
+    public Connection getConexion() throws SQLException {
+        Connection conn = principal.getConexion();
+        escriturasEnCurso.incrementAndGet();
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new ConexionEscritura(conn));
+    }
+
+    private final class ConexionEscritura implements InvocationHandler {
+        private final Connection conexion;
+        private boolean cerrada;
+
+        ConexionEscritura(Connection conexion) {
+            this.conexion = conexion;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if ("close".equals(method.getName()) && method.getParameterCount() == 0) {
+                if (!cerrada) {
+                    cerrada = true;
+                    try {
+                        conexion.close();
+                    } finally {
+                        escriturasDevueltas.incrementAndGet();
+                        escriturasEnCurso.decrementAndGet();
+                    }
+                }
+                return null;
+            }
+            if ("isClosed".equals(method.getName()) && cerrada) {
+                return true;
+            }
+            try {
+                return method.invoke(conexion, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    @Override
+    public String getDescripcion() {
+        return principal.getDescripcion() + " + " + replicas.size() +
+                (replicas.size() == 1 ? " réplica" : " réplicas");
+    }
+
+    @Override
+    public boolean soportaClavesEnLote() {
+        return principal.soportaClavesEnLote();
+    }
+
+    @Override
+    public String getExpresionAhora() {
+        return principal.getExpresionAhora();
+    }
+
+    @Override
+    public String getBloqueoFilas() {
+        return principal.getBloqueoFilas();
+    }
+
+    @Override
+    public int getTamanoFetchStreaming() {
+        return principal.getTamanoFetchStreaming();
+    }
+
+    @Override
+    public PoolConexiones crearPoolReplica(String nombre, String destino) throws SQLException {
+        return principal.crearPoolReplica(nombre, destino);
+    }
+
+    @Override
+    public List<PoolConexiones> getPools() {
+        List<PoolConexiones> pools = new ArrayList<>(principal.getPools());
+        for (Replica replica : replicas) {
+            pools.add(replica.pool);
+        }
+        return pools;
+    }
+
+    @Override
+    public List<String> getSugerenciasError() {
+        return principal.getSugerenciasError();
+    }
+
+    @Override
+    public void cerrar() {
+        latido.shutdownNow();
+        for (Replica replica : replicas) {
+            replica.pool.close();
+        }
+        principal.cerrar();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("MotorReplicado{lecturasPrincipal=").append(lecturasPrincipal.sum());
+        for (Replica replica : replicas) {
+            sb.append(", ").append(replica);
+        }
+        return sb.append('}').toString();
+    }
+
+    private static final class Replica {
+        private final String destino;
+        private final PoolConexiones pool;
+        private final LongAdder lecturas = new LongAdder();
+        // Los escribe solo el hilo de latidos
+        private volatile boolean disponible;
+        private volatile long retrasoMs = Long.MAX_VALUE;
+        private volatile long medidaEn;
+        // Último latido recibido: la réplica tiene todo lo confirmado en la principal hasta ahí
+        private volatile long alDiaHasta = Long.MIN_VALUE;
+
+        Replica(String destino, PoolConexiones pool) {
+            this.destino = destino;
+            this.pool = pool;
+        }
+
+        void actualizar(long retrasoMs, long alDiaHasta) {
+            this.retrasoMs = retrasoMs;
+            this.alDiaHasta = alDiaHasta;
+            medidaEn = System.currentTimeMillis();
+            if (!disponible) {
+                disponible = true;
+                System.out.println("✓ Réplica disponible: " + destino + " (retraso " + retrasoMs + " ms)");
+            }
+        }
+
+        void descartar(Exception e) {
+            if (disponible || medidaEn == 0) {
+                System.err.println("✗ Réplica no disponible, se lee de la principal: " + destino +
+                        " (" + e.getMessage() + ")");
+            }
+            disponible = false;
+            retrasoMs = Long.MAX_VALUE;
+            medidaEn = -1;
+        }
+
+        @Override
+        public String toString() {
+            return destino + "{lecturas=" + lecturas.sum() + ", retrasoMs=" +
+                    (disponible ? String.valueOf(retrasoMs) : "-") + '}';
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.tienda.database;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Properties;
+
+// SQLite embebido sobre el archivo inventario.db, sin servicios externos.
+// Un único escritor (pool de tamaño 1) y varios lectores en modo WAL:
+// los lectores nunca bloquean al escritor ni entre ellos.
+public class MotorSQLite implements MotorBD {
+    private static final String ARCHIVO = "inventario.db";
+
+    // Esquema equivalente al de MySQL para que los DAO funcionen sin cambios
+    private static final String[] ESQUEMA = {
+            """
+            CREATE TABLE IF NOT EXISTS categorias (
+                id_categoria INTEGER PRIMARY KEY AUTOINCREMENT,
+                nombre_categoria TEXT NOT NULL UNIQUE,
+                descripcion TEXT,
+                fecha_creacion TIMESTAMP DEFAULT (datetime('now', 'localtime'))
+            )
+            """,
+            """
+            CREATE TABLE IF NOT EXISTS proveedores (
+                id_proveedor INTEGER PRIMARY KEY AUTOINCREMENT,
+                nombre_proveedor TEXT NOT NULL,
+                telefono TEXT,
+                email TEXT,
+                direccion TEXT,
+                ciudad TEXT,
+                pais TEXT,
+                fecha_registro TIMESTAMP DEFAULT (datetime('now', 'localtime'))
+            )
+            """,
+            """
+            CREATE TABLE IF NOT EXISTS productos (
+                id_producto INTEGER PRIMARY KEY AUTOINCREMENT,
+                nombre_producto TEXT NOT NULL,
+                descripcion TEXT,
+                precio_unitario REAL NOT NULL,
+                stock_actual INTEGER NOT NULL DEFAULT 0,
+                stock_minimo INTEGER NOT NULL DEFAULT 0,
+                id_categoria INTEGER NOT NULL REFERENCES categorias (id_categoria),
+                id_proveedor INTEGER NOT NULL REFERENCES proveedores (id_proveedor),
+                codigo_barras TEXT,
+                fecha_registro TIMESTAMP DEFAULT (datetime('now', 'localtime')),
+                ultima_actualizacion TIMESTAMP DEFAULT (datetime('now', 'localtime')),
+                activo BOOLEAN NOT NULL DEFAULT 1
+            )
+            """,
+            // Equivalente a ON UPDATE CURRENT_TIMESTAMP de MySQL
+            """
+            CREATE TRIGGER IF NOT EXISTS productos_ultima_actualizacion
+            AFTER UPDATE ON productos
+            FOR EACH ROW WHEN NEW.ultima_actualizacion IS OLD.ultima_actualizacion
+            BEGIN
+                UPDATE productos SET ultima_actualizacion = datetime('now', 'localtime')
+                WHERE id_producto = NEW.id_producto;
+            END
+            """
+    };
+
+    private final String archivo;
+    private final PoolConexiones escritor;
+    private final PoolConexiones lectores;
+
+    public MotorSQLite() throws ClassNotFoundException, SQLException {
+        Class.forName("org.sqlite.JDBC");
+
+        this.archivo = System.getProperty("inventario.sqlite.archivo", ARCHIVO);
+        String url = "jdbc:sqlite:" + archivo;
+
+        // El esquema y el modo WAL se preparan antes de abrir los pools
+        try (Connection conn = abrir(url, false)) {
+            prepararEsquema(conn);
+        }
+
+        // Un solo escritor: SQLite serializa las escrituras de todos modos,
+        // así esperan en el pool en lugar de fallar con SQLITE_BUSY
+        ConfiguracionPool configEscritor = new ConfiguracionPool();
+        configEscritor.setTamanoMinimo(1);
+        configEscritor.setTamanoMaximo(1);
+        escritor = new PoolConexiones("sqlite-escritor", configEscritor, () -> abrir(url, false));
+
+        lectores = new PoolConexiones("sqlite-lectores", configLectores(), () -> abrir(url, true));
+    }
+
+    private static ConfiguracionPool configLectores() {
+        ConfiguracionPool config = new ConfiguracionPool();
+        config.setTamanoMinimo(1);
+        config.setTamanoMaximo(Math.max(2, Runtime.getRuntime().availableProcessors()));
+        config.setInactividadMaximaMs(Long.MAX_VALUE / 2); // Abrir es barato, pero el caché de páginas no
+        return ConfiguracionPool.desdePropiedades("inventario.sqlite.lectores", config);
+    }
+
+    private static Connection abrir(String url, boolean soloLectura) throws SQLException {
+        // Fechas como texto "yyyy-MM-dd HH:mm:ss", igual que los DEFAULT del esquema
+        Properties propiedades = new Properties();
+        propiedades.setProperty("date_class", "TEXT");
+        propiedades.setProperty("date_string_format", "yyyy-MM-dd HH:mm:ss");
+
+        Connection conn = DriverManager.getConnection(url, propiedades);
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("PRAGMA journal_mode = WAL");
+            stmt.execute("PRAGMA synchronous = NORMAL");      // Seguro en WAL, un fsync por checkpoint
+            stmt.execute("PRAGMA foreign_keys = ON");
+            stmt.execute("PRAGMA busy_timeout = 5000");
+            stmt.execute("PRAGMA cache_size = -16384");       // 16 MB de caché de páginas por conexión
+            stmt.execute("PRAGMA mmap_size = 268435456");     // Lecturas vía mmap (256 MB)
+            stmt.execute("PRAGMA temp_store = MEMORY");
+            if (soloLectura) {
+                stmt.execute("PRAGMA query_only = ON");
+            }
+        } catch (SQLException e) {
+            conn.close();
+            throw e;
+        }
+        return conn;
+    }
+
+    private void prepararEsquema(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            apartarTablaAntigua(conn, stmt);
+            for (String sentencia : ESQUEMA) {
+                stmt.execute(sentencia);
+            }
+        }
+    }
+
+    // El inventario.db original trae una tabla productos con otro esquema
+    // (id, nombre, precio, cantidad, categoria). Si está vacía se descarta;
+    // si tiene datos se conserva como productos_legacy.
+    private void apartarTablaAntigua(Connection conn, Statement stmt) throws SQLException {
+        DatabaseMetaData meta = conn.getMetaData();
+        boolean existe;
+        try (ResultSet rs = meta.getColumns(null, null, "productos", null)) {
+            existe = rs.next();
+        }
+        if (!existe) {
+            return;
+        }
+        try (ResultSet rs = meta.getColumns(null, null, "productos", "nombre_producto")) {
+            if (rs.next()) {
+                return;
+            }
+        }
+
+        boolean vacia;
+        try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM productos")) {
+            vacia = rs.next() && rs.getInt(1) == 0;
+        }
+        if (vacia) {
+            stmt.execute("DROP TABLE productos");
+        } else {
+            stmt.execute("ALTER TABLE productos RENAME TO productos_legacy");
+            System.out.println("⚠ Tabla 'productos' con esquema antiguo renombrada a 'productos_legacy'");
+        }
+    }
+
+    @Override
+    public String getDescripcion() {
+        return new File(archivo).getName() + " (SQLite embebido)";
+    }
+
+    @Override
+    public Connection getConexion() throws SQLException {
+        return escritor.obtener();
+    }
+
+    @Override
+    public Connection getConexionLectura() throws SQLException {
+        return lectores.obtener();
+    }
+
+    // sqlite-jdbc solo informa la última clave tras un executeBatch()
+    @Override
+    public boolean soportaClavesEnLote() {
+        return false;
+    }
+
+    @Override
+    public String getExpresionAhora() {
+        return "datetime('now', 'localtime')";
+    }
+
+    // Un único escritor: nadie más puede modificar la fila entre la lectura y la escritura
+    @Override
+    public String getBloqueoFilas() {
+        return "";
+    }
+
+    // El driver avanza el cursor de SQLite con cada next(): nunca carga el resultado entero
+    @Override
+    public int getTamanoFetchStreaming() {
+        return 1000;
+    }
+
+    // La réplica es otro archivo con el mismo esquema, copiado o replicado desde éste.
+    // Abrir un archivo inexistente crearía una base vacía
+    @Override
+    public PoolConexiones crearPoolReplica(String nombre, String destino) throws SQLException {
+        if (!new File(destino).isFile()) {
+            throw new SQLException("No existe el archivo de la réplica: " + destino);
+        }
+        String url = "jdbc:sqlite:" + destino;
+        return new PoolConexiones("sqlite-" + nombre, configLectores(), () -> abrir(url, true));
+    }
+
+    @Override
+    public List<PoolConexiones> getPools() {
+        return List.of(escritor, lectores);
+    }
+
+    @Override
+    public List<String> getSugerenciasError() {
+        return List.of(
+                "1. El archivo '" + archivo + "' exista y se pueda escribir",
+                "2. Ningún otro proceso tenga la base de datos bloqueada");
+    }
+
+    @Override
+    public void cerrar() {
+        lectores.close();
+        escritor.close();
+    }
+}
@@ -0,0 +1,444 @@
+package com.tienda.database;
+
+import com.tienda.metricas.RegistroMetricas;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Pool acotado de conexiones JDBC.
+// Los DAO siguen usando try-with-resources: close() sobre la conexión prestada
+// la devuelve al pool en lugar de cerrar la conexión física.
+public class PoolConexiones implements AutoCloseable {
+
+    // Crea conexiones físicas nuevas (DriverManager, DataSource, etc.)
+    @FunctionalInterface
+    public interface FabricaConexiones {
+        Connection crear() throws SQLException;
+    }
+
+    private final String nombre;
+    private final ConfiguracionPool config;
+    private final FabricaConexiones fabrica;
+
+    // LIFO: se reutiliza primero la conexión usada más recientemente
+    private final LinkedBlockingDeque<ConexionFisica> libres = new LinkedBlockingDeque<>();
+    private final Set<ConexionFisica> prestadas = ConcurrentHashMap.newKeySet();
+    private final Semaphore permisos;
+    private final AtomicInteger totalFisicas = new AtomicInteger();
+    private final AtomicBoolean cerrado = new AtomicBoolean(false);
+    private final ScheduledExecutorService mantenimiento;
+
+    // Métricas
+    private final LongAdder prestamos = new LongAdder();
+    private final LongAdder esperasAgotadas = new LongAdder();
+    private final LongAdder conexionesCreadas = new LongAdder();
+    private final LongAdder conexionesDescartadas = new LongAdder();
+    private final LongAdder fugasDetectadas = new LongAdder();
+    private final LongAdder tiempoEsperaTotalNanos = new LongAdder();
+    private final AtomicLong tiempoEsperaMaximoNanos = new AtomicLong();
+    private final LongAdder sentenciasReutilizadas = new LongAdder();
+    private final LongAdder sentenciasPreparadas = new LongAdder();
+    private final RegistroMetricas metricas = RegistroMetricas.getInstancia();
+
+    public PoolConexiones(String nombre, ConfiguracionPool config, FabricaConexiones fabrica) {
+        config.validar();
+        this.nombre = nombre;
+        this.config = config;
+        this.fabrica = fabrica;
+        this.permisos = new Semaphore(config.getTamanoMaximo(), true);
+
+        this.mantenimiento = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread hilo = new Thread(r, "pool-" + nombre + "-mantenimiento");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        long intervalo = config.getIntervaloMantenimientoMs();
+        // La primera pasada completa el mínimo de conexiones en segundo plano
+        mantenimiento.scheduleWithFixedDelay(this::mantener, 0, intervalo, TimeUnit.MILLISECONDS);
+    }
+
+    // Pedir prestada una conexión. Se devuelve al pool con close()
+    public Connection obtener() throws SQLException {
+        if (cerrado.get()) {
+            throw new SQLException("El pool '" + nombre + "' está cerrado");
+        }
+
+        long inicio = System.nanoTime();
+        try {
+            if (!permisos.tryAcquire(config.getEsperaMaximaMs(), TimeUnit.MILLISECONDS)) {
+                esperasAgotadas.increment();
+                metricas.registrarConexion(nombre, System.nanoTime() - inicio, true);
+                throw new SQLException("Tiempo de espera agotado (" + config.getEsperaMaximaMs() +
+                        " ms) esperando una conexión del pool '" + nombre + "'");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrumpido esperando una conexión del pool '" + nombre + "'", e);
+        }
+
+        try {
+            ConexionFisica fisica = tomarLibreValida();
+            if (fisica == null) {
+                fisica = crearFisica();
+            }
+            registrarEspera(System.nanoTime() - inicio);
+            return prestar(fisica);
+        } catch (SQLException | RuntimeException e) {
+            metricas.registrarConexion(nombre, System.nanoTime() - inicio, true);
+            permisos.release();
+            throw e;
+        }
+    }
+
+    private ConexionFisica tomarLibreValida() {
+        ConexionFisica fisica;
+        while ((fisica = libres.pollFirst()) != null) {
+            long inactivaMs = (System.nanoTime() - fisica.ultimoUsoNanos) / 1_000_000;
+            if (inactivaMs < config.getValidarSiInactivaMs() || esValida(fisica)) {
+                return fisica;
+            }
+            descartar(fisica);
+        }
+        return null;
+    }
+
+    private boolean esValida(ConexionFisica fisica) {
+        try {
+            return fisica.conexion.isValid(config.getTimeoutValidacionSeg());
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private ConexionFisica crearFisica() throws SQLException {
+        Connection conexion = fabrica.crear();
+        totalFisicas.incrementAndGet();
+        conexionesCreadas.increment();
+        return new ConexionFisica(conexion, config.getTamanoCacheSentencias() > 0
+                ? new CacheSentencias(conexion, config.getTamanoCacheSentencias(),
+                sentenciasReutilizadas, sentenciasPreparadas)
+                : null);
+    }
+
+    private Connection prestar(ConexionFisica fisica) {
+        fisica.prestadaNanos = System.nanoTime();
+        fisica.fugaReportada = false;
+        fisica.hiloPrestamo = Thread.currentThread().getName();
+        // Capturar la pila cuesta más que el propio préstamo: solo si se pide expresamente
+        fisica.origenPrestamo = config.isRastrearFugas() && config.getUmbralFugaMs() > 0
+                ? new Throwable("Conexión prestada aquí")
+                : null;
+        prestadas.add(fisica);
+        prestamos.increment();
+
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new ConexionPrestada(fisica));
+    }
+
+    private void devolver(ConexionFisica fisica) {
+        prestadas.remove(fisica);
+        try {
+            if (cerrado.get() || !restablecer(fisica)) {
+                descartar(fisica);
+            } else {
+                fisica.ultimoUsoNanos = System.nanoTime();
+                libres.offerFirst(fisica);
+            }
+        } finally {
+            permisos.release();
+        }
+    }
+
+    // Deja la conexión como recién creada para el siguiente préstamo
+    private boolean restablecer(ConexionFisica fisica) {
+        try {
+            Connection conn = fisica.conexion;
+            if (conn.isClosed()) {
+                return false;
+            }
+            if (fisica.sentencias != null) {
+                fisica.sentencias.liberarTodas();
+            }
+            if (!conn.getAutoCommit()) {
+                conn.rollback();
+                conn.setAutoCommit(true);
+            }
+            if (fisica.soloLecturaModificada) {
+                conn.setReadOnly(false);
+                fisica.soloLecturaModificada = false;
+            }
+            conn.clearWarnings();
+            return true;
+        } catch (SQLException e) {
+            System.err.println("✗ Conexión descartada del pool '" + nombre + "': " + e.getMessage());
+            return false;
+        }
+    }
+
+    private void descartar(ConexionFisica fisica) {
+        totalFisicas.decrementAndGet();
+        conexionesDescartadas.increment();
+        if (fisica.sentencias != null) {
+            fisica.sentencias.cerrarTodas();
+        }
+        try {
+            fisica.conexion.close();
+        } catch (SQLException e) {
+            // La conexión ya estaba rota; no hay nada más que hacer
+        }
+    }
+
+    private void registrarEspera(long nanos) {
+        metricas.registrarConexion(nombre, nanos, false);
+        tiempoEsperaTotalNanos.add(nanos);
+        tiempoEsperaMaximoNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    // Tarea periódica: desalojo de ociosas, mínimo de conexiones y detección de fugas
+    private void mantener() {
+        if (cerrado.get()) {
+            return;
+        }
+        try {
+            desalojarInactivas();
+            completarMinimo();
+            detectarFugas();
+        } catch (RuntimeException e) {
+            System.err.println("✗ Error en el mantenimiento del pool '" + nombre + "': " + e.getMessage());
+        }
+    }
+
+    private void desalojarInactivas() {
+        long ahora = System.nanoTime();
+        long limiteNanos = TimeUnit.MILLISECONDS.toNanos(config.getInactividadMaximaMs());
+
+        // Se prestan y se devuelven por el principio de la cola (LIFO): las que llevan más tiempo
+        // sin usarse están al final y se desalojan primero
+        Iterator<ConexionFisica> desdeElFinal = libres.descendingIterator();
+        while (desdeElFinal.hasNext()) {
+            if (totalFisicas.get() <= config.getTamanoMinimo()) {
+                break;
+            }
+            ConexionFisica fisica = desdeElFinal.next();
+            if (ahora - fisica.ultimoUsoNanos > limiteNanos && libres.remove(fisica)) {
+                descartar(fisica);
+            }
+        }
+    }
+
+    private void completarMinimo() {
+        while (totalFisicas.get() < config.getTamanoMinimo() && permisos.tryAcquire()) {
+            try {
+                ConexionFisica fisica = crearFisica();
+                fisica.ultimoUsoNanos = System.nanoTime();
+                libres.offerLast(fisica);
+            } catch (SQLException e) {
+                System.err.println("✗ No se pudo completar el mínimo del pool '" + nombre + "': " + e.getMessage());
+                return;
+            } finally {
+                permisos.release();
+            }
+        }
+    }
+
+    private void detectarFugas() {
+        long umbral = config.getUmbralFugaMs();
+        if (umbral <= 0) {
+            return;
+        }
+        long ahora = System.nanoTime();
+        for (ConexionFisica fisica : prestadas) {
+            long prestadaMs = (ahora - fisica.prestadaNanos) / 1_000_000;
+            if (prestadaMs > umbral && !fisica.fugaReportada) {
+                fisica.fugaReportada = true;
+                fugasDetectadas.increment();
+                System.err.println("⚠ Posible fuga de conexión en el pool '" + nombre +
+                        "': prestada hace " + prestadaMs + " ms sin devolver (hilo " + fisica.hiloPrestamo + ")");
+                if (fisica.origenPrestamo != null) {
+                    fisica.origenPrestamo.printStackTrace();
+                }
+            }
+        }
+    }
+
+    // Cierra todas las conexiones libres; las prestadas se cierran al devolverse
+    @Override
+    public void close() {
+        if (!cerrado.compareAndSet(false, true)) {
+            return;
+        }
+        mantenimiento.shutdownNow();
+        ConexionFisica fisica;
+        while ((fisica = libres.pollFirst()) != null) {
+            descartar(fisica);
+        }
+    }
+
+    public boolean isCerrado() {
+        return cerrado.get();
+    }
+
+    // Métricas del pool
+    public String getNombre() {
+        return nombre;
+    }
+
+    public int getConexionesTotales() {
+        return totalFisicas.get();
+    }
+
+    public int getConexionesLibres() {
+        return libres.size();
+    }
+
+    public int getConexionesPrestadas() {
+        return prestadas.size();
+    }
+
+    public long getPrestamos() {
+        return prestamos.sum();
+    }
+
+    public long getEsperasAgotadas() {
+        return esperasAgotadas.sum();
+    }
+
+    public long getConexionesCreadas() {
+        return conexionesCreadas.sum();
+    }
+
+    public long getConexionesDescartadas() {
+        return conexionesDescartadas.sum();
+    }
+
+    public long getFugasDetectadas() {
+        return fugasDetectadas.sum();
+    }
+
+    public long getSentenciasReutilizadas() {
+        return sentenciasReutilizadas.sum();
+    }
+
+    public long getSentenciasPreparadas() {
+        return sentenciasPreparadas.sum();
+    }
+
+    public double getEsperaPromedioMs() {
+        long n = prestamos.sum();
+        return n == 0 ? 0.0 : tiempoEsperaTotalNanos.sum() / 1_000_000.0 / n;
+    }
+
+    public double getEsperaMaximaMs() {
+        return tiempoEsperaMaximoNanos.get() / 1_000_000.0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Pool '%s': %d conexiones (%d libres, %d prestadas), %d préstamos, " +
+                        "espera prom. %.3f ms, máx. %.3f ms, %d esperas agotadas, %d fugas, " +
+                        "sentencias %d reutilizadas / %d preparadas",
+                nombre, getConexionesTotales(), getConexionesLibres(), getConexionesPrestadas(),
+                getPrestamos(), getEsperaPromedioMs(), getEsperaMaximaMs(),
+                getEsperasAgotadas(), getFugasDetectadas(),
+                getSentenciasReutilizadas(), getSentenciasPreparadas());
+    }
+
+    // Conexión física con su estado dentro del pool
+    private static final class ConexionFisica {
+        final Connection conexion;
+        volatile long ultimoUsoNanos = System.nanoTime();
+        volatile long prestadaNanos;
+        volatile boolean fugaReportada;
+        volatile String hiloPrestamo;
+        volatile Throwable origenPrestamo;
+        // Evita consultar isReadOnly() al devolver (en MySQL puede ir al servidor)
+        volatile boolean soloLecturaModificada;
+        // null si el caché de sentencias está desactivado
+        final CacheSentencias sentencias;
+
+        ConexionFisica(Connection conexion, CacheSentencias sentencias) {
+            this.conexion = conexion;
+            this.sentencias = sentencias;
+        }
+    }
+
+    // Envoltura entregada a los DAO: close() devuelve la conexión al pool
+    private final class ConexionPrestada implements InvocationHandler {
+        private final ConexionFisica fisica;
+        private final AtomicBoolean devuelta = new AtomicBoolean(false);
+
+        ConexionPrestada(ConexionFisica fisica) {
+            this.fisica = fisica;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method metodo, Object[] args) throws Throwable {
+            switch (metodo.getName()) {
+                case "close":
+                    if (devuelta.compareAndSet(false, true)) {
+                        devolver(fisica);
+                    }
+                    return null;
+                case "isClosed":
+                    return devuelta.get() || fisica.conexion.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "setReadOnly":
+                    fisica.soloLecturaModificada = true;
+                    break;
+                case "toString":
+                    return "ConexionPrestada[" + nombre + "]" + (devuelta.get() ? " (devuelta)" : "");
+                default:
+                    break;
+            }
+
+            if (devuelta.get()) {
+                throw new SQLException("La conexión ya fue devuelta al pool");
+            }
+
+            Object resultado = null;
+            // prepareStatement(sql) y prepareStatement(sql, clavesGeneradas) pasan por el caché
+            if (fisica.sentencias != null && metodo.getName().equals("prepareStatement")) {
+                if (args.length == 1) {
+                    resultado = fisica.sentencias.obtener((Connection) proxy, (String) args[0], Statement.NO_GENERATED_KEYS);
+                } else if (args.length == 2 && args[1] instanceof Integer claves) {
+                    resultado = fisica.sentencias.obtener((Connection) proxy, (String) args[0], claves);
+                }
+            }
+            if (resultado == null) {
+                try {
+                    resultado = metodo.invoke(fisica.conexion, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+
+            if (resultado instanceof Statement sentencia && metricas.isHabilitado()) {
+                String sql = args != null && args.length > 0 && args[0] instanceof String texto ? texto : null;
+                return SentenciaMedida.envolver(sentencia, metodo.getReturnType(), sql);
+            }
+            return resultado;
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package com.tienda.database;
+
+import com.tienda.metricas.MetricasOperacion;
+import com.tienda.metricas.RegistroMetricas;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Date;
+
+// Envoltura de las sentencias que reciben los DAO: mide cada ejecución y la anota en
+// RegistroMetricas bajo el método que preparó la sentencia (p. ej. "ProductoDAO.buscarPorNombre").
+// Guarda los parámetros asignados para el registro de consultas lentas. La latencia es la de
+// execute*(); las filas de una consulta se cuentan a medida que el DAO recorre el ResultSet.
+// Como la sentencia, solo la usa el hilo que tiene la conexión prestada
+final class SentenciaMedida implements InvocationHandler {
+    private static final StackWalker PILA = StackWalker.getInstance();
+    private static final int LONGITUD_MAXIMA_PARAMETRO = 100;
+
+    private final Statement sentencia;
+    private final String operacion;
+    private final MetricasOperacion metricas;
+    private final RegistroMetricas registro = RegistroMetricas.getInstancia();
+    private String sql;
+    private Object[] parametros = new Object[8];
+    private int parametrosUsados;
+    // Último ResultSet entregado; sus filas se anotan al agotarlo o cerrarlo
+    private FilasContadas abierto;
+
+    private SentenciaMedida(Statement sentencia, String sql) {
+        this.sentencia = sentencia;
+        this.sql = sql;
+        this.operacion = operacionLlamante();
+        this.metricas = registro.operacion(operacion);
+    }
+
+    // 'tipo' es la interfaz que pidió el DAO (Statement, PreparedStatement o CallableStatement)
+    static Statement envolver(Statement sentencia, Class<?> tipo, String sql) {
+        return (Statement) Proxy.newProxyInstance(Statement.class.getClassLoader(),
+                new Class<?>[]{tipo}, new SentenciaMedida(sentencia, sql));
+    }
+
+    // Primer marco de la pila fuera de las capas de conexión y métricas
+    private static String operacionLlamante() {
+        return PILA.walk(marcos -> marcos
+                .filter(m -> m.getClassName().startsWith("com.tienda.")
+                        && !m.getClassName().startsWith("com.tienda.database.")
+                        && !m.getClassName().startsWith("com.tienda.metricas."))
+                .findFirst()
+                .map(m -> m.getClassName().substring(m.getClassName().lastIndexOf('.') + 1) +
+                        "." + m.getMethodName())
+                .orElse("(sin DAO)"));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method metodo, Object[] args) throws Throwable {
+        String nombre = metodo.getName();
+        switch (nombre) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "executeQuery":
+            case "executeUpdate":
+            case "executeLargeUpdate":
+            case "execute":
+            case "executeBatch":
+            case "executeLargeBatch":
+                return ejecutar(metodo, args);
+            case "clearParameters":
+                Arrays.fill(parametros, 0, parametrosUsados, null);
+                parametrosUsados = 0;
+                break;
+            case "close":
+                cerrarAbierto();
+                break;
+            default:
+                if (nombre.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer indice) {
+                    guardarParametro(indice, nombre.equals("setNull") ? null : args[1]);
+                }
+                break;
+        }
+        return delegar(metodo, args);
+    }
+
+    private Object ejecutar(Method metodo, Object[] args) throws Throwable {
+        if (args != null && args.length > 0 && args[0] instanceof String texto) {
+            // Statement.execute*(sql)
+            sql = texto;
+        }
+        cerrarAbierto();
+
+        long inicio = System.nanoTime();
+        Object resultado;
+        try {
+            resultado = delegar(metodo, args);
+        } catch (Throwable t) {
+            long nanos = System.nanoTime() - inicio;
+            metricas.registrar(nanos, true);
+            if (registro.esLenta(nanos)) {
+                registro.registrarConsultaLenta(operacion, sql, describirParametros(), nanos);
+            }
+            throw t;
+        }
+        long nanos = System.nanoTime() - inicio;
+        metricas.registrar(nanos, false);
+
+        if (resultado instanceof ResultSet rs) {
+            abierto = new FilasContadas(rs);
+            resultado = Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                    new Class<?>[]{ResultSet.class}, abierto);
+        } else if (resultado instanceof Integer filas) {
+            metricas.sumarFilas(Math.max(0, filas));
+        } else if (resultado instanceof Long filas) {
+            metricas.sumarFilas(Math.max(0, filas));
+        } else if (resultado instanceof int[] lote) {
+            for (int filas : lote) {
+                metricas.sumarFilas(Math.max(0, filas));
+            }
+        }
+        if (registro.esLenta(nanos)) {
+            registro.registrarConsultaLenta(operacion, sql, describirParametros(), nanos);
+        }
+        return resultado;
+    }
+
+    private Object delegar(Method metodo, Object[] args) throws Throwable {
+        try {
+            return metodo.invoke(sentencia, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void guardarParametro(int indice, Object valor) {
+        if (indice < 1) {
+            return;
+        }
+        if (indice > parametros.length) {
+            parametros = Arrays.copyOf(parametros, Math.max(parametros.length * 2, indice));
+        }
+        parametros[indice - 1] = valor;
+        parametrosUsados = Math.max(parametrosUsados, indice);
+    }
+
+    // "[1='%leche%', 2=500]"
+    private String describirParametros() {
+        if (parametrosUsados == 0) {
+            return "";
+        }
+        StringBuilder texto = new StringBuilder("[");
+        for (int i = 0; i < parametrosUsados; i++) {
+            if (i > 0) {
+                texto.append(", ");
+            }
+            texto.append(i + 1).append('=');
+            Object valor = parametros[i];
+            if (valor == null) {
+                texto.append("NULL");
+            } else if (valor instanceof CharSequence || valor instanceof Date) {
+                String cadena = valor.toString();
+                if (cadena.length() > LONGITUD_MAXIMA_PARAMETRO) {
+                    cadena = cadena.substring(0, LONGITUD_MAXIMA_PARAMETRO) + "…";
+                }
+                texto.append('\'').append(cadena).append('\'');
+            } else {
+                texto.append(valor);
+            }
+        }
+        return texto.append(']').toString();
+    }
+
+    private void cerrarAbierto() {
+        if (abierto != null) {
+            abierto.anotar();
+            abierto = null;
+        }
+    }
+
+    // ResultSet que cuenta las filas que el DAO recorre
+    private final class FilasContadas implements InvocationHandler {
+        private final ResultSet rs;
+        private long filas;
+        private boolean anotado;
+
+        FilasContadas(ResultSet rs) {
+            this.rs = rs;
+        }
+
+        void anotar() {
+            if (!anotado) {
+                anotado = true;
+                metricas.sumarFilas(filas);
+            }
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method metodo, Object[] args) throws Throwable {
+            switch (metodo.getName()) {
+                case "next" -> {
+                    boolean hay = rs.next();
+                    if (hay) {
+                        filas++;
+                    } else {
+                        anotar();
+                    }
+                    return hay;
+                }
+                case "close" -> anotar();
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                default -> {
+                }
+            }
+            try {
+                return metodo.invoke(rs, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
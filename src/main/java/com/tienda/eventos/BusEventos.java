@@ -0,0 +1,250 @@
+package com.tienda.eventos;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Publicación de los cambios que escriben los DAO, dentro del proceso.
+// Los suscriptores se registran por entidad (Producto.class, Categoria.class, Proveedor.class):
+//  - síncronos: se llaman en el hilo del DAO tras el commit (cachés que deben quedar al día
+//    antes de que la escritura devuelva)
+//  - asíncronos: cada uno con su cola acotada, vaciada en orden por un hilo del bus
+// Publicar no toma candados: encolar es un CAS y el suscriptor solo se programa si estaba parado.
+// Con la cola llena el publicador espera un poco (contrapresión) y, si sigue llena, se descartan
+// los pendientes y el suscriptor recibe alPerderEventos() para recargar: la memoria queda acotada
+// y una escritura nunca espera indefinidamente a un suscriptor lento
+public class BusEventos {
+    private static final BusEventos INSTANCIA = new BusEventos();
+
+    // Capacidad por defecto de la cola de un suscriptor asíncrono
+    public static final int CAPACIDAD_POR_DEFECTO = 1024;
+    // Eventos que entrega un hilo del bus a un suscriptor antes de ceder el hilo a otro
+    private static final int LOTE_ENTREGA = 256;
+
+    // Cuánto espera el publicador a que se libere sitio en una cola llena
+    private final long esperaMaximaNanos = Long.getLong("inventario.eventos.esperaMs", 20L) * 1_000_000L;
+
+    private final Map<Class<?>, List<Suscripcion<?>>> suscripciones = new ConcurrentHashMap<>();
+    private final AtomicLong secuencia = new AtomicLong();
+    private final LongAdder publicados = new LongAdder();
+
+    private final ForkJoinPool hilos = new ForkJoinPool(
+            Math.min(4, Runtime.getRuntime().availableProcessors()),
+            pool -> {
+                ForkJoinWorkerThread hilo = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                hilo.setName("eventos-" + hilo.getPoolIndex());
+                return hilo;
+            },
+            null, true);
+
+    private BusEventos() {
+    }
+
+    public static BusEventos getInstancia() {
+        return INSTANCIA;
+    }
+
+    // Suscriptor llamado en el hilo que publica; debe ser rápido y no escribir en la base
+    public <T> Suscripcion<T> suscribir(Class<T> entidad, OyenteCambios<T> oyente) {
+        return registrar(new Suscripcion<>(this, entidad, oyente, 0));
+    }
+
+    // Suscriptor con cola propia de 'capacidad' eventos, atendido por los hilos del bus
+    public <T> Suscripcion<T> suscribirAsincrono(Class<T> entidad, OyenteCambios<T> oyente, int capacidad) {
+        if (capacidad <= 0) {
+            throw new IllegalArgumentException("Capacidad inválida: " + capacidad);
+        }
+        return registrar(new Suscripcion<>(this, entidad, oyente, capacidad));
+    }
+
+    private <T> Suscripcion<T> registrar(Suscripcion<T> suscripcion) {
+        suscripciones.computeIfAbsent(suscripcion.entidad, k -> new CopyOnWriteArrayList<>()).add(suscripcion);
+        return suscripcion;
+    }
+
+    // Los DAO lo consultan antes de leer las instantáneas de una escritura: sin suscriptores no se leen
+    public boolean tieneSuscriptores(Class<?> entidad) {
+        List<Suscripcion<?>> lista = suscripciones.get(entidad);
+        return lista != null && !lista.isEmpty();
+    }
+
+    // Publicar un cambio ya confirmado en la base
+    @SuppressWarnings("unchecked")
+    public <T> void publicar(Class<T> entidad, EventoCambio.Tipo tipo, int id, T antes, T despues) {
+        List<Suscripcion<?>> lista = suscripciones.get(entidad);
+        if (lista == null || lista.isEmpty()) {
+            return;
+        }
+        EventoCambio<T> evento = new EventoCambio<>(secuencia.incrementAndGet(), entidad, tipo, id, antes, despues);
+        publicados.increment();
+        for (Suscripcion<?> suscripcion : lista) {
+            ((Suscripcion<T>) suscripcion).recibir(evento);
+        }
+    }
+
+    // Secuencia del último evento publicado: lo leído de la base después de consultarla
+    // ya incluye todos los eventos con secuencia menor o igual
+    public long getUltimaSecuencia() {
+        return secuencia.get();
+    }
+
+    public long getPublicados() {
+        return publicados.sum();
+    }
+
+    @Override
+    public String toString() {
+        long suscriptores = suscripciones.values().stream().mapToLong(List::size).sum();
+        return "BusEventos{publicados=" + getPublicados() + ", suscriptores=" + suscriptores + '}';
+    }
+
+    // Registro de un oyente; cancelar() lo da de baja
+    public static final class Suscripcion<T> {
+        private final BusEventos bus;
+        private final Class<T> entidad;
+        private final OyenteCambios<T> oyente;
+        private final int capacidad;
+
+        // Cola acotada sin candados: el tamaño se reserva con un CAS antes de encolar
+        private final ConcurrentLinkedQueue<EventoCambio<T>> cola = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pendientes = new AtomicInteger();
+        // true mientras un hilo del bus está entregando; garantiza el orden de entrega
+        private final AtomicBoolean programada = new AtomicBoolean();
+        private final AtomicBoolean desbordada = new AtomicBoolean();
+        private final LongAdder descartados = new LongAdder();
+        private volatile boolean activa = true;
+
+        private Suscripcion(BusEventos bus, Class<T> entidad, OyenteCambios<T> oyente, int capacidad) {
+            this.bus = bus;
+            this.entidad = entidad;
+            this.oyente = oyente;
+            this.capacidad = capacidad;
+        }
+
+        public void cancelar() {
+            activa = false;
+            List<Suscripcion<?>> lista = bus.suscripciones.get(entidad);
+            if (lista != null) {
+                lista.remove(this);
+            }
+            vaciar();
+        }
+
+        public boolean isAsincrona() {
+            return capacidad > 0;
+        }
+
+        // Eventos en cola sin entregar
+        public int getPendientes() {
+            return pendientes.get();
+        }
+
+        // Eventos descartados por desbordamiento desde la suscripción
+        public long getDescartados() {
+            return descartados.sum();
+        }
+
+        private void recibir(EventoCambio<T> evento) {
+            if (!activa) {
+                return;
+            }
+            if (!isAsincrona()) {
+                entregar(evento);
+                return;
+            }
+
+            if (!reservar()) {
+                long limite = System.nanoTime() + bus.esperaMaximaNanos;
+                do {
+                    programar();
+                    LockSupport.parkNanos(50_000L);
+                    if (System.nanoTime() - limite > 0) {
+                        // El vaciado descuenta los pendientes descartados; este evento también se pierde
+                        descartados.increment();
+                        desbordada.set(true);
+                        programar();
+                        return;
+                    }
+                } while (!reservar());
+            }
+            cola.offer(evento);
+            programar();
+        }
+
+        private boolean reservar() {
+            int actual;
+            do {
+                actual = pendientes.get();
+                if (actual >= capacidad) {
+                    return false;
+                }
+            } while (!pendientes.compareAndSet(actual, actual + 1));
+            return true;
+        }
+
+        private void programar() {
+            if (programada.compareAndSet(false, true)) {
+                bus.hilos.execute(this::entregarPendientes);
+            }
+        }
+
+        private void entregarPendientes() {
+            try {
+                for (int i = 0; i < LOTE_ENTREGA && activa; i++) {
+                    if (desbordada.getAndSet(false)) {
+                        descartados.add(vaciar());
+                        avisarPerdida();
+                        continue;
+                    }
+                    EventoCambio<T> evento = cola.poll();
+                    if (evento == null) {
+                        break;
+                    }
+                    pendientes.decrementAndGet();
+                    entregar(evento);
+                }
+            } finally {
+                programada.set(false);
+                // Lo que llegó mientras se entregaba (o el resto del lote) se atiende en otra vuelta
+                if (activa && (!cola.isEmpty() || desbordada.get())) {
+                    programar();
+                }
+            }
+        }
+
+        private int vaciar() {
+            int vaciados = 0;
+            while (cola.poll() != null) {
+                pendientes.decrementAndGet();
+                vaciados++;
+            }
+            return vaciados;
+        }
+
+        private void entregar(EventoCambio<T> evento) {
+            try {
+                oyente.alCambiar(evento);
+            } catch (RuntimeException e) {
+                System.err.println("Error en un suscriptor de " + entidad.getSimpleName() + ": " + e.getMessage());
+            }
+        }
+
+        private void avisarPerdida() {
+            System.err.println("⚠ Suscriptor de " + entidad.getSimpleName() + " desbordado: se descartaron eventos");
+            try {
+                oyente.alPerderEventos();
+            } catch (RuntimeException e) {
+                System.err.println("Error en un suscriptor de " + entidad.getSimpleName() + ": " + e.getMessage());
+            }
+        }
+    }
+}
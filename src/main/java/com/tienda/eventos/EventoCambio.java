@@ -0,0 +1,62 @@
+package com.tienda.eventos;
+
+// Cambio confirmado de una fila de productos, categorías o proveedores, con la fila
+// antes y después de escribirla. antes es null en un alta y despues en un borrado físico.
+// Las instantáneas se comparten entre todos los suscriptores: no se deben modificar
+public final class EventoCambio<T> {
+    public enum Tipo {CREADO, ACTUALIZADO, ELIMINADO}
+
+    private final long secuencia;
+    private final Class<T> entidad;
+    private final Tipo tipo;
+    private final int id;
+    private final T antes;
+    private final T despues;
+    private final long instante;
+
+    EventoCambio(long secuencia, Class<T> entidad, Tipo tipo, int id, T antes, T despues) {
+        this.secuencia = secuencia;
+        this.entidad = entidad;
+        this.tipo = tipo;
+        this.id = id;
+        this.antes = antes;
+        this.despues = despues;
+        this.instante = System.currentTimeMillis();
+    }
+
+    // Orden de publicación, creciente en todo el bus
+    public long getSecuencia() {
+        return secuencia;
+    }
+
+    public Class<T> getEntidad() {
+        return entidad;
+    }
+
+    public Tipo getTipo() {
+        return tipo;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public T getAntes() {
+        return antes;
+    }
+
+    public T getDespues() {
+        return despues;
+    }
+
+    // System.currentTimeMillis() al publicarse
+    public long getInstante() {
+        return instante;
+    }
+
+    @Override
+    public String toString() {
+        return "EventoCambio{" + entidad.getSimpleName() + " " + tipo + " id=" + id +
+                ", secuencia=" + secuencia + '}';
+    }
+}
@@ -0,0 +1,14 @@
+package com.tienda.eventos;
+
+// Recibe los cambios de una entidad. Un suscriptor síncrono se llama en el hilo que escribió,
+// justo después del commit; uno asíncrono, desde un hilo del bus y nunca desde el EDT
+@FunctionalInterface
+public interface OyenteCambios<T> {
+    void alCambiar(EventoCambio<T> evento);
+
+    // Solo suscriptores asíncronos: su cola se llenó y se descartaron eventos pendientes.
+    // Lo derivado de ellos ya no es fiable y hay que recargarlo entero; los eventos
+    // publicados después llegan con normalidad
+    default void alPerderEventos() {
+    }
+}
@@ -0,0 +1,108 @@
+package com.tienda.metricas;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Histograma de latencias en nanosegundos con cubetas log-lineales: cada potencia de 2
+// se divide en 8 cubetas iguales, así un percentil se informa con un error menor del 12,5 %.
+// registrar() no toma candados ni reserva memoria: se puede llamar en el camino crítico.
+public class HistogramaLatencia {
+    private static final int SUBCUBETAS_BITS = 3;
+    private static final int SUBCUBETAS = 1 << SUBCUBETAS_BITS;
+    // Valores menores que SUBCUBETAS van cada uno a su cubeta
+    private static final int CUBETAS = (64 - SUBCUBETAS_BITS + 1) * SUBCUBETAS;
+
+    private final AtomicLongArray cuentas = new AtomicLongArray(CUBETAS);
+    private final LongAdder total = new LongAdder();
+    private final LongAdder sumaNanos = new LongAdder();
+    private final LongAccumulator maximoNanos = new LongAccumulator(Math::max, 0);
+
+    public void registrar(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        cuentas.incrementAndGet(cubeta(nanos));
+        total.increment();
+        sumaNanos.add(nanos);
+        maximoNanos.accumulate(nanos);
+    }
+
+    private static int cubeta(long valor) {
+        if (valor < SUBCUBETAS) {
+            return (int) valor;
+        }
+        int exponente = 63 - Long.numberOfLeadingZeros(valor);           // >= SUBCUBETAS_BITS
+        int sub = (int) (valor >>> (exponente - SUBCUBETAS_BITS)) & (SUBCUBETAS - 1);
+        return (exponente - SUBCUBETAS_BITS + 1) * SUBCUBETAS + sub;
+    }
+
+    // Límite superior de los valores de una cubeta
+    private static long limiteSuperior(int cubeta) {
+        if (cubeta < SUBCUBETAS) {
+            return cubeta;
+        }
+        int exponente = cubeta / SUBCUBETAS + SUBCUBETAS_BITS - 1;
+        int sub = cubeta % SUBCUBETAS;
+        long base = 1L << exponente;
+        long ancho = 1L << (exponente - SUBCUBETAS_BITS);
+        return base + (sub + 1) * ancho - 1;
+    }
+
+    // Latencia por debajo de la cual queda la fracción 'percentil' (0-100) de las mediciones
+    public long getPercentilNanos(double percentil) {
+        long n = total.sum();
+        if (n == 0) {
+            return 0;
+        }
+        long objetivo = Math.max(1, (long) Math.ceil(n * percentil / 100.0));
+        long acumulado = 0;
+        for (int i = 0; i < CUBETAS; i++) {
+            acumulado += cuentas.get(i);
+            if (acumulado >= objetivo) {
+                return Math.min(limiteSuperior(i), getMaximoNanos());
+            }
+        }
+        return getMaximoNanos();
+    }
+
+    public long getTotal() {
+        return total.sum();
+    }
+
+    public long getMaximoNanos() {
+        return maximoNanos.get();
+    }
+
+    public long getMediaNanos() {
+        long n = total.sum();
+        return n == 0 ? 0 : sumaNanos.sum() / n;
+    }
+
+    public void reiniciar() {
+        for (int i = 0; i < CUBETAS; i++) {
+            cuentas.set(i, 0);
+        }
+        total.reset();
+        sumaNanos.reset();
+        maximoNanos.reset();
+    }
+
+    // "p50=12µs p99=85µs máx=1,2ms (n=5300)"
+    @Override
+    public String toString() {
+        return "p50=" + formatear(getPercentilNanos(50)) + " p99=" + formatear(getPercentilNanos(99)) +
+                " máx=" + formatear(getMaximoNanos()) + " (n=" + getTotal() + ")";
+    }
+
+    public static String formatear(long nanos) {
+        if (nanos < TimeUnit.MICROSECONDS.toNanos(1)) {
+            return nanos + "ns";
+        }
+        if (nanos < TimeUnit.MILLISECONDS.toNanos(1)) {
+            return String.format("%.1fµs", nanos / 1_000.0);
+        }
+        return String.format("%.1fms", nanos / 1_000_000.0);
+    }
+}
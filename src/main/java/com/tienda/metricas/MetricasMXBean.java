@@ -0,0 +1,27 @@
+package com.tienda.metricas;
+
+import java.util.List;
+
+// Vista JMX de RegistroMetricas (com.tienda.inventario:type=Metricas en JConsole/VisualVM)
+public interface MetricasMXBean {
+
+    // Por método de DAO
+    List<ResumenOperacion> getOperaciones();
+
+    // Préstamo de conexiones, por pool
+    List<ResumenOperacion> getConexiones();
+
+    long getConsultasLentas();
+
+    // Las últimas consultas lentas, con su SQL y parámetros
+    List<String> getUltimasConsultasLentas();
+
+    long getUmbralLentaMs();
+
+    void setUmbralLentaMs(long umbralMs);
+
+    // Informe de texto, el mismo del volcado periódico
+    String getInstantanea();
+
+    void reiniciar();
+}
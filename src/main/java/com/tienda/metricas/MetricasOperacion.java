@@ -0,0 +1,70 @@
+package com.tienda.metricas;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Contadores de una operación (un método de DAO o el préstamo de conexiones de un pool).
+// Sin candados: se actualiza desde todos los hilos que acceden a la base
+public class MetricasOperacion {
+    private final String nombre;
+    private final LongAdder llamadas = new LongAdder();
+    private final LongAdder errores = new LongAdder();
+    private final LongAdder filas = new LongAdder();
+    private final HistogramaLatencia latencia = new HistogramaLatencia();
+
+    MetricasOperacion(String nombre) {
+        this.nombre = nombre;
+    }
+
+    public void registrar(long nanos, boolean error) {
+        llamadas.increment();
+        if (error) {
+            errores.increment();
+        }
+        latencia.registrar(nanos);
+    }
+
+    // Filas devueltas por una consulta o afectadas por una escritura
+    public void sumarFilas(long n) {
+        filas.add(n);
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public long getLlamadas() {
+        return llamadas.sum();
+    }
+
+    public long getErrores() {
+        return errores.sum();
+    }
+
+    public long getFilas() {
+        return filas.sum();
+    }
+
+    public HistogramaLatencia getLatencia() {
+        return latencia;
+    }
+
+    void reiniciar() {
+        llamadas.reset();
+        errores.reset();
+        filas.reset();
+        latencia.reiniciar();
+    }
+
+    // Copia de los valores actuales, para JMX
+    public ResumenOperacion resumir() {
+        return new ResumenOperacion(nombre, getLlamadas(), getErrores(), getFilas(),
+                latencia.getPercentilNanos(50), latencia.getPercentilNanos(99),
+                latencia.getPercentilNanos(99.9), latencia.getMaximoNanos(), latencia.getMediaNanos());
+    }
+
+    @Override
+    public String toString() {
+        return nombre + ": llamadas=" + getLlamadas() + ", errores=" + getErrores() +
+                ", filas=" + getFilas() + ", " + latencia;
+    }
+}
@@ -0,0 +1,189 @@
+package com.tienda.metricas;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Métricas del acceso a la base: por método de DAO (llamadas, errores, filas, latencia) y por
+// pool (espera para obtener conexión). Las mide la capa de conexiones (PoolConexiones), así los
+// DAO no cambian. Las consultas más lentas que el umbral se escriben en System.err con su SQL
+// y sus parámetros.
+// Configuración: -Dinventario.metricas=false las desactiva, inventario.metricas.lentaMs fija el
+// umbral (200 ms; 0 = ninguna), inventario.metricas.volcadoSeg > 0 imprime un informe periódico
+// e inventario.metricas.alCerrar=true uno al cerrar las conexiones, con el estado de los pools.
+// Se publican por JMX como com.tienda.inventario:type=Metricas
+public class RegistroMetricas implements MetricasMXBean {
+    private static final RegistroMetricas INSTANCIA = new RegistroMetricas();
+
+    private static final int MAXIMO_LENTAS_GUARDADAS = 50;
+
+    private final boolean habilitado = !"false".equalsIgnoreCase(System.getProperty("inventario.metricas"));
+    private volatile long umbralLentaNanos = Long.getLong("inventario.metricas.lentaMs", 200L) * 1_000_000L;
+    private final boolean informeAlCerrar = Boolean.getBoolean("inventario.metricas.alCerrar");
+
+    private final Map<String, MetricasOperacion> operaciones = new ConcurrentHashMap<>();
+    private final Map<String, MetricasOperacion> conexiones = new ConcurrentHashMap<>();
+    private final LongAdder consultasLentas = new LongAdder();
+    // Las más recientes al final
+    private final ArrayDeque<String> ultimasLentas = new ArrayDeque<>();
+
+    private RegistroMetricas() {
+        if (!habilitado) {
+            return;
+        }
+        registrarJmx();
+        long volcadoSeg = Long.getLong("inventario.metricas.volcadoSeg", 0L);
+        if (volcadoSeg > 0) {
+            ScheduledExecutorService volcado = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread hilo = new Thread(r, "metricas-volcado");
+                hilo.setDaemon(true);
+                return hilo;
+            });
+            volcado.scheduleAtFixedRate(() -> System.out.println(getInstantanea()),
+                    volcadoSeg, volcadoSeg, TimeUnit.SECONDS);
+        }
+    }
+
+    public static RegistroMetricas getInstancia() {
+        return INSTANCIA;
+    }
+
+    private void registrarJmx() {
+        try {
+            MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+            ObjectName nombre = new ObjectName("com.tienda.inventario:type=Metricas");
+            if (!servidor.isRegistered(nombre)) {
+                servidor.registerMBean(this, nombre);
+            }
+        } catch (JMException | RuntimeException e) {
+            System.err.println("⚠ No se pudieron publicar las métricas por JMX: " + e.getMessage());
+        }
+    }
+
+    public boolean isHabilitado() {
+        return habilitado;
+    }
+
+    // Métricas de una operación, p. ej. "ProductoDAO.buscarPorNombre"
+    public MetricasOperacion operacion(String nombre) {
+        return operaciones.computeIfAbsent(nombre, MetricasOperacion::new);
+    }
+
+    // Tiempo hasta obtener una conexión del pool (error = no se obtuvo)
+    public void registrarConexion(String pool, long nanos, boolean error) {
+        if (habilitado) {
+            conexiones.computeIfAbsent(pool, MetricasOperacion::new).registrar(nanos, error);
+        }
+    }
+
+    public boolean esLenta(long nanos) {
+        long umbral = umbralLentaNanos;
+        return umbral > 0 && nanos >= umbral;
+    }
+
+    public void registrarConsultaLenta(String operacion, String sql, String parametros, long nanos) {
+        consultasLentas.increment();
+        String texto = "⚠ Consulta lenta (" + HistogramaLatencia.formatear(nanos) + ") en " + operacion +
+                "\n  SQL: " + compactar(sql) +
+                (parametros.isEmpty() ? "" : "\n  Parámetros: " + parametros);
+        System.err.println(texto);
+        synchronized (ultimasLentas) {
+            ultimasLentas.addLast(texto);
+            if (ultimasLentas.size() > MAXIMO_LENTAS_GUARDADAS) {
+                ultimasLentas.removeFirst();
+            }
+        }
+    }
+
+    // SQL en una línea (los text blocks de los DAO traen saltos y sangría)
+    private static String compactar(String sql) {
+        return sql == null ? "?" : sql.replaceAll("\\s+", " ").trim();
+    }
+
+    @Override
+    public List<ResumenOperacion> getOperaciones() {
+        return resumir(operaciones);
+    }
+
+    @Override
+    public List<ResumenOperacion> getConexiones() {
+        return resumir(conexiones);
+    }
+
+    private static List<ResumenOperacion> resumir(Map<String, MetricasOperacion> mapa) {
+        List<ResumenOperacion> resumen = new ArrayList<>(mapa.size());
+        for (MetricasOperacion metricas : mapa.values()) {
+            resumen.add(metricas.resumir());
+        }
+        resumen.sort(Comparator.comparing(ResumenOperacion::getNombre));
+        return resumen;
+    }
+
+    @Override
+    public long getConsultasLentas() {
+        return consultasLentas.sum();
+    }
+
+    @Override
+    public List<String> getUltimasConsultasLentas() {
+        synchronized (ultimasLentas) {
+            return new ArrayList<>(ultimasLentas);
+        }
+    }
+
+    @Override
+    public long getUmbralLentaMs() {
+        return umbralLentaNanos / 1_000_000L;
+    }
+
+    @Override
+    public void setUmbralLentaMs(long umbralMs) {
+        umbralLentaNanos = Math.max(0, umbralMs) * 1_000_000L;
+    }
+
+    @Override
+    public void reiniciar() {
+        operaciones.values().forEach(MetricasOperacion::reiniciar);
+        conexiones.values().forEach(MetricasOperacion::reiniciar);
+        consultasLentas.reset();
+        synchronized (ultimasLentas) {
+            ultimasLentas.clear();
+        }
+    }
+
+    // Una línea por operación y por pool, de más a menos tiempo total
+    @Override
+    public String getInstantanea() {
+        StringBuilder texto = new StringBuilder("Métricas de acceso a datos (consultas lentas: ")
+                .append(getConsultasLentas()).append(")");
+        List<MetricasOperacion> lista = new ArrayList<>(operaciones.values());
+        lista.sort(Comparator.comparingLong(
+                (MetricasOperacion m) -> m.getLatencia().getMediaNanos() * m.getLlamadas()).reversed());
+        for (MetricasOperacion metricas : lista) {
+            texto.append("\n  ").append(metricas);
+        }
+        for (MetricasOperacion metricas : conexiones.values()) {
+            texto.append("\n  conexión ").append(metricas);
+        }
+        return texto.toString();
+    }
+
+    public boolean isInformeAlCerrar() {
+        return habilitado && informeAlCerrar;
+    }
+
+    public boolean isVacio() {
+        return operaciones.isEmpty() && conexiones.isEmpty();
+    }
+}
@@ -0,0 +1,63 @@
+package com.tienda.metricas;
+
+// Valores de una MetricasOperacion en un instante. Solo getters: JMX lo expone como CompositeData
+public class ResumenOperacion {
+    private final String nombre;
+    private final long llamadas;
+    private final long errores;
+    private final long filas;
+    private final long p50Nanos;
+    private final long p99Nanos;
+    private final long p999Nanos;
+    private final long maximoNanos;
+    private final long mediaNanos;
+
+    ResumenOperacion(String nombre, long llamadas, long errores, long filas, long p50Nanos,
+                     long p99Nanos, long p999Nanos, long maximoNanos, long mediaNanos) {
+        this.nombre = nombre;
+        this.llamadas = llamadas;
+        this.errores = errores;
+        this.filas = filas;
+        this.p50Nanos = p50Nanos;
+        this.p99Nanos = p99Nanos;
+        this.p999Nanos = p999Nanos;
+        this.maximoNanos = maximoNanos;
+        this.mediaNanos = mediaNanos;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public long getLlamadas() {
+        return llamadas;
+    }
+
+    public long getErrores() {
+        return errores;
+    }
+
+    public long getFilas() {
+        return filas;
+    }
+
+    public long getP50Nanos() {
+        return p50Nanos;
+    }
+
+    public long getP99Nanos() {
+        return p99Nanos;
+    }
+
+    public long getP999Nanos() {
+        return p999Nanos;
+    }
+
+    public long getMaximoNanos() {
+        return maximoNanos;
+    }
+
+    public long getMediaNanos() {
+        return mediaNanos;
+    }
+}
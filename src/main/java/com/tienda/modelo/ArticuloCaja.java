@@ -0,0 +1,46 @@
+package com.tienda.modelo;
+
+// Lo que necesita la caja de un producto al escanearlo: sin descripción, fechas
+// ni nombres de categoría y proveedor. Inmutable
+public final class ArticuloCaja {
+    private final int idProducto;
+    private final String codigoBarras;
+    private final String nombreProducto;
+    private final double precioUnitario;
+    private final int stockActual;
+
+    public ArticuloCaja(int idProducto, String codigoBarras, String nombreProducto,
+                        double precioUnitario, int stockActual) {
+        this.idProducto = idProducto;
+        this.codigoBarras = codigoBarras;
+        this.nombreProducto = nombreProducto;
+        this.precioUnitario = precioUnitario;
+        this.stockActual = stockActual;
+    }
+
+    public int getIdProducto() {
+        return idProducto;
+    }
+
+    public String getCodigoBarras() {
+        return codigoBarras;
+    }
+
+    public String getNombreProducto() {
+        return nombreProducto;
+    }
+
+    public double getPrecioUnitario() {
+        return precioUnitario;
+    }
+
+    public int getStockActual() {
+        return stockActual;
+    }
+
+    @Override
+    public String toString() {
+        return "ArticuloCaja{" + codigoBarras + " → " + idProducto + " " + nombreProducto +
+                ", $" + precioUnitario + ", stock=" + stockActual + '}';
+    }
+}
@@ -0,0 +1,38 @@
+package com.tienda.modelo;
+
+// Entrada (+) o salida (-) de unidades de un producto: una venta, una compra, una devolución...
+public class MovimientoStock {
+    private int idProducto;
+    private int cantidad;
+
+    // Constructor vacío
+    public MovimientoStock() {
+    }
+
+    public MovimientoStock(int idProducto, int cantidad) {
+        this.idProducto = idProducto;
+        this.cantidad = cantidad;
+    }
+
+    // Getters y Setters
+    public int getIdProducto() {
+        return idProducto;
+    }
+
+    public void setIdProducto(int idProducto) {
+        this.idProducto = idProducto;
+    }
+
+    public int getCantidad() {
+        return cantidad;
+    }
+
+    public void setCantidad(int cantidad) {
+        this.cantidad = cantidad;
+    }
+
+    @Override
+    public String toString() {
+        return "MovimientoStock{idProducto=" + idProducto + ", cantidad=" + cantidad + '}';
+    }
+}
@@ -14,6 +14,8 @@ public class Producto {
     private String codigoBarras;
     private Timestamp fechaRegistro;
     private Timestamp ultimaActualizacion;
+    // Columna version: sube en 1 con cada escritura (control optimista). 0 = no se leyó de la base
+    private int version;
     private boolean activo;
 
     // Para mostrar en la interfaz (no están en la BD)
@@ -56,6 +58,25 @@ public class Producto {
         this.activo = true;
     }
 
+    // Constructor copia (los cachés entregan copias para no compartir instancias mutables)
+    public Producto(Producto otro) {
+        this.idProducto = otro.idProducto;
+        this.nombreProducto = otro.nombreProducto;
+        this.descripcion = otro.descripcion;
+        this.precioUnitario = otro.precioUnitario;
+        this.stockActual = otro.stockActual;
+        this.stockMinimo = otro.stockMinimo;
+        this.idCategoria = otro.idCategoria;
+        this.idProveedor = otro.idProveedor;
+        this.codigoBarras = otro.codigoBarras;
+        this.fechaRegistro = otro.fechaRegistro;
+        this.ultimaActualizacion = otro.ultimaActualizacion;
+        this.version = otro.version;
+        this.activo = otro.activo;
+        this.nombreCategoria = otro.nombreCategoria;
+        this.nombreProveedor = otro.nombreProveedor;
+    }
+
     // Getters y Setters
     public int getIdProducto() {
         return idProducto;
@@ -145,6 +166,14 @@ public class Producto {
         this.ultimaActualizacion = ultimaActualizacion;
     }
 
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
     public boolean isActivo() {
         return activo;
     }
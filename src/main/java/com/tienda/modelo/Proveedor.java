@@ -39,6 +39,18 @@ public class Proveedor {
         this.pais = pais;
     }
 
+    // Constructor copia
+    public Proveedor(Proveedor otro) {
+        this.idProveedor = otro.idProveedor;
+        this.nombreProveedor = otro.nombreProveedor;
+        this.telefono = otro.telefono;
+        this.email = otro.email;
+        this.direccion = otro.direccion;
+        this.ciudad = otro.ciudad;
+        this.pais = otro.pais;
+        this.fechaRegistro = otro.fechaRegistro;
+    }
+
     // Getters y Setters
     public int getIdProveedor() {
         return idProveedor;
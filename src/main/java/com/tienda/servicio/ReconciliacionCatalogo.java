@@ -0,0 +1,51 @@
+package com.tienda.servicio;
+
+import com.tienda.modelo.Producto;
+
+import java.util.List;
+
+// Diferencias entre la instantánea del catálogo con la que arrancó la interfaz y la base.
+// completa = no se pudo calcular (copia sin marca de agua o consulta fallida): hay que recargar todo
+public class ReconciliacionCatalogo {
+    private final boolean completa;
+    private final List<Producto> actuales;
+    private final boolean categoriasCambiadas;
+    private final boolean proveedoresCambiados;
+
+    ReconciliacionCatalogo(boolean completa, List<Producto> actuales,
+                           boolean categoriasCambiadas, boolean proveedoresCambiados) {
+        this.completa = completa;
+        this.actuales = actuales;
+        this.categoriasCambiadas = categoriasCambiadas;
+        this.proveedoresCambiados = proveedoresCambiados;
+    }
+
+    static ReconciliacionCatalogo recargaCompleta() {
+        return new ReconciliacionCatalogo(true, List.of(), true, true);
+    }
+
+    public boolean isCompleta() {
+        return completa;
+    }
+
+    // Productos que cambiaron después de la copia, como están ahora en la base (activos o no)
+    public List<Producto> getActuales() {
+        return actuales;
+    }
+
+    public boolean isCategoriasCambiadas() {
+        return categoriasCambiadas;
+    }
+
+    public boolean isProveedoresCambiados() {
+        return proveedoresCambiados;
+    }
+
+    @Override
+    public String toString() {
+        return completa ? "ReconciliacionCatalogo{recarga completa}"
+                : "ReconciliacionCatalogo{" + actuales.size() + " productos, categorías " +
+                (categoriasCambiadas ? "cambiadas" : "iguales") + ", proveedores " +
+                (proveedoresCambiados ? "cambiados" : "iguales") + '}';
+    }
+}
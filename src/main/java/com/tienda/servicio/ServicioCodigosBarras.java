@@ -0,0 +1,90 @@
+package com.tienda.servicio;
+
+import com.tienda.busqueda.IndiceCodigosBarras;
+import com.tienda.dao.ProductoDAO;
+import com.tienda.metricas.HistogramaLatencia;
+import com.tienda.modelo.ArticuloCaja;
+import com.tienda.modelo.Producto;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Escaneo en caja: responde desde IndiceCodigosBarras sin ir a la base y, si el código no
+// está (índice aún cargando o producto recién creado por otro proceso), consulta el DAO y
+// guarda el resultado. Síncrono: está pensado para llamarse desde el hilo del lector.
+public class ServicioCodigosBarras {
+    private final ProductoDAO productoDAO;
+    private final IndiceCodigosBarras indice = IndiceCodigosBarras.getInstancia();
+
+    private final LongAdder aciertos = new LongAdder();
+    private final LongAdder fallos = new LongAdder();
+    // Todas las búsquedas, y aparte solo las que acabaron en la base
+    private final HistogramaLatencia latencia = new HistogramaLatencia();
+    private final HistogramaLatencia latenciaBase = new HistogramaLatencia();
+
+    public ServicioCodigosBarras(ProductoDAO productoDAO) {
+        this.productoDAO = productoDAO;
+    }
+
+    // Cargar el índice con todos los códigos (al arrancar, en segundo plano)
+    public void calentar() {
+        long inicio = System.nanoTime();
+        indice.cargar(productoDAO::obtenerArticulosCaja);
+        System.out.println("✓ Índice de códigos de barras: " + indice.getTamano() + " códigos en " +
+                HistogramaLatencia.formatear(System.nanoTime() - inicio));
+    }
+
+    // Artículo del código, o null si no hay un producto activo con él
+    public ArticuloCaja escanear(String codigoBarras) {
+        if (codigoBarras == null) {
+            return null;
+        }
+        String codigo = codigoBarras.trim();
+        if (codigo.isEmpty()) {
+            return null;
+        }
+
+        long inicio = System.nanoTime();
+        ArticuloCaja articulo = indice.buscar(codigo);
+        if (articulo != null) {
+            aciertos.increment();
+            latencia.registrar(System.nanoTime() - inicio);
+            return articulo;
+        }
+
+        fallos.increment();
+        long modificaciones = indice.getModificaciones();
+        Producto producto = productoDAO.buscarPorCodigoBarras(codigo);
+        if (producto != null) {
+            articulo = new ArticuloCaja(producto.getIdProducto(), producto.getCodigoBarras(),
+                    producto.getNombreProducto(), producto.getPrecioUnitario(), producto.getStockActual());
+            indice.guardar(articulo, modificaciones);
+        }
+        long nanos = System.nanoTime() - inicio;
+        latencia.registrar(nanos);
+        latenciaBase.registrar(nanos);
+        return articulo;
+    }
+
+    public long getAciertos() {
+        return aciertos.sum();
+    }
+
+    public long getFallos() {
+        return fallos.sum();
+    }
+
+    public HistogramaLatencia getLatencia() {
+        return latencia;
+    }
+
+    public HistogramaLatencia getLatenciaBase() {
+        return latenciaBase;
+    }
+
+    @Override
+    public String toString() {
+        return "Escaneos{aciertos=" + getAciertos() + ", fallos=" + getFallos() +
+                ", códigos=" + indice.getTamano() + ", latencia " + latencia +
+                ", en base " + latenciaBase + '}';
+    }
+}
@@ -0,0 +1,451 @@
+package com.tienda.servicio;
+
+import com.tienda.analitica.AnaliticaInventario;
+import com.tienda.analitica.CandidatoRotacion;
+import com.tienda.analitica.ValorPorGrupo;
+import com.tienda.cache.AgregadosInventario;
+import com.tienda.cache.CacheDimensiones;
+import com.tienda.cache.CatalogoColumnar;
+import com.tienda.cache.InstantaneaCatalogo;
+import com.tienda.dao.CategoriaDAO;
+import com.tienda.dao.CursorProducto;
+import com.tienda.dao.ExportadorInventario;
+import com.tienda.dao.ProductoDAO;
+import com.tienda.dao.ProveedorDAO;
+import com.tienda.dao.ResultadoMovimiento;
+import com.tienda.dao.SincronizacionProductos;
+import com.tienda.dao.StockDiferido;
+import com.tienda.eventos.BusEventos;
+import com.tienda.modelo.ArticuloCaja;
+import com.tienda.modelo.Categoria;
+import com.tienda.modelo.MovimientoStock;
+import com.tienda.modelo.Producto;
+import com.tienda.modelo.Proveedor;
+
+import javax.swing.*;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+// Capa asíncrona sobre los DAO para no bloquear el hilo de eventos de Swing.
+// Cada operación devuelve un CompletableFuture; enEDT() entrega el resultado en el EDT.
+public class ServicioInventario {
+    private final ProductoDAO productoDAO;
+    private final CategoriaDAO categoriaDAO;
+    private final ProveedorDAO proveedorDAO;
+    private final ExecutorService ejecutor;
+    private final ServicioCodigosBarras codigosBarras;
+    private final AnaliticaInventario analitica;
+    private final ExportadorInventario exportador = new ExportadorInventario();
+
+    // Copia del catálogo en disco para mostrar datos al arrancar (-Dinventario.instantanea=true).
+    // Hasta que reconciliarInstantanea() termina, categorías, proveedores y el listado salen de ella
+    private final boolean conInstantanea = Boolean.getBoolean("inventario.instantanea");
+    private final Path archivoInstantanea = Path.of(System.getProperty("inventario.instantanea.archivo",
+            "inventario.instantanea"));
+    private volatile InstantaneaCatalogo instantanea;
+    // Secuencia de BusEventos al guardar la última copia; al cerrar solo se guarda si hubo cambios
+    private volatile long secuenciaInstantanea = -1;
+    private static final long MARGEN_MARCA_AGUA_MS = 10_000;
+
+    // Última solicitud de cada canal ("seleccion", "busqueda", ...)
+    private final ConcurrentHashMap<String, CompletableFuture<?>> ultimas = new ConcurrentHashMap<>();
+
+    // Hace E/S al arrancar (diario de stock, base, instantánea): no se crea en el EDT
+    public ServicioInventario(ProductoDAO productoDAO, CategoriaDAO categoriaDAO, ProveedorDAO proveedorDAO) {
+        this.productoDAO = productoDAO;
+        this.categoriaDAO = categoriaDAO;
+        this.proveedorDAO = proveedorDAO;
+        this.ejecutor = crearEjecutor();
+        this.codigosBarras = new ServicioCodigosBarras(productoDAO);
+        this.analitica = new AnaliticaInventario(productoDAO, categoriaDAO, proveedorDAO);
+        // Antes de la primera lectura: aplica lo que quedó en el diario de la ejecución anterior
+        if (StockDiferido.getInstancia().isHabilitado()) {
+            StockDiferido.getInstancia().iniciar();
+        }
+        // Antes de las cargas iniciales: lo que escriban otras instancias mientras tanto llega como evento
+        if (SincronizacionProductos.getInstancia().isHabilitado()) {
+            SincronizacionProductos.getInstancia().iniciar();
+        }
+        if (conInstantanea) {
+            instantanea = InstantaneaCatalogo.abrir(archivoInstantanea);
+        }
+        // Nombres de categorías y proveedores en memoria antes de las consultas de productos,
+        // y el primer escaneo ya no va a la base
+        ejecutar(() -> {
+            CacheDimensiones.getInstancia().cargar();
+            codigosBarras.calentar();
+            return null;
+        });
+        if (CatalogoColumnar.getInstancia().isHabilitado()) {
+            ejecutar(productoDAO::cargarCatalogoColumnar);
+        }
+    }
+
+    // Hilos virtuales si la JVM los tiene (Java 21+); si no, un pool acotado de hilos daemon.
+    // El proyecto compila para Java 17, por eso se obtienen por reflexión
+    private static ExecutorService crearEjecutor() {
+        try {
+            return (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor")
+                    .invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger contador = new AtomicInteger();
+            // Más hilos que conexiones no aporta nada: el resto esperaría en el pool
+            int hilos = Integer.getInteger("inventario.async.hilos", 8);
+            return Executors.newFixedThreadPool(hilos, r -> {
+                Thread hilo = new Thread(r, "inventario-async-" + contador.incrementAndGet());
+                hilo.setDaemon(true);
+                return hilo;
+            });
+        }
+    }
+
+    // Ejecutar una tarea en segundo plano. Si se cancela antes de empezar, no llega a ejecutarse
+    public <T> CompletableFuture<T> ejecutar(Supplier<T> tarea) {
+        CompletableFuture<T> futuro = new CompletableFuture<>();
+        ejecutor.execute(() -> {
+            if (futuro.isDone()) {
+                return;
+            }
+            try {
+                futuro.complete(tarea.get());
+            } catch (Throwable t) {
+                futuro.completeExceptionally(t);
+            }
+        });
+        return futuro;
+    }
+
+    // Registrar una solicitud como la última de su canal, cancelando la anterior.
+    // Útil para cambios rápidos de selección o búsquedas repetidas
+    public <T> CompletableFuture<T> reemplazar(String canal, CompletableFuture<T> solicitud) {
+        CompletableFuture<?> anterior = ultimas.put(canal, solicitud);
+        if (anterior != null && anterior != solicitud) {
+            anterior.cancel(false);
+        }
+        solicitud.whenComplete((r, e) -> ultimas.remove(canal, solicitud));
+        return solicitud;
+    }
+
+    // Entregar el resultado en el EDT. Las solicitudes canceladas se descartan en silencio
+    public static <T> void enEDT(CompletableFuture<T> futuro, Consumer<T> alCompletar, Consumer<Throwable> alFallar) {
+        futuro.whenComplete((resultado, error) -> SwingUtilities.invokeLater(() -> {
+            if (futuro.isCancelled()) {
+                return;
+            }
+            if (error == null) {
+                alCompletar.accept(resultado);
+                return;
+            }
+            Throwable causa = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error;
+            if (!(causa instanceof CancellationException)) {
+                alFallar.accept(causa);
+            }
+        }));
+    }
+
+    public void cerrar() {
+        ejecutor.shutdownNow();
+        SincronizacionProductos.getInstancia().detener();
+        if (conInstantanea && instantanea == null &&
+                BusEventos.getInstancia().getUltimaSecuencia() != secuenciaInstantanea) {
+            guardarInstantanea();
+        }
+        if (codigosBarras.getAciertos() + codigosBarras.getFallos() > 0) {
+            System.out.println(codigosBarras);
+        }
+    }
+
+    // Instantánea del catálogo
+    // Compara la copia con la que arrancó la interfaz con la base (solo los productos con
+    // ultima_actualizacion >= su marca de agua) y a partir de ahí todo se lee de la base.
+    // Después guarda una copia nueva. null si no se arrancó con una copia
+    public CompletableFuture<ReconciliacionCatalogo> reconciliarInstantanea() {
+        if (!conInstantanea) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<ReconciliacionCatalogo> reconciliacion = ejecutar(this::reconciliar);
+        reconciliacion.whenComplete((r, e) -> ejecutar(this::guardarInstantanea));
+        return reconciliacion;
+    }
+
+    private ReconciliacionCatalogo reconciliar() {
+        InstantaneaCatalogo copia = instantanea;
+        if (copia == null) {
+            return null;
+        }
+        try {
+            List<Producto> modificados = copia.getMarcaAgua() != null
+                    ? productoDAO.obtenerModificadosDesde(copia.getMarcaAgua()) : null;
+            if (modificados == null) {
+                return ReconciliacionCatalogo.recargaCompleta();
+            }
+
+            List<Producto> actuales = new ArrayList<>();
+            for (Producto actual : modificados) {
+                Producto anterior = copia.obtener(actual.getIdProducto());
+                if (anterior == null ? actual.isActivo() : !igualVersion(anterior, actual)) {
+                    actuales.add(actual);
+                }
+            }
+            boolean categoriasCambiadas = !mismasCategorias(copia.getCategorias(), categoriaDAO.obtenerTodas());
+            boolean proveedoresCambiados = !mismosProveedores(copia.getProveedores(), proveedorDAO.obtenerTodos());
+            ReconciliacionCatalogo reconciliacion = new ReconciliacionCatalogo(false, actuales,
+                    categoriasCambiadas, proveedoresCambiados);
+            System.out.println("✓ Instantánea del catálogo (generación " + copia.getGeneracion() + ") reconciliada: " +
+                    reconciliacion);
+            return reconciliacion;
+        } finally {
+            instantanea = null;
+        }
+    }
+
+    // El stock puede cambiar sin nueva versión (movimientos aún sin volcar de StockDiferido)
+    private static boolean igualVersion(Producto anterior, Producto actual) {
+        return anterior.getVersion() == actual.getVersion() &&
+                anterior.getStockActual() == actual.getStockActual() &&
+                anterior.isActivo() == actual.isActivo();
+    }
+
+    private static boolean mismasCategorias(List<Categoria> copia, List<Categoria> actuales) {
+        if (copia.size() != actuales.size()) {
+            return false;
+        }
+        for (int i = 0; i < copia.size(); i++) {
+            Categoria a = copia.get(i);
+            Categoria b = actuales.get(i);
+            if (a.getIdCategoria() != b.getIdCategoria() ||
+                    !Objects.equals(a.getNombreCategoria(), b.getNombreCategoria()) ||
+                    !Objects.equals(a.getDescripcion(), b.getDescripcion())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean mismosProveedores(List<Proveedor> copia, List<Proveedor> actuales) {
+        if (copia.size() != actuales.size()) {
+            return false;
+        }
+        for (int i = 0; i < copia.size(); i++) {
+            Proveedor a = copia.get(i);
+            Proveedor b = actuales.get(i);
+            if (a.getIdProveedor() != b.getIdProveedor() ||
+                    !Objects.equals(a.getNombreProveedor(), b.getNombreProveedor()) ||
+                    !Objects.equals(a.getTelefono(), b.getTelefono()) ||
+                    !Objects.equals(a.getEmail(), b.getEmail()) ||
+                    !Objects.equals(a.getDireccion(), b.getDireccion()) ||
+                    !Objects.equals(a.getCiudad(), b.getCiudad()) ||
+                    !Objects.equals(a.getPais(), b.getPais())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Escribe una copia nueva del catálogo (tras reconciliar y al cerrar si hubo cambios).
+    // La marca de agua es la hora de la base menos 10 s: una transacción que empezó antes de
+    // la lectura puede confirmar después filas con una ultima_actualizacion anterior
+    public synchronized boolean guardarInstantanea() {
+        long secuencia = BusEventos.getInstancia().getUltimaSecuencia();
+        Timestamp ahora = productoDAO.obtenerHoraBase();
+        Timestamp marcaAgua = ahora != null ? new Timestamp(ahora.getTime() - MARGEN_MARCA_AGUA_MS) : null;
+        boolean guardada = InstantaneaCatalogo.escribir(archivoInstantanea, categoriaDAO.obtenerTodas(),
+                proveedorDAO.obtenerTodos(), marcaAgua, productoDAO::recorrerProductosActivos);
+        if (guardada) {
+            secuenciaInstantanea = secuencia;
+        }
+        return guardada;
+    }
+
+    // Productos
+    public CompletableFuture<Boolean> agregarProducto(Producto producto) {
+        return ejecutar(() -> productoDAO.agregarProducto(producto));
+    }
+
+    public CompletableFuture<List<Producto>> obtenerTodosLosProductos() {
+        return ejecutar(productoDAO::obtenerTodosLosProductos);
+    }
+
+    // Claves de los productos activos ya ordenadas con CursorProducto.ORDEN (el orden también fuera del EDT)
+    public CompletableFuture<List<CursorProducto>> obtenerClavesProductos() {
+        InstantaneaCatalogo copia = instantanea;
+        if (copia != null) {
+            return CompletableFuture.completedFuture(copia.getClaves());
+        }
+        return ejecutar(() -> {
+            List<CursorProducto> claves = productoDAO.obtenerClavesProductos();
+            claves.sort(CursorProducto.ORDEN);
+            return claves;
+        });
+    }
+
+    public CompletableFuture<List<Producto>> obtenerProductosPorIds(List<Integer> ids) {
+        InstantaneaCatalogo copia = instantanea;
+        if (copia != null) {
+            return CompletableFuture.completedFuture(copia.obtenerPorIds(ids));
+        }
+        return ejecutar(() -> productoDAO.obtenerProductosPorIds(ids));
+    }
+
+    public CompletableFuture<List<Producto>> buscarPorNombre(String nombre) {
+        return ejecutar(() -> productoDAO.buscarPorNombre(nombre));
+    }
+
+    public CompletableFuture<List<Producto>> buscarPorCategoria(int idCategoria) {
+        return ejecutar(() -> productoDAO.buscarPorCategoria(idCategoria));
+    }
+
+    public CompletableFuture<List<Producto>> obtenerProductosStockBajo() {
+        return ejecutar(productoDAO::obtenerProductosStockBajo);
+    }
+
+    public CompletableFuture<Producto> obtenerProductoPorId(int id) {
+        return ejecutar(() -> productoDAO.obtenerProductoPorId(id));
+    }
+
+    public CompletableFuture<Boolean> actualizarProducto(Producto producto) {
+        return ejecutar(() -> productoDAO.actualizarProducto(producto));
+    }
+
+    public CompletableFuture<Boolean> eliminarProducto(int id) {
+        return ejecutar(() -> productoDAO.eliminarProducto(id));
+    }
+
+    public CompletableFuture<Producto> buscarPorCodigoBarras(String codigoBarras) {
+        return ejecutar(() -> productoDAO.buscarPorCodigoBarras(codigoBarras));
+    }
+
+    // Escaneo en caja: síncrono, normalmente sin ir a la base
+    public ArticuloCaja escanear(String codigoBarras) {
+        return codigosBarras.escanear(codigoBarras);
+    }
+
+    public ServicioCodigosBarras getCodigosBarras() {
+        return codigosBarras;
+    }
+
+    public CompletableFuture<Boolean> actualizarStock(int idProducto, int nuevoStock) {
+        return ejecutar(() -> productoDAO.actualizarStock(idProducto, nuevoStock));
+    }
+
+    public CompletableFuture<ResultadoMovimiento> registrarMovimiento(int idProducto, int cantidad) {
+        return ejecutar(() -> productoDAO.registrarMovimiento(idProducto, cantidad));
+    }
+
+    public CompletableFuture<ResultadoMovimiento> registrarMovimientos(List<MovimientoStock> movimientos) {
+        return ejecutar(() -> productoDAO.registrarMovimientos(movimientos));
+    }
+
+    public CompletableFuture<Integer> contarProductosActivos() {
+        return ejecutar(productoDAO::contarProductosActivos);
+    }
+
+    public CompletableFuture<Double> obtenerValorTotalInventario() {
+        return ejecutar(productoDAO::obtenerValorTotalInventario);
+    }
+
+    public CompletableFuture<BigDecimal> obtenerValorTotalExacto() {
+        return ejecutar(productoDAO::obtenerValorTotalExacto);
+    }
+
+    public CompletableFuture<Integer> contarProductosStockBajo() {
+        return ejecutar(productoDAO::contarProductosStockBajo);
+    }
+
+    public CompletableFuture<Map<Integer, AgregadosInventario.Resumen>> obtenerResumenPorCategoria() {
+        return ejecutar(productoDAO::obtenerResumenPorCategoria);
+    }
+
+    public CompletableFuture<Map<Integer, AgregadosInventario.Resumen>> obtenerResumenPorProveedor() {
+        return ejecutar(productoDAO::obtenerResumenPorProveedor);
+    }
+
+    // Informes (se calculan en paralelo sobre todo el catálogo)
+    public CompletableFuture<List<ValorPorGrupo<Categoria>>> obtenerValorPorCategoria() {
+        return ejecutar(analitica::valorPorCategoria);
+    }
+
+    public CompletableFuture<List<ValorPorGrupo<Proveedor>>> obtenerValorPorProveedor() {
+        return ejecutar(analitica::valorPorProveedor);
+    }
+
+    public CompletableFuture<List<Producto>> obtenerMasValiosos(int n) {
+        return ejecutar(() -> analitica.masValiosos(n));
+    }
+
+    public CompletableFuture<List<CandidatoRotacion>> obtenerCandidatosRotacion(double factor, int n) {
+        return ejecutar(() -> analitica.candidatosRotacion(factor, n));
+    }
+
+    // Exportar una tabla completa a un archivo (".gz" = comprimido); filas escritas o -1
+    public CompletableFuture<Long> exportar(ExportadorInventario.Entidad entidad,
+                                            ExportadorInventario.Formato formato, Path archivo) {
+        return ejecutar(() -> exportador.exportar(entidad, formato, archivo));
+    }
+
+    // Categorías
+    public CompletableFuture<List<Categoria>> obtenerCategorias() {
+        InstantaneaCatalogo copia = instantanea;
+        if (copia != null) {
+            return CompletableFuture.completedFuture(copia.getCategorias());
+        }
+        return ejecutar(categoriaDAO::obtenerTodas);
+    }
+
+    public CompletableFuture<Boolean> agregarCategoria(Categoria categoria) {
+        return ejecutar(() -> categoriaDAO.agregar(categoria));
+    }
+
+    public CompletableFuture<Categoria> obtenerCategoriaPorId(int id) {
+        return ejecutar(() -> categoriaDAO.obtenerPorId(id));
+    }
+
+    // Proveedores
+    public CompletableFuture<List<Proveedor>> obtenerProveedores() {
+        InstantaneaCatalogo copia = instantanea;
+        if (copia != null) {
+            return CompletableFuture.completedFuture(copia.getProveedores());
+        }
+        return ejecutar(proveedorDAO::obtenerTodos);
+    }
+
+    public CompletableFuture<Boolean> agregarProveedor(Proveedor proveedor) {
+        return ejecutar(() -> proveedorDAO.agregar(proveedor));
+    }
+
+    public CompletableFuture<Proveedor> obtenerProveedorPorId(int id) {
+        return ejecutar(() -> proveedorDAO.obtenerPorId(id));
+    }
+
+    public CompletableFuture<Boolean> actualizarProveedor(Proveedor proveedor) {
+        return ejecutar(() -> proveedorDAO.actualizar(proveedor));
+    }
+
+    public CompletableFuture<Boolean> eliminarProveedor(int id) {
+        return ejecutar(() -> proveedorDAO.eliminar(id));
+    }
+
+    public CompletableFuture<List<Proveedor>> buscarProveedoresPorNombre(String nombre) {
+        return ejecutar(() -> proveedorDAO.buscarPorNombre(nombre));
+    }
+
+    public CompletableFuture<Integer> contarProductosDeProveedor(int idProveedor) {
+        return ejecutar(() -> proveedorDAO.contarProductos(idProveedor));
+    }
+}
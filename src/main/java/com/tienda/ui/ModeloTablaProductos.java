@@ -0,0 +1,333 @@
+package com.tienda.ui;
+
+import com.tienda.dao.CursorProducto;
+import com.tienda.eventos.BusEventos;
+import com.tienda.eventos.EventoCambio;
+import com.tienda.modelo.Producto;
+import com.tienda.servicio.ServicioInventario;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Modelo de la tabla de productos.
+// Del catálogo completo solo se guarda en memoria la clave de orden (nombre, id) de cada fila
+// (unos 130 bytes por producto con el índice por ID): es lo que permite saber en qué fila cae
+// cada cambio sin volver a consultar;
+// los productos se piden por bloques de IDs a medida que se desplaza la tabla y se conservan
+// en un almacén por ID acotado. Los resultados de búsqueda (listas pequeñas) se muestran completos.
+// Los cambios de BusEventos se aplican fila a fila (aplicarCambio): un alta, baja o edición
+// inserta, quita o repinta solo su fila, sin recargar el listado.
+// Mientras llega un bloque la fila aparece como "Cargando…". Todos los métodos se llaman desde el EDT.
+@SuppressWarnings("serial") // Nunca se serializa
+public class ModeloTablaProductos extends AbstractTableModel {
+    private static final String[] COLUMNAS = {"ID", "Nombre", "Descripción", "Precio", "Stock",
+            "Stock Mín.", "Categoría", "Proveedor", "Código Barras"};
+
+    private static final int TAMANO_BLOQUE = 200;
+    private static final int PRODUCTOS_EN_MEMORIA = 10 * TAMANO_BLOQUE;
+
+    private final ServicioInventario servicio;
+
+    // true = catálogo con carga por bloques; false = lista fija (búsqueda)
+    private boolean catalogo = false;
+
+    // Catálogo: clave de cada fila, ordenadas con CursorProducto.ORDEN
+    private final List<CursorProducto> claves = new ArrayList<>();
+    // Catálogo: nombre con el que está ordenado cada ID (su fila se busca por búsqueda binaria)
+    private final Map<Integer, String> nombresPorId = new HashMap<>();
+    // Catálogo: productos por ID, en orden de acceso (el primero es el menos usado)
+    private final LinkedHashMap<Integer, Producto> productos =
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, Producto> mayor) {
+                    return size() > PRODUCTOS_EN_MEMORIA;
+                }
+            };
+    // Lista fija: las filas tal cual
+    private final List<Producto> lista = new ArrayList<>();
+
+    // Bloques pedidos que aún no han llegado
+    private final Set<Integer> bloquesPendientes = new HashSet<>();
+
+    // Mientras llegan las claves, los cambios se guardan y se aplican después
+    private boolean cargandoClaves = false;
+    private long secuenciaCarga;
+    private final List<EventoCambio<Producto>> cambiosDiferidos = new ArrayList<>();
+
+    // Cambia con cada mostrar*(); descarta respuestas de un contenido anterior
+    private int generacion = 0;
+
+    public ModeloTablaProductos(ServicioInventario servicio) {
+        this.servicio = servicio;
+    }
+
+    // Mostrar todos los productos activos, cargando los bloques bajo demanda
+    public void mostrarCatalogo() {
+        reiniciar(true);
+        cargandoClaves = true;
+        // Los eventos hasta aquí ya están confirmados: la consulta los verá
+        secuenciaCarga = BusEventos.getInstancia().getUltimaSecuencia();
+        fireTableDataChanged();
+
+        int generacionPedida = generacion;
+        ServicioInventario.enEDT(servicio.obtenerClavesProductos(), cargadas -> {
+            if (generacionPedida != generacion) {
+                return;
+            }
+            claves.addAll(cargadas);
+            for (CursorProducto clave : cargadas) {
+                nombresPorId.put(clave.getIdProducto(), clave.getNombreProducto());
+            }
+            cargandoClaves = false;
+            fireTableDataChanged();
+            for (EventoCambio<Producto> cambio : cambiosDiferidos) {
+                if (cambio.getSecuencia() > secuenciaCarga) {
+                    aplicarCambio(cambio);
+                }
+            }
+            cambiosDiferidos.clear();
+        }, error -> System.err.println("Error al cargar el listado de productos: " + error.getMessage()));
+    }
+
+    // Mostrar una lista ya cargada (resultado de una búsqueda)
+    public void mostrarLista(List<Producto> productos) {
+        reiniciar(false);
+        lista.addAll(productos);
+        fireTableDataChanged();
+    }
+
+    private void reiniciar(boolean esCatalogo) {
+        generacion++;
+        catalogo = esCatalogo;
+        claves.clear();
+        nombresPorId.clear();
+        productos.clear();
+        lista.clear();
+        bloquesPendientes.clear();
+        cargandoClaves = false;
+        cambiosDiferidos.clear();
+    }
+
+    // Cambio publicado por BusEventos, ya en el EDT
+    public void aplicarCambio(EventoCambio<Producto> cambio) {
+        if (catalogo) {
+            if (cargandoClaves) {
+                cambiosDiferidos.add(cambio);
+            } else {
+                aplicarEnCatalogo(cambio.getId(), cambio.getDespues());
+            }
+        } else {
+            aplicarEnLista(cambio.getId(), cambio.getDespues());
+        }
+    }
+
+    // Producto que cambió entre la instantánea con la que arrancó el listado y la base.
+    // Si el listado aún se está cargando ya viene de la base y no hace falta
+    public void corregir(Producto despues) {
+        if (!catalogo) {
+            aplicarEnLista(despues.getIdProducto(), despues);
+        } else if (!cargandoClaves) {
+            aplicarEnCatalogo(despues.getIdProducto(), despues);
+        }
+    }
+
+    // Quita la fila de su posición anterior (si estaba) y la pone en la nueva (si sigue activo).
+    // Si la clave no cambia solo se repinta la fila
+    private void aplicarEnCatalogo(int id, Producto despues) {
+        Producto guardado = productos.get(id);
+        if (guardado != null && despues != null && esAnterior(despues, guardado)) {
+            // Ya se leyó de la base una versión posterior
+            return;
+        }
+
+        int fila = buscarFila(id);
+        boolean visible = despues != null && despues.isActivo();
+        CursorProducto nueva = visible ? new CursorProducto(despues.getNombreProducto(), despues.getIdProducto()) : null;
+
+        if (visible) {
+            productos.put(id, despues);
+        } else {
+            productos.remove(id);
+        }
+
+        if (fila >= 0 && visible && claves.get(fila).getNombreProducto().equals(nueva.getNombreProducto())) {
+            fireTableRowsUpdated(fila, fila);
+            return;
+        }
+        if (fila >= 0) {
+            claves.remove(fila);
+            nombresPorId.remove(id);
+            fireTableRowsDeleted(fila, fila);
+        }
+        if (visible) {
+            int posicion = Collections.binarySearch(claves, nueva, CursorProducto.ORDEN);
+            if (posicion < 0) {
+                posicion = -posicion - 1;
+                claves.add(posicion, nueva);
+                nombresPorId.put(id, nueva.getNombreProducto());
+                fireTableRowsInserted(posicion, posicion);
+            } else {
+                fireTableRowsUpdated(posicion, posicion);
+            }
+        }
+    }
+
+    // En una búsqueda solo se actualizan o quitan las filas que ya se muestran
+    private void aplicarEnLista(int id, Producto despues) {
+        for (int fila = 0; fila < lista.size(); fila++) {
+            if (lista.get(fila).getIdProducto() != id) {
+                continue;
+            }
+            if (despues == null || !despues.isActivo()) {
+                lista.remove(fila);
+                fireTableRowsDeleted(fila, fila);
+            } else if (!esAnterior(despues, lista.get(fila))) {
+                lista.set(fila, despues);
+                fireTableRowsUpdated(fila, fila);
+            }
+            return;
+        }
+    }
+
+    // Fila del producto con la clave con la que está en el listado, o -1 si no está
+    private int buscarFila(int idProducto) {
+        String nombre = nombresPorId.get(idProducto);
+        if (nombre == null) {
+            return -1;
+        }
+        int fila = Collections.binarySearch(claves, new CursorProducto(nombre, idProducto), CursorProducto.ORDEN);
+        return Math.max(fila, -1);
+    }
+
+    private static boolean esAnterior(Producto producto, Producto otro) {
+        return producto.getVersion() > 0 && producto.getVersion() < otro.getVersion();
+    }
+
+    // Producto de una fila, o null si la fila no existe o su bloque aún se está cargando
+    public Producto getProducto(int fila) {
+        if (fila < 0 || fila >= getRowCount()) {
+            return null;
+        }
+        if (!catalogo) {
+            return lista.get(fila);
+        }
+        Producto producto = productos.get(claves.get(fila).getIdProducto());
+        if (producto == null) {
+            solicitarBloque(fila / TAMANO_BLOQUE);
+        }
+        return producto;
+    }
+
+    private void solicitarBloque(int bloque) {
+        if (!bloquesPendientes.add(bloque)) {
+            return;
+        }
+
+        int inicio = bloque * TAMANO_BLOQUE;
+        int fin = Math.min(claves.size(), inicio + TAMANO_BLOQUE);
+        List<Integer> ids = new ArrayList<>(fin - inicio);
+        for (int fila = inicio; fila < fin; fila++) {
+            int id = claves.get(fila).getIdProducto();
+            if (!productos.containsKey(id)) {
+                ids.add(id);
+            }
+        }
+        if (ids.isEmpty()) {
+            bloquesPendientes.remove(bloque);
+            return;
+        }
+
+        int generacionPedida = generacion;
+        ServicioInventario.enEDT(servicio.obtenerProductosPorIds(ids), cargados -> {
+            if (generacionPedida != generacion) {
+                return;
+            }
+            bloquesPendientes.remove(bloque);
+            recibirProductos(cargados);
+        }, error -> {
+            if (generacionPedida == generacion) {
+                bloquesPendientes.remove(bloque);
+            }
+            System.err.println("Error al cargar productos: " + error.getMessage());
+        });
+    }
+
+    // Las filas pueden haberse desplazado desde la petición: se repintan donde estén ahora
+    private void recibirProductos(List<Producto> cargados) {
+        int primera = Integer.MAX_VALUE;
+        int ultima = -1;
+        for (Producto producto : cargados) {
+            Producto guardado = productos.get(producto.getIdProducto());
+            if (guardado != null && esAnterior(producto, guardado)) {
+                continue;
+            }
+            int fila = Collections.binarySearch(claves,
+                    new CursorProducto(producto.getNombreProducto(), producto.getIdProducto()), CursorProducto.ORDEN);
+            if (fila < 0) {
+                // Ya no está en el listado, o cambió de nombre y su evento aún no llegó
+                continue;
+            }
+            productos.put(producto.getIdProducto(), producto);
+            primera = Math.min(primera, fila);
+            ultima = Math.max(ultima, fila);
+        }
+        if (ultima >= 0) {
+            fireTableRowsUpdated(primera, ultima);
+        }
+    }
+
+    @Override
+    public int getRowCount() {
+        return catalogo ? claves.size() : lista.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNAS.length;
+    }
+
+    @Override
+    public String getColumnName(int columna) {
+        return COLUMNAS[columna];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int columna) {
+        return switch (columna) {
+            case 0, 4, 5 -> Integer.class;
+            default -> String.class;
+        };
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return false;
+    }
+
+    @Override
+    public Object getValueAt(int fila, int columna) {
+        Producto p = getProducto(fila);
+        if (p == null) {
+            return columna == 1 ? "Cargando…" : null;
+        }
+        return switch (columna) {
+            case 0 -> p.getIdProducto();
+            case 1 -> p.getNombreProducto();
+            case 2 -> p.getDescripcion();
+            case 3 -> String.format("$%.2f", p.getPrecioUnitario());
+            case 4 -> p.getStockActual();
+            case 5 -> p.getStockMinimo();
+            case 6 -> p.getNombreCategoria();
+            case 7 -> p.getNombreProveedor();
+            case 8 -> p.getCodigoBarras();
+            default -> null;
+        };
+    }
+}
@@ -1,24 +1,41 @@
 package com.tienda.ui;
 
-import com.tienda.dao.CategoriaDAO;
+import com.tienda.alertas.AlertaStock;
+import com.tienda.alertas.IndiceStockBajo;
 import com.tienda.dao.ProductoDAO;
-import com.tienda.dao.ProveedorDAO;
+import com.tienda.database.ConexionDB;
+import com.tienda.eventos.BusEventos;
+import com.tienda.eventos.EventoCambio;
+import com.tienda.eventos.OyenteCambios;
 import com.tienda.modelo.Categoria;
 import com.tienda.modelo.Producto;
 import com.tienda.modelo.Proveedor;
+import com.tienda.servicio.ReconciliacionCatalogo;
+import com.tienda.servicio.ServicioInventario;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public class VentanaInventario extends JFrame {
+    // Canales de solicitudes: una nueva cancela la anterior del mismo canal
+    private static final String CANAL_LISTADO = "listado";
+    private static final String CANAL_SELECCION = "seleccion";
+
     private ProductoDAO productoDAO;
-    private CategoriaDAO categoriaDAO;
-    private ProveedorDAO proveedorDAO;
+    // Todas las llamadas a los DAO pasan por aquí, fuera del EDT
+    private ServicioInventario servicio;
+
+    // Producto cargado en el formulario; su columna version es la versión que se edita
+    private Producto productoEnFormulario;
 
     private JTable tablaProductos;
-    private DefaultTableModel modeloTabla;
+    private ModeloTablaProductos modeloTabla;
+    // Totales del inventario y última alerta de stock en la barra de estado
+    private JLabel lblResumen, lblAlerta;
 
     // Campos de texto
     private JTextField txtNombre, txtDescripcion, txtPrecio, txtStockActual,
@@ -32,21 +49,67 @@ public class VentanaInventario extends JFrame {
     private JButton btnAgregar, btnActualizar, btnEliminar, btnLimpiar,
             btnBuscar, btnStockBajo;
 
-    public VentanaInventario() {
-        productoDAO = new ProductoDAO();
-        categoriaDAO = new CategoriaDAO();
-        proveedorDAO = new ProveedorDAO();
+    // El servicio llega ya creado: su arranque hace E/S y no puede ir en el EDT (ver Main)
+    public VentanaInventario(ProductoDAO productoDAO, ServicioInventario servicio) {
+        this.productoDAO = productoDAO;
+        this.servicio = servicio;
 
         inicializarComponentes();
+        // Aviso en cuanto una venta deja un producto en su mínimo, sin consultar la tabla
+        IndiceStockBajo.getInstancia().suscribir(alerta ->
+                SwingUtilities.invokeLater(() -> mostrarAlertaStock(alerta)));
+        // Cada alta, edición o baja (de esta ventana o de otra parte de la aplicación) llega
+        // como evento y se aplica solo a su fila
+        BusEventos.getInstancia().suscribirAsincrono(Producto.class, new OyenteCambios<>() {
+            @Override
+            public void alCambiar(EventoCambio<Producto> cambio) {
+                SwingUtilities.invokeLater(() -> modeloTabla.aplicarCambio(cambio));
+            }
+
+            @Override
+            public void alPerderEventos() {
+                SwingUtilities.invokeLater(() -> cargarDatos());
+            }
+        }, BusEventos.CAPACIDAD_POR_DEFECTO);
         cargarCategorias();
         cargarProveedores();
         cargarDatos();
+        // Con instantánea, lo anterior sale de la copia en disco; aquí se corrige con la base
+        ServicioInventario.enEDT(servicio.reconciliarInstantanea(), this::aplicarReconciliacion, this::mostrarError);
+    }
+
+    private void aplicarReconciliacion(ReconciliacionCatalogo reconciliacion) {
+        if (reconciliacion == null) {
+            return;
+        }
+        if (reconciliacion.isCompleta()) {
+            cargarCategorias();
+            cargarProveedores();
+            cargarDatos();
+            return;
+        }
+        if (reconciliacion.isCategoriasCambiadas()) {
+            cargarCategorias();
+        }
+        if (reconciliacion.isProveedoresCambiados()) {
+            cargarProveedores();
+        }
+        for (Producto actual : reconciliacion.getActuales()) {
+            modeloTabla.corregir(actual);
+        }
     }
 
     private void inicializarComponentes() {
         setTitle("Inventario de una tienda");
         setSize(1200, 700);
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        // Antes de salir (guarda la instantánea del catálogo si está activada)
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                servicio.cerrar();
+            }
+        });
         setLocationRelativeTo(null);
         setLayout(new BorderLayout(10, 10));
 
@@ -91,14 +154,8 @@ public class VentanaInventario extends JFrame {
         JPanel panel = new JPanel(new BorderLayout());
         panel.setBorder(BorderFactory.createTitledBorder("Productos en Inventario"));
 
-        String[] columnas = {"ID", "Nombre", "Descripción", "Precio", "Stock",
-                "Stock Mín.", "Categoría", "Proveedor", "Código Barras"};
-        modeloTabla = new DefaultTableModel(columnas, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+        // Carga el catálogo por bloques a medida que se desplaza la tabla
+        modeloTabla = new ModeloTablaProductos(servicio);
 
         tablaProductos = new JTable(modeloTabla);
         tablaProductos.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
@@ -233,68 +290,91 @@ public class VentanaInventario extends JFrame {
         JPanel panel = new JPanel(new FlowLayout(FlowLayout.LEFT));
         panel.setBorder(BorderFactory.createEtchedBorder());
 
-        JLabel lblEstado = new JLabel("✅ Conectado a: inventario_tienda (MySQL - XAMPP)");
+        // La descripción puede abrir el motor (y aplicar migraciones): se pide fuera del EDT
+        JLabel lblEstado = new JLabel("⏳ Conectando...");
         lblEstado.setFont(new Font("Arial", Font.BOLD, 12));
         lblEstado.setForeground(new Color(0, 150, 0));
         panel.add(lblEstado);
+        ServicioInventario.enEDT(servicio.ejecutar(ConexionDB::getDescripcion),
+                descripcion -> lblEstado.setText("✅ Conectado a: " + descripcion),
+                error -> System.err.println("Error al consultar la base de datos: " + error.getMessage()));
+
+        lblResumen = new JLabel();
+        lblResumen.setFont(new Font("Arial", Font.PLAIN, 12));
+        panel.add(Box.createHorizontalStrut(20));
+        panel.add(lblResumen);
+
+        lblAlerta = new JLabel();
+        lblAlerta.setFont(new Font("Arial", Font.BOLD, 12));
+        panel.add(Box.createHorizontalStrut(20));
+        panel.add(lblAlerta);
 
         return panel;
     }
 
+    private void mostrarAlertaStock(AlertaStock alerta) {
+        ServicioInventario.enEDT(servicio.obtenerProductoPorId(alerta.getIdProducto()), producto -> {
+            String nombre = producto != null ? producto.getNombreProducto() : "#" + alerta.getIdProducto();
+            if (alerta.getTipo() == AlertaStock.Tipo.BAJO) {
+                lblAlerta.setForeground(new Color(200, 100, 0));
+                lblAlerta.setText("⚠️ " + nombre + ": stock " + alerta.getStockActual() +
+                        " (mínimo " + alerta.getStockMinimo() + ")");
+            } else {
+                lblAlerta.setForeground(new Color(0, 150, 0));
+                lblAlerta.setText("✅ " + nombre + " repuesto: stock " + alerta.getStockActual());
+            }
+            actualizarResumen();
+        }, this::mostrarError);
+    }
+
+    // Los totales salen de los agregados en memoria: no recorren la tabla
+    private void actualizarResumen() {
+        CompletableFuture<String> resumen = servicio.ejecutar(() -> String.format(
+                "📦 %d productos   💰 Valor: $%,.2f   ⚠️ %d con stock bajo",
+                productoDAO.contarProductosActivos(),
+                productoDAO.obtenerValorTotalExacto(),
+                productoDAO.contarProductosStockBajo()));
+        ServicioInventario.enEDT(resumen, lblResumen::setText,
+                error -> System.err.println("Error al calcular el resumen: " + error.getMessage()));
+    }
+
     private void cargarCategorias() {
-        cmbCategoria.removeAllItems();
-        List<Categoria> categorias = categoriaDAO.obtenerTodas();
+        ServicioInventario.enEDT(servicio.obtenerCategorias(), categorias -> {
+            cmbCategoria.removeAllItems();
 
-        if (categorias.isEmpty()) {
-            JOptionPane.showMessageDialog(this,
-                    "No hay categorías. Ejecuta el script SQL primero.",
-                    "Advertencia", JOptionPane.WARNING_MESSAGE);
-        }
+            if (categorias.isEmpty()) {
+                JOptionPane.showMessageDialog(this,
+                        "No hay categorías. Ejecuta el script SQL primero.",
+                        "Advertencia", JOptionPane.WARNING_MESSAGE);
+            }
 
-        for (Categoria cat : categorias) {
-            cmbCategoria.addItem(cat);
-        }
+            for (Categoria cat : categorias) {
+                cmbCategoria.addItem(cat);
+            }
+        }, this::mostrarError);
     }
 
     private void cargarProveedores() {
-        cmbProveedor.removeAllItems();
-        List<Proveedor> proveedores = proveedorDAO.obtenerTodos();
+        ServicioInventario.enEDT(servicio.obtenerProveedores(), proveedores -> {
+            cmbProveedor.removeAllItems();
 
-        if (proveedores.isEmpty()) {
-            JOptionPane.showMessageDialog(this,
-                    "No hay proveedores. Ejecuta el script SQL primero.",
-                    "Advertencia", JOptionPane.WARNING_MESSAGE);
-        }
+            if (proveedores.isEmpty()) {
+                JOptionPane.showMessageDialog(this,
+                        "No hay proveedores. Ejecuta el script SQL primero.",
+                        "Advertencia", JOptionPane.WARNING_MESSAGE);
+            }
 
-        for (Proveedor prov : proveedores) {
-            cmbProveedor.addItem(prov);
-        }
+            for (Proveedor prov : proveedores) {
+                cmbProveedor.addItem(prov);
+            }
+        }, this::mostrarError);
     }
 
     private void cargarDatos() {
-        modeloTabla.setRowCount(0);
-        List<Producto> productos = productoDAO.obtenerTodosLosProductos();
-
-        for (Producto p : productos) {
-            Object[] fila = {
-                    p.getIdProducto(),
-                    p.getNombreProducto(),
-                    p.getDescripcion(),
-                    String.format("$%.2f", p.getPrecioUnitario()),
-                    p.getStockActual(),
-                    p.getStockMinimo(),
-                    p.getNombreCategoria(),
-                    p.getNombreProveedor(),
-                    p.getCodigoBarras()
-            };
-
-            // Resaltar productos con stock bajo
-            modeloTabla.addRow(fila);
-            if (p.isBajoStock()) {
-                int ultimaFila = modeloTabla.getRowCount() - 1;
-                // Podríamos cambiar el color de fondo aquí
-            }
-        }
+        // Una búsqueda en curso ya no debe reemplazar el catálogo
+        servicio.reemplazar(CANAL_LISTADO, CompletableFuture.completedFuture(null));
+        modeloTabla.mostrarCatalogo();
+        actualizarResumen();
     }
 
     private void buscarProductos() {
@@ -304,59 +384,36 @@ public class VentanaInventario extends JFrame {
             return;
         }
 
-        modeloTabla.setRowCount(0);
-        List<Producto> productos = productoDAO.buscarPorNombre(termino);
-
-        if (productos.isEmpty()) {
-            JOptionPane.showMessageDialog(this, "No se encontraron productos");
-        } else {
-            for (Producto p : productos) {
-                Object[] fila = {
-                        p.getIdProducto(),
-                        p.getNombreProducto(),
-                        p.getDescripcion(),
-                        String.format("$%.2f", p.getPrecioUnitario()),
-                        p.getStockActual(),
-                        p.getStockMinimo(),
-                        p.getNombreCategoria(),
-                        p.getNombreProveedor(),
-                        p.getCodigoBarras()
-                };
-                modeloTabla.addRow(fila);
+        // Una búsqueda nueva cancela la anterior si aún no ha terminado
+        CompletableFuture<List<Producto>> busqueda =
+                servicio.reemplazar(CANAL_LISTADO, servicio.buscarPorNombre(termino));
+        ServicioInventario.enEDT(busqueda, productos -> {
+            modeloTabla.mostrarLista(productos);
+
+            if (productos.isEmpty()) {
+                JOptionPane.showMessageDialog(this, "No se encontraron productos");
             }
-        }
+        }, this::mostrarError);
     }
 
     private void mostrarStockBajo() {
-        modeloTabla.setRowCount(0);
-        List<Producto> productos = productoDAO.obtenerProductosStockBajo();
+        CompletableFuture<List<Producto>> consulta =
+                servicio.reemplazar(CANAL_LISTADO, servicio.obtenerProductosStockBajo());
+        ServicioInventario.enEDT(consulta, productos -> {
+            modeloTabla.mostrarLista(productos);
 
-        if (productos.isEmpty()) {
-            JOptionPane.showMessageDialog(this,
-                    "✅ No hay productos con stock bajo",
-                    "Stock OK",
-                    JOptionPane.INFORMATION_MESSAGE);
-        } else {
-            for (Producto p : productos) {
-                Object[] fila = {
-                        p.getIdProducto(),
-                        p.getNombreProducto(),
-                        p.getDescripcion(),
-                        String.format("$%.2f", p.getPrecioUnitario()),
-                        p.getStockActual(),
-                        p.getStockMinimo(),
-                        p.getNombreCategoria(),
-                        p.getNombreProveedor(),
-                        p.getCodigoBarras()
-                };
-                modeloTabla.addRow(fila);
+            if (productos.isEmpty()) {
+                JOptionPane.showMessageDialog(this,
+                        "✅ No hay productos con stock bajo",
+                        "Stock OK",
+                        JOptionPane.INFORMATION_MESSAGE);
+            } else {
+                JOptionPane.showMessageDialog(this,
+                        "⚠️ Se encontraron " + productos.size() + " productos con stock bajo",
+                        "Alerta de Stock",
+                        JOptionPane.WARNING_MESSAGE);
             }
-
-            JOptionPane.showMessageDialog(this,
-                    "⚠️ Se encontraron " + productos.size() + " productos con stock bajo",
-                    "Alerta de Stock",
-                    JOptionPane.WARNING_MESSAGE);
-        }
+        }, this::mostrarError);
     }
 
     private void agregarProducto() {
@@ -390,19 +447,22 @@ public class VentanaInventario extends JFrame {
                     txtCodigoBarras.getText().trim()
             );
 
-            if (productoDAO.agregarProducto(producto)) {
-                JOptionPane.showMessageDialog(this,
-                        "✅ Producto agregado exitosamente",
-                        "Éxito",
-                        JOptionPane.INFORMATION_MESSAGE);
-                limpiarCampos();
-                cargarDatos();
-            } else {
-                JOptionPane.showMessageDialog(this,
-                        "❌ Error al agregar producto. Verifica las FK.",
-                        "Error",
-                        JOptionPane.ERROR_MESSAGE);
-            }
+            ServicioInventario.enEDT(servicio.agregarProducto(producto), agregado -> {
+                if (agregado) {
+                    JOptionPane.showMessageDialog(this,
+                            "✅ Producto agregado exitosamente",
+                            "Éxito",
+                            JOptionPane.INFORMATION_MESSAGE);
+                    limpiarCampos();
+                    // La fila de la tabla ya se actualiza con el evento del cambio
+                    actualizarResumen();
+                } else {
+                    JOptionPane.showMessageDialog(this,
+                            "❌ Error al agregar producto. Verifica las FK.",
+                            "Error",
+                            JOptionPane.ERROR_MESSAGE);
+                }
+            }, this::mostrarError);
         } catch (NumberFormatException e) {
             JOptionPane.showMessageDialog(this,
                     "❌ Formato incorrecto en precio o cantidades",
@@ -412,15 +472,15 @@ public class VentanaInventario extends JFrame {
     }
 
     private void actualizarProducto() {
-        int filaSeleccionada = tablaProductos.getSelectedRow();
-        if (filaSeleccionada == -1) {
+        Producto seleccionado = modeloTabla.getProducto(tablaProductos.getSelectedRow());
+        if (seleccionado == null) {
             JOptionPane.showMessageDialog(this,
                     "Seleccione un producto de la tabla");
             return;
         }
 
         try {
-            int id = (int) modeloTabla.getValueAt(filaSeleccionada, 0);
+            int id = seleccionado.getIdProducto();
 
             Categoria categoriaSeleccionada = (Categoria) cmbCategoria.getSelectedItem();
             Proveedor proveedorSeleccionado = (Proveedor) cmbProveedor.getSelectedItem();
@@ -437,16 +497,24 @@ public class VentanaInventario extends JFrame {
                     txtCodigoBarras.getText().trim(),
                     true
             );
-
-            if (productoDAO.actualizarProducto(producto)) {
-                JOptionPane.showMessageDialog(this,
-                        "✅ Producto actualizado exitosamente");
-                limpiarCampos();
-                cargarDatos();
-            } else {
-                JOptionPane.showMessageDialog(this,
-                        "❌ Error al actualizar producto");
+            // Solo se guarda si nadie (otra caja, otra ventana) lo modificó desde que se cargó
+            if (productoEnFormulario != null && productoEnFormulario.getIdProducto() == id) {
+                producto.setVersion(productoEnFormulario.getVersion());
             }
+
+            ServicioInventario.enEDT(servicio.actualizarProducto(producto), actualizado -> {
+                if (actualizado) {
+                    JOptionPane.showMessageDialog(this,
+                            "✅ Producto actualizado exitosamente");
+                    limpiarCampos();
+                    actualizarResumen();
+                } else {
+                    JOptionPane.showMessageDialog(this,
+                            "❌ No se pudo actualizar el producto.\n" +
+                                    "Puede que otro usuario lo haya modificado; se recargan sus datos.");
+                    cargarProductoSeleccionado();
+                }
+            }, this::mostrarError);
         } catch (NumberFormatException e) {
             JOptionPane.showMessageDialog(this,
                     "❌ Formato incorrecto en precio o cantidades");
@@ -454,8 +522,8 @@ public class VentanaInventario extends JFrame {
     }
 
     private void eliminarProducto() {
-        int filaSeleccionada = tablaProductos.getSelectedRow();
-        if (filaSeleccionada == -1) {
+        Producto seleccionado = modeloTabla.getProducto(tablaProductos.getSelectedRow());
+        if (seleccionado == null) {
             JOptionPane.showMessageDialog(this,
                     "Seleccione un producto de la tabla");
             return;
@@ -470,53 +538,72 @@ public class VentanaInventario extends JFrame {
         );
 
         if (confirmacion == JOptionPane.YES_OPTION) {
-            int id = (int) modeloTabla.getValueAt(filaSeleccionada, 0);
-
-            if (productoDAO.eliminarProducto(id)) {
-                JOptionPane.showMessageDialog(this,
-                        "✅ Producto eliminado exitosamente");
-                limpiarCampos();
-                cargarDatos();
-            } else {
-                JOptionPane.showMessageDialog(this,
-                        "❌ Error al eliminar producto");
-            }
+            int id = seleccionado.getIdProducto();
+
+            ServicioInventario.enEDT(servicio.eliminarProducto(id), eliminado -> {
+                if (eliminado) {
+                    JOptionPane.showMessageDialog(this,
+                            "✅ Producto eliminado exitosamente");
+                    limpiarCampos();
+                    actualizarResumen();
+                } else {
+                    JOptionPane.showMessageDialog(this,
+                            "❌ Error al eliminar producto");
+                }
+            }, this::mostrarError);
         }
     }
 
     private void cargarProductoSeleccionado() {
-        int filaSeleccionada = tablaProductos.getSelectedRow();
-        if (filaSeleccionada != -1) {
-            int id = (int) modeloTabla.getValueAt(filaSeleccionada, 0);
-            Producto producto = productoDAO.obtenerProductoPorId(id);
+        Producto seleccionado = modeloTabla.getProducto(tablaProductos.getSelectedRow());
+        if (seleccionado == null) {
+            return;
+        }
 
+        // Con cambios rápidos de selección solo se muestra el último producto pedido
+        CompletableFuture<Producto> consulta = servicio.reemplazar(CANAL_SELECCION,
+                servicio.obtenerProductoPorId(seleccionado.getIdProducto()));
+        ServicioInventario.enEDT(consulta, producto -> {
             if (producto != null) {
-                txtNombre.setText(producto.getNombreProducto());
-                txtDescripcion.setText(producto.getDescripcion());
-                txtPrecio.setText(String.valueOf(producto.getPrecioUnitario()));
-                txtStockActual.setText(String.valueOf(producto.getStockActual()));
-                txtStockMinimo.setText(String.valueOf(producto.getStockMinimo()));
-                txtCodigoBarras.setText(producto.getCodigoBarras());
-
-                // Seleccionar categoría y proveedor en los ComboBox
-                for (int i = 0; i < cmbCategoria.getItemCount(); i++) {
-                    if (cmbCategoria.getItemAt(i).getIdCategoria() == producto.getIdCategoria()) {
-                        cmbCategoria.setSelectedIndex(i);
-                        break;
-                    }
-                }
+                mostrarEnFormulario(producto);
+            }
+        }, this::mostrarError);
+    }
 
-                for (int i = 0; i < cmbProveedor.getItemCount(); i++) {
-                    if (cmbProveedor.getItemAt(i).getIdProveedor() == producto.getIdProveedor()) {
-                        cmbProveedor.setSelectedIndex(i);
-                        break;
-                    }
-                }
+    private void mostrarEnFormulario(Producto producto) {
+        productoEnFormulario = producto;
+        txtNombre.setText(producto.getNombreProducto());
+        txtDescripcion.setText(producto.getDescripcion());
+        txtPrecio.setText(String.valueOf(producto.getPrecioUnitario()));
+        txtStockActual.setText(String.valueOf(producto.getStockActual()));
+        txtStockMinimo.setText(String.valueOf(producto.getStockMinimo()));
+        txtCodigoBarras.setText(producto.getCodigoBarras());
+
+        // Seleccionar categoría y proveedor en los ComboBox
+        for (int i = 0; i < cmbCategoria.getItemCount(); i++) {
+            if (cmbCategoria.getItemAt(i).getIdCategoria() == producto.getIdCategoria()) {
+                cmbCategoria.setSelectedIndex(i);
+                break;
             }
         }
+
+        for (int i = 0; i < cmbProveedor.getItemCount(); i++) {
+            if (cmbProveedor.getItemAt(i).getIdProveedor() == producto.getIdProveedor()) {
+                cmbProveedor.setSelectedIndex(i);
+                break;
+            }
+        }
+    }
+
+    private void mostrarError(Throwable error) {
+        JOptionPane.showMessageDialog(this,
+                "❌ Error de base de datos: " + error.getMessage(),
+                "Error",
+                JOptionPane.ERROR_MESSAGE);
     }
 
     private void limpiarCampos() {
+        productoEnFormulario = null;
         txtNombre.setText("");
         txtDescripcion.setText("");
         txtPrecio.setText("");
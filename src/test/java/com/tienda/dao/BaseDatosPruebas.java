@@ -0,0 +1,85 @@
+package com.tienda.dao;
+
+import com.tienda.database.ConexionDB;
+import com.tienda.modelo.Categoria;
+import com.tienda.modelo.Producto;
+import com.tienda.modelo.Proveedor;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+// Base SQLite de las pruebas de los DAO (inventario.sqlite.archivo, lo fija surefire): se vacía
+// una vez por ejecución, antes de que ConexionDB la abra, junto con el diario de stock
+final class BaseDatosPruebas {
+    private static int idCategoria;
+    private static int idProveedor;
+    private static int siguiente;
+
+    private BaseDatosPruebas() {
+    }
+
+    static synchronized void preparar() throws IOException {
+        if (idCategoria != 0) {
+            return;
+        }
+        String archivo = System.getProperty("inventario.sqlite.archivo");
+        if (archivo == null || !"sqlite".equals(System.getProperty("inventario.motor"))) {
+            throw new IllegalStateException("Las pruebas de los DAO necesitan inventario.motor=sqlite");
+        }
+        for (String sufijo : new String[]{"", "-wal", "-shm"}) {
+            Files.deleteIfExists(Path.of(archivo + sufijo));
+        }
+        String diario = System.getProperty("inventario.stockDiferido.archivo");
+        if (diario != null) {
+            Files.deleteIfExists(Path.of(diario));
+        }
+
+        Categoria categoria = new Categoria("Pruebas", null);
+        Proveedor proveedor = new Proveedor("Proveedor de pruebas", null, null, null, null, null);
+        if (!new CategoriaDAO().agregar(categoria) || !new ProveedorDAO().agregar(proveedor)) {
+            throw new IllegalStateException("No se pudo preparar la base de pruebas " + archivo);
+        }
+        idCategoria = categoria.getIdCategoria();
+        idProveedor = proveedor.getIdProveedor();
+    }
+
+    // Producto nuevo con un nombre único; devuelve su id
+    static synchronized int nuevoProducto(int stock) {
+        Producto producto = new Producto("Producto " + (++siguiente), null, 10.0, stock, 0,
+                idCategoria, idProveedor, null);
+        if (!new ProductoDAO().agregarProducto(producto)) {
+            throw new IllegalStateException("No se pudo agregar el producto de prueba");
+        }
+        return producto.getIdProducto();
+    }
+
+    // Stock guardado en la base, sin pasar por cachés ni por el saldo en memoria
+    static int stockEnBase(int idProducto) throws SQLException {
+        try (Connection conn = ConexionDB.getConexion();
+             PreparedStatement pstmt = conn.prepareStatement(
+                     "SELECT stock_actual FROM productos WHERE id_producto = ?")) {
+            pstmt.setInt(1, idProducto);
+            ResultSet rs = pstmt.executeQuery();
+            if (!rs.next()) {
+                throw new SQLException("No existe el producto " + idProducto);
+            }
+            return rs.getInt(1);
+        }
+    }
+
+    // Escritura directa en la base, como la haría otra instancia de la aplicación
+    static void ejecutar(String sql, Object... parametros) throws SQLException {
+        try (Connection conn = ConexionDB.getConexion();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < parametros.length; i++) {
+                pstmt.setObject(i + 1, parametros[i]);
+            }
+            pstmt.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.tienda.dao;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// Lectura del diario de stock tras un cierre o un corte: CRC, secuencias y confirmaciones
+class DiarioStockTest {
+    // Cabecera del archivo y registro de una línea (secuencia, líneas, id y cantidad, CRC)
+    private static final int CABECERA = 24;
+    private static final int REGISTRO_UNA_LINEA = 16 + 8;
+
+    @TempDir
+    Path carpeta;
+
+    private Path archivo() {
+        return carpeta.resolve("stock.diario");
+    }
+
+    private static List<String> pendientes(DiarioStock diario) {
+        List<String> leidos = new ArrayList<>();
+        diario.recorrerPendientes((secuencia, id, cantidad) -> leidos.add(secuencia + ":" + id + ":" + cantidad));
+        return leidos;
+    }
+
+    private void anotar(int... idsYCantidades) throws IOException {
+        try (DiarioStock diario = DiarioStock.abrir(archivo(), 4096, false)) {
+            for (int i = 0; i < idsYCantidades.length; i += 2) {
+                diario.anotar(new int[]{idsYCantidades[i]}, new int[]{idsYCantidades[i + 1]});
+            }
+        }
+    }
+
+    @Test
+    void loAnotadoSeLeeAlReabrir() throws IOException {
+        long idDiario;
+        try (DiarioStock diario = DiarioStock.abrir(archivo(), 4096, true)) {
+            idDiario = diario.getIdDiario();
+            assertEquals(1, diario.anotar(new int[]{7, 8}, new int[]{-2, 5}));
+            assertEquals(2, diario.anotar(new int[]{7}, new int[]{-1}));
+        }
+
+        try (DiarioStock diario = DiarioStock.abrir(archivo(), 4096, true)) {
+            assertEquals(idDiario, diario.getIdDiario());
+            assertEquals(0, diario.getAplicada());
+            assertEquals(2, diario.getUltima());
+            assertEquals(List.of("1:7:-2", "1:8:5", "2:7:-1"), pendientes(diario));
+        }
+    }
+
+    @Test
+    void unRegistroConCrcIncorrectoTerminaElDiario() throws IOException {
+        anotar(1, 10, 2, 20, 3, 30);
+
+        // Cantidad del segundo registro cambiada sin rehacer su CRC (escritura a medias)
+        try (RandomAccessFile raf = new RandomAccessFile(archivo().toFile(), "rw")) {
+            raf.seek(CABECERA + REGISTRO_UNA_LINEA + 16);
+            raf.writeInt(999);
+        }
+
+        try (DiarioStock diario = DiarioStock.abrir(archivo(), 4096, false)) {
+            assertEquals(List.of("1:1:10"), pendientes(diario));
+            assertEquals(1, diario.getUltima());
+            // Lo siguiente se anota encima del registro dañado
+            assertEquals(2, diario.anotar(new int[]{4}, new int[]{40}));
+        }
+
+        try (DiarioStock diario = DiarioStock.abrir(archivo(), 4096, false)) {
+            assertEquals(List.of("1:1:10", "2:4:40"), pendientes(diario));
+        }
+    }
+
+    @Test
+    void loConfirmadoNoSeVuelveAEntregar() throws IOException {
+        anotar(1, 10, 2, 20);
+
+        try (DiarioStock diario = DiarioStock.abrir(archivo(), 4096, false)) {
+            diario.confirmar(1);
+        }
+
+        try (DiarioStock diario = DiarioStock.abrir(archivo(), 4096, false)) {
+            assertEquals(1, diario.getAplicada());
+            assertEquals(List.of("2:2:20"), pendientes(diario));
+
+            // Todo confirmado: se vuelve a escribir desde el principio sin reaparecer lo anterior
+            diario.confirmar(2);
+            assertEquals(CABECERA, diario.getOcupados());
+            diario.anotar(new int[]{3}, new int[]{30});
+        }
+
+        try (DiarioStock diario = DiarioStock.abrir(archivo(), 4096, false)) {
+            assertEquals(List.of("3:3:30"), pendientes(diario));
+        }
+    }
+
+    @Test
+    void creceCuandoNoCabeUnRegistro() throws IOException {
+        int[] ids = new int[1000];
+        int[] cantidades = new int[1000];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = i + 1;
+            cantidades[i] = 1;
+        }
+        try (DiarioStock diario = DiarioStock.abrir(archivo(), 4096, false)) {
+            diario.anotar(ids, cantidades);
+            assertEquals(8192, diario.getCapacidad());
+        }
+
+        try (DiarioStock diario = DiarioStock.abrir(archivo(), 4096, false)) {
+            assertEquals(1000, pendientes(diario).size());
+        }
+    }
+
+    @Test
+    void rechazaUnArchivoQueNoEsUnDiario() throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(archivo().toFile(), "rw")) {
+            raf.write(new byte[64]);
+        }
+
+        assertThrows(IOException.class, () -> DiarioStock.abrir(archivo(), 4096, false));
+    }
+}
@@ -0,0 +1,96 @@
+package com.tienda.dao;
+
+import com.tienda.modelo.Producto;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Timestamp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Control optimista de ProductoDAO con la columna version
+class ProductoDAOTest {
+    private final ProductoDAO dao = new ProductoDAO();
+
+    @BeforeAll
+    static void preparar() throws Exception {
+        BaseDatosPruebas.preparar();
+    }
+
+    private Producto leer(int id) {
+        Producto producto = dao.obtenerProductoPorId(id);
+        assertNotNull(producto);
+        // Cada "usuario" trabaja con su propia copia, como el formulario
+        return new Producto(producto);
+    }
+
+    @Test
+    void cadaEscrituraIncrementaLaVersion() {
+        int id = BaseDatosPruebas.nuevoProducto(10);
+        Producto producto = leer(id);
+        int inicial = producto.getVersion();
+        assertTrue(inicial > 0);
+
+        producto.setNombreProducto("Renombrado " + id);
+        assertTrue(dao.actualizarProducto(producto));
+        assertTrue(dao.actualizarStock(id, 20));
+
+        assertEquals(inicial + 2, leer(id).getVersion());
+    }
+
+    @Test
+    void unaVersionAnteriorNoSobrescribeLaEdicionDeOtro() throws Exception {
+        int id = BaseDatosPruebas.nuevoProducto(10);
+        Producto primero = leer(id);
+        Producto segundo = leer(id);
+
+        primero.setStockActual(15);
+        assertTrue(dao.actualizarProducto(primero));
+
+        segundo.setNombreProducto("Cambio perdido");
+        segundo.setStockActual(3);
+        assertFalse(dao.actualizarProducto(segundo));
+
+        Producto actual = leer(id);
+        assertEquals(primero.getNombreProducto(), actual.getNombreProducto());
+        assertEquals(15, BaseDatosPruebas.stockEnBase(id));
+        assertEquals(primero.getVersion() + 1, actual.getVersion());
+
+        // Releído, el segundo ya puede guardar
+        actual.setNombreProducto("Cambio aplicado");
+        assertTrue(dao.actualizarProducto(actual));
+        assertEquals("Cambio aplicado", leer(id).getNombreProducto());
+    }
+
+    @Test
+    void variasEscriturasSeguidasNoAdelantanUltimaActualizacion() throws Exception {
+        int id = BaseDatosPruebas.nuevoProducto(100);
+        for (int i = 0; i < 20; i++) {
+            assertTrue(dao.actualizarStock(id, 100 - i));
+        }
+
+        Producto producto = leer(id);
+        Timestamp ahora = dao.obtenerHoraBase();
+        assertNotNull(ahora);
+        assertNotNull(producto.getUltimaActualizacion());
+        assertFalse(producto.getUltimaActualizacion().after(ahora),
+                producto.getUltimaActualizacion() + " es posterior a la hora de la base " + ahora);
+        assertEquals(81, BaseDatosPruebas.stockEnBase(id));
+    }
+
+    @Test
+    void sinVersionNoSeTocaElStock() throws Exception {
+        int id = BaseDatosPruebas.nuevoProducto(10);
+        Producto producto = leer(id);
+        producto.setVersion(0);
+        producto.setStockActual(999);
+        producto.setDescripcion("Solo datos");
+
+        assertTrue(dao.actualizarProducto(producto));
+        assertEquals(10, BaseDatosPruebas.stockEnBase(id));
+        assertEquals("Solo datos", leer(id).getDescripcion());
+    }
+}
@@ -0,0 +1,130 @@
+package com.tienda.dao;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Movimientos diferidos (surefire activa inventario.stockDiferido sin volcado periódico):
+// recuperación del diario al iniciar, volcado que no deja stock negativo y escrituras directas
+// que no se hacen si no se pudo volcar antes
+class StockDiferidoTest {
+    private final ProductoDAO dao = new ProductoDAO();
+    private final StockDiferido stockDiferido = StockDiferido.getInstancia();
+
+    @BeforeAll
+    static void preparar() throws Exception {
+        BaseDatosPruebas.preparar();
+    }
+
+    @AfterEach
+    void cerrar() {
+        stockDiferido.cerrar();
+    }
+
+    private static Path archivoDiario() {
+        return Path.of(System.getProperty("inventario.stockDiferido.archivo"));
+    }
+
+    @Test
+    void alIniciarSeAplicaLoQueQuedoEnElDiario() throws Exception {
+        int a = BaseDatosPruebas.nuevoProducto(10);
+        int b = BaseDatosPruebas.nuevoProducto(10);
+
+        // Anotado por una ejecución que terminó antes de volcar
+        try (DiarioStock diario = DiarioStock.abrir(archivoDiario(), 4096, true)) {
+            diario.anotar(new int[]{a, b}, new int[]{5, -3});
+            diario.anotar(new int[]{a}, new int[]{1});
+        }
+
+        assertTrue(stockDiferido.iniciar());
+        assertEquals(16, BaseDatosPruebas.stockEnBase(a));
+        assertEquals(7, BaseDatosPruebas.stockEnBase(b));
+
+        // Confirmado en el diario: no se repite
+        stockDiferido.cerrar();
+        assertTrue(stockDiferido.iniciar());
+        assertEquals(16, BaseDatosPruebas.stockEnBase(a));
+        assertEquals(7, BaseDatosPruebas.stockEnBase(b));
+    }
+
+    @Test
+    void loYaEscritoEnLaBaseNoSeAplicaDosVeces() throws Exception {
+        int a = BaseDatosPruebas.nuevoProducto(10);
+        // Crea la fila de este diario en diario_stock
+        assertTrue(stockDiferido.iniciar());
+        stockDiferido.cerrar();
+
+        // Corte entre el commit del volcado y la confirmación en el diario
+        long idDiario;
+        long secuencia;
+        try (DiarioStock diario = DiarioStock.abrir(archivoDiario(), 4096, true)) {
+            idDiario = diario.getIdDiario();
+            secuencia = diario.anotar(new int[]{a}, new int[]{4});
+        }
+        BaseDatosPruebas.ejecutar("UPDATE productos SET stock_actual = stock_actual + 4 WHERE id_producto = ?", a);
+        BaseDatosPruebas.ejecutar("UPDATE diario_stock SET secuencia = ? WHERE id_diario = ?", secuencia, idDiario);
+
+        assertTrue(stockDiferido.iniciar());
+        assertEquals(14, BaseDatosPruebas.stockEnBase(a));
+    }
+
+    @Test
+    void elVolcadoRechazaLoQueDejariaStockNegativo() throws Exception {
+        int a = BaseDatosPruebas.nuevoProducto(5);
+        int b = BaseDatosPruebas.nuevoProducto(5);
+        assertEquals(ResultadoMovimiento.APLICADO, dao.registrarMovimiento(a, -5));
+        assertEquals(ResultadoMovimiento.APLICADO, dao.registrarMovimiento(b, -1));
+
+        // Otra instancia vendió parte del mismo stock entre tanto
+        BaseDatosPruebas.ejecutar("UPDATE productos SET stock_actual = 2 WHERE id_producto = ?", a);
+        stockDiferido.cerrar();
+
+        assertEquals(2, BaseDatosPruebas.stockEnBase(a));
+        assertEquals(4, BaseDatosPruebas.stockEnBase(b));
+
+        // El movimiento rechazado tampoco vuelve desde el diario
+        assertTrue(stockDiferido.iniciar());
+        assertEquals(2, BaseDatosPruebas.stockEnBase(a));
+        assertEquals(2, dao.obtenerProductoPorId(a).getStockActual());
+    }
+
+    @Test
+    void unaEscrituraDirectaNoSeHaceSiFallaElVolcado() throws Exception {
+        int a = BaseDatosPruebas.nuevoProducto(10);
+        assertEquals(ResultadoMovimiento.APLICADO, dao.registrarMovimiento(a, -1));
+
+        // Otra conexión retiene la escritura hasta agotar la espera del volcado
+        String url = "jdbc:sqlite:" + System.getProperty("inventario.sqlite.archivo");
+        try (Connection bloqueo = DriverManager.getConnection(url);
+             Statement stmt = bloqueo.createStatement()) {
+            stmt.execute("BEGIN IMMEDIATE");
+            try {
+                assertFalse(dao.actualizarStock(a, 100));
+            } finally {
+                stmt.execute("ROLLBACK");
+            }
+        }
+
+        // Ni el recuento ni el movimiento llegaron a la base; el movimiento sigue pendiente
+        assertEquals(10, BaseDatosPruebas.stockEnBase(a));
+        assertEquals(9, dao.obtenerProductoPorId(a).getStockActual());
+
+        stockDiferido.cerrar();
+        assertEquals(9, BaseDatosPruebas.stockEnBase(a));
+
+        // Con la base libre, el recuento se aplica y el saldo parte de él
+        assertTrue(dao.actualizarStock(a, 100));
+        assertEquals(ResultadoMovimiento.APLICADO, dao.registrarMovimiento(a, -1));
+        stockDiferido.cerrar();
+        assertEquals(99, BaseDatosPruebas.stockEnBase(a));
+    }
+}
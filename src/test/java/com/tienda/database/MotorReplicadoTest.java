@@ -0,0 +1,167 @@
+package com.tienda.database;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Reparto de lecturas de MotorReplicado. La réplica es otro archivo SQLite al que la prueba
+// copia el latido de la principal cuando quiere que esté al día (y deja de copiarlo para
+// simular retraso)
+class MotorReplicadoTest {
+    private static final String[] PROPIEDADES = {"inventario.sqlite.archivo", "inventario.replicas.latidoMs",
+            "inventario.replicas.retrasoMaximoMs"};
+
+    @TempDir
+    Path carpeta;
+
+    private final Map<String, String> anteriores = new HashMap<>();
+    private Path archivoPrincipal;
+    private Path archivoReplica;
+    private MotorReplicado motor;
+
+    @BeforeEach
+    void preparar() throws SQLException {
+        for (String propiedad : PROPIEDADES) {
+            anteriores.put(propiedad, System.getProperty(propiedad));
+        }
+        archivoPrincipal = carpeta.resolve("principal.db");
+        archivoReplica = carpeta.resolve("replica.db");
+        System.setProperty("inventario.sqlite.archivo", archivoPrincipal.toString());
+        System.setProperty("inventario.replicas.latidoMs", "100");
+
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + archivoReplica);
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE latido_replicacion (id INT PRIMARY KEY, instante TIMESTAMP NOT NULL)");
+        }
+    }
+
+    @AfterEach
+    void cerrar() {
+        if (motor != null) {
+            motor.cerrar();
+        }
+        anteriores.forEach((propiedad, valor) -> {
+            if (valor == null) {
+                System.clearProperty(propiedad);
+            } else {
+                System.setProperty(propiedad, valor);
+            }
+        });
+    }
+
+    private MotorReplicado abrir() throws Exception {
+        MotorSQLite principal = new MotorSQLite();
+        new GestorEsquema(principal).actualizar();
+        motor = new MotorReplicado(principal, List.of(archivoReplica.toString()));
+        return motor;
+    }
+
+    // Lo que haría la replicación: el último latido de la principal llega a la réplica
+    private void replicar() throws SQLException {
+        String instante;
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + archivoPrincipal);
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT instante FROM latido_replicacion WHERE id = 1")) {
+            if (!rs.next()) {
+                return;
+            }
+            instante = rs.getString(1);
+        }
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + archivoReplica);
+             PreparedStatement pstmt = conn.prepareStatement(
+                     "INSERT OR REPLACE INTO latido_replicacion (id, instante) VALUES (1, ?)")) {
+            pstmt.setString(1, instante);
+            pstmt.executeUpdate();
+        }
+    }
+
+    private boolean leeDeLaReplica() throws SQLException {
+        try (Connection conn = motor.getConexionLectura()) {
+            return conn.getMetaData().getURL().endsWith(archivoReplica.toString());
+        }
+    }
+
+    // Espera hasta que una lectura vaya a donde se pide, replicando o no mientras tanto
+    private boolean esperarLectura(boolean deLaReplica, boolean replicando, long maximoMs) throws Exception {
+        long limite = System.currentTimeMillis() + maximoMs;
+        while (System.currentTimeMillis() < limite) {
+            if (replicando) {
+                replicar();
+            }
+            if (leeDeLaReplica() == deLaReplica) {
+                return true;
+            }
+            Thread.sleep(50);
+        }
+        return false;
+    }
+
+    @Test
+    void leeDeUnaReplicaAlDia() throws Exception {
+        abrir();
+
+        assertTrue(esperarLectura(true, true, 5_000), "la réplica al día no recibe lecturas");
+    }
+
+    @Test
+    void trasUnaEscrituraLeeDeLaPrincipalHastaQueLaReplicaLaTiene() throws Exception {
+        abrir();
+        assertTrue(esperarLectura(true, true, 5_000));
+
+        try (Connection escritura = motor.getConexion()) {
+            assertFalse(leeDeLaReplica(), "con una escritura en curso se lee de la principal");
+        }
+        assertFalse(leeDeLaReplica(), "la escritura aún no tiene un latido detrás");
+
+        // La réplica se queda en el latido anterior a la escritura: aunque su retraso siga por
+        // debajo del máximo, no tiene lo escrito
+        long hasta = System.currentTimeMillis() + 2_500;
+        while (System.currentTimeMillis() < hasta) {
+            assertFalse(leeDeLaReplica(), "se leyó de una réplica sin la última escritura");
+            Thread.sleep(100);
+        }
+
+        // Le llega un latido posterior a la escritura
+        assertTrue(esperarLectura(true, true, 5_000), "la réplica no vuelve a usarse al ponerse al día");
+    }
+
+    @Test
+    void unaReplicaRetrasadaNoSeUsa() throws Exception {
+        System.setProperty("inventario.replicas.retrasoMaximoMs", "1000");
+        abrir();
+        assertTrue(esperarLectura(true, true, 5_000));
+
+        assertTrue(esperarLectura(false, false, 5_000), "se sigue leyendo de una réplica retrasada");
+
+        assertTrue(esperarLectura(true, true, 5_000), "la réplica no vuelve a usarse al ponerse al día");
+    }
+
+    @Test
+    void unaReplicaSinLatidoNoSeUsa() throws Exception {
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + archivoReplica);
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP TABLE latido_replicacion");
+        }
+        abrir();
+        Thread.sleep(300);
+
+        for (int i = 0; i < 5; i++) {
+            assertFalse(leeDeLaReplica());
+        }
+    }
+}
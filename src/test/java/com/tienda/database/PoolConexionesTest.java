@@ -0,0 +1,173 @@
+package com.tienda.database;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Préstamo, espera agotada y aviso de fugas del pool, sobre un archivo SQLite temporal
+class PoolConexionesTest {
+    @TempDir
+    Path carpeta;
+
+    private PoolConexiones pool;
+
+    @AfterEach
+    void cerrar() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    private PoolConexiones crear(ConfiguracionPool config) {
+        String url = "jdbc:sqlite:" + carpeta.resolve("pool.db");
+        pool = new PoolConexiones("prueba", config, () -> DriverManager.getConnection(url));
+        return pool;
+    }
+
+    private static ConfiguracionPool config(int maximo) {
+        ConfiguracionPool config = new ConfiguracionPool();
+        config.setTamanoMinimo(0);
+        config.setTamanoMaximo(maximo);
+        config.setEsperaMaximaMs(200);
+        return config;
+    }
+
+    @Test
+    void laConexionDevueltaSeReutiliza() throws SQLException {
+        crear(config(2));
+
+        try (Connection conn = pool.obtener(); Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE t (x INT)");
+        }
+        try (Connection conn = pool.obtener(); Statement stmt = conn.createStatement()) {
+            stmt.execute("INSERT INTO t VALUES (1)");
+        }
+
+        assertEquals(2, pool.getPrestamos());
+        assertEquals(1, pool.getConexionesCreadas());
+        assertEquals(0, pool.getConexionesPrestadas());
+        assertEquals(1, pool.getConexionesLibres());
+    }
+
+    @Test
+    void cerrarDosVecesDevuelveUnaSolaVez() throws SQLException {
+        crear(config(1));
+
+        Connection conn = pool.obtener();
+        conn.close();
+        conn.close();
+
+        assertTrue(conn.isClosed());
+        assertEquals(0, pool.getConexionesPrestadas());
+        try (Connection otra = pool.obtener()) {
+            assertFalse(otra.isClosed());
+        }
+    }
+
+    @Test
+    void laEsperaSeAgotaConElPoolLleno() throws SQLException {
+        crear(config(1));
+
+        try (Connection prestada = pool.obtener()) {
+            long inicio = System.nanoTime();
+            SQLException e = assertThrows(SQLException.class, pool::obtener);
+            long esperaMs = (System.nanoTime() - inicio) / 1_000_000;
+
+            assertTrue(e.getMessage().contains("Tiempo de espera agotado"), e.getMessage());
+            assertTrue(esperaMs >= 150, "esperó " + esperaMs + " ms");
+            assertEquals(1, pool.getEsperasAgotadas());
+            assertFalse(prestada.isClosed());
+        }
+
+        // Devuelta la primera, el permiso vuelve a estar libre
+        try (Connection conn = pool.obtener()) {
+            assertFalse(conn.isClosed());
+        }
+        assertEquals(1, pool.getEsperasAgotadas());
+    }
+
+    @Test
+    void unaConexionRetenidaSeAvisaComoFugaUnaVez() throws Exception {
+        ConfiguracionPool config = config(2);
+        config.setUmbralFugaMs(50);
+        config.setIntervaloMantenimientoMs(20);
+        crear(config);
+
+        try (Connection retenida = pool.obtener()) {
+            long limite = System.currentTimeMillis() + 3_000;
+            while (pool.getFugasDetectadas() == 0 && System.currentTimeMillis() < limite) {
+                Thread.sleep(10);
+            }
+            assertEquals(1, pool.getFugasDetectadas());
+
+            // Las pasadas siguientes no la vuelven a contar
+            Thread.sleep(100);
+            assertEquals(1, pool.getFugasDetectadas());
+            assertFalse(retenida.isClosed());
+        }
+
+        assertEquals(0, pool.getConexionesPrestadas());
+    }
+
+    @Test
+    void sinUmbralNoSeAvisanFugas() throws Exception {
+        ConfiguracionPool config = config(1);
+        config.setUmbralFugaMs(0);
+        config.setIntervaloMantenimientoMs(20);
+        crear(config);
+
+        try (Connection retenida = pool.obtener()) {
+            Thread.sleep(150);
+        }
+
+        assertEquals(0, pool.getFugasDetectadas());
+    }
+
+    @Test
+    void alDesalojarSeQuedaLaUsadaHaceMenos() throws Exception {
+        ConfiguracionPool config = config(3);
+        config.setTamanoMinimo(1);
+        config.setInactividadMaximaMs(100);
+        config.setIntervaloMantenimientoMs(20);
+        crear(config);
+
+        // Tres conexiones físicas; la última en devolverse lleva una tabla temporal propia
+        Connection primera = pool.obtener();
+        Connection segunda = pool.obtener();
+        Connection tercera = pool.obtener();
+        try (Statement stmt = tercera.createStatement()) {
+            stmt.execute("CREATE TEMP TABLE marca (x INT)");
+        }
+        primera.close();
+        segunda.close();
+        tercera.close();
+
+        long limite = System.currentTimeMillis() + 3_000;
+        while (pool.getConexionesLibres() > 1 && System.currentTimeMillis() < limite) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, pool.getConexionesLibres());
+
+        try (Connection conn = pool.obtener(); Statement stmt = conn.createStatement()) {
+            stmt.executeQuery("SELECT COUNT(*) FROM temp.marca").close();
+        }
+    }
+
+    @Test
+    void noPrestaConElPoolCerrado() {
+        crear(config(1)).close();
+
+        assertThrows(SQLException.class, pool::obtener);
+    }
+}